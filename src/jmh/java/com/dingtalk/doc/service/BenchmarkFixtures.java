@@ -0,0 +1,146 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.support.DocumentShape;
+import com.dingtalk.doc.support.SyntheticDocument;
+import com.dingtalk.doc.support.SyntheticDocumentGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基准测试夹具
+ * 提供录制的真实格式样本（fixtures 目录）以及 SyntheticDocumentGenerator 生成的合成文档
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class BenchmarkFixtures {
+
+    /**
+     * 使用录制样本（不放大）时的参数值
+     */
+    static final String RECORDED = "recorded";
+
+    /**
+     * 合成文档的固定种子，保证每次运行的输入一致
+     */
+    private static final long SEED = 20240115L;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 读取 fixtures 目录下的样本文件
+     */
+    static String load(String name) {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("缺少基准测试夹具: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 文档页面 HTML（包含 mainsite_server_content）
+     *
+     * @param size "recorded" 或 1KB/64KB/1MB/10MB/50MB 之类的目标大小
+     */
+    static String page(String size) {
+        if (RECORDED.equals(size)) {
+            return load("page.html");
+        }
+        // 真实页面中 mainsite_server_content 之外是大量脚本和样式，按目标大小填充
+        int target = parseSize(size);
+        return synthetic(DocumentShape.balanced(1024).toBuilder().pageBytes(target).build()).pageHtml();
+    }
+
+    /**
+     * /api/document/data 响应 JSON
+     *
+     * @param size "recorded" 或目标大小
+     */
+    static String documentData(String size) {
+        if (RECORDED.equals(size)) {
+            return load("document-data.json");
+        }
+        return synthetic(DocumentShape.balanced(parseSize(size))).documentDataJson();
+    }
+
+    /**
+     * 文档内容（main/parts/body 结构）
+     *
+     * @param size "recorded" 或目标大小
+     */
+    static ContentDocument content(String size) {
+        return content(size, "balanced");
+    }
+
+    /**
+     * 指定形态的文档内容
+     *
+     * @param size "recorded" 或目标大小
+     * @param shape balanced / tableHeavy / textOnly
+     */
+    static ContentDocument content(String size, String shape) {
+        if (RECORDED.equals(size)) {
+            try {
+                JsonNode data = MAPPER.readTree(load("document-data.json"));
+                String contentStr = data.path("data").path("documentContent").path("checkpoint").path("content").asText();
+                return ContentDocument.read(MAPPER.createParser(contentStr));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int target = parseSize(size);
+        DocumentShape documentShape = switch (shape) {
+            case "tableHeavy" -> DocumentShape.tableHeavy(target);
+            case "textOnly" -> DocumentShape.textOnly(target);
+            default -> DocumentShape.balanced(target);
+        };
+        return ContentDocument.from(synthetic(documentShape).getContent());
+    }
+
+    private static SyntheticDocument synthetic(DocumentShape shape) {
+        return new SyntheticDocumentGenerator(SEED).generate(shape);
+    }
+
+    /**
+     * gzip 压缩
+     */
+    static byte[] gzip(byte[] data) {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 4 + 64);
+             GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+            gos.write(data);
+            gos.finish();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 解析 1KB / 64KB / 10MB 之类的大小参数
+     */
+    static int parseSize(String size) {
+        String s = size.trim().toUpperCase();
+        if (s.endsWith("MB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024 * 1024;
+        }
+        if (s.endsWith("KB")) {
+            return Integer.parseInt(s.substring(0, s.length() - 2)) * 1024;
+        }
+        return Integer.parseInt(s);
+    }
+}
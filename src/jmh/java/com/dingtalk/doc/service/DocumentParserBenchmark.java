@@ -0,0 +1,79 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentParser 基准测试
+ * 覆盖 mainsite_server_content 提取和文档内容提取两个热点
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DocumentParserBenchmark {
+
+    @Param({"recorded", "1KB", "64KB", "1MB", "10MB", "50MB"})
+    public String size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DocumentParser parser;
+
+    private String page;
+
+    private String documentDataJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        parser = new DocumentParser(null, objectMapper, new ParseMetrics(new SimpleMeterRegistry()));
+        page = BenchmarkFixtures.page(size);
+        documentDataJson = BenchmarkFixtures.documentData(size);
+    }
+
+    /**
+     * Jsoup 解析页面并读取 mainsite_server_content
+     */
+    @Benchmark
+    public JsonNode extractMainsiteContent() {
+        return parser.extractMainsiteContent(page);
+    }
+
+    /**
+     * 与生产路径一致：流式取出 checkpoint.content，直接构建紧凑文档模型
+     */
+    @Benchmark
+    public ContentDocument extractDocumentContent() {
+        return parser.extractDocumentContent(documentDataJson);
+    }
+
+    /**
+     * 对照：先解析整个响应树，再把 checkpoint.content 解析为 Jackson 树
+     */
+    @Benchmark
+    public JsonNode readJsonTrees() throws Exception {
+        JsonNode documentData = objectMapper.readTree(documentDataJson);
+        return objectMapper.readTree(documentData.path("data").path("documentContent")
+            .path("checkpoint").path("content").asText());
+    }
+}
@@ -0,0 +1,63 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DingTalkHttpClient gzip 路径基准测试
+ * 对应 get/post 中“检测魔数 → 解压 → 解码字符串”的处理过程
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class GzipDecompressionBenchmark {
+
+    @Param({"recorded", "1KB", "64KB", "1MB", "10MB", "50MB"})
+    public String size;
+
+    private DingTalkHttpClient httpClient;
+
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() {
+        httpClient = new DingTalkHttpClient(null, new ParseMetrics(new SimpleMeterRegistry()),
+                new HttpClientMetrics(new SimpleMeterRegistry()), null, null);
+        byte[] raw = BenchmarkFixtures.documentData(size).getBytes(StandardCharsets.UTF_8);
+        compressed = BenchmarkFixtures.gzip(raw);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return httpClient.decompressGzip(compressed);
+    }
+
+    @Benchmark
+    public String detectDecompressAndDecode() {
+        byte[] body = compressed;
+        if (httpClient.isGzipCompressed(body)) {
+            body = httpClient.decompressGzip(body);
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,10 @@
 package com.dingtalk.doc.config;
 
+import com.dingtalk.doc.service.http.CircuitBreakerInterceptor;
+import com.dingtalk.doc.service.http.DeadlineAwareRequestFactory;
+import com.dingtalk.doc.service.http.DeadlineInterceptor;
+import com.dingtalk.doc.service.http.RateLimitInterceptor;
+import com.dingtalk.doc.service.metrics.HttpMetricsInterceptor;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -12,7 +17,6 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.client.RestTemplate;
 
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Positive;
 import javax.net.ssl.*;
 import java.nio.charset.StandardCharsets;
 import java.security.cert.X509Certificate;
@@ -46,12 +50,23 @@ public class AppConfig {
     /**
      * 配置 RestTemplate Bean，支持 UTF-8 编码
      * 解决中文乱码问题
+     *
+     * @param apiConfig 默认连接和读取超时
+     * @param timeoutConfig 按接口分类的超时配置
+     * @param deadlineInterceptor 文档时限拦截器
+     * @param circuitBreakerInterceptor 上游熔断拦截器
+     * @param rateLimitInterceptor 出站请求自适应限流拦截器
+     * @param metricsInterceptor 出站请求指标拦截器
      */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(api.getTimeout());
-        factory.setReadTimeout(api.getTimeout());
+    public RestTemplate restTemplate(DingTalkApiConfig apiConfig,
+                                     HttpTimeoutConfig timeoutConfig,
+                                     DeadlineInterceptor deadlineInterceptor,
+                                     CircuitBreakerInterceptor circuitBreakerInterceptor,
+                                     RateLimitInterceptor rateLimitInterceptor,
+                                     HttpMetricsInterceptor metricsInterceptor) {
+        // 连接和读取超时按接口分类设置，并受当前文档时限约束
+        SimpleClientHttpRequestFactory factory = new DeadlineAwareRequestFactory(apiConfig, timeoutConfig);
         // 重要：设置为 false，让我们手动处理响应体
         factory.setBufferRequestBody(false);
         
@@ -67,6 +82,14 @@ public class AppConfig {
             .filter(converter -> converter instanceof StringHttpMessageConverter)
             .forEach(converter -> ((StringHttpMessageConverter) converter).setDefaultCharset(StandardCharsets.UTF_8));
         
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(restTemplate.getInterceptors());
+        // 时限 -> 熔断 -> 限流 -> 计时：熔断时不排队，排队时间不计入上游耗时（熔断按扣除排队后的耗时判断慢调用）
+        interceptors.add(deadlineInterceptor);
+        interceptors.add(circuitBreakerInterceptor);
+        interceptors.add(rateLimitInterceptor);
+        interceptors.add(metricsInterceptor);
+        restTemplate.setInterceptors(interceptors);
+        
         return restTemplate;
     }
     
@@ -111,11 +134,5 @@ public class AppConfig {
          * 文档数据 API URL
          */
         private String documentDataUrl;
-        
-        /**
-         * 请求超时时间（毫秒）
-         */
-        @Positive(message = "超时时间必须大于 0")
-        private int timeout = 30000;
     }
 }
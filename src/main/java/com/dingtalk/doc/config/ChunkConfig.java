@@ -0,0 +1,40 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 分块导出配置（chunks 输出格式，供向量化 / RAG 索引使用）
+ * 按标题切分章节，章节过长时按 token 数切分，相邻分块之间保留一段重叠
+ *
+ * <pre>
+ * export.chunk.max-tokens=512
+ * export.chunk.overlap-tokens=64
+ * </pre>
+ *
+ * token 数为近似值：中日韩字符每个计 1，连续的字母数字每 4 个计 1，其它符号每个计 1
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "export.chunk")
+public class ChunkConfig {
+
+    /**
+     * 每个分块的最大 token 数
+     */
+    @Positive
+    private int maxTokens = 512;
+
+    /**
+     * 相邻分块之间重叠的 token 数，不小于 max-tokens 时按 max-tokens 的一半处理
+     */
+    @PositiveOrZero
+    private int overlapTokens = 64;
+}
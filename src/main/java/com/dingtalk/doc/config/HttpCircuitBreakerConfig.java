@@ -0,0 +1,116 @@
+package com.dingtalk.doc.config;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 上游熔断配置
+ * 每个上游（文档页面、文档数据、图片 CDN、oauth2、开放平台）一个熔断器，
+ * 按最近 sliding-window-size 次调用的失败率和慢调用率判断是否打开
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dingtalk.http.circuit-breaker")
+public class HttpCircuitBreakerConfig {
+
+    /**
+     * 是否启用熔断
+     */
+    private boolean enabled = true;
+
+    /**
+     * 统计窗口：最近多少次调用
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * 窗口内至少多少次调用后才开始判断
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * 失败率阈值（百分比），连接异常、超时和 5xx 计为失败
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * 慢调用阈值（毫秒）
+     */
+    private long slowCallThreshold = 10000;
+
+    /**
+     * 慢调用率阈值（百分比）
+     */
+    private int slowCallRateThreshold = 80;
+
+    /**
+     * 打开状态持续时间（毫秒），之后进入半开状态放行探测请求
+     */
+    private long openDuration = 30000;
+
+    /**
+     * 半开状态放行的探测请求数，全部成功后关闭熔断器
+     */
+    private int halfOpenProbes = 3;
+
+    /**
+     * 按接口分类覆盖的配置
+     */
+    private Map<UpstreamEndpoint, Endpoint> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 接口级配置，未设置的字段沿用默认值
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 是否启用熔断
+         */
+        private Boolean enabled;
+
+        /**
+         * 失败率阈值（百分比）
+         */
+        private Integer failureRateThreshold;
+
+        /**
+         * 慢调用阈值（毫秒）
+         */
+        private Long slowCallThreshold;
+
+        /**
+         * 打开状态持续时间（毫秒）
+         */
+        private Long openDuration;
+    }
+
+    public boolean enabled(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return enabled && (override == null || override.getEnabled() == null || override.getEnabled());
+    }
+
+    public int failureRateThreshold(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getFailureRateThreshold() != null
+            ? override.getFailureRateThreshold() : failureRateThreshold;
+    }
+
+    public long slowCallThreshold(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getSlowCallThreshold() != null
+            ? override.getSlowCallThreshold() : slowCallThreshold;
+    }
+
+    public long openDuration(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getOpenDuration() != null ? override.getOpenDuration() : openDuration;
+    }
+}
@@ -0,0 +1,124 @@
+package com.dingtalk.doc.config;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站 HTTP 自适应限流配置
+ * 每个接口分类一个令牌桶，速率在 [min-rate, max-rate] 之间按 AIMD 自动调整：
+ * 正常响应时加性增加，收到 429/503 或响应过慢时乘性减少
+ *
+ * <pre>
+ * dingtalk.http.rate-limit.initial-rate=10
+ * dingtalk.http.rate-limit.endpoints.image.max-rate=200
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dingtalk.http.rate-limit")
+public class HttpRateLimitConfig {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始速率（请求/秒）
+     */
+    private double initialRate = 10;
+
+    /**
+     * 最低速率（请求/秒）
+     */
+    private double minRate = 1;
+
+    /**
+     * 最高速率（请求/秒）
+     */
+    private double maxRate = 100;
+
+    /**
+     * 加性增加：满负荷运行时每秒增加的速率（请求/秒）
+     */
+    private double additiveIncrease = 1.0;
+
+    /**
+     * 乘性减少：收到限流信号时速率乘以该系数
+     */
+    private double multiplicativeDecrease = 0.5;
+
+    /**
+     * 响应慢于该值（毫秒）时视为拥塞
+     */
+    private long latencyThreshold = 3000;
+
+    /**
+     * 两次减速之间的最小间隔（毫秒），避免同一批 429 把速率连续减半
+     */
+    private long decreaseCooldown = 1000;
+
+    /**
+     * 等待令牌的最长时间（毫秒），超过后请求直接失败
+     */
+    private long maxWait = 60000;
+
+    /**
+     * 按接口分类覆盖的速率范围
+     */
+    private Map<UpstreamEndpoint, Endpoint> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 接口级配置，未设置的字段沿用默认值
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 是否对该接口限流
+         */
+        private Boolean enabled;
+
+        /**
+         * 初始速率（请求/秒）
+         */
+        private Double initialRate;
+
+        /**
+         * 最低速率（请求/秒）
+         */
+        private Double minRate;
+
+        /**
+         * 最高速率（请求/秒）
+         */
+        private Double maxRate;
+    }
+
+    public boolean enabled(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return enabled && (override == null || override.getEnabled() == null || override.getEnabled());
+    }
+
+    public double initialRate(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getInitialRate() != null ? override.getInitialRate() : initialRate;
+    }
+
+    public double minRate(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getMinRate() != null ? override.getMinRate() : minRate;
+    }
+
+    public double maxRate(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getMaxRate() != null ? override.getMaxRate() : maxRate;
+    }
+}
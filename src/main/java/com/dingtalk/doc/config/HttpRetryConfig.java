@@ -0,0 +1,128 @@
+package com.dingtalk.doc.config;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站 HTTP 重试配置
+ * 顶层字段是默认策略，endpoints 中可以按接口分类覆盖部分字段
+ *
+ * <pre>
+ * dingtalk.http.retry.max-attempts=3
+ * dingtalk.http.retry.endpoints.image.max-attempts=2
+ * dingtalk.http.retry.endpoints.document-data.idempotent=true
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dingtalk.http.retry")
+public class HttpRetryConfig {
+
+    /**
+     * 是否启用重试
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最大尝试次数（包含第一次请求）
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 首次重试前的退避时间（毫秒）
+     */
+    private long initialBackoff = 200;
+
+    /**
+     * 退避时间上限（毫秒）
+     */
+    private long maxBackoff = 5000;
+
+    /**
+     * 退避倍数
+     */
+    private double multiplier = 2.0;
+
+    /**
+     * 抖动比例，0 表示不抖动，1 表示在 [0, 退避时间] 内均匀随机
+     */
+    private double jitter = 0.5;
+
+    /**
+     * 能接受的 Retry-After 上限（毫秒），服务端要求等待更久时直接放弃重试
+     */
+    private long maxRetryAfter = 30000;
+
+    /**
+     * 全局重试预算：每个请求存入的令牌数，即重试数占请求数的比例上限
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * 全局重试预算：令牌上限，也是启动时的初始令牌数（允许的重试突发量）
+     */
+    private int budgetBurst = 20;
+
+    /**
+     * 按接口分类覆盖的策略
+     */
+    private Map<UpstreamEndpoint, Endpoint> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 接口级策略，未设置的字段沿用默认值
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 最大尝试次数
+         */
+        private Integer maxAttempts;
+
+        /**
+         * 首次重试前的退避时间（毫秒）
+         */
+        private Long initialBackoff;
+
+        /**
+         * 退避时间上限（毫秒）
+         */
+        private Long maxBackoff;
+
+        /**
+         * 是否按幂等请求处理。未设置时按请求方法判断（GET/HEAD/PUT/DELETE/OPTIONS 幂等）。
+         * 只读的 POST 接口（如 /api/document/data）可以设为 true
+         */
+        private Boolean idempotent;
+    }
+
+    public int maxAttempts(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getMaxAttempts() != null ? override.getMaxAttempts() : maxAttempts;
+    }
+
+    public long initialBackoff(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getInitialBackoff() != null ? override.getInitialBackoff() : initialBackoff;
+    }
+
+    public long maxBackoff(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null && override.getMaxBackoff() != null ? override.getMaxBackoff() : maxBackoff;
+    }
+
+    /**
+     * 接口配置的幂等性，未配置时返回 null
+     */
+    public Boolean idempotent(UpstreamEndpoint endpoint) {
+        Endpoint override = endpoints.get(endpoint);
+        return override != null ? override.getIdempotent() : null;
+    }
+}
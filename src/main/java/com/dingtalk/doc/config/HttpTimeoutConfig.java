@@ -0,0 +1,72 @@
+package com.dingtalk.doc.config;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 出站 HTTP 超时配置
+ * 按接口分类设置连接和读取超时，未配置的分类使用 dingtalk.api.connect-timeout / read-timeout；
+ * document-deadline 是单个文档从开始解析到保存完成的总时限
+ *
+ * <pre>
+ * dingtalk.http.timeout.document-deadline=120000
+ * dingtalk.http.timeout.endpoints.image.read-timeout=10000
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "dingtalk.http.timeout")
+public class HttpTimeoutConfig {
+
+    /**
+     * 单个文档的总时限（毫秒）
+     */
+    private long documentDeadline = 120000;
+
+    /**
+     * 按接口分类的超时
+     */
+    private Map<UpstreamEndpoint, Profile> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 超时配置，未设置的字段沿用默认值
+     */
+    @Data
+    public static class Profile {
+
+        /**
+         * 连接超时（毫秒）
+         */
+        private Integer connectTimeout;
+
+        /**
+         * 读取超时（毫秒）
+         */
+        private Integer readTimeout;
+    }
+
+    /**
+     * @param endpoint 接口分类
+     * @param defaultTimeout 默认连接超时
+     */
+    public int connectTimeout(UpstreamEndpoint endpoint, int defaultTimeout) {
+        Profile profile = endpoint == null ? null : endpoints.get(endpoint);
+        return profile != null && profile.getConnectTimeout() != null ? profile.getConnectTimeout() : defaultTimeout;
+    }
+
+    /**
+     * @param endpoint 接口分类
+     * @param defaultTimeout 默认读取超时
+     */
+    public int readTimeout(UpstreamEndpoint endpoint, int defaultTimeout) {
+        Profile profile = endpoint == null ? null : endpoints.get(endpoint);
+        return profile != null && profile.getReadTimeout() != null ? profile.getReadTimeout() : defaultTimeout;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 知识库批量解析（parse-all）配置
+ * 每个知识库的进度记录在输出目录下的检查点日志中，进程重启后再次调用时跳过已完成的文档，
+ * 失败的文档按退避间隔重试
+ *
+ * <pre>
+ * parse-all.checkpoint-dir=.checkpoints
+ * parse-all.max-attempts=3
+ * parse-all.retry-backoff=2000
+ * parse-all.retry-backoff-max=60000
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "parse-all")
+public class ParseAllConfig {
+
+    /**
+     * 检查点日志目录，相对于输出基础目录
+     */
+    @NotBlank
+    private String checkpointDir = ".checkpoints";
+
+    /**
+     * 一次批量解析中每个文档最多尝试的次数
+     */
+    @Positive
+    private int maxAttempts = 3;
+
+    /**
+     * 第一次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    @Positive
+    private long retryBackoff = 2000;
+
+    /**
+     * 重试等待时间上限（毫秒）
+     */
+    @Positive
+    private long retryBackoffMax = 60000;
+}
@@ -0,0 +1,59 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 解析调度配置
+ * 同时处理的文档数有总上限，交互解析和批量任务各有自己的上限；
+ * 批量上限低于总上限，留出的名额只给交互解析。同一类别内按来源（Cookie / 知识库）加权公平排队
+ *
+ * <pre>
+ * parse.scheduler.max-concurrency=12
+ * parse.scheduler.interactive-concurrency=12
+ * parse.scheduler.bulk-concurrency=8
+ * parse.scheduler.weights.{workspaceId}=2
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "parse.scheduler")
+public class ParseSchedulerConfig {
+
+    /**
+     * 是否开启调度，关闭时不限制并发
+     */
+    private boolean enabled = true;
+
+    /**
+     * 同时处理的文档总数上限
+     */
+    @Positive
+    private int maxConcurrency = 12;
+
+    /**
+     * 交互解析（/api/document/parse 等单文档解析）同时处理的上限
+     */
+    @Positive
+    private int interactiveConcurrency = 12;
+
+    /**
+     * 批量任务（parse-all、知识库导出）同时处理的上限，低于总上限时差额留给交互解析
+     */
+    @Positive
+    private int bulkConcurrency = 8;
+
+    /**
+     * 来源权重，键为知识库 ID（批量任务）或来源标识，默认 1；权重越大，排队时分到的名额越多
+     */
+    private Map<String, Integer> weights = new HashMap<>();
+}
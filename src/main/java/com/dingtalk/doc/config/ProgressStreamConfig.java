@@ -0,0 +1,49 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 解析进度流（SSE）配置
+ * 流式接口的解析在专用线程池上执行，请求线程立即返回，进度以 SSE 事件推送
+ *
+ * <pre>
+ * progress.stream.threads=4
+ * progress.stream.timeout=1800000
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "progress.stream")
+public class ProgressStreamConfig {
+
+    /**
+     * 执行流式解析的线程数
+     */
+    @Positive
+    private int threads = 4;
+
+    /**
+     * 等待执行的流式解析数，超过时直接返回 error 事件
+     */
+    @Positive
+    private int queueCapacity = 64;
+
+    /**
+     * 连接最长保持时间（毫秒），批量解析需要足够长
+     */
+    @Positive
+    private long timeout = 1800000;
+
+    /**
+     * 心跳间隔（毫秒），没有进度事件时发送 SSE 注释保持连接
+     */
+    @Positive
+    private long heartbeatInterval = 15000;
+}
@@ -0,0 +1,54 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 全文检索索引配置
+ * 索引保存在输出目录下的 .index 目录，文档提交时增量更新
+ *
+ * <pre>
+ * search.index.enabled=true
+ * search.index.flush-docs=200
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "search.index")
+public class SearchIndexConfig {
+
+    /**
+     * 是否开启全文检索索引
+     */
+    private boolean enabled = true;
+
+    /**
+     * 内存中累积多少个文档后写成一个索引段
+     */
+    @Positive
+    private int flushDocs = 200;
+
+    /**
+     * 内存中的文档最长多久写盘一次（毫秒），进程崩溃时最多丢失这段时间的索引（启动时会补建）
+     */
+    @Positive
+    private long flushInterval = 30000;
+
+    /**
+     * 索引段超过该数量时在后台合并为一个
+     */
+    @Positive
+    private int maxSegments = 8;
+
+    /**
+     * 摘要长度（字符数）
+     */
+    @Positive
+    private int snippetLength = 120;
+}
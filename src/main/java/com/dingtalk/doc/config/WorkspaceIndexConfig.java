@@ -0,0 +1,48 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 知识库节点树本地索引配置
+ * 知识库列表和节点树保存在本地，列表、路径解析和增量查询直接读索引，后台定期与开放平台对账
+ *
+ * <pre>
+ * dingtalk.api.tree-index.enabled=true
+ * dingtalk.api.tree-index.dir=workspace-index
+ * dingtalk.api.tree-index.refresh-interval=600000
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "dingtalk.api.tree-index")
+public class WorkspaceIndexConfig {
+
+    /**
+     * 是否开启本地索引，关闭时所有查询直接调用开放平台
+     */
+    private boolean enabled = true;
+
+    /**
+     * 索引目录（相对路径相对于工作目录）
+     */
+    private String dir = "workspace-index";
+
+    /**
+     * 后台对账间隔（毫秒）
+     */
+    @Positive
+    private long refreshInterval = 600000;
+
+    /**
+     * 删除记录保留时间（毫秒），超过后增量查询不再返回
+     */
+    @Positive
+    private long tombstoneRetention = 30L * 24 * 3600 * 1000;
+}
@@ -0,0 +1,62 @@
+package com.dingtalk.doc.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * 输出异步写入（write-behind）配置
+ * 开启后图片写入和 Markdown 提交交给专用的 I/O 线程，请求线程在入队后即返回；
+ * 队列满时请求线程阻塞等待（背压），最多等待 enqueue-timeout，超时后该次写入失败
+ *
+ * <pre>
+ * file.output.write-behind.enabled=true
+ * file.output.write-behind.queue-capacity=1024
+ * file.output.write-behind.enqueue-timeout=30000
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Validated
+@Configuration
+@ConfigurationProperties(prefix = "file.output.write-behind")
+public class WriteBehindConfig {
+
+    /**
+     * 是否开启异步写入，关闭时在请求线程上同步写入
+     */
+    private boolean enabled = false;
+
+    /**
+     * 队列总容量（写入任务数），平均分给各 I/O 线程
+     */
+    @Positive
+    private int queueCapacity = 1024;
+
+    /**
+     * I/O 线程数，同一文档的写入固定在同一个线程上按顺序执行
+     */
+    @Positive
+    private int threads = 2;
+
+    /**
+     * 每批最多处理的任务数
+     */
+    @Positive
+    private int batchSize = 32;
+
+    /**
+     * 队列满时提交方最多等待的时间（毫秒），I/O 线程卡住（例如存储挂起）时请求不会无限阻塞
+     */
+    @Positive
+    private long enqueueTimeout = 30000;
+
+    /**
+     * 关闭应用时等待队列写完的时间（毫秒）
+     */
+    @Positive
+    private long shutdownTimeout = 30000;
+}
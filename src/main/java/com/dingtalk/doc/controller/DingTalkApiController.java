@@ -1,19 +1,38 @@
 package com.dingtalk.doc.controller;
 
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import com.dingtalk.doc.exception.DeadlineExceededException;
+import com.dingtalk.doc.exception.ParseAllConflictException;
 import com.dingtalk.doc.model.DingTalkUser;
 import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.model.ParseAllResult;
 import com.dingtalk.doc.model.Workspace;
 import com.dingtalk.doc.service.FileManager;
 import com.dingtalk.doc.service.MarkdownGenerator;
 import com.dingtalk.doc.service.api.DingTalkAuthService;
 import com.dingtalk.doc.service.api.DingTalkUserService;
 import com.dingtalk.doc.service.api.DingTalkWorkspaceService;
+import com.dingtalk.doc.service.api.WorkspaceTree;
+import com.dingtalk.doc.service.api.WorkspaceTreeIndex;
+import com.dingtalk.doc.service.batch.WorkspaceParseService;
+import com.dingtalk.doc.service.export.ArchiveFormat;
+import com.dingtalk.doc.service.export.WorkspaceExportService;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.progress.ParseProgressStreams;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.service.scheduler.Priority;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -36,6 +55,12 @@ public class DingTalkApiController {
     private final DingTalkUserService userService;
     private final MarkdownGenerator markdownGenerator;
     private final FileManager fileManager;
+    private final WorkspaceExportService exportService;
+    private final WorkspaceParseService parseService;
+    private final WorkspaceTreeIndex treeIndex;
+    private final ParseProgressStreams progressStreams;
+    private final ParseScheduler scheduler;
+    private final HttpTimeoutConfig timeoutConfig;
     
     /**
      * 1. 获取 AccessToken
@@ -73,12 +98,20 @@ public class DingTalkApiController {
      * GET /api/dingtalk/workspaces
      */
     @GetMapping("/workspaces")
-    public ResponseEntity<Map<String, Object>> getWorkspaces() {
+    public ResponseEntity<Map<String, Object>> getWorkspaces(
+            @RequestParam(defaultValue = "false") boolean refresh) {
         try {
-            List<Workspace> workspaces = workspaceService.getWorkspaces();
+            // 优先读本地索引，未索引或要求刷新时调用开放平台
+            List<Workspace> workspaces = refresh ? null : treeIndex.getWorkspaces();
+            String source = "index";
+            if (workspaces == null) {
+                workspaces = treeIndex.syncWorkspaces();
+                source = "api";
+            }
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
+            result.put("source", source);
             result.put("count", workspaces.size());
             result.put("workspaces", workspaces);
             result.put("message", "知识库列表获取成功");
@@ -100,16 +133,30 @@ public class DingTalkApiController {
      * 3. 获取指定知识库的节点列表
      * 
      * GET /api/dingtalk/workspaces/{workspaceId}/nodes
+     * 
+     * 已索引的知识库直接读本地节点树；未索引时调用开放平台并在后台建立索引，refresh=true 时先完整同步
      */
     @GetMapping("/workspaces/{workspaceId}/nodes")
     public ResponseEntity<Map<String, Object>> getNodes(
             @PathVariable String workspaceId,
-            @RequestParam(required = false) String parentNodeId) {
+            @RequestParam(required = false) String parentNodeId,
+            @RequestParam(defaultValue = "false") boolean refresh) {
         try {
-            List<DocNode> nodes = workspaceService.getNodes(workspaceId, parentNodeId);
+            WorkspaceTree tree = refresh ? treeIndex.sync(workspaceId) : treeIndex.getTree(workspaceId);
+            List<DocNode> nodes;
+            if (tree != null) {
+                nodes = tree.children(parentNodeId);
+            } else {
+                nodes = workspaceService.getNodes(workspaceId, parentNodeId);
+                treeIndex.syncLater(workspaceId);
+            }
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
+            result.put("source", tree != null ? "index" : "api");
+            if (tree != null) {
+                result.put("syncedAt", tree.getSyncedAt());
+            }
             result.put("workspaceId", workspaceId);
             result.put("parentNodeId", parentNodeId);
             result.put("count", nodes.size());
@@ -165,12 +212,15 @@ public class DingTalkApiController {
      * 5. 解析文档并生成 Markdown
      * 
      * POST /api/dingtalk/workspaces/{workspaceId}/nodes/{nodeId}/parse
+     * 
+     * 与单文档解析相同，取得执行名额后开始计算文档处理时限，超过时限返回 504
      */
     @PostMapping("/workspaces/{workspaceId}/nodes/{nodeId}/parse")
     public ResponseEntity<Map<String, Object>> parseDocument(
             @PathVariable String workspaceId,
             @PathVariable String nodeId) {
-        try {
+        try (ParseScheduler.Permit permit = scheduler.acquire(Priority.INTERACTIVE, workspaceId);
+             Deadline.Scope ignored = Deadline.after(timeoutConfig.getDocumentDeadline()).bind()) {
             // 1. 获取节点信息
             DocNode node = workspaceService.getNode(workspaceId, nodeId);
             
@@ -178,18 +228,20 @@ public class DingTalkApiController {
             JsonNode content = workspaceService.getDocumentContent(workspaceId, nodeId);
             
             // 3. 准备输出目录
-            String outputDir = fileManager.prepareOutputDirectory(node.getName());
-            
-            // 4. 生成 Markdown
-            String markdown = markdownGenerator.generateMarkdown(
-                content,
-                node.getName(),
-                null,  // 使用 API 不需要 Cookie
-                outputDir
-            );
-            
-            // 5. 保存文件
-            String filePath = fileManager.saveMarkdownFile(node.getName(), markdown);
+            String markdown;
+            String filePath;
+            try (FileManager.StagedOutput output = fileManager.stageOutput(node.getName())) {
+                // 4. 生成 Markdown
+                markdown = markdownGenerator.generateMarkdown(
+                    content,
+                    node.getName(),
+                    null,  // 使用 API 不需要 Cookie
+                    output.getDirectory()
+                );
+                
+                // 5. 保存文件
+                filePath = fileManager.commitOutput(output, markdown);
+            }
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -207,6 +259,14 @@ public class DingTalkApiController {
             
             Map<String, Object> result = new HashMap<>();
             result.put("success", false);
+            
+            // 超过文档处理时限时返回 504
+            DeadlineExceededException deadlineExceeded = DeadlineExceededException.find(e);
+            if (deadlineExceeded != null) {
+                result.put("message", "文档处理超时: " + deadlineExceeded.getMessage());
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(result);
+            }
+            
             result.put("message", "解析文档失败: " + e.getMessage());
             
             return ResponseEntity.status(500).body(result);
@@ -216,66 +276,21 @@ public class DingTalkApiController {
     /**
      * 6. 批量解析知识库中的所有文档
      * 
-     * POST /api/dingtalk/workspaces/{workspaceId}/parse-all
+     * POST /api/dingtalk/workspaces/{workspaceId}/parse-all?resume=true
+     * 
+     * 进度记录在检查点中，中断（进程重启等）后再次调用时跳过已完成的文档，失败的文档按退避间隔重试；
+     * resume=false 时丢弃检查点从头开始。该知识库已有批量解析在进行时返回 409
      */
     @PostMapping("/workspaces/{workspaceId}/parse-all")
     public ResponseEntity<Map<String, Object>> parseAllDocuments(
-            @PathVariable String workspaceId) {
+            @PathVariable String workspaceId,
+            @RequestParam(defaultValue = "true") boolean resume) {
         try {
-            // 1. 获取所有节点
-            List<DocNode> allNodes = workspaceService.getAllNodesRecursively(workspaceId, null);
-            
-            int successCount = 0;
-            int failureCount = 0;
-            int skippedCount = 0;
-            
-            // 2. 遍历所有节点，只处理文件类型
-            for (DocNode node : allNodes) {
-                if (!"file".equals(node.getType())) {
-                    skippedCount++;
-                    continue;
-                }
-                
-                try {
-                    // 获取文档内容
-                    JsonNode content = workspaceService.getDocumentContent(workspaceId, node.getNodeId());
-                    
-                    // 准备输出目录
-                    String outputDir = fileManager.prepareOutputDirectory(node.getName());
-                    
-                    // 生成 Markdown
-                    String markdown = markdownGenerator.generateMarkdown(
-                        content,
-                        node.getName(),
-                        null,
-                        outputDir
-                    );
-                    
-                    // 保存文件
-                    fileManager.saveMarkdownFile(node.getName(), markdown);
-                    
-                    successCount++;
-                    log.info("成功解析文档: {}", node.getName());
-                    
-                } catch (Exception e) {
-                    failureCount++;
-                    log.error("解析文档失败: {}", node.getName(), e);
-                }
-            }
+            return ResponseEntity.ok(toResponse(parseService.parseAll(workspaceId, resume, null)));
             
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("workspaceId", workspaceId);
-            result.put("totalNodes", allNodes.size());
-            result.put("successCount", successCount);
-            result.put("failureCount", failureCount);
-            result.put("skippedCount", skippedCount);
-            result.put("message", String.format(
-                "批量解析完成: 成功 %d 个，失败 %d 个，跳过 %d 个",
-                successCount, failureCount, skippedCount
-            ));
-            
-            return ResponseEntity.ok(result);
+        } catch (ParseAllConflictException e) {
+            log.warn("批量解析冲突: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(toConflictResponse(e));
             
         } catch (Exception e) {
             log.error("批量解析文档失败: workspaceId={}", workspaceId, e);
@@ -288,6 +303,69 @@ public class DingTalkApiController {
         }
     }
     
+    /**
+     * 6.1 批量解析知识库中的所有文档，以 SSE 推送进度
+     * 
+     * POST /api/dingtalk/workspaces/{workspaceId}/parse-all/stream?resume=true
+     * 
+     * 每个文档完成时推送 document 事件（状态、耗时、下载字节数、完成数 / 总数），
+     * 文档内的图片下载推送 stage 事件；最后推送 result（与 parse-all 的响应体相同）或 error 事件
+     */
+    @PostMapping("/workspaces/{workspaceId}/parse-all/stream")
+    public SseEmitter parseAllDocumentsStream(
+            @PathVariable String workspaceId,
+            @RequestParam(defaultValue = "true") boolean resume) {
+        return progressStreams.start(progress -> {
+            try {
+                progress.complete(toResponse(parseService.parseAll(workspaceId, resume, progress)));
+            } catch (ParseAllConflictException e) {
+                log.warn("批量解析冲突: {}", e.getMessage());
+                progress.fail(toConflictResponse(e));
+            } catch (Exception e) {
+                log.error("批量解析文档失败: workspaceId={}", workspaceId, e);
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", false);
+                result.put("message", "批量解析文档失败: " + e.getMessage());
+                progress.fail(result);
+            }
+        });
+    }
+    
+    /**
+     * 批量解析冲突的响应体，带上正在进行的那次批量解析的开始时间
+     */
+    private Map<String, Object> toConflictResponse(ParseAllConflictException e) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("workspaceId", e.getWorkspaceId());
+        result.put("runningSince", e.getStartedAt());
+        result.put("message", e.getMessage());
+        return result;
+    }
+    
+    private Map<String, Object> toResponse(ParseAllResult parsed) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("workspaceId", parsed.getWorkspaceId());
+        result.put("totalNodes", parsed.getTotalNodes());
+        result.put("successCount", parsed.getSuccessCount());
+        result.put("failureCount", parsed.getFailureCount());
+        result.put("skippedCount", parsed.getSkippedCount());
+        result.put("resumedCount", parsed.getResumedCount());
+        result.put("retriedCount", parsed.getRetriedCount());
+        result.put("complete", parsed.isComplete());
+        String message = String.format(
+            "批量解析完成: 成功 %d 个，失败 %d 个，跳过 %d 个",
+            parsed.getSuccessCount(), parsed.getFailureCount(), parsed.getSkippedCount()
+        );
+        if (parsed.getResumedCount() > 0) {
+            message += String.format("，之前已完成 %d 个", parsed.getResumedCount());
+        }
+        result.put("message", message);
+        return result;
+    }
+    
     /**
      * 7. 强制刷新 AccessToken
      * 
@@ -449,4 +527,109 @@ public class DingTalkApiController {
             return ResponseEntity.status(500).body(result);
         }
     }
+    
+    /**
+     * 12. 导出知识库为归档文件（流式下载）
+     * 
+     * GET /api/dingtalk/workspaces/{workspaceId}/export?format=zip|tar.gz&chunks=true
+     * 
+     * 文档逐个渲染后立即写入响应（chunked），不在本地落盘；chunks=true 时每个文档同时附带分块 JSONL
+     */
+    @GetMapping("/workspaces/{workspaceId}/export")
+    public ResponseEntity<StreamingResponseBody> exportWorkspace(
+            @PathVariable String workspaceId,
+            @RequestParam(defaultValue = "zip") String format,
+            @RequestParam(defaultValue = "false") boolean chunks) {
+        ArchiveFormat archiveFormat = ArchiveFormat.fromExtension(format);
+        if (archiveFormat == null) {
+            log.warn("不支持的导出格式: {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> exportService.export(workspaceId, archiveFormat, chunks, out);
+        String fileName = workspaceId + "." + archiveFormat.getExtension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(archiveFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+            .body(body);
+    }
+    
+    /**
+     * 13. 按名称路径查找节点（读本地索引）
+     * 
+     * GET /api/dingtalk/workspaces/{workspaceId}/nodes/resolve?path=/目录/子目录/文档
+     */
+    @GetMapping("/workspaces/{workspaceId}/nodes/resolve")
+    public ResponseEntity<Map<String, Object>> resolveNode(
+            @PathVariable String workspaceId,
+            @RequestParam String path) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            WorkspaceTree tree = treeIndex.getOrSync(workspaceId);
+            if (tree == null) {
+                result.put("success", false);
+                result.put("message", "知识库索引未开启");
+                return ResponseEntity.status(503).body(result);
+            }
+            
+            DocNode node = tree.resolve(path);
+            if (node == null) {
+                result.put("success", false);
+                result.put("message", "节点不存在: " + path);
+                return ResponseEntity.status(404).body(result);
+            }
+            
+            result.put("success", true);
+            result.put("workspaceId", workspaceId);
+            result.put("path", tree.pathOf(node.getNodeId()));
+            result.put("node", node);
+            result.put("syncedAt", tree.getSyncedAt());
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("解析节点路径失败: workspaceId={}, path={}", workspaceId, path, e);
+            result.put("success", false);
+            result.put("message", "解析节点路径失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(result);
+        }
+    }
+    
+    /**
+     * 14. 查询指定时间之后变化的节点（读本地索引）
+     * 
+     * GET /api/dingtalk/workspaces/{workspaceId}/changes?since=1700000000000
+     * 
+     * 返回新增、修改、改名或移动的节点和被删除的节点；下次查询可以把本次返回的 syncedAt 作为 since
+     */
+    @GetMapping("/workspaces/{workspaceId}/changes")
+    public ResponseEntity<Map<String, Object>> getChanges(
+            @PathVariable String workspaceId,
+            @RequestParam long since) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            WorkspaceTree tree = treeIndex.getOrSync(workspaceId);
+            if (tree == null) {
+                result.put("success", false);
+                result.put("message", "知识库索引未开启");
+                return ResponseEntity.status(503).body(result);
+            }
+            
+            List<DocNode> changed = tree.changedSince(since);
+            List<WorkspaceTree.Tombstone> deleted = tree.deletedSince(since);
+            result.put("success", true);
+            result.put("workspaceId", workspaceId);
+            result.put("since", since);
+            result.put("syncedAt", tree.getSyncedAt());
+            result.put("changed", changed);
+            result.put("deleted", deleted);
+            result.put("message", String.format("变化 %d 个，删除 %d 个", changed.size(), deleted.size()));
+            return ResponseEntity.ok(result);
+            
+        } catch (Exception e) {
+            log.error("查询节点变化失败: workspaceId={}", workspaceId, e);
+            result.put("success", false);
+            result.put("message", "查询节点变化失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(result);
+        }
+    }
 }
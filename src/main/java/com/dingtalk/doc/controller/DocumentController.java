@@ -1,20 +1,44 @@
 package com.dingtalk.doc.controller;
 
+import com.dingtalk.doc.exception.CircuitOpenException;
+import com.dingtalk.doc.exception.DeadlineExceededException;
 import com.dingtalk.doc.model.DocumentResult;
 import com.dingtalk.doc.model.dto.HealthResponse;
 import com.dingtalk.doc.model.dto.ParseRequest;
 import com.dingtalk.doc.model.dto.ParseResponse;
+import com.dingtalk.doc.model.dto.SearchResponse;
 import com.dingtalk.doc.service.DocumentService;
+import com.dingtalk.doc.service.progress.ParseProgressStreams;
+import com.dingtalk.doc.service.render.RenderFormat;
+import com.dingtalk.doc.service.search.SearchIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 文档控制器
@@ -29,7 +53,24 @@ import org.springframework.web.bind.annotation.*;
 @Tag(name = "文档解析", description = "钉钉文档解析 API")
 public class DocumentController {
     
+    private static final MediaType MARKDOWN_TYPE = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    
+    /**
+     * 小于该大小的文件直接复制，sendfile 的额外开销不划算（与 Tomcat DefaultServlet 的默认值一致）
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+    
+    // Tomcat sendfile 请求属性
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    private static final int MAX_SEARCH_LIMIT = 100;
+    
     private final DocumentService documentService;
+    private final SearchIndex searchIndex;
+    private final ParseProgressStreams progressStreams;
     
     /**
      * 解析钉钉文档
@@ -38,26 +79,37 @@ public class DocumentController {
      * @return 解析响应
      */
     @PostMapping("/parse")
-    @Operation(summary = "解析钉钉文档", description = "解析钉钉文档并生成 Markdown 文件")
+    @Operation(summary = "解析钉钉文档", description = "解析钉钉文档并生成 Markdown 文件，可同时生成 HTML、纯文本和 JSON AST")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "解析成功"),
         @ApiResponse(responseCode = "400", description = "请求参数错误"),
-        @ApiResponse(responseCode = "500", description = "服务器内部错误")
+        @ApiResponse(responseCode = "500", description = "服务器内部错误"),
+        @ApiResponse(responseCode = "503", description = "钉钉上游已熔断，稍后重试"),
+        @ApiResponse(responseCode = "504", description = "文档处理超过时限")
     })
     public ResponseEntity<ParseResponse> parseDocument(@Valid @RequestBody ParseRequest request) {
         log.info("收到文档解析请求: {}", request.getDocumentUrl());
         
+        Set<RenderFormat> formats;
+        try {
+            formats = parseFormats(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ParseResponse.failure("输出格式错误", e.getMessage()));
+        }
+        
         try {
             // 调用服务解析文档
             DocumentResult result = documentService.parseDocument(
                 request.getDocumentUrl(),
-                request.getCookie()
+                request.getCookie(),
+                formats
             );
             
             // 构造成功响应
             ParseResponse response = ParseResponse.success(
                 "文档解析成功",
-                result.getFilePath()
+                result.getFilePath(),
+                result.getFiles()
             );
             
             log.info("文档解析成功: {}", result.getFilePath());
@@ -65,15 +117,87 @@ public class DocumentController {
             
         } catch (Exception e) {
             log.error("文档解析失败", e);
+            return failure(e);
+        }
+    }
+    
+    /**
+     * 解析钉钉文档，以 SSE 推送进度
+     * 依次推送各步骤的开始和结束（带耗时和下载字节数，每张图片一组事件），
+     * 最后推送 result（与 /parse 的响应体相同）或 error 事件后关闭连接
+     * 
+     * @param request 解析请求
+     * @return 进度事件流
+     */
+    @PostMapping("/parse/stream")
+    @Operation(summary = "解析钉钉文档（进度流）", description = "与 /parse 相同，以 Server-Sent Events 推送各步骤进度，最后推送 result 或 error 事件")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "进度事件流（输出格式错误等失败以 error 事件返回）"),
+        @ApiResponse(responseCode = "400", description = "请求参数验证失败")
+    })
+    public SseEmitter parseDocumentStream(@Valid @RequestBody ParseRequest request) {
+        log.info("收到文档解析请求（进度流）: {}", request.getDocumentUrl());
+        
+        return progressStreams.start(progress -> {
+            Set<RenderFormat> formats;
+            try {
+                formats = parseFormats(request);
+            } catch (IllegalArgumentException e) {
+                progress.fail(ParseResponse.failure("输出格式错误", e.getMessage()));
+                return;
+            }
             
-            // 构造失败响应
-            ParseResponse response = ParseResponse.failure(
-                "文档解析失败",
-                e.getMessage()
-            );
-            
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            try {
+                DocumentResult result = documentService.parseDocument(
+                    request.getDocumentUrl(),
+                    request.getCookie(),
+                    formats
+                );
+                log.info("文档解析成功: {}", result.getFilePath());
+                progress.complete(ParseResponse.success("文档解析成功", result.getFilePath(), result.getFiles()));
+            } catch (Exception e) {
+                log.error("文档解析失败", e);
+                progress.fail(failure(e).getBody());
+            }
+        });
+    }
+    
+    private static Set<RenderFormat> parseFormats(ParseRequest request) {
+        Set<RenderFormat> formats = EnumSet.noneOf(RenderFormat.class);
+        if (request.getFormats() != null) {
+            for (String format : request.getFormats()) {
+                formats.add(RenderFormat.of(format));
+            }
+        }
+        return formats;
+    }
+    
+    /**
+     * 解析失败时的响应：上游熔断 503，超过时限 504，其它 500
+     */
+    private static ResponseEntity<ParseResponse> failure(Exception e) {
+        // 上游熔断时返回 503，客户端按 Retry-After 稍后重试
+        CircuitOpenException circuitOpen = CircuitOpenException.find(e);
+        if (circuitOpen != null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(circuitOpen.getRetryAfterSeconds()))
+                .body(ParseResponse.failure("钉钉服务暂不可用", circuitOpen.getMessage()));
+        }
+        
+        // 超过文档处理时限时返回 504
+        DeadlineExceededException deadlineExceeded = DeadlineExceededException.find(e);
+        if (deadlineExceeded != null) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(ParseResponse.failure("文档处理超时", deadlineExceeded.getMessage()));
         }
+        
+        // 构造失败响应
+        ParseResponse response = ParseResponse.failure(
+            "文档解析失败",
+            e.getMessage()
+        );
+        
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
     
     /**
@@ -89,23 +213,61 @@ public class DocumentController {
         return ResponseEntity.ok(HealthResponse.up());
     }
     
+    /**
+     * 全文检索已导出的文档
+     * 
+     * @param q 查询内容（中文按二元分词，英文按单词，不区分大小写）
+     * @param limit 最多返回的结果数
+     * @return 按相关度排序的结果和摘要
+     */
+    @GetMapping("/search")
+    @Operation(summary = "全文检索", description = "在已导出的 Markdown 文档中检索，按相关度（BM25）排序并返回摘要")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "检索成功"),
+        @ApiResponse(responseCode = "400", description = "查询内容为空"),
+        @ApiResponse(responseCode = "503", description = "全文检索未开启")
+    })
+    public ResponseEntity<?> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        log.debug("全文检索: q={}, limit={}", q, limit);
+        
+        if (!searchIndex.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ParseResponse.failure("全文检索未开启", "search.index.enabled=false"));
+        }
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest()
+                .body(ParseResponse.failure("查询内容不能为空", null));
+        }
+        
+        SearchResponse response = searchIndex.search(q, Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)));
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * 读取 Markdown 文件内容
+     * 文件以流的方式返回（大文件在 Tomcat 上走 sendfile），不在堆上读入整个文件。
+     * 支持强 ETag / If-None-Match（304）、Range（206），客户端接受 gzip 时直接返回提交时生成的 .md.gz
      * 
      * @param filePath 文件路径
      * @return Markdown 内容
      */
     @GetMapping("/markdown")
     @Operation(summary = "读取 Markdown 文件", description = "根据文件路径读取 Markdown 文件内容")
-    @ApiResponse(responseCode = "200", description = "读取成功")
-    public ResponseEntity<String> getMarkdown(@RequestParam String filePath) {
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "读取成功"),
+        @ApiResponse(responseCode = "206", description = "返回 Range 请求的部分内容"),
+        @ApiResponse(responseCode = "304", description = "文件未变化（If-None-Match / If-Modified-Since）"),
+        @ApiResponse(responseCode = "404", description = "文件不存在")
+    })
+    public ResponseEntity<?> getMarkdown(@RequestParam String filePath, HttpServletRequest request,
+                                         HttpServletResponse servletResponse) {
         log.info("读取 Markdown 文件: {}", filePath);
         
         try {
-            java.nio.file.Path path = java.nio.file.Paths.get(filePath);
+            Path path = Paths.get(filePath);
             
             // 安全检查：确保文件存在且是 .md 文件
-            if (!java.nio.file.Files.exists(path)) {
+            if (!Files.exists(path)) {
                 log.warn("文件不存在: {}", filePath);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body("文件不存在");
@@ -117,13 +279,51 @@ public class DocumentController {
                         .body("只支持读取 .md 文件");
             }
             
-            // 读取文件内容
-            String content = java.nio.file.Files.readString(path, java.nio.charset.StandardCharsets.UTF_8);
+            // 预压缩版本：客户端接受 gzip 且 .md.gz 不比 .md 旧
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            Path gzipPath = Paths.get(filePath + ".gz");
+            boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING)) && Files.isRegularFile(gzipPath)
+                    && Files.getLastModifiedTime(gzipPath).compareTo(attrs.lastModifiedTime()) >= 0;
+            Path served = gzip ? gzipPath : path;
+            if (gzip) {
+                attrs = Files.readAttributes(gzipPath, BasicFileAttributes.class);
+            }
+            
+            // 输出目录整体改名提交，文件不会被原地修改，修改时间 + 大小可以作为强 ETag
+            String etag = "\"" + Long.toHexString(attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS))
+                    + "-" + Long.toHexString(attrs.size()) + (gzip ? "-gz" : "") + "\"";
+            long lastModified = attrs.lastModifiedTime().toMillis();
             
-            log.info("Markdown 文件读取成功，长度: {} 字符", content.length());
-            return ResponseEntity.ok()
-                    .contentType(org.springframework.http.MediaType.TEXT_PLAIN)
-                    .body(content);
+            // If-None-Match / If-Modified-Since（以及 If-Match 等前置条件）统一由 Spring 判断，
+            // 命中时已设置 304、ETag 和 Last-Modified
+            boolean notModified = new ServletWebRequest(request, servletResponse).checkNotModified(etag, lastModified);
+            
+            // 304 同样带上 Cache-Control 和 Vary，缓存据此更新已保存的响应
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (notModified) {
+                return response.build();
+            }
+            response.contentType(MARKDOWN_TYPE)
+                    .eTag(etag)
+                    .lastModified(lastModified);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            
+            // 完整的 GET 大文件交给 Tomcat sendfile，由内核直接从页缓存发送
+            if (canSendfile(request, attrs.size())) {
+                request.setAttribute(SENDFILE_FILENAME, served.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, attrs.size());
+                return response.header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                        .contentLength(attrs.size())
+                        .build();
+            }
+            
+            // 其他情况由 Spring 处理 Range（206），文件按块复制到响应
+            return response.body(new FileSystemResource(served));
             
         } catch (Exception e) {
             log.error("读取 Markdown 文件失败", e);
@@ -131,4 +331,46 @@ public class DocumentController {
                     .body("读取文件失败: " + e.getMessage());
         }
     }
+    
+    /**
+     * 客户端是否接受 gzip：按 q 值判断，gzip;q=0 表示拒绝，没有列出 gzip 时看 * 的 q 值
+     * 
+     * @param acceptEncoding Accept-Encoding 请求头
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzip = q;
+            } else if ("*".equals(name)) {
+                any = q;
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+    
+    private boolean canSendfile(HttpServletRequest request, long size) {
+        return "GET".equals(request.getMethod())
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && size >= SENDFILE_MIN_SIZE
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT));
+    }
 }
@@ -0,0 +1,56 @@
+package com.dingtalk.doc.exception;
+
+/**
+ * 上游熔断异常
+ * 熔断器打开期间，对该上游的请求不再发出，直接抛出此异常
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+public class CircuitOpenException extends HttpRequestException {
+    
+    private final String upstream;
+    private final long retryAfterMillis;
+    
+    public CircuitOpenException(String upstream, long retryAfterMillis) {
+        super(String.format("钉钉上游 %s 暂不可用（已熔断），请 %d 秒后重试", upstream, toSeconds(retryAfterMillis)));
+        this.upstream = upstream;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public String getUpstream() {
+        return upstream;
+    }
+    
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+    
+    /**
+     * 建议客户端等待的秒数，用于 Retry-After 响应头
+     */
+    public long getRetryAfterSeconds() {
+        return toSeconds(retryAfterMillis);
+    }
+    
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+    
+    /**
+     * 在异常链中查找熔断异常
+     * 
+     * @param throwable 异常
+     * @return 熔断异常，不存在时返回 null
+     */
+    public static CircuitOpenException find(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof CircuitOpenException circuitOpen) {
+                return circuitOpen;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dingtalk.doc.exception;
+
+/**
+ * 超过单个文档的处理时限
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+public class DeadlineExceededException extends RuntimeException {
+    
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+    
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+    
+    /**
+     * 在异常链中查找超时异常
+     * 
+     * @param throwable 异常
+     * @return 超时异常，不存在时返回 null
+     */
+    public static DeadlineExceededException find(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof DeadlineExceededException deadlineExceeded) {
+                return deadlineExceeded;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package com.dingtalk.doc.exception;
 
 import com.dingtalk.doc.model.dto.ParseResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -82,6 +83,53 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
     
+    /**
+     * 处理上游熔断异常
+     */
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<ParseResponse> handleCircuitOpen(CircuitOpenException ex) {
+        log.warn("上游熔断: {}", ex.getMessage());
+        
+        ParseResponse response = ParseResponse.failure(
+            "钉钉服务暂不可用",
+            ex.getMessage()
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(response);
+    }
+    
+    /**
+     * 处理文档处理超时异常
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ParseResponse> handleDeadlineExceeded(DeadlineExceededException ex) {
+        log.warn("文档处理超时: {}", ex.getMessage());
+        
+        ParseResponse response = ParseResponse.failure(
+            "文档处理超时",
+            ex.getMessage()
+        );
+        
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+    
+    /**
+     * 处理批量解析冲突异常
+     */
+    @ExceptionHandler(ParseAllConflictException.class)
+    public ResponseEntity<ParseResponse> handleParseAllConflict(ParseAllConflictException ex) {
+        log.warn("批量解析冲突: {}", ex.getMessage());
+        
+        ParseResponse response = ParseResponse.failure(
+            "该知识库正在批量解析",
+            ex.getMessage()
+        );
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    
     /**
      * 处理 HTTP 请求异常
      */
@@ -139,6 +187,16 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ParseResponse> handleGeneral(Exception ex) {
+        // 服务层会把熔断和超时异常再包装一层
+        CircuitOpenException circuitOpen = CircuitOpenException.find(ex);
+        if (circuitOpen != null) {
+            return handleCircuitOpen(circuitOpen);
+        }
+        DeadlineExceededException deadlineExceeded = DeadlineExceededException.find(ex);
+        if (deadlineExceeded != null) {
+            return handleDeadlineExceeded(deadlineExceeded);
+        }
+        
         log.error("系统错误", ex);
         
         ParseResponse response = ParseResponse.failure(
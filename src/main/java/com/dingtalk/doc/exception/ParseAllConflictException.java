@@ -0,0 +1,33 @@
+package com.dingtalk.doc.exception;
+
+import java.time.Instant;
+
+/**
+ * 知识库已有批量解析在进行
+ * 同一知识库同时只能有一个批量解析，后来的请求不排队，直接抛出此异常
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public class ParseAllConflictException extends RuntimeException {
+
+    private final String workspaceId;
+    private final long startedAt;
+
+    public ParseAllConflictException(String workspaceId, long startedAt) {
+        super(String.format("该知识库正在批量解析: %s（开始于 %s，已运行 %d 秒）", workspaceId,
+            Instant.ofEpochMilli(startedAt), Math.max(0, (System.currentTimeMillis() - startedAt) / 1000)));
+        this.workspaceId = workspaceId;
+        this.startedAt = startedAt;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    /**
+     * 正在进行的批量解析的开始时间（毫秒时间戳）
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+}
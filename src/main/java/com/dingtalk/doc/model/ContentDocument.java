@@ -0,0 +1,630 @@
+package com.dingtalk.doc.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑的文档内容模型
+ * 替代 checkpoint.content 解析出的 Jackson 树，只保留渲染需要的部分：main part 的 body、被引用文档的名称和地址。
+ *
+ * <pre>
+ * body 中的元素 [标签, 属性, 子节点...] 按先序存放在 int 数组中，每个节点 6 个 int：
+ *   元素  标签 ID, 数组长度, 第一个子节点, 下一个兄弟节点, 属性起点, 属性个数
+ *   文本  -1,      字符数,   字符偏移,     下一个兄弟节点, 0,        0
+ * 属性每个 4 个 int：键 ID, 值类型, 字符偏移, 字符数；嵌套对象展开为 "list.level" 这样的键（只展开一层）
+ * 标签名和属性键在文档内的字典中只保存一份，已知标签的 ID 就是 {@link ContentTag} 编码；
+ * 文本和属性值都是同一个 char 数组中的片段
+ * </pre>
+ *
+ * 元素只保留下标 2 之后的数组和字符串子节点，其余子节点渲染时本来就会被忽略。
+ * 属性值按 Jackson 的 asText / asBoolean / asInt 语义读取，渲染结果与直接读 Jackson 树一致
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class ContentDocument {
+
+    private static final int NODE_SIZE = 6;
+    private static final int TAG = 0;
+    private static final int LENGTH = 1;
+    private static final int FIRST_CHILD = 2;
+    private static final int NEXT_SIBLING = 3;
+    private static final int ATTR_START = 4;
+    private static final int ATTR_COUNT = 5;
+
+    private static final int ATTR_SIZE = 4;
+    private static final int TEXT_NODE = -1;
+
+    private static final int STRING = 0;
+    private static final int INTEGER = 1;
+    private static final int FLOAT = 2;
+    private static final int TRUE = 3;
+    private static final int FALSE = 4;
+    private static final int NULL = 5;
+    private static final int CONTAINER = 6;
+
+    private final String mainKey;
+    private final boolean partsPresent;
+    private final Map<String, PartRef> parts;
+    private final int body;
+    private final String[] names;
+    private final int[] nodes;
+    private final int[] attrs;
+    private final char[] text;
+
+    private ContentDocument(String mainKey, boolean partsPresent, Map<String, PartRef> parts, int body,
+                            String[] names, int[] nodes, int[] attrs, char[] text) {
+        this.mainKey = mainKey;
+        this.partsPresent = partsPresent;
+        this.parts = parts;
+        this.body = body;
+        this.names = names;
+        this.nodes = nodes;
+        this.attrs = attrs;
+        this.text = text;
+    }
+
+    /**
+     * 从 JSON 流中读取文档内容，只遍历一次，不构建中间树
+     *
+     * @param parser 位于文档内容开头（或尚未读取任何 token）的解析器
+     * @return 文档内容
+     */
+    public static ContentDocument read(JsonParser parser) throws IOException {
+        return new Reader(parser).read();
+    }
+
+    /**
+     * 从已有的 Jackson 树转换（开放平台接口返回的内容）
+     *
+     * @param content 文档内容 JSON
+     * @return 文档内容，content 为 null 时返回 null
+     */
+    public static ContentDocument from(JsonNode content) {
+        if (content == null) {
+            return null;
+        }
+        try (JsonParser parser = content.traverse()) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文档内容失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * main 的值，缺少 main 时为 null
+     */
+    public String getMainKey() {
+        return mainKey;
+    }
+
+    public boolean hasParts() {
+        return partsPresent;
+    }
+
+    public boolean hasPart(String partId) {
+        return parts.containsKey(partId);
+    }
+
+    /**
+     * 被引用文档的名称（parts[id].data.fileName），没有时为 null
+     */
+    public String getPartFileName(String partId) {
+        PartRef part = parts.get(partId);
+        return part != null ? part.fileName : null;
+    }
+
+    /**
+     * 被引用文档的地址（parts[id].data.metaUrl），没有时为 null
+     */
+    public String getPartMetaUrl(String partId) {
+        PartRef part = parts.get(partId);
+        return part != null ? part.metaUrl : null;
+    }
+
+    /**
+     * main part 的 body 元素，没有时为 -1
+     */
+    public int getBody() {
+        return body;
+    }
+
+    public int nodeCount() {
+        return nodes.length / NODE_SIZE;
+    }
+
+    public boolean isElement(int node) {
+        return nodes[node * NODE_SIZE + TAG] != TEXT_NODE;
+    }
+
+    public boolean isText(int node) {
+        return nodes[node * NODE_SIZE + TAG] == TEXT_NODE;
+    }
+
+    /**
+     * 元素标签（第一个数组项的文本）
+     */
+    public String tag(int node) {
+        int tag = nodes[node * NODE_SIZE + TAG];
+        return tag == TEXT_NODE ? "" : names[tag];
+    }
+
+    /**
+     * 元素标签编码（{@link ContentTag}），文本节点和未知标签为 {@link ContentTag#OTHER}
+     */
+    public int tagCode(int node) {
+        int tag = nodes[node * NODE_SIZE + TAG];
+        return tag >= 0 && tag < ContentTag.COUNT ? tag : ContentTag.OTHER;
+    }
+
+    /**
+     * 元素数组的长度（包括标签和属性）
+     */
+    public int size(int node) {
+        return isElement(node) ? nodes[node * NODE_SIZE + LENGTH] : 0;
+    }
+
+    /**
+     * 第一个子节点，没有时为 -1
+     */
+    public int firstChild(int node) {
+        return isElement(node) ? nodes[node * NODE_SIZE + FIRST_CHILD] : -1;
+    }
+
+    /**
+     * 下一个兄弟节点，没有时为 -1
+     */
+    public int nextSibling(int node) {
+        return nodes[node * NODE_SIZE + NEXT_SIBLING];
+    }
+
+    /**
+     * 文本节点的内容
+     */
+    public String text(int node) {
+        int base = node * NODE_SIZE;
+        return isText(node) ? new String(text, nodes[base + FIRST_CHILD], nodes[base + LENGTH]) : "";
+    }
+
+    /**
+     * 把文本节点的内容追加到 target，不创建中间字符串
+     */
+    public StringBuilder appendText(int node, StringBuilder target) {
+        int base = node * NODE_SIZE;
+        if (isText(node)) {
+            target.append(text, nodes[base + FIRST_CHILD], nodes[base + LENGTH]);
+        }
+        return target;
+    }
+
+    public boolean hasAttr(int node, String key) {
+        return findAttr(node, key) >= 0;
+    }
+
+    /**
+     * 属性值的文本，属性不存在时返回 defaultValue
+     */
+    public String attrText(int node, String key, String defaultValue) {
+        int attr = findAttr(node, key);
+        if (attr < 0) {
+            return defaultValue;
+        }
+        return attrs[attr + 1] == CONTAINER ? "" : new String(text, attrs[attr + 2], attrs[attr + 3]);
+    }
+
+    /**
+     * 属性值的布尔值：true、非 0 整数和字符串 "true" 为真，属性不存在时为 false
+     */
+    public boolean attrBoolean(int node, String key) {
+        int attr = findAttr(node, key);
+        if (attr < 0) {
+            return false;
+        }
+        switch (attrs[attr + 1]) {
+            case TRUE:
+                return true;
+            case INTEGER:
+                return NumberInput.parseAsLong(attrText(attr), 0) != 0;
+            case STRING:
+                return "true".equals(attrText(attr).trim());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 属性值的整数值，无法转换或属性不存在时为 0
+     */
+    public int attrInt(int node, String key) {
+        int attr = findAttr(node, key);
+        if (attr < 0) {
+            return 0;
+        }
+        switch (attrs[attr + 1]) {
+            case INTEGER:
+            case STRING:
+                return NumberInput.parseAsInt(attrText(attr), 0);
+            case FLOAT:
+                return (int) Double.parseDouble(attrText(attr));
+            case TRUE:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    private String attrText(int attr) {
+        return new String(text, attrs[attr + 2], attrs[attr + 3]);
+    }
+
+    private int findAttr(int node, String key) {
+        int base = node * NODE_SIZE;
+        if (nodes[base + TAG] == TEXT_NODE) {
+            return -1;
+        }
+        int start = nodes[base + ATTR_START];
+        int end = start + nodes[base + ATTR_COUNT] * ATTR_SIZE;
+        for (int attr = start; attr < end; attr += ATTR_SIZE) {
+            if (names[attrs[attr]].equals(key)) {
+                return attr;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 被引用文档的信息
+     */
+    private static final class PartRef {
+
+        private String fileName;
+
+        private String metaUrl;
+    }
+
+    /**
+     * 单次读取过程的状态
+     */
+    private static final class Reader {
+
+        private final JsonParser parser;
+        private final Names names = new Names();
+        private final Map<String, PartRef> parts = new HashMap<>();
+        private final Map<String, Integer> bodies = new HashMap<>();
+        private final StringBuilder keyBuffer = new StringBuilder();
+
+        private int[] nodes = new int[NODE_SIZE * 256];
+        private int nodeCount;
+        private int[] attrs = new int[ATTR_SIZE * 256];
+        private int attrLength;
+        private char[] text = new char[4096];
+        private int textLength;
+
+        private String mainKey;
+        private boolean partsPresent;
+
+        Reader(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        ContentDocument read() throws IOException {
+            JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    token = parser.nextToken();
+                    if ("main".equals(field)) {
+                        mainKey = valueText(token);
+                    } else if ("parts".equals(field)) {
+                        partsPresent = true;
+                        readParts(token);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token != null) {
+                parser.skipChildren();
+            }
+
+            // main 写在 parts 后面时所有 body 都读进来了，这里只取 main 的那个
+            Integer body = mainKey != null ? bodies.get(mainKey) : null;
+            return new ContentDocument(mainKey, partsPresent, parts, body != null ? body : -1,
+                names.toArray(), Arrays.copyOf(nodes, nodeCount * NODE_SIZE),
+                Arrays.copyOf(attrs, attrLength), Arrays.copyOf(text, textLength));
+        }
+
+        private void readParts(JsonToken token) throws IOException {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String partId = parser.currentName();
+                PartRef part = new PartRef();
+                parts.put(partId, part);
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() == JsonToken.START_OBJECT && "data".equals(field)) {
+                        readPartData(partId, part);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+    private void readPartData(String partId, PartRef part) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("fileName".equals(field)) {
+                    part.fileName = valueText(token);
+                } else if ("metaUrl".equals(field)) {
+                    part.metaUrl = valueText(token);
+                } else if ("body".equals(field) && token == JsonToken.START_ARRAY
+                        && (mainKey == null || mainKey.equals(partId))) {
+                    bodies.put(partId, readElement());
+                } else {
+                    // 已知 main 时其他 part 的 body 直接跳过
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        /**
+         * 读取一个元素数组，当前 token 为 START_ARRAY
+         */
+        private int readElement() throws IOException {
+            int node = addNode();
+            int base = node * NODE_SIZE;
+            nodes[base + ATTR_START] = attrLength;
+            int index = 0;
+            int previous = -1;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (index == 0) {
+                    nodes[base + TAG] = token == JsonToken.VALUE_STRING
+                        ? names.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())
+                        : names.intern(valueText(token));
+                } else if (index == 1 && token == JsonToken.START_OBJECT) {
+                    nodes[base + ATTR_COUNT] = readAttrs();
+                } else if (index >= 2 && (token == JsonToken.START_ARRAY || token == JsonToken.VALUE_STRING)) {
+                    int child = token == JsonToken.START_ARRAY ? readElement() : addText();
+                    if (previous < 0) {
+                        nodes[base + FIRST_CHILD] = child;
+                    } else {
+                        nodes[previous * NODE_SIZE + NEXT_SIBLING] = child;
+                    }
+                    previous = child;
+                } else {
+                    parser.skipChildren();
+                }
+                index++;
+            }
+            if (index == 0) {
+                nodes[base + TAG] = names.intern("");
+            }
+            nodes[base + LENGTH] = index;
+            return node;
+        }
+
+        /**
+         * 读取属性对象，当前 token 为 START_OBJECT
+         *
+         * @return 属性个数
+         */
+        private int readAttrs() throws IOException {
+            int count = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                JsonToken token = parser.nextToken();
+                addAttr(names.intern(key), token);
+                count++;
+                if (token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        keyBuffer.setLength(0);
+                        keyBuffer.append(key).append('.').append(parser.currentName());
+                        addAttr(names.intern(keyBuffer), parser.nextToken());
+                        count++;
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return count;
+        }
+
+        private void addAttr(int key, JsonToken token) throws IOException {
+            if (attrLength + ATTR_SIZE > attrs.length) {
+                attrs = Arrays.copyOf(attrs, attrs.length * 2);
+            }
+            int type;
+            int start = textLength;
+            switch (token) {
+                case VALUE_STRING:
+                case VALUE_NUMBER_INT:
+                    type = token == JsonToken.VALUE_STRING ? STRING : INTEGER;
+                    appendChars(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    type = FLOAT;
+                    appendChars(valueText(token));
+                    break;
+                case VALUE_TRUE:
+                    type = TRUE;
+                    appendChars("true");
+                    break;
+                case VALUE_FALSE:
+                    type = FALSE;
+                    appendChars("false");
+                    break;
+                case VALUE_NULL:
+                    type = NULL;
+                    appendChars("null");
+                    break;
+                default:
+                    type = CONTAINER;
+            }
+            attrs[attrLength++] = key;
+            attrs[attrLength++] = type;
+            attrs[attrLength++] = start;
+            attrs[attrLength++] = textLength - start;
+        }
+
+        private int addText() throws IOException {
+            int node = addNode();
+            int base = node * NODE_SIZE;
+            nodes[base + TAG] = TEXT_NODE;
+            nodes[base + FIRST_CHILD] = textLength;
+            nodes[base + LENGTH] = parser.getTextLength();
+            appendChars(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            return node;
+        }
+
+        private int addNode() {
+            if ((nodeCount + 1) * NODE_SIZE > nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+            }
+            int base = nodeCount * NODE_SIZE;
+            nodes[base + FIRST_CHILD] = -1;
+            nodes[base + NEXT_SIBLING] = -1;
+            return nodeCount++;
+        }
+
+        private void appendChars(char[] chars, int offset, int length) {
+            ensureText(length);
+            System.arraycopy(chars, offset, text, textLength, length);
+            textLength += length;
+        }
+
+        private void appendChars(String value) {
+            ensureText(value.length());
+            value.getChars(0, value.length(), text, textLength);
+            textLength += value.length();
+        }
+
+        private void ensureText(int length) {
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+        }
+
+        /**
+         * 当前值的 asText 结果，对象和数组为空字符串（并跳过其内容）
+         */
+        private String valueText(JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_STRING:
+                case VALUE_NUMBER_INT:
+                    return parser.getText();
+                case VALUE_NUMBER_FLOAT:
+                    return Double.toString(parser.getDoubleValue());
+                case VALUE_TRUE:
+                    return "true";
+                case VALUE_FALSE:
+                    return "false";
+                case VALUE_NULL:
+                    return "null";
+                default:
+                    parser.skipChildren();
+                    return "";
+            }
+        }
+    }
+
+    /**
+     * 文档内的名称字典（标签名和属性键）
+     * 按字符内容查找，已出现过的名称不再创建字符串
+     */
+    private static final class Names {
+
+        /**
+         * 预先放入已知标签的字典，每个文档复制一份，已知标签的 ID 就是 {@link ContentTag} 编码
+         */
+        private static final Names PRESET = new Names(new String[64], new int[128], 0).preset();
+
+        private String[] values;
+        private int[] table;
+        private int size;
+
+        private Names(String[] values, int[] table, int size) {
+            this.values = values;
+            this.table = table;
+            this.size = size;
+        }
+
+        Names() {
+            this(PRESET.values.clone(), PRESET.table.clone(), PRESET.size);
+        }
+
+        private Names preset() {
+            Arrays.fill(table, -1);
+            for (String name : ContentTag.NAMES) {
+                intern(name);
+            }
+            return this;
+        }
+
+        int intern(char[] chars, int offset, int length) {
+            return intern(CharBuffer.wrap(chars, offset, length));
+        }
+
+        int intern(CharSequence name) {
+            int hash = 0;
+            for (int i = 0; i < name.length(); i++) {
+                hash = 31 * hash + name.charAt(i);
+            }
+            int mask = table.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot];
+                if (id < 0) {
+                    return add(name.toString(), slot);
+                }
+                if (values[id].contentEquals(name)) {
+                    return id;
+                }
+            }
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        private int add(String name, int slot) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = name;
+            table[slot] = size;
+            if ((size + 1) * 2 > table.length) {
+                table = new int[table.length * 2];
+                Arrays.fill(table, -1);
+                for (int id = 0; id <= size; id++) {
+                    int mask = table.length - 1;
+                    int free = mix(values[id].hashCode()) & mask;
+                    while (table[free] >= 0) {
+                        free = (free + 1) & mask;
+                    }
+                    table[free] = id;
+                }
+            }
+            return size++;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.dingtalk.doc.model;
+
+/**
+ * 文档内容中的标签编码
+ * 渲染需要识别的标签在 {@link ContentDocument} 构建时就映射为固定的小整数，
+ * 遍历时直接对编码 switch，不再比较字符串；其余标签统一为 {@link #OTHER}
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class ContentTag {
+
+    public static final int OTHER = 0;
+    public static final int P = 1;
+    public static final int SPAN = 2;
+    public static final int A = 3;
+    public static final int IMG = 4;
+    public static final int TAG = 5;
+    public static final int TABLE = 6;
+    public static final int TR = 7;
+    public static final int TC = 8;
+    public static final int CODE = 9;
+    public static final int UL = 10;
+    public static final int OL = 11;
+    public static final int LI = 12;
+    public static final int BLOCKQUOTE = 13;
+    public static final int H1 = 14;
+    public static final int H2 = 15;
+    public static final int H3 = 16;
+    public static final int H4 = 17;
+    public static final int H5 = 18;
+    public static final int H6 = 19;
+
+    /**
+     * 编码对应的标签名，下标即编码（OTHER 对应空标签）
+     */
+    static final String[] NAMES = {
+        "", "p", "span", "a", "img", "tag", "table", "tr", "tc", "code", "ul", "ol", "li", "blockquote",
+        "h1", "h2", "h3", "h4", "h5", "h6"
+    };
+
+    /**
+     * 已知标签的个数，字典 ID 小于此值时 ID 就是编码
+     */
+    static final int COUNT = NAMES.length;
+
+    private ContentTag() {
+    }
+
+    /**
+     * 标题级别（1-6），不是标题时返回 0
+     */
+    public static int headingLevel(int code) {
+        return code >= H1 && code <= H6 ? code - H1 + 1 : 0;
+    }
+}
@@ -1,6 +1,5 @@
 package com.dingtalk.doc.model;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -33,17 +32,7 @@ public class DocumentData {
     private String title;
     
     /**
-     * Mainsite 内容（从 HTML 提取的 JSON）
+     * 解析后的文档内容（紧凑模型，页面和接口响应的 JSON 树提取完即丢弃）
      */
-    private JsonNode mainsiteContent;
-    
-    /**
-     * 文档详细数据（从 API 获取）
-     */
-    private JsonNode documentContent;
-    
-    /**
-     * 解析后的文档内容
-     */
-    private JsonNode content;
+    private ContentDocument content;
 }
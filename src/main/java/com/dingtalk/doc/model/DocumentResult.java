@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 /**
  * 文档解析结果模型
  * 
@@ -35,4 +37,9 @@ public class DocumentResult {
      * Markdown 内容
      */
     private String markdown;
+    
+    /**
+     * 各输出格式的文件路径，键为格式名（markdown、html、text、json、chunks）
+     */
+    private Map<String, String> files;
 }
@@ -0,0 +1,58 @@
+package com.dingtalk.doc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 知识库批量解析结果
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParseAllResult {
+    
+    /**
+     * 知识库 ID
+     */
+    private String workspaceId;
+    
+    /**
+     * 节点总数（包括文件夹）
+     */
+    private int totalNodes;
+    
+    /**
+     * 本次解析成功的文档数
+     */
+    private int successCount;
+    
+    /**
+     * 重试后仍然失败的文档数
+     */
+    private int failureCount;
+    
+    /**
+     * 跳过的非文档节点数
+     */
+    private int skippedCount;
+    
+    /**
+     * 之前的批量解析已完成、本次跳过的文档数
+     */
+    private int resumedCount;
+    
+    /**
+     * 重试次数
+     */
+    private int retriedCount;
+    
+    /**
+     * 所有文档是否都已完成（完成后检查点被删除，下次从头开始）
+     */
+    private boolean complete;
+}
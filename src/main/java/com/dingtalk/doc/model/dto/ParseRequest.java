@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * 文档解析请求 DTO
  * 
@@ -26,4 +28,8 @@ public class ParseRequest {
     @Schema(description = "钉钉登录 Cookie（可选，未提供则使用环境变量）",
             example = "cookie_value_here")
     private String cookie;
+    
+    @Schema(description = "输出格式（可选）：markdown、html、text、json、chunks，可多选；Markdown 总会生成",
+            example = "[\"markdown\", \"html\"]")
+    private List<String> formats;
 }
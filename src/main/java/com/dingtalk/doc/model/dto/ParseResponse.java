@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 /**
  * 文档解析响应 DTO
  * 
@@ -26,6 +28,10 @@ public class ParseResponse {
             example = "/Users/username/Documents/dingtalk-docs/文档标题/文档标题.md")
     private String filePath;
     
+    @Schema(description = "各输出格式的文件路径，键为格式名",
+            example = "{\"markdown\": \"/Users/username/Documents/dingtalk-docs/文档标题/文档标题.md\"}")
+    private Map<String, String> files;
+    
     @Schema(description = "错误信息（失败时返回）", example = "ERROR")
     private String error;
     
@@ -33,13 +39,20 @@ public class ParseResponse {
      * 创建成功响应
      */
     public static ParseResponse success(String message, String filePath) {
-        return new ParseResponse(true, message, filePath, null);
+        return new ParseResponse(true, message, filePath, null, null);
+    }
+    
+    /**
+     * 创建成功响应，附带各输出格式的文件路径
+     */
+    public static ParseResponse success(String message, String filePath, Map<String, String> files) {
+        return new ParseResponse(true, message, filePath, files, null);
     }
     
     /**
      * 创建失败响应
      */
     public static ParseResponse failure(String message, String error) {
-        return new ParseResponse(false, message, null, error);
+        return new ParseResponse(false, message, null, null, error);
     }
 }
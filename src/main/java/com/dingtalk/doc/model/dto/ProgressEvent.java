@@ -0,0 +1,68 @@
+package com.dingtalk.doc.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 解析进度事件 DTO（SSE 的 data 部分）
+ * 步骤事件（event: stage）和批量解析中的文档完成事件（event: document）共用，未用到的字段不输出
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "解析进度事件")
+public class ProgressEvent {
+    
+    @Schema(description = "步骤：cookie_validation、page_fetch、mainsite_extraction、data_post、content_extraction、render、image_download、file_save",
+            example = "image_download")
+    private String stage;
+    
+    @Schema(description = "状态：步骤为 started / finished / failed，文档为 success / retry（稍后重试）/ failure / cancelled（批量解析被取消，续跑时重新解析）",
+            example = "finished")
+    private String status;
+    
+    @Schema(description = "节点 ID（批量解析时）", example = "abc123")
+    private String nodeId;
+    
+    @Schema(description = "文档标题（文档事件）", example = "文档标题")
+    private String title;
+    
+    @Schema(description = "图片序号，从 1 开始（image_download 步骤）", example = "3")
+    private Integer image;
+    
+    @Schema(description = "步骤或文档期间下载的字节数", example = "20480")
+    private Long bytes;
+    
+    @Schema(description = "生成的 Markdown 字节数（文档事件）", example = "4096")
+    private Long outputBytes;
+    
+    @Schema(description = "步骤或文档耗时（毫秒）", example = "120")
+    private Long elapsedMs;
+    
+    @Schema(description = "从开始解析到现在的总耗时（毫秒）", example = "850")
+    private Long totalMs;
+    
+    @Schema(description = "生成的 Markdown 文件路径（文档事件）",
+            example = "/Users/username/Documents/dingtalk-docs/文档标题/文档标题.md")
+    private String filePath;
+    
+    @Schema(description = "文档的第几次尝试（文档事件，从 1 开始）", example = "1")
+    private Integer attempt;
+    
+    @Schema(description = "已有最终结果的文档数：成功、重试后仍失败以及之前的批量解析已完成的（文档事件）", example = "5")
+    private Integer completed;
+    
+    @Schema(description = "需要解析的文档总数（文档事件）", example = "20")
+    private Integer total;
+    
+    @Schema(description = "错误信息（失败时）", example = "ERROR")
+    private String error;
+}
@@ -0,0 +1,31 @@
+package com.dingtalk.doc.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 全文检索命中 DTO
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "全文检索命中")
+public class SearchHit {
+    
+    @Schema(description = "文档标题", example = "产品需求文档")
+    private String title;
+    
+    @Schema(description = "Markdown 文件路径", 
+            example = "/Users/username/Documents/dingtalk-docs/产品需求文档/产品需求文档.md")
+    private String filePath;
+    
+    @Schema(description = "相关度得分（BM25）", example = "7.31")
+    private double score;
+    
+    @Schema(description = "命中位置附近的摘要", example = "…导出的知识库文档可以直接检索…")
+    private String snippet;
+}
@@ -0,0 +1,29 @@
+package com.dingtalk.doc.model.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 全文检索响应 DTO
+ * 
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "全文检索响应")
+public class SearchResponse {
+    
+    @Schema(description = "查询内容", example = "知识库导出")
+    private String query;
+    
+    @Schema(description = "命中的文档总数", example = "42")
+    private int total;
+    
+    @Schema(description = "按相关度排序的结果（最多 limit 条）")
+    private List<SearchHit> hits;
+}
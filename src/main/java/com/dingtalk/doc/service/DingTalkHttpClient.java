@@ -1,5 +1,11 @@
 package com.dingtalk.doc.service;
 
+import com.dingtalk.doc.service.http.RetryExecutor;
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import com.dingtalk.doc.service.jfr.ImageDownloadEvent;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Download;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +16,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,6 +34,10 @@ import java.util.zip.GZIPInputStream;
 public class DingTalkHttpClient {
     
     private final RestTemplate restTemplate;
+    private final ParseMetrics parseMetrics;
+    private final HttpClientMetrics httpClientMetrics;
+    private final RetryExecutor retryExecutor;
+    private final FileManager fileManager;
     
     @Value("${dingtalk.api.base-url}")
     private String baseUrl;
@@ -35,25 +46,38 @@ public class DingTalkHttpClient {
     private String userAgent;
     
     /**
-     * 发送 GET 请求
+     * 发送 GET 请求，响应字节数不计入文档下载量（例如 Cookie 校验）
      * 
      * @param url 请求 URL
      * @param headers 请求头
      * @return 响应内容
      */
     public String get(String url, Map<String, String> headers) {
+        return get(url, headers, null);
+    }
+    
+    /**
+     * 发送 GET 请求
+     * 
+     * @param url 请求 URL
+     * @param headers 请求头
+     * @param download 响应字节数计入的下载类型，为 null 时不计入
+     * @return 响应内容
+     */
+    public String get(String url, Map<String, String> headers, Download download) {
         log.debug("发送 GET 请求: {}", url);
         
         HttpHeaders httpHeaders = createHeaders(headers);
         HttpEntity<Void> entity = new HttpEntity<>(httpHeaders);
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(URI.create(url), httpHeaders);
         
         try {
-            ResponseEntity<byte[]> response = restTemplate.exchange(
+            ResponseEntity<byte[]> response = retryExecutor.execute(endpoint, HttpMethod.GET, () -> restTemplate.exchange(
                 url,
                 HttpMethod.GET,
                 entity,
                 byte[].class
-            );
+            ));
             
             log.debug("GET 请求成功，状态码: {}", response.getStatusCode());
             
@@ -65,20 +89,14 @@ public class DingTalkHttpClient {
             }
             
             log.debug("响应体大小: {} 字节", responseBody.length);
+            if (download != null) {
+                parseMetrics.recordDownloaded(download, responseBody.length);
+            }
             
             // 检查是否是 gzip 压缩的响应
             String contentEncoding = response.getHeaders().getFirst("Content-Encoding");
             log.debug("Content-Encoding: {}", contentEncoding);
             
-            // 检查前几个字节（用于调试）
-            if (responseBody.length >= 10) {
-                StringBuilder hexStr = new StringBuilder();
-                for (int i = 0; i < Math.min(10, responseBody.length); i++) {
-                    hexStr.append(String.format("%02x ", responseBody[i]));
-                }
-                log.debug("响应体前 10 字节: {}", hexStr.toString());
-            }
-            
             // 只有明确检测到 gzip 时才解压缩
             boolean isGzip = isGzipCompressed(responseBody);
             log.debug("是否为 gzip 压缩: {}", isGzip);
@@ -86,7 +104,7 @@ public class DingTalkHttpClient {
             if (isGzip) {
                 log.info("检测到 gzip 压缩，正在解压缩...");
                 try {
-                    responseBody = decompressGzip(responseBody);
+                    responseBody = decompress(endpoint, responseBody);
                     log.info("解压缩成功，解压后大小: {} 字节", responseBody.length);
                 } catch (Exception e) {
                     log.error("解压缩失败，尝试直接使用原始数据", e);
@@ -118,7 +136,7 @@ public class DingTalkHttpClient {
      * 检查字节数组是否是 gzip 压缩的
      * gzip 文件的魔数是 0x1f 0x8b
      */
-    private boolean isGzipCompressed(byte[] data) {
+    boolean isGzipCompressed(byte[] data) {
         if (data == null || data.length < 2) {
             return false;
         }
@@ -136,10 +154,18 @@ public class DingTalkHttpClient {
         return isGzip;
     }
     
+    /**
+     * 解压缩 gzip 数据并记录解压耗时
+     */
+    private byte[] decompress(UpstreamEndpoint endpoint, byte[] compressed) {
+        return httpClientMetrics.timeDecompression(endpoint, () -> decompressGzip(compressed));
+    }
+    
     /**
      * 解压缩 gzip 数据
+     * 包级可见，供 JMH 基准测试直接调用
      */
-    private byte[] decompressGzip(byte[] compressed) {
+    byte[] decompressGzip(byte[] compressed) {
         try (ByteArrayInputStream bis = new ByteArrayInputStream(compressed);
              GZIPInputStream gis = new GZIPInputStream(bis);
              ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
@@ -172,14 +198,16 @@ public class DingTalkHttpClient {
         HttpHeaders httpHeaders = createHeaders(headers);
         HttpEntity<Object> entity = new HttpEntity<>(body, httpHeaders);
         
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(URI.create(url), httpHeaders);
+        
         try {
             // 先获取字节数组响应
-            ResponseEntity<byte[]> response = restTemplate.exchange(
+            ResponseEntity<byte[]> response = retryExecutor.execute(endpoint, HttpMethod.POST, () -> restTemplate.exchange(
                 url,
                 HttpMethod.POST,
                 entity,
                 byte[].class
-            );
+            ));
             
             log.debug("POST 请求成功，状态码: {}", response.getStatusCode());
             
@@ -191,6 +219,7 @@ public class DingTalkHttpClient {
             }
             
             log.debug("POST 响应体大小: {} 字节", responseBody.length);
+            parseMetrics.recordDownloaded(Download.DATA, responseBody.length);
             
             // 检查是否是 gzip 压缩的响应
             String contentEncoding = response.getHeaders().getFirst("Content-Encoding");
@@ -203,7 +232,7 @@ public class DingTalkHttpClient {
             if (isGzip) {
                 log.info("POST 响应检测到 gzip 压缩，正在解压缩...");
                 try {
-                    responseBody = decompressGzip(responseBody);
+                    responseBody = decompress(endpoint, responseBody);
                     log.info("POST 解压缩成功，解压后大小: {} 字节", responseBody.length);
                 } catch (Exception e) {
                     log.error("POST 解压缩失败，尝试直接使用原始数据", e);
@@ -262,12 +291,27 @@ public class DingTalkHttpClient {
      * @param outputPath 输出路径
      */
     public void downloadImage(String imageUrl, String cookie, String outputPath) {
-        log.debug("下载图片: {}", imageUrl);
-        String fullUrl = imageUrl;
-        if (!imageUrl.startsWith("http")) {
-            fullUrl = baseUrl + imageUrl;
+        byte[] imageData = fetchImage(imageUrl, cookie);
+        if (imageData.length == 0) {
+            return;
         }
         
+        // 保存到文件（开启 write-behind 时只是入队）
+        fileManager.writeFile(outputPath, imageData);
+        log.info("图片已保存: {}", outputPath);
+    }
+    
+    /**
+     * 下载图片内容
+     * 
+     * @param imageUrl 图片 URL
+     * @param cookie Cookie 字符串
+     * @return 图片数据，响应为空时返回空数组
+     */
+    public byte[] fetchImage(String imageUrl, String cookie) {
+        log.debug("下载图片: {}", imageUrl);
+        String fullUrl = imageUrl.startsWith("http") ? imageUrl : baseUrl + imageUrl;
+        
         Map<String, String> headers = new HashMap<>();
         headers.put("Accept", "image/avif,image/webp,image/apng,image/svg+xml,image/*,*/*;q=0.8");
         headers.put("Referer", baseUrl + "/");
@@ -276,31 +320,36 @@ public class DingTalkHttpClient {
         HttpHeaders httpHeaders = createHeaders(headers);
         HttpEntity<Void> entity = new HttpEntity<>(httpHeaders);
         
+        ImageDownloadEvent event = new ImageDownloadEvent();
+        event.begin();
         try {
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                fullUrl,
-                HttpMethod.GET,
-                entity,
-                byte[].class
-            );
+            ResponseEntity<byte[]> response = retryExecutor.execute(UpstreamEndpoint.IMAGE, HttpMethod.GET,
+                () -> restTemplate.exchange(
+                    fullUrl,
+                    HttpMethod.GET,
+                    entity,
+                    byte[].class
+                ));
             
             byte[] imageData = response.getBody();
             if (imageData == null || imageData.length == 0) {
                 log.warn("图片数据为空: {}", imageUrl);
-                return;
+                return new byte[0];
             }
             
             log.debug("图片下载成功，大小: {} 字节", imageData.length);
-            
-            // 保存到文件
-            java.nio.file.Path path = java.nio.file.Paths.get(outputPath);
-            java.nio.file.Files.createDirectories(path.getParent());
-            java.nio.file.Files.write(path, imageData);
-            
-            log.info("图片已保存: {}", outputPath);
+            parseMetrics.recordDownloaded(Download.IMAGE, imageData.length);
+            event.bytes = imageData.length;
+            event.success = true;
+            return imageData;
         } catch (Exception e) {
             log.error("下载图片失败: {}", imageUrl, e);
             throw new RuntimeException("下载图片失败: " + e.getMessage(), e);
+        } finally {
+            if (event.shouldCommit()) {
+                event.url = imageUrl;
+                event.commit();
+            }
         }
     }
 }
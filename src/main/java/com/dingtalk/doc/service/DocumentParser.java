@@ -1,6 +1,14 @@
 package com.dingtalk.doc.service;
 
+import com.dingtalk.doc.model.ContentDocument;
 import com.dingtalk.doc.model.DocumentData;
+import com.dingtalk.doc.service.jfr.HtmlExtractionEvent;
+import com.dingtalk.doc.service.jfr.JsonParseEvent;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Download;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +19,7 @@ import org.jsoup.nodes.Element;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -27,8 +36,14 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class DocumentParser {
     
+    /**
+     * 文档数据中文档内容的位置
+     */
+    private static final String[] CONTENT_PATH = {"data", "documentContent", "checkpoint", "content"};
+    
     private final DingTalkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final ParseMetrics parseMetrics;
     
     @Value("${dingtalk.api.api-doc-base-url}")
     private String baseUrl;
@@ -52,7 +67,7 @@ public class DocumentParser {
         
         // 步骤2: GET 请求获取文档页面 HTML
         log.info("正在获取文档页面...");
-        String html = fetchNodeByGet(nodeId, cookie);
+        String html = parseMetrics.time(Stage.PAGE_FETCH, () -> fetchNodeByGet(nodeId, cookie));
         log.debug("页面 HTML 长度: {} 字符", html.length());
         
         // 调试：保存 HTML 到文件
@@ -72,7 +87,14 @@ public class DocumentParser {
         
         // 步骤3: 从 HTML 中提取 mainsite_server_content JSON
         log.info("正在提取文档信息...");
-        JsonNode mainsiteContent = extractMainsiteContent(html);
+        HtmlExtractionEvent htmlEvent = new HtmlExtractionEvent();
+        htmlEvent.begin();
+        JsonNode mainsiteContent = parseMetrics.time(Stage.MAINSITE_EXTRACTION, () -> extractMainsiteContent(html));
+        if (htmlEvent.shouldCommit()) {
+            htmlEvent.nodeId = nodeId;
+            htmlEvent.htmlChars = html.length();
+            htmlEvent.commit();
+        }
         
         // 步骤4: 提取 Dentry Key
         String dentryKey = extractDentryKey(mainsiteContent);
@@ -82,12 +104,19 @@ public class DocumentParser {
         String title = extractDocumentTitle(mainsiteContent);
         log.info("文档标题: {}", title);
         
-        // 步骤6: POST 请求获取文档详细数据
+        // 步骤6: POST 请求获取文档详细数据，只从响应中取出 checkpoint.content，不保留响应树
         log.info("正在获取文档内容...");
-        JsonNode documentContent = fetchDocumentData(cookie, dentryKey);
+        String contentJson = parseMetrics.time(Stage.DATA_POST, () -> extractContentJson(fetchDocumentData(cookie, dentryKey)));
         
-        // 步骤7: 提取文档内容
-        JsonNode content = extractDocumentContent(documentContent);
+        // 步骤7: 把文档内容直接解析为紧凑模型
+        JsonParseEvent jsonEvent = new JsonParseEvent();
+        jsonEvent.begin();
+        ContentDocument content = parseMetrics.time(Stage.CONTENT_EXTRACTION, () -> parseContent(contentJson));
+        if (jsonEvent.shouldCommit()) {
+            jsonEvent.nodeId = nodeId;
+            jsonEvent.jsonChars = contentJson != null ? contentJson.length() : 0;
+            jsonEvent.commit();
+        }
         
         if (content == null) {
             log.warn("无法提取文档内容（可能是 OSS 加密）");
@@ -99,8 +128,6 @@ public class DocumentParser {
                 .nodeId(nodeId)
                 .dentryKey(dentryKey)
                 .title(title)
-                .mainsiteContent(mainsiteContent)
-                .documentContent(documentContent)
                 .content(content)
                 .build();
     }
@@ -142,16 +169,17 @@ public class DocumentParser {
         headers.put("Cookie", cookie);
         headers.put("Referer", baseUrl);
         
-        return httpClient.get(url, headers);
+        return httpClient.get(url, headers, Download.PAGE);
     }
     
     /**
      * 从 HTML 中提取 mainsite_server_content JSON 数据
+     * 包级可见，供 JMH 基准测试直接调用
      * 
      * @param html HTML 内容
      * @return JSON 数据
      */
-    private JsonNode extractMainsiteContent(String html) {
+    JsonNode extractMainsiteContent(String html) {
         try {
             Document doc = Jsoup.parse(html);
             Element scriptElement = doc.getElementById("mainsite_server_content");
@@ -222,9 +250,9 @@ public class DocumentParser {
      * 
      * @param cookie Cookie 字符串
      * @param dentryKey Dentry Key
-     * @return 文档数据 JSON
+     * @return 文档数据 JSON 字符串
      */
-    private JsonNode fetchDocumentData(String cookie, String dentryKey) {
+    private String fetchDocumentData(String cookie, String dentryKey) {
         Map<String, String> headers = new HashMap<>();
         headers.put("a-dentry-key", dentryKey);
         headers.put("Accept", "*/*");
@@ -236,28 +264,76 @@ public class DocumentParser {
         Map<String, Object> body = new HashMap<>();
         body.put("fetchBody", true);
         
-        return httpClient.post(documentDataUrl, body, headers, JsonNode.class);
+        return httpClient.post(documentDataUrl, body, headers, String.class);
     }
     
     /**
      * 从 document_data 中提取文档内容
+     * 包级可见，供 JMH 基准测试直接调用
      * 
-     * @param documentData 文档数据 JSON
-     * @return 文档内容 JSON（如果存在）
+     * @param documentData 文档数据 JSON 字符串
+     * @return 文档内容（如果存在）
      */
-    private JsonNode extractDocumentContent(JsonNode documentData) {
-        try {
-            JsonNode data = documentData.path("data");
-            JsonNode documentContent = data.path("documentContent");
-            JsonNode checkpoint = documentContent.path("checkpoint");
-            JsonNode contentNode = checkpoint.path("content");
-            
-            if (contentNode.isMissingNode() || contentNode.isNull()) {
+    ContentDocument extractDocumentContent(String documentData) {
+        return parseContent(extractContentJson(documentData));
+    }
+    
+    /**
+     * 流式读取 data.documentContent.checkpoint.content，不构建响应树
+     * 
+     * @param documentData 文档数据 JSON 字符串
+     * @return 文档内容 JSON 字符串，不存在时返回 null
+     */
+    private String extractContentJson(String documentData) {
+        if (documentData == null) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.createParser(documentData)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
                 return null;
             }
-            
-            String contentStr = contentNode.asText();
-            return objectMapper.readTree(contentStr);
+            for (String field : CONTENT_PATH) {
+                if (!moveToField(parser, field)) {
+                    return null;
+                }
+                if (!"content".equals(field) && parser.currentToken() != JsonToken.START_OBJECT) {
+                    return null;
+                }
+            }
+            JsonToken token = parser.currentToken();
+            return token.isScalarValue() && token != JsonToken.VALUE_NULL ? parser.getText() : null;
+        } catch (IOException e) {
+            throw new RuntimeException("解析文档数据失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 在当前对象中查找字段，找到时解析器停在字段值上
+     */
+    private static boolean moveToField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if (name.equals(field)) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+    
+    /**
+     * 把文档内容 JSON 解析为紧凑模型
+     * 
+     * @param contentJson 文档内容 JSON 字符串
+     * @return 文档内容，无法解析时返回 null
+     */
+    private ContentDocument parseContent(String contentJson) {
+        if (contentJson == null) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.createParser(contentJson)) {
+            return ContentDocument.read(parser);
         } catch (Exception e) {
             log.warn("提取文档内容失败（可能是 OSS 加密）", e);
             return null;
@@ -1,11 +1,30 @@
 package com.dingtalk.doc.service;
 
+import com.dingtalk.doc.config.ChunkConfig;
+import com.dingtalk.doc.config.HttpTimeoutConfig;
 import com.dingtalk.doc.model.DocumentData;
 import com.dingtalk.doc.model.DocumentResult;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.jfr.DocumentParseEvent;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+import com.dingtalk.doc.service.render.RenderFormat;
+import com.dingtalk.doc.service.render.RenderOptions;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.service.scheduler.Priority;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 文档服务
  * 协调文档解析流程，整合各个组件
@@ -21,58 +40,161 @@ public class DocumentService {
     private final DocumentParser documentParser;
     private final MarkdownGenerator markdownGenerator;
     private final FileManager fileManager;
+    private final ParseMetrics parseMetrics;
+    private final HttpTimeoutConfig timeoutConfig;
+    private final ChunkConfig chunkConfig;
+    private final ParseScheduler scheduler;
+    
+    // 同一文档（Node ID + Cookie）的并发解析合并为一次，避免重复抓取和同时写同一个输出目录
+    private final SingleFlight<String, DocumentResult> inFlightParses = new SingleFlight<>();
     
     /**
      * 解析钉钉文档并生成 Markdown 文件
+     * 同一文档正在解析时，等待并返回那次解析的结果
      * 
      * @param documentUrl 钉钉文档 URL 或 Node ID
      * @param providedCookie 用户提供的 Cookie（可选）
      * @return 文档解析结果
      */
     public DocumentResult parseDocument(String documentUrl, String providedCookie) {
+        return parseDocument(documentUrl, providedCookie, EnumSet.of(RenderFormat.MARKDOWN));
+    }
+    
+    /**
+     * 解析钉钉文档并生成 Markdown 及其它格式的文件
+     * 各格式在同一次遍历中渲染，与 Markdown 同名保存在同一目录下
+     * 
+     * @param documentUrl 钉钉文档 URL 或 Node ID
+     * @param providedCookie 用户提供的 Cookie（可选）
+     * @param formats 输出格式，Markdown 总会生成
+     * @return 文档解析结果
+     */
+    public DocumentResult parseDocument(String documentUrl, String providedCookie, Set<RenderFormat> formats) {
+        Set<RenderFormat> outputFormats = EnumSet.of(RenderFormat.MARKDOWN);
+        outputFormats.addAll(formats);
+        
+        String nodeId = documentParser.extractNodeId(documentUrl);
+        // Cookie 决定文档的访问权限，不同 Cookie 的请求不合并
+        String key = providedCookie == null || providedCookie.trim().isEmpty()
+            ? nodeId
+            : nodeId + "\n" + providedCookie.trim();
+        // 输出格式不同的请求也不合并
+        if (outputFormats.size() > 1) {
+            key = key + "\n" + outputFormats;
+        }
+        return inFlightParses.execute(key,
+            () -> doParseDocument(documentUrl, providedCookie, outputFormats),
+            parseMetrics::recordCoalesced);
+    }
+    
+    private DocumentResult doParseDocument(String documentUrl, String providedCookie, Set<RenderFormat> formats) {
         log.info("开始解析文档: {}", documentUrl);
+        Timer.Sample sample = parseMetrics.parseStarted();
+        DocumentParseEvent event = new DocumentParseEvent();
+        event.begin();
+        boolean success = false;
         
-        try {
+        // 整个文档（页面、数据、图片）共享一个处理时限，出站请求的超时和重试都受其约束；
+        // 取得执行名额后才开始计算，排队时间不计入
+        try (ParseScheduler.Permit permit = scheduler.acquire(Priority.INTERACTIVE, flowOf(providedCookie));
+             Deadline.Scope ignored = Deadline.after(timeoutConfig.getDocumentDeadline()).bind()) {
             // 步骤1: 获取有效的 Cookie
             log.info("步骤 1/5: 获取有效 Cookie");
-            String cookie = cookieManager.getValidCookie(providedCookie);
+            String cookie = parseMetrics.time(Stage.COOKIE_VALIDATION,
+                () -> cookieManager.getValidCookie(providedCookie));
             
-            // 步骤2: 解析文档数据
+            // 步骤2: 解析文档数据（页面抓取、mainsite 提取、数据请求分别计时）
             log.info("步骤 2/5: 解析文档数据");
             DocumentData documentData = documentParser.getCompleteDocumentData(documentUrl, cookie);
+            event.nodeId = documentData.getNodeId();
+            event.title = documentData.getTitle();
             
-            // 步骤3: 准备输出目录
-            log.info("步骤 3/5: 准备输出目录");
-            String outputDir = fileManager.prepareOutputDirectory(documentData.getTitle());
-            
-            // 步骤4: 生成 Markdown（包含图片下载）
-            log.info("步骤 4/5: 生成 Markdown 并下载图片");
-            String markdown = markdownGenerator.generateMarkdown(
-                documentData.getContent(), 
-                documentData.getTitle(),
-                cookie,
-                outputDir
-            );
+            Deadline.current().check("文档数据");
             
-            if (markdown == null || markdown.trim().isEmpty()) {
-                throw new RuntimeException("生成的 Markdown 内容为空");
+            // 步骤3: 准备输出目录（临时目录，提交时整体改名为最终目录）
+            log.info("步骤 3/5: 准备输出目录");
+            String markdown;
+            String filePath;
+            Map<String, String> files = new LinkedHashMap<>();
+            try (FileManager.StagedOutput output = fileManager.stageOutput(documentData.getTitle())) {
+                // 步骤4: 生成 Markdown 及其它格式（包含图片下载）
+                log.info("步骤 4/5: 生成 Markdown 并下载图片");
+                // 分块边渲染边写入临时目录，不在内存中拼出整个 JSONL
+                Map<RenderFormat, String> rendered;
+                try (Writer chunkOutput = formats.contains(RenderFormat.CHUNKS)
+                        ? fileManager.openOutput(output, RenderFormat.CHUNKS.getExtension()) : null) {
+                    rendered = parseMetrics.time(Stage.RENDER, () -> markdownGenerator.render(
+                        documentData.getContent(), 
+                        documentData.getTitle(),
+                        cookie,
+                        output.getDirectory(),
+                        formats,
+                        new RenderOptions(documentData.getNodeId(), chunkConfig.getMaxTokens(), chunkConfig.getOverlapTokens()),
+                        chunkOutput
+                    ));
+                }
+                
+                String renderedMarkdown = rendered.get(RenderFormat.MARKDOWN);
+                if (renderedMarkdown == null || renderedMarkdown.trim().isEmpty()) {
+                    throw new RuntimeException("生成的 Markdown 内容为空");
+                }
+                
+                // 步骤5: 保存文件，其它格式先写入临时目录，随 Markdown 一起提交
+                log.info("步骤 5/5: 保存 Markdown 文件");
+                markdown = renderedMarkdown;
+                filePath = parseMetrics.time(Stage.FILE_SAVE, () -> {
+                    for (Map.Entry<RenderFormat, String> entry : rendered.entrySet()) {
+                        if (entry.getKey() != RenderFormat.MARKDOWN) {
+                            files.put(formatName(entry.getKey()),
+                                fileManager.writeOutput(output, entry.getKey().getExtension(), entry.getValue()));
+                        }
+                    }
+                    if (formats.contains(RenderFormat.CHUNKS)) {
+                        files.put(formatName(RenderFormat.CHUNKS),
+                            fileManager.outputPath(output, RenderFormat.CHUNKS.getExtension()));
+                    }
+                    return fileManager.commitOutput(output, renderedMarkdown);
+                });
+                files.put(formatName(RenderFormat.MARKDOWN), filePath);
             }
             
-            // 步骤5: 保存文件
-            log.info("步骤 5/5: 保存 Markdown 文件");
-            String filePath = fileManager.saveMarkdownFile(documentData.getTitle(), markdown);
-            
             log.info("文档解析完成: {}", filePath);
+            success = true;
+            if (event.shouldCommit()) {
+                event.markdownBytes = markdown.getBytes(StandardCharsets.UTF_8).length;
+            }
             
             return DocumentResult.builder()
                     .nodeId(documentData.getNodeId())
                     .title(documentData.getTitle())
                     .filePath(filePath)
                     .markdown(markdown)
+                    .files(files)
                     .build();
         } catch (Exception e) {
             log.error("文档解析失败", e);
             throw new RuntimeException("文档解析失败: " + e.getMessage(), e);
+        } finally {
+            parseMetrics.parseFinished(sample, success);
+            if (event.shouldCommit()) {
+                event.documentUrl = documentUrl;
+                event.success = success;
+                event.commit();
+            }
         }
     }
+    
+    /**
+     * 调度中的来源：同一 Cookie 的请求排在同一队列中，只保留 Cookie 的哈希值
+     */
+    private static String flowOf(String providedCookie) {
+        if (providedCookie == null || providedCookie.trim().isEmpty()) {
+            return "default";
+        }
+        return "cookie-" + Integer.toHexString(providedCookie.trim().hashCode());
+    }
+    
+    private static String formatName(RenderFormat format) {
+        return format.name().toLowerCase(Locale.ROOT);
+    }
 }
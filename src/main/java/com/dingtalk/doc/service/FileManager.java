@@ -1,18 +1,49 @@
 package com.dingtalk.doc.service;
 
+import com.dingtalk.doc.exception.FileOperationException;
+import com.dingtalk.doc.service.search.SearchIndex;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 文件管理器
- * 负责文件系统操作，包括创建目录、保存文件
+ * 负责文件系统操作，包括创建目录、保存文件。
+ * 
+ * 每个文档的输出（Markdown 和图片）先写到基础目录下的 .staging 临时目录，全部写完后再整体改名为
+ * 最终目录，下游只会看到完整的输出或者旧的输出，不会看到写了一半的文件：
+ * <pre>
+ * try (FileManager.StagedOutput output = fileManager.stageOutput(title)) {
+ *     String markdown = markdownGenerator.generateMarkdown(content, title, cookie, output.getDirectory());
+ *     String filePath = fileManager.commitOutput(output, markdown);
+ * }
+ * </pre>
+ * 
+ * 开启 write-behind（file.output.write-behind.enabled）后，图片写入和提交在 I/O 线程上异步执行，
+ * commitOutput 入队后即返回最终路径；批量任务结束前调用 {@link #flush} 等待写完
+ * 
+ * 提交成功的文档同时加入全文检索索引（{@link SearchIndex}，保存在基础目录的 .index 下）
  * 
  * @author DingTalk Doc Parser Team
  */
@@ -20,9 +51,70 @@ import java.nio.file.Paths;
 @Component
 public class FileManager {
     
+    /**
+     * 写入中的输出目录
+     */
+    private static final String STAGING_DIR = ".staging";
+    
+    /**
+     * 被替换的旧输出，改名后立即删除
+     */
+    private static final String TRASH_DIR = ".trash";
+    
+    /**
+     * fsync 策略
+     */
+    public enum FsyncPolicy {
+        /** 不调用 fsync，依赖操作系统刷盘（进程崩溃安全，掉电时可能丢失最近的输出） */
+        NONE,
+        /** 改名前对所有文件 fsync */
+        FILES,
+        /** 文件和目录都 fsync，改名本身也持久化（掉电安全） */
+        ALL
+    }
+    
     @Value("${file.output.base-dir}")
     private String baseDir;
     
+    @Value("${file.output.fsync:NONE}")
+    private FsyncPolicy fsyncPolicy;
+    
+    // 提交时同时写一份 .md.gz，读取接口直接返回给支持 gzip 的客户端
+    @Value("${file.output.precompress:true}")
+    private boolean precompress;
+    
+    // 同名输出目录的改名需要串行，按目录名分段加锁
+    private final Object[] commitLocks = new Object[64];
+    
+    // 异步写入失败的临时目录，提交时放弃整个输出
+    private final Set<Path> failedOutputs = ConcurrentHashMap.newKeySet();
+    
+    private final WriteBehindQueue writeQueue;
+    private final SearchIndex searchIndex;
+    
+    FileManager(WriteBehindQueue writeQueue, SearchIndex searchIndex) {
+        this.writeQueue = writeQueue;
+        this.searchIndex = searchIndex;
+        for (int i = 0; i < commitLocks.length; i++) {
+            commitLocks[i] = new Object();
+        }
+    }
+    
+    /**
+     * 启动时清理上次进程遗留的临时目录（崩溃时未提交的输出），并打开检索索引
+     */
+    @PostConstruct
+    public void cleanupStaleOutputs() {
+        for (String dir : List.of(STAGING_DIR, TRASH_DIR)) {
+            Path path = getAbsoluteBaseDir().resolve(dir);
+            if (Files.exists(path)) {
+                log.info("清理遗留的临时输出目录: {}", path);
+                deleteQuietly(path);
+            }
+        }
+        searchIndex.open(getAbsoluteBaseDir());
+    }
+    
     /**
      * 获取绝对路径的基础目录
      * 如果是相对路径，则相对于项目根目录
@@ -38,38 +130,6 @@ public class FileManager {
         return Paths.get(System.getProperty("user.dir"), baseDir).toAbsolutePath();
     }
     
-    /**
-     * 保存 Markdown 文件
-     * 
-     * @param title 文档标题
-     * @param content Markdown 内容
-     * @return 文件完整路径
-     */
-    public String saveMarkdownFile(String title, String content) {
-        try {
-            // 清理文件名
-            String cleanTitle = sanitizeFilename(title);
-            
-            // 创建输出目录（使用绝对路径）
-            Path outputDir = getAbsoluteBaseDir().resolve(cleanTitle);
-            ensureDirectory(outputDir);
-            
-            // 创建文件路径
-            Path filePath = outputDir.resolve(cleanTitle + ".md");
-            
-            // 写入文件
-            Files.writeString(filePath, content);
-            
-            String absolutePath = filePath.toAbsolutePath().toString();
-            log.info("Markdown 文件已保存: {}", absolutePath);
-            
-            return absolutePath;
-        } catch (IOException e) {
-            log.error("保存 Markdown 文件失败", e);
-            throw new RuntimeException("保存 Markdown 文件失败: " + e.getMessage(), e);
-        }
-    }
-    
     /**
      * 清理文件名中的非法字符
      * 
@@ -99,6 +159,11 @@ public class FileManager {
         // 去除首尾空格
         clean = clean.trim();
         
+        // 以点开头会成为隐藏目录（或 ..），并可能与 .staging / .trash 冲突
+        if (clean.startsWith(".")) {
+            clean = "_" + clean.substring(1);
+        }
+        
         // 如果清理后为空，使用默认名称
         if (clean.isEmpty()) {
             clean = "未命名文档";
@@ -113,48 +178,326 @@ public class FileManager {
     }
     
     /**
-     * 确保目录存在，不存在则创建
+     * 获取基础输出目录
      * 
-     * @param directory 目录路径
+     * @return 基础目录路径
      */
-    private void ensureDirectory(Path directory) throws IOException {
-        if (!Files.exists(directory)) {
-            Files.createDirectories(directory);
-            log.debug("创建目录: {}", directory);
-        }
+    public String getBaseDir() {
+        return baseDir;
     }
     
     /**
-     * 获取基础输出目录
+     * 基础目录下的路径，用于保存与输出相关的内部状态（以 . 开头的目录不会被当作文档）
      * 
-     * @return 基础目录路径
+     * @param other 相对路径
+     * @return 绝对路径
      */
-    public String getBaseDir() {
-        return baseDir;
+    public Path resolveInBaseDir(String other) {
+        return getAbsoluteBaseDir().resolve(other);
     }
     
     /**
-     * 准备输出目录（用于保存 Markdown 和图片）
+     * 创建文档的临时输出目录（用于保存 Markdown 和图片）
      * 
      * @param title 文档标题
-     * @return 输出目录的绝对路径
+     * @return 临时输出，未提交就关闭时删除
      */
-    public String prepareOutputDirectory(String title) {
+    public StagedOutput stageOutput(String title) {
+        String cleanTitle = sanitizeFilename(title);
+        Path baseDir = getAbsoluteBaseDir();
+        Path stagingDir = baseDir.resolve(STAGING_DIR).resolve(UUID.randomUUID().toString());
         try {
-            // 清理文件名
-            String cleanTitle = sanitizeFilename(title);
-            
-            // 创建输出目录（使用绝对路径）
-            Path outputDir = getAbsoluteBaseDir().resolve(cleanTitle);
-            ensureDirectory(outputDir);
-            
-            String absolutePath = outputDir.toAbsolutePath().toString();
-            log.info("输出目录已准备: {}", absolutePath);
-            
-            return absolutePath;
+            Files.createDirectories(stagingDir);
         } catch (IOException e) {
             log.error("准备输出目录失败", e);
-            throw new RuntimeException("准备输出目录失败: " + e.getMessage(), e);
+            throw new FileOperationException("准备输出目录失败: " + e.getMessage(), e);
+        }
+        log.debug("临时输出目录已准备: {}", stagingDir);
+        return new StagedOutput(this, cleanTitle, stagingDir, baseDir.resolve(cleanTitle));
+    }
+    
+    /**
+     * 写入文件（图片等），开启 write-behind 时入队后即返回
+     * 
+     * @param filePath 文件路径，通常位于 {@link StagedOutput#getDirectory()} 下
+     * @param data 文件内容
+     */
+    public void writeFile(String filePath, byte[] data) {
+        Path path = Paths.get(filePath);
+        Path owner = ownerOf(path);
+        // 只有临时输出会在提交或清理时移除失败记录，其它目录不记录
+        Runnable onFailure = isStagingDir(owner) ? () -> failedOutputs.add(owner) : () -> { };
+        try {
+            writeQueue.submit(owner, "写入 " + path, () -> {
+                Files.createDirectories(path.getParent());
+                Files.write(path, data);
+            }, onFailure);
+        } catch (IOException e) {
+            // 开启 write-behind 时入队失败（队列满等待超时），同样放弃整个输出
+            if (writeQueue.isEnabled()) {
+                onFailure.run();
+            }
+            throw new FileOperationException("写入文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 在临时输出中写入文档的其它格式（与 Markdown 同名、扩展名不同），随输出一起提交
+     *
+     * @param output 临时输出
+     * @param extension 扩展名（不含点号），例如 html
+     * @param content 文件内容
+     * @return 提交后的文件完整路径
+     */
+    public String writeOutput(StagedOutput output, String extension, String content) {
+        String fileName = output.cleanTitle + "." + extension;
+        writeFile(output.stagingDir.resolve(fileName).toString(), content.getBytes(StandardCharsets.UTF_8));
+        return outputPath(output, extension);
+    }
+
+    /**
+     * 在临时输出中打开文档的其它格式文件，边生成边写入（例如分块），随输出一起提交。
+     * 直接写盘，不经过 write-behind 队列；调用方必须在 {@link #commitOutput} 之前关闭
+     *
+     * @param output 临时输出
+     * @param extension 扩展名（不含点号），例如 chunks.jsonl
+     * @return UTF-8 输出
+     */
+    public Writer openOutput(StagedOutput output, String extension) {
+        try {
+            return Files.newBufferedWriter(output.stagingDir.resolve(output.cleanTitle + "." + extension));
+        } catch (IOException e) {
+            throw new FileOperationException("创建输出文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 文档的其它格式提交后的文件完整路径
+     *
+     * @param output 临时输出
+     * @param extension 扩展名（不含点号）
+     * @return 文件完整路径
+     */
+    public String outputPath(StagedOutput output, String extension) {
+        return output.target.resolve(output.cleanTitle + "." + extension).toAbsolutePath().toString();
+    }
+
+    /**
+     * 写入 Markdown 并提交输出：临时目录整体改名为最终目录，已有的同名输出被替换。
+     * 开启 write-behind 时提交排在该文档所有写入之后异步执行，这里直接返回最终路径
+     * 
+     * @param output 临时输出
+     * @param content Markdown 内容
+     * @return Markdown 文件完整路径
+     */
+    public String commitOutput(StagedOutput output, String content) {
+        return commitOutput(output, content, null);
+    }
+    
+    /**
+     * 写入 Markdown 并提交输出，提交完成后回调
+     * 开启 write-behind 时回调在 I/O 线程上执行；提交失败时不回调
+     * 
+     * @param output 临时输出
+     * @param content Markdown 内容
+     * @param onCommitted 输出已改名为最终目录后的回调，可以为 null
+     * @return Markdown 文件完整路径
+     */
+    public String commitOutput(StagedOutput output, String content, Runnable onCommitted) {
+        if (output.committed) {
+            throw new IllegalStateException("输出已提交: " + output.target);
+        }
+        try {
+            writeQueue.submit(output.stagingDir, "提交 " + output.target,
+                () -> commit(output, content, onCommitted),
+                () -> deleteQuietly(output.stagingDir));
+            // 之后临时目录由提交任务负责清理
+            output.committed = true;
+        } catch (IOException e) {
+            log.error("保存 Markdown 文件失败", e);
+            throw new FileOperationException("保存 Markdown 文件失败: " + e.getMessage(), e);
+        }
+        return output.target.resolve(output.cleanTitle + ".md").toAbsolutePath().toString();
+    }
+    
+    /**
+     * 等待已提交的异步写入全部完成，未开启 write-behind 时立即返回
+     * 
+     * @param timeout 最长等待时间
+     * @return 是否在时限内写完
+     */
+    public boolean flush(Duration timeout) {
+        return writeQueue.flush(timeout);
+    }
+    
+    private void commit(StagedOutput output, String content, Runnable onCommitted) throws IOException {
+        if (failedOutputs.remove(output.stagingDir)) {
+            throw new IOException("部分文件写入失败，放弃提交: " + output.target);
+        }
+        
+        Path markdownFile = output.stagingDir.resolve(output.cleanTitle + ".md");
+        Files.writeString(markdownFile, content);
+        if (precompress) {
+            try (OutputStream gzip = new GZIPOutputStream(
+                    Files.newOutputStream(markdownFile.resolveSibling(output.cleanTitle + ".md.gz")), 64 * 1024)) {
+                gzip.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            syncTree(output.stagingDir);
+        }
+        
+        Path trash = null;
+        try {
+            synchronized (commitLocks[Math.floorMod(output.target.hashCode(), commitLocks.length)]) {
+                if (Files.exists(output.target)) {
+                    trash = getAbsoluteBaseDir().resolve(TRASH_DIR).resolve(UUID.randomUUID().toString());
+                    Files.createDirectories(trash.getParent());
+                    moveAtomically(output.target, trash);
+                }
+                try {
+                    moveAtomically(output.stagingDir, output.target);
+                } catch (IOException e) {
+                    // 放回旧输出
+                    if (trash != null) {
+                        moveAtomically(trash, output.target);
+                        trash = null;
+                    }
+                    throw e;
+                }
+            }
+            if (fsyncPolicy == FsyncPolicy.ALL) {
+                syncDirectory(output.target.getParent());
+            }
+        } finally {
+            if (trash != null) {
+                deleteQuietly(trash);
+            }
+        }
+        Path committed = output.target.resolve(output.cleanTitle + ".md");
+        searchIndex.index(committed.toString(), output.cleanTitle, content);
+        log.info("Markdown 文件已保存: {}", committed);
+        if (onCommitted != null) {
+            onCommitted.run();
+        }
+    }
+    
+    /**
+     * 放弃未提交的输出，排在该文档已入队的写入之后删除临时目录
+     */
+    private void discard(StagedOutput output) {
+        try {
+            writeQueue.submit(output.stagingDir, "清理 " + output.stagingDir, () -> {
+                failedOutputs.remove(output.stagingDir);
+                deleteQuietly(output.stagingDir);
+            }, () -> { });
+        } catch (IOException e) {
+            // 清理任务没有入队，失败记录不会再被移除；临时目录由下次启动时清理
+            failedOutputs.remove(output.stagingDir);
+            log.warn("清理临时输出失败: {}", output.stagingDir, e);
+        }
+    }
+    
+    /**
+     * 是否为某个文档的临时输出目录（.staging 下的一级目录）
+     */
+    private boolean isStagingDir(Path owner) {
+        return getAbsoluteBaseDir().resolve(STAGING_DIR).equals(owner.getParent());
+    }
+    
+    /**
+     * 文件所属的临时输出目录，同一目录的写入按顺序执行
+     */
+    private Path ownerOf(Path path) {
+        Path stagingRoot = getAbsoluteBaseDir().resolve(STAGING_DIR);
+        Path absolute = path.toAbsolutePath();
+        if (absolute.startsWith(stagingRoot) && !absolute.equals(stagingRoot)) {
+            return stagingRoot.resolve(stagingRoot.relativize(absolute).getName(0));
+        }
+        return absolute.getParent();
+    }
+    
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 临时目录和最终目录在同一个基础目录下，正常不会出现
+            log.warn("文件系统不支持原子改名，退化为普通移动: {}", target);
+            Files.move(source, target);
+        }
+    }
+    
+    /**
+     * 对目录下所有文件 fsync，ALL 策略下目录本身也 fsync
+     */
+    private void syncTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path)) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                } else if (fsyncPolicy == FsyncPolicy.ALL) {
+                    syncDirectory(path);
+                }
+            }
+        }
+    }
+    
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 部分平台（Windows）不支持打开目录
+            log.debug("目录 fsync 失败: {}", directory, e);
+        }
+    }
+    
+    private void deleteQuietly(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("删除临时文件失败: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("删除临时目录失败: {}", root, e);
+        }
+    }
+    
+    /**
+     * 文档的临时输出
+     * 关闭时如果还没有提交，删除临时目录
+     */
+    public static final class StagedOutput implements AutoCloseable {
+        
+        private final FileManager fileManager;
+        private final String cleanTitle;
+        private final Path stagingDir;
+        private final Path target;
+        private volatile boolean committed;
+        
+        private StagedOutput(FileManager fileManager, String cleanTitle, Path stagingDir, Path target) {
+            this.fileManager = fileManager;
+            this.cleanTitle = cleanTitle;
+            this.stagingDir = stagingDir;
+            this.target = target;
+        }
+        
+        /**
+         * 临时输出目录，Markdown 生成和图片下载写到这里
+         */
+        public String getDirectory() {
+            return stagingDir.toString();
+        }
+        
+        @Override
+        public void close() {
+            if (!committed) {
+                fileManager.discard(this);
+            }
         }
     }
 }
@@ -1,19 +1,34 @@
 package com.dingtalk.doc.service;
 
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.model.ContentTag;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.jfr.MarkdownRenderEvent;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+import com.dingtalk.doc.service.render.CompositeRenderer;
+import com.dingtalk.doc.service.render.ContentRenderer;
+import com.dingtalk.doc.service.render.FormatRenderer;
+import com.dingtalk.doc.service.render.RenderFormat;
+import com.dingtalk.doc.service.render.RenderOptions;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.Writer;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Markdown 生成器
- * 将钉钉文档内容转换为 Markdown 格式
+ * 将钉钉文档内容转换为 Markdown 格式；遍历文档时把结构事件交给 {@link ContentRenderer}，
+ * 同一次遍历也可以同时输出 HTML、纯文本、JSON AST 和向量化用的分块
  * 
  * @author DingTalk Doc Parser Team
  */
@@ -23,18 +38,7 @@ import java.util.Map;
 public class MarkdownGenerator {
     
     private final DingTalkHttpClient httpClient;
-    
-    // 当前文档的 Cookie（用于下载图片）
-    private String currentCookie;
-    
-    // 当前文档的输出目录
-    private String currentOutputDir;
-    
-    // 当前文档的 parts（用于解析文档引用）
-    private JsonNode currentParts;
-    
-    // 图片计数器
-    private int imageCounter = 0;
+    private final ParseMetrics parseMetrics;
     
     /**
      * 代码语言映射表
@@ -55,6 +59,21 @@ public class MarkdownGenerator {
         CODE_LANGUAGE_MAP.put("text/css", "css");
     }
     
+    /**
+     * 图片保存方式
+     */
+    @FunctionalInterface
+    public interface ImageSink {
+        
+        /**
+         * 下载图片并保存到文档输出中
+         * 
+         * @param src 图片地址
+         * @param relativePath 相对于文档目录的路径，例如 images/image_001.png
+         */
+        void save(String src, String relativePath);
+    }
+    
     /**
      * 从文档内容生成 Markdown
      * 
@@ -65,109 +84,238 @@ public class MarkdownGenerator {
      * @return Markdown 内容
      */
     public String generateMarkdown(JsonNode content, String title, String cookie, String outputDir) {
+        return generateMarkdown(ContentDocument.from(content), title, cookie, outputDir);
+    }
+    
+    /**
+     * 从文档内容生成 Markdown，图片交给 images 保存
+     * 
+     * @param content 文档内容 JSON
+     * @param title 文档标题
+     * @param images 图片保存方式
+     * @return Markdown 内容
+     */
+    public String generateMarkdown(JsonNode content, String title, ImageSink images) {
+        return generateMarkdown(ContentDocument.from(content), title, images);
+    }
+    
+    /**
+     * 从文档内容生成 Markdown
+     * 
+     * @param content 文档内容
+     * @param title 文档标题
+     * @param cookie Cookie（用于下载图片）
+     * @param outputDir 输出目录
+     * @return Markdown 内容
+     */
+    public String generateMarkdown(ContentDocument content, String title, String cookie, String outputDir) {
+        return generateMarkdown(content, title,
+            (src, relativePath) -> httpClient.downloadImage(src, cookie, Paths.get(outputDir, relativePath).toString()));
+    }
+    
+    /**
+     * 从文档内容生成 Markdown，图片交给 images 保存
+     * 
+     * @param content 文档内容
+     * @param title 文档标题
+     * @param images 图片保存方式
+     * @return Markdown 内容
+     */
+    public String generateMarkdown(ContentDocument content, String title, ImageSink images) {
+        return render(content, title, images, EnumSet.of(RenderFormat.MARKDOWN), new RenderOptions())
+            .get(RenderFormat.MARKDOWN);
+    }
+    
+    /**
+     * 把文档内容渲染为多种格式，图片下载到 outputDir
+     * 
+     * @param content 文档内容
+     * @param title 文档标题
+     * @param cookie Cookie（用于下载图片）
+     * @param outputDir 输出目录
+     * @param formats 输出格式
+     * @param options 渲染选项
+     * @param chunkOutput 分块输出，每切出一个分块立即写入，结果中不再包含分块；为 null 时分块也在结果中返回
+     * @return 各格式的渲染结果
+     */
+    public Map<RenderFormat, String> render(ContentDocument content, String title, String cookie, String outputDir,
+                                            Set<RenderFormat> formats, RenderOptions options, Writer chunkOutput) {
+        return render(content, title,
+            (src, relativePath) -> httpClient.downloadImage(src, cookie, Paths.get(outputDir, relativePath).toString()),
+            formats, options, chunkOutput);
+    }
+    
+    /**
+     * 把文档内容渲染为多种格式，图片交给 images 保存
+     * 只遍历一次文档，同一组事件同时交给每种格式的渲染器，图片也只下载一次
+     * 
+     * @param content 文档内容
+     * @param title 文档标题
+     * @param images 图片保存方式
+     * @param formats 输出格式
+     * @param options 渲染选项
+     * @return 各格式的渲染结果
+     */
+    public Map<RenderFormat, String> render(ContentDocument content, String title, ImageSink images,
+                                            Set<RenderFormat> formats, RenderOptions options) {
+        return render(content, title, images, formats, options, null);
+    }
+    
+    /**
+     * 把文档内容渲染为多种格式，图片交给 images 保存，分块边遍历边写到 chunkOutput
+     * 
+     * @param content 文档内容
+     * @param title 文档标题
+     * @param images 图片保存方式
+     * @param formats 输出格式
+     * @param options 渲染选项
+     * @param chunkOutput 分块输出，每切出一个分块立即写入，结果中不再包含分块；为 null 时分块也在结果中返回
+     * @return 各格式的渲染结果
+     */
+    public Map<RenderFormat, String> render(ContentDocument content, String title, ImageSink images,
+                                            Set<RenderFormat> formats, RenderOptions options, Writer chunkOutput) {
+        Map<RenderFormat, String> results = new EnumMap<>(RenderFormat.class);
         if (content == null) {
-            log.warn("文档内容为空，无法生成 Markdown");
-            return "";
+            log.warn("文档内容为空，无法渲染");
+            for (RenderFormat format : formats) {
+                if (format != RenderFormat.CHUNKS || chunkOutput == null) {
+                    results.put(format, "");
+                }
+            }
+            return results;
+        }
+        
+        Map<RenderFormat, FormatRenderer> renderers = new EnumMap<>(RenderFormat.class);
+        for (RenderFormat format : formats) {
+            renderers.put(format, format.newRenderer(options, chunkOutput));
         }
+        ContentRenderer renderer = renderers.size() == 1
+            ? renderers.values().iterator().next()
+            : new CompositeRenderer(new ArrayList<>(renderers.values()));
         
         try {
-            StringBuilder markdown = new StringBuilder();
-            
             // 添加文档标题作为一级标题
-            markdown.append("# ").append(title).append("\n\n");
+            renderer.beginDocument(title);
             
-            // 获取 main key
-            JsonNode mainNode = content.path("main");
-            if (mainNode.isMissingNode()) {
-                log.warn("未找到 main 节点");
-                return markdown.toString();
-            }
+            // 每次调用使用独立的渲染上下文，生成器本身无状态，可被多个线程同时使用
+            RenderContext context = new RenderContext(images, content, renderer, Deadline.current());
             
-            String mainKey = mainNode.asText();
+            MarkdownRenderEvent event = new MarkdownRenderEvent();
+            event.begin();
+            int body = findBody(content);
+            int tables = body < 0 ? 0 : renderBody(context, body);
+            renderer.endDocument();
             
-            // 获取 parts
-            JsonNode parts = content.path("parts");
-            if (parts.isMissingNode()) {
-                log.warn("未找到 parts 节点");
-                return markdown.toString();
-            }
-            
-            // 设置当前上下文
-            this.currentCookie = cookie;
-            this.currentOutputDir = outputDir;
-            this.currentParts = parts;
-            this.imageCounter = 0;
-            
-            // 获取 main part
-            JsonNode mainPart = parts.path(mainKey);
-            if (mainPart.isMissingNode()) {
-                log.warn("未找到 main part");
-                return markdown.toString();
+            renderers.forEach((format, formatRenderer) -> {
+                String result = formatRenderer.getResult();
+                if (result != null) {
+                    results.put(format, result);
+                }
+            });
+            if (body >= 0 && event.shouldCommit()) {
+                event.title = title;
+                event.blocks = Math.max(0, content.size(body) - 2);
+                event.tables = tables;
+                event.images = context.imageCounter;
+                String markdown = results.get(RenderFormat.MARKDOWN);
+                event.markdownChars = markdown == null ? 0 : markdown.length();
+                event.commit();
             }
-            
-            // 获取 body
-            JsonNode data = mainPart.path("data");
-            JsonNode body = data.path("body");
-            
-            if (body.isMissingNode() || !body.isArray()) {
-                log.warn("未找到 body 或 body 不是数组");
-                return markdown.toString();
+            return results;
+        } catch (Exception e) {
+            log.error("渲染文档失败", e);
+            throw new RuntimeException("渲染文档失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 查找 main part 的 body
+     * 
+     * @param content 文档内容
+     * @return body 节点，不存在时返回 -1
+     */
+    private int findBody(ContentDocument content) {
+        // 获取 main key
+        if (content.getMainKey() == null) {
+            log.warn("未找到 main 节点");
+            return -1;
+        }
+        
+        // 获取 parts
+        if (!content.hasParts()) {
+            log.warn("未找到 parts 节点");
+            return -1;
+        }
+        
+        // 获取 main part
+        if (!content.hasPart(content.getMainKey())) {
+            log.warn("未找到 main part");
+            return -1;
+        }
+        
+        // 获取 body
+        int body = content.getBody();
+        if (body < 0) {
+            log.warn("未找到 body 或 body 不是数组");
+        }
+        return body;
+    }
+    
+    /**
+     * 遍历 body 中的元素（前两个元素是元数据，不在子节点中）
+     * 
+     * @param context 渲染上下文
+     * @param body body 节点
+     * @return 表格数
+     */
+    private int renderBody(RenderContext context, int body) {
+        ContentDocument doc = context.doc;
+        ContentRenderer renderer = context.renderer;
+        int tables = 0;
+        
+        for (int item = doc.firstChild(body); item >= 0; item = doc.nextSibling(item)) {
+            if (!doc.isElement(item) || doc.size(item) == 0) {
+                continue;
             }
             
-            // 解析 body 中的元素（跳过前两个元素，它们是元数据）
-            for (int i = 2; i < body.size(); i++) {
-                JsonNode item = body.get(i);
-                if (!item.isArray() || item.size() == 0) {
-                    continue;
-                }
-                
-                String tag = item.get(0).asText();
-                String parsedMarkdown = "";
-                
-                switch (tag) {
-                    case "table":
-                        parsedMarkdown = parseTable(item);
-                        break;
-                    case "code":
-                        parsedMarkdown = parseCodeBlock(item);
-                        break;
-                    case "h1":
-                    case "h2":
-                    case "h3":
-                    case "h4":
-                    case "h5":
-                    case "h6":
-                        parsedMarkdown = parseHeading(item);
-                        break;
-                    case "ul":
-                    case "ol":
-                        parsedMarkdown = parseList(item);
-                        break;
-                    case "blockquote":
-                        parsedMarkdown = parseBlockquote(item);
-                        break;
-                    case "tag":
-                        parsedMarkdown = parseTag(item);
-                        break;
-                    case "p":
-                    case "img":
-                        parsedMarkdown = parseParagraph(item);
-                        break;
-                    default:
-                        // 尝试作为段落解析
-                        parsedMarkdown = parseParagraph(item);
-                }
-                
-                if (!parsedMarkdown.isEmpty()) {
-                    markdown.append(parsedMarkdown).append("\n\n");
-                }
+            switch (doc.tagCode(item)) {
+                case ContentTag.TABLE:
+                    renderTable(doc, item, renderer);
+                    tables++;
+                    break;
+                case ContentTag.CODE:
+                    renderCodeBlock(doc, item, renderer);
+                    break;
+                case ContentTag.H1:
+                case ContentTag.H2:
+                case ContentTag.H3:
+                case ContentTag.H4:
+                case ContentTag.H5:
+                case ContentTag.H6:
+                    renderHeading(doc, item, renderer);
+                    break;
+                case ContentTag.UL:
+                case ContentTag.OL:
+                    renderList(doc, item, renderer);
+                    break;
+                case ContentTag.BLOCKQUOTE:
+                    renderBlockquote(context, item);
+                    break;
+                case ContentTag.TAG:
+                    // 单独出现的文档引用作为一个段落
+                    String[] ref = resolveTag(doc, item);
+                    if (ref != null) {
+                        renderer.beginParagraph();
+                        renderer.docRef(ref[0], ref[1]);
+                        renderer.endParagraph();
+                    }
+                    break;
+                default:
+                    // 尝试作为段落解析
+                    renderParagraph(context, item);
             }
-            
-            return markdown.toString().trim();
-        } catch (Exception e) {
-            log.error("生成 Markdown 失败", e);
-            throw new RuntimeException("生成 Markdown 失败: " + e.getMessage(), e);
         }
+        return tables;
     }
     
     /**
@@ -200,334 +348,270 @@ public class MarkdownGenerator {
     }
     
     /**
-     * 解析文本样式（粗体、斜体）
-     * 
-     * @param spanElement span 元素
-     * @return Markdown 文本
-     */
-    private String parseTextStyle(JsonNode spanElement) {
-        return parseTextStyle(spanElement, true);
-    }
-    
-    /**
-     * 解析文本样式（粗体、斜体）
+     * 解析文本样式（粗体），文本交给渲染器
      * 
+     * @param doc 文档内容
      * @param spanElement span 元素
      * @param applyBold 是否应用粗体样式
-     * @return Markdown 文本
+     * @param renderer 渲染器
      */
-    private String parseTextStyle(JsonNode spanElement, boolean applyBold) {
-        if (!spanElement.isArray() || spanElement.size() < 2) {
-            return "";
+    private void renderTextStyle(ContentDocument doc, int spanElement, boolean applyBold, ContentRenderer renderer) {
+        if (!doc.isElement(spanElement) || doc.size(spanElement) < 2) {
+            return;
         }
         
-        String tag = spanElement.get(0).asText();
-        if (!"span".equals(tag)) {
-            return "";
+        if (doc.tagCode(spanElement) != ContentTag.SPAN) {
+            return;
         }
         
-        JsonNode attrs = spanElement.get(1);
-        StringBuilder result = new StringBuilder();
-        
         // 检查是否有粗体样式
-        boolean isBold = applyBold && attrs.has("bold") && attrs.get("bold").asBoolean();
+        boolean isBold = applyBold && doc.attrBoolean(spanElement, "bold");
         
         // 遍历子元素
-        for (int i = 2; i < spanElement.size(); i++) {
-            JsonNode child = spanElement.get(i);
-            
-            if (child.isTextual()) {
-                String text = child.asText();
-                if (isBold) {
-                    result.append("**").append(text).append("**");
-                } else {
-                    result.append(text);
-                }
-            } else if (child.isArray()) {
-                result.append(parseTextStyle(child, applyBold));
+        for (int child = doc.firstChild(spanElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isText(child)) {
+                renderer.text(doc, child, isBold);
+            } else {
+                renderTextStyle(doc, child, applyBold, renderer);
             }
         }
-        
-        return result.toString();
     }
     
     /**
      * 解析段落元素
      * 
+     * @param context 渲染上下文
      * @param paraElement 段落元素
-     * @return Markdown 段落
      */
-    private String parseParagraph(JsonNode paraElement) {
-        if (!paraElement.isArray() || paraElement.size() < 2) {
-            return "";
+    private void renderParagraph(RenderContext context, int paraElement) {
+        ContentDocument doc = context.doc;
+        ContentRenderer renderer = context.renderer;
+        if (!doc.isElement(paraElement) || doc.size(paraElement) < 2) {
+            return;
         }
         
-        String tag = paraElement.get(0).asText();
+        int tag = doc.tagCode(paraElement);
         
-        if ("p".equals(tag)) {
-            JsonNode attrs = paraElement.get(1);
-            
+        if (tag == ContentTag.P) {
             // 检查是否是列表项（带有 list 属性）
-            if (attrs.has("list")) {
-                return parseListItem(paraElement);
+            if (doc.hasAttr(paraElement, "list")) {
+                renderListItem(context, paraElement);
+                return;
             }
             
-            StringBuilder content = new StringBuilder();
-            
-            for (int i = 2; i < paraElement.size(); i++) {
-                JsonNode child = paraElement.get(i);
-                
-                if (child.isArray() && child.size() > 0) {
-                    String childTag = child.get(0).asText();
-                    if ("img".equals(childTag)) {
-                        content.append(parseImage(child));
-                    } else if ("a".equals(childTag)) {
-                        content.append(parseLink(child));
-                    } else if ("tag".equals(childTag)) {
-                        content.append(parseTag(child));
-                    } else {
-                        content.append(parseTextStyle(child));
+            renderer.beginParagraph();
+            for (int child = doc.firstChild(paraElement); child >= 0; child = doc.nextSibling(child)) {
+                if (doc.isElement(child) && doc.size(child) > 0) {
+                    switch (doc.tagCode(child)) {
+                        case ContentTag.IMG:
+                            renderImage(context, child);
+                            break;
+                        case ContentTag.A:
+                            renderLink(doc, child, renderer);
+                            break;
+                        case ContentTag.TAG:
+                            renderTag(doc, child, renderer);
+                            break;
+                        default:
+                            renderTextStyle(doc, child, true, renderer);
                     }
-                } else if (child.isTextual()) {
-                    content.append(child.asText());
+                } else if (doc.isText(child)) {
+                    renderer.text(doc, child, false);
                 }
             }
-            
-            String paragraphText = content.toString().trim();
-            return paragraphText.isEmpty() ? "" : paragraphText;
+            renderer.endParagraph();
+            return;
         }
         
-        if ("img".equals(tag)) {
-            return parseImage(paraElement);
+        if (tag == ContentTag.IMG) {
+            // 单独出现的图片作为一个段落
+            renderer.beginParagraph();
+            renderImage(context, paraElement);
+            renderer.endParagraph();
         }
-        
-        return "";
     }
     
     /**
      * 解析列表项（带有 list 属性的段落）
      * 
+     * @param context 渲染上下文
      * @param listItemElement 列表项元素
-     * @return Markdown 列表项
      */
-    private String parseListItem(JsonNode listItemElement) {
-        if (!listItemElement.isArray() || listItemElement.size() < 2) {
-            return "";
-        }
-        
-        JsonNode attrs = listItemElement.get(1);
-        JsonNode listInfo = attrs.path("list");
-        
-        // 获取列表级别（用于缩进）
-        int level = listInfo.has("level") ? listInfo.get("level").asInt() : 0;
-        String indent = "  ".repeat(level); // 每级缩进 2 个空格
-        
-        // 判断是否是有序列表
-        boolean isOrdered = listInfo.has("isOrdered") && listInfo.get("isOrdered").asBoolean();
-        
-        // 构建列表项内容
-        StringBuilder content = new StringBuilder();
-        for (int i = 2; i < listItemElement.size(); i++) {
-            JsonNode child = listItemElement.get(i);
-            
-            if (child.isArray() && child.size() > 0) {
-                String childTag = child.get(0).asText();
-                if ("span".equals(childTag)) {
-                    content.append(parseTextStyle(child));
-                } else if ("a".equals(childTag)) {
-                    content.append(parseLink(child));
-                } else if ("tag".equals(childTag)) {
-                    content.append(parseTag(child));
-                } else if ("img".equals(childTag)) {
-                    content.append(parseImage(child));
+    private void renderListItem(RenderContext context, int listItemElement) {
+        ContentDocument doc = context.doc;
+        ContentRenderer renderer = context.renderer;
+        
+        // 获取列表级别（用于缩进）和是否是有序列表
+        int level = doc.attrInt(listItemElement, "list.level");
+        boolean isOrdered = doc.attrBoolean(listItemElement, "list.isOrdered");
+        
+        renderer.beginListParagraph(level, isOrdered);
+        for (int child = doc.firstChild(listItemElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isElement(child) && doc.size(child) > 0) {
+                switch (doc.tagCode(child)) {
+                    case ContentTag.SPAN:
+                        renderTextStyle(doc, child, true, renderer);
+                        break;
+                    case ContentTag.A:
+                        renderLink(doc, child, renderer);
+                        break;
+                    case ContentTag.TAG:
+                        renderTag(doc, child, renderer);
+                        break;
+                    case ContentTag.IMG:
+                        renderImage(context, child);
+                        break;
+                    default:
+                        break;
                 }
-            } else if (child.isTextual()) {
-                content.append(child.asText());
+            } else if (doc.isText(child)) {
+                renderer.text(doc, child, false);
             }
         }
-        
-        String itemText = content.toString().trim();
-        if (itemText.isEmpty()) {
-            return "";
-        }
-        
-        // 生成 Markdown 列表项
-        if (isOrdered) {
-            return indent + "1. " + itemText;
-        } else {
-            return indent + "- " + itemText;
-        }
+        renderer.endListParagraph();
     }
     
     /**
      * 解析链接元素
      * 
+     * @param doc 文档内容
      * @param linkElement 链接元素
-     * @return Markdown 链接
+     * @param renderer 渲染器
      */
-    private String parseLink(JsonNode linkElement) {
-        if (!linkElement.isArray() || linkElement.size() < 2) {
-            return "";
-        }
-        
-        String tag = linkElement.get(0).asText();
-        if (!"a".equals(tag)) {
-            return "";
+    private void renderLink(ContentDocument doc, int linkElement, ContentRenderer renderer) {
+        if (!doc.isElement(linkElement) || doc.size(linkElement) < 2) {
+            return;
         }
         
-        JsonNode attrs = linkElement.get(1);
-        String href = attrs.has("href") ? attrs.get("href").asText() : "";
-        
-        // 检查是否是文档引用（可能有特殊属性）
-        boolean isDocRef = attrs.has("data-card-type") || 
-                          attrs.has("data-doc-ref") ||
-                          href.contains("/api/doc/transit");
-        
-        // 提取链接文本
-        StringBuilder linkText = new StringBuilder();
-        for (int i = 2; i < linkElement.size(); i++) {
-            JsonNode child = linkElement.get(i);
-            
-            if (child.isArray() && child.size() > 0) {
-                String childTag = child.get(0).asText();
-                if ("span".equals(childTag)) {
-                    linkText.append(parseTextStyle(child));
+        renderer.beginLink(doc.attrText(linkElement, "href", ""));
+        for (int child = doc.firstChild(linkElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isElement(child) && doc.size(child) > 0) {
+                if (doc.tagCode(child) == ContentTag.SPAN) {
+                    renderTextStyle(doc, child, true, renderer);
                 }
-            } else if (child.isTextual()) {
-                linkText.append(child.asText());
+            } else if (doc.isText(child)) {
+                renderer.text(doc, child, false);
             }
         }
-        
-        String text = linkText.toString().trim();
-        
-        // 如果链接文本为空或与 URL 相同，只显示 URL
-        if (text.isEmpty() || text.equals(href)) {
-            return href;
-        }
-        
-        // 文档引用：保持书名号格式
-        // 例如：[《Google api回传问题》](链接)
-        if (isDocRef || (text.startsWith("《") && text.endsWith("》"))) {
-            return "[" + text + "](" + href + ")";
-        }
-        
-        // 普通链接：返回 Markdown 链接格式
-        return "[" + text + "](" + href + ")";
+        renderer.endLink();
     }
     
     /**
      * 解析 tag 元素（文档引用）
      * 
+     * @param doc 文档内容
      * @param tagElement tag 元素
-     * @return Markdown 链接
+     * @param renderer 渲染器
      */
-    private String parseTag(JsonNode tagElement) {
-        if (!tagElement.isArray() || tagElement.size() < 2) {
-            return "";
+    private void renderTag(ContentDocument doc, int tagElement, ContentRenderer renderer) {
+        String[] ref = resolveTag(doc, tagElement);
+        if (ref != null) {
+            renderer.docRef(ref[0], ref[1]);
         }
-        
-        String tag = tagElement.get(0).asText();
-        if (!"tag".equals(tag)) {
-            return "";
+    }
+    
+    /**
+     * 从 parts 中查找 tag 元素引用的文档
+     * 
+     * @param doc 文档内容
+     * @param tagElement tag 元素
+     * @return 文档名称和 URL（没有 URL 时为空字符串），不是有效的文档引用时返回 null
+     */
+    private String[] resolveTag(ContentDocument doc, int tagElement) {
+        if (!doc.isElement(tagElement) || doc.size(tagElement) < 2) {
+            return null;
         }
         
-        JsonNode attrs = tagElement.get(1);
-        
         // 检查是否是文档引用类型
-        String tagType = attrs.has("tagType") ? attrs.get("tagType").asText() : "";
+        String tagType = doc.attrText(tagElement, "tagType", "");
         if (!"hetu".equals(tagType)) {
             log.debug("未知的 tag 类型: {}", tagType);
-            return "";
+            return null;
         }
         
         // 获取 metadata
-        JsonNode metadata = attrs.path("metadata");
-        if (metadata.isMissingNode()) {
+        if (!doc.hasAttr(tagElement, "metadata")) {
             log.warn("tag 元素缺少 metadata");
-            return "";
+            return null;
         }
         
         // 获取引用的文档 ID
-        String refId = metadata.has("id") ? metadata.get("id").asText() : "";
+        String refId = doc.attrText(tagElement, "metadata.id", "");
         if (refId.isEmpty()) {
             log.warn("tag 元素缺少 id");
-            return "";
+            return null;
         }
         
         // 从 parts 中查找引用的文档信息
-        if (currentParts == null || !currentParts.has(refId)) {
+        if (!doc.hasPart(refId)) {
             log.warn("未找到引用的文档信息: {}", refId);
-            return "";
+            return null;
         }
         
-        JsonNode refPart = currentParts.get(refId);
-        JsonNode refData = refPart.path("data");
-        
         // 获取文档名称和 URL
-        String fileName = refData.has("fileName") ? refData.get("fileName").asText() : "未命名文档";
-        String metaUrl = refData.has("metaUrl") ? refData.get("metaUrl").asText() : "";
+        String fileName = doc.getPartFileName(refId);
+        if (fileName == null) {
+            fileName = "未命名文档";
+        }
+        String metaUrl = doc.getPartMetaUrl(refId);
+        if (metaUrl == null) {
+            metaUrl = "";
+        }
         
         if (metaUrl.isEmpty()) {
             log.warn("文档引用缺少 URL: {}", fileName);
-            return "《" + fileName + "》";
         }
-        
-        // 返回 Markdown 链接格式，保留书名号
-        return "[《" + fileName + "》](" + metaUrl + ")";
+        return new String[] {fileName, metaUrl};
     }
     
     /**
-     * 解析图片元素
+     * 解析图片元素，下载图片后交给渲染器
      * 
+     * @param context 渲染上下文
      * @param imgElement 图片元素
-     * @return Markdown 图片语法
      */
-    private String parseImage(JsonNode imgElement) {
-        if (!imgElement.isArray() || imgElement.size() < 2) {
-            return "";
-        }
-        
-        String tag = imgElement.get(0).asText();
-        if (!"img".equals(tag)) {
-            return "";
+    private void renderImage(RenderContext context, int imgElement) {
+        ContentDocument doc = context.doc;
+        if (!doc.isElement(imgElement) || doc.size(imgElement) < 2) {
+            return;
         }
         
-        JsonNode attrs = imgElement.get(1);
-        String src = attrs.has("src") ? attrs.get("src").asText() : "";
-        String name = attrs.has("name") ? attrs.get("name").asText() : "图片";
+        String src = doc.attrText(imgElement, "src", "");
+        String name = doc.attrText(imgElement, "name", "图片");
         
         if (src.isEmpty()) {
-            return "[图片: " + name + "]";
+            context.renderer.image(name, src, null);
+            return;
+        }
+        
+        // 文档已超过时限时不再下载图片，保留原始 URL，让已渲染的内容尽快返回
+        if (context.deadline != null && context.deadline.isExpired()) {
+            log.warn("文档处理已超过时限，跳过图片下载: {}", src);
+            parseMetrics.recordImageSkipped();
+            context.renderer.image(name, src, null);
+            return;
         }
         
+        String localPath;
         try {
             // 生成本地图片文件名
-            imageCounter++;
+            context.imageCounter++;
             String extension = getImageExtension(src);
-            String localImageName = String.format("image_%03d%s", imageCounter, extension);
-            
-            // 图片保存在 images 子目录下
-            Path imagesDir = Paths.get(currentOutputDir, "images");
+            String localImageName = String.format("image_%03d%s", context.imageCounter, extension);
             
-            // 确保 images 目录存在
-            if (!Files.exists(imagesDir)) {
-                Files.createDirectories(imagesDir);
-                log.debug("创建 images 目录: {}", imagesDir);
-            }
-            
-            Path imagePath = imagesDir.resolve(localImageName);
-            
-            // 下载图片
-            log.info("下载图片: {} -> images/{}", src, localImageName);
-            httpClient.downloadImage(src, currentCookie, imagePath.toString());
-            
-            // 返回相对路径的 Markdown 语法（images 子目录）
-            return "![" + name + "](./images/" + localImageName + ")";
+            // 下载图片，保存在 images 子目录下
+            String relativePath = "images/" + localImageName;
+            log.info("下载图片: {} -> {}", src, relativePath);
+            parseMetrics.time(Stage.IMAGE_DOWNLOAD, () -> context.images.save(src, relativePath));
+            parseMetrics.recordImage(true);
+            localPath = relativePath;
         } catch (Exception e) {
             log.error("下载图片失败: {}", src, e);
+            parseMetrics.recordImage(false);
             // 如果下载失败，使用原始 URL
-            return "![" + name + "](" + src + ")";
+            localPath = null;
         }
+        context.renderer.image(name, src, localPath);
     }
     
     /**
@@ -562,299 +646,237 @@ public class MarkdownGenerator {
     }
     
     /**
-     * 解析表格元素
+     * 解析表格元素，逐行交给渲染器
+     * 只有包含单元格的行才会输出，除输出本身外只占用常数内存，与表格行数无关
      * 
+     * @param doc 文档内容
      * @param tableElement 表格元素
-     * @return Markdown 表格
+     * @param renderer 渲染器
      */
-    private String parseTable(JsonNode tableElement) {
-        if (!tableElement.isArray() || tableElement.size() < 2) {
-            return "";
+    private void renderTable(ContentDocument doc, int tableElement, ContentRenderer renderer) {
+        if (!doc.isElement(tableElement) || doc.size(tableElement) < 2) {
+            return;
         }
         
-        String tag = tableElement.get(0).asText();
-        if (!"table".equals(tag)) {
-            return "";
-        }
-        
-        StringBuilder table = new StringBuilder();
-        boolean isFirstRow = true;
-        int columnCount = 0;
+        renderer.beginTable();
         
         // 遍历表格行
-        for (int i = 2; i < tableElement.size(); i++) {
-            JsonNode row = tableElement.get(i);
-            if (!row.isArray() || row.size() < 2) {
+        for (int row = doc.firstChild(tableElement); row >= 0; row = doc.nextSibling(row)) {
+            if (!doc.isElement(row) || doc.size(row) < 2) {
                 continue;
             }
             
-            String rowTag = row.get(0).asText();
-            if (!"tr".equals(rowTag)) {
+            if (doc.tagCode(row) != ContentTag.TR || nextCell(doc, doc.firstChild(row)) < 0) {
                 continue;
             }
             
             // 解析行
-            StringBuilder rowContent = new StringBuilder("|");
-            int cellCount = 0;
-            
-            for (int j = 2; j < row.size(); j++) {
-                JsonNode cell = row.get(j);
-                if (!cell.isArray() || cell.size() < 2) {
-                    continue;
-                }
-                
-                String cellTag = cell.get(0).asText();
-                if (!"tc".equals(cellTag)) {
-                    continue;
-                }
-                
-                String cellContent = parseTableCell(cell);
-                rowContent.append(" ").append(cellContent).append(" |");
-                cellCount++;
-            }
-            
-            if (cellCount > 0) {
-                table.append(rowContent).append("\n");
-                
-                // 如果是第一行，添加分隔符
-                if (isFirstRow) {
-                    columnCount = cellCount;
-                    table.append("|");
-                    for (int k = 0; k < columnCount; k++) {
-                        table.append(" --- |");
-                    }
-                    table.append("\n");
-                    isFirstRow = false;
-                }
+            renderer.beginRow();
+            for (int cell = nextCell(doc, doc.firstChild(row)); cell >= 0; cell = nextCell(doc, doc.nextSibling(cell))) {
+                renderer.beginCell();
+                renderTableCell(doc, cell, renderer);
+                renderer.endCell();
             }
+            renderer.endRow();
         }
         
-        return table.toString();
+        renderer.endTable();
+    }
+    
+    /**
+     * 从 node 开始查找下一个有效的单元格
+     * 
+     * @param doc 文档内容
+     * @param node 起始节点，可以为 -1
+     * @return 单元格节点，没有时返回 -1
+     */
+    private int nextCell(ContentDocument doc, int node) {
+        while (node >= 0 && (!doc.isElement(node) || doc.size(node) < 2 || doc.tagCode(node) != ContentTag.TC)) {
+            node = doc.nextSibling(node);
+        }
+        return node;
     }
     
     /**
      * 解析表格单元格
      * 
+     * @param doc 文档内容
      * @param cellElement 单元格元素
-     * @return 单元格内容
+     * @param renderer 渲染器
      */
-    private String parseTableCell(JsonNode cellElement) {
-        if (!cellElement.isArray() || cellElement.size() < 2) {
-            return "";
-        }
-        
-        StringBuilder content = new StringBuilder();
-        
-        for (int i = 2; i < cellElement.size(); i++) {
-            JsonNode child = cellElement.get(i);
-            
-            if (child.isArray() && child.size() > 0) {
-                String childTag = child.get(0).asText();
-                if ("p".equals(childTag)) {
+    private void renderTableCell(ContentDocument doc, int cellElement, ContentRenderer renderer) {
+        for (int child = doc.firstChild(cellElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isElement(child) && doc.size(child) > 0) {
+                if (doc.tagCode(child) == ContentTag.P) {
                     // 解析段落内容
-                    for (int j = 2; j < child.size(); j++) {
-                        JsonNode pChild = child.get(j);
-                        if (pChild.isArray()) {
-                            content.append(parseTextStyle(pChild));
-                        } else if (pChild.isTextual()) {
-                            content.append(pChild.asText());
+                    for (int pChild = doc.firstChild(child); pChild >= 0; pChild = doc.nextSibling(pChild)) {
+                        if (doc.isElement(pChild)) {
+                            renderTextStyle(doc, pChild, true, renderer);
+                        } else {
+                            renderer.text(doc, pChild, false);
                         }
                     }
                 }
             }
         }
-        
-        String cellText = content.toString().trim();
-        // 替换换行符为空格（Markdown 表格不支持多行）
-        return cellText.replace("\n", " ");
     }
     
     /**
      * 解析代码块元素
      * 
+     * @param doc 文档内容
      * @param codeElement 代码块元素
-     * @return Markdown 代码块
+     * @param renderer 渲染器
      */
-    private String parseCodeBlock(JsonNode codeElement) {
-        if (!codeElement.isArray() || codeElement.size() < 2) {
-            return "";
+    private void renderCodeBlock(ContentDocument doc, int codeElement, ContentRenderer renderer) {
+        if (!doc.isElement(codeElement) || doc.size(codeElement) < 2) {
+            return;
         }
         
-        String tag = codeElement.get(0).asText();
-        if (!"code".equals(tag)) {
-            return "";
-        }
-        
-        JsonNode attrs = codeElement.get(1);
-        String syntax = attrs.has("syntax") ? attrs.get("syntax").asText() : "text/plain";
-        String code = attrs.has("code") ? attrs.get("code").asText() : "";
+        String syntax = doc.attrText(codeElement, "syntax", "text/plain");
+        String code = doc.attrText(codeElement, "code", "");
         
         if (code.isEmpty()) {
-            return "";
+            return;
         }
         
         // 获取语言标识
         String language = CODE_LANGUAGE_MAP.getOrDefault(syntax, 
             syntax.replace("text/x-", "").replace("text/", ""));
         
-        return "```" + language + "\n" + code + "\n```";
+        renderer.code(language, code);
     }
     
     /**
      * 解析标题元素
      * 
+     * @param doc 文档内容
      * @param headingElement 标题元素
-     * @return Markdown 标题
+     * @param renderer 渲染器
      */
-    private String parseHeading(JsonNode headingElement) {
-        if (!headingElement.isArray() || headingElement.size() < 2) {
-            return "";
+    private void renderHeading(ContentDocument doc, int headingElement, ContentRenderer renderer) {
+        if (!doc.isElement(headingElement) || doc.size(headingElement) < 2) {
+            return;
         }
         
-        String tag = headingElement.get(0).asText();
-        int level = 1;
-        
         // 解析标题级别（h1-h6）
-        if (tag.startsWith("h") && tag.length() == 2) {
-            try {
-                level = Integer.parseInt(tag.substring(1));
-                level = Math.max(1, Math.min(6, level)); // 限制在 1-6 之间
-            } catch (NumberFormatException e) {
-                level = 1;
-            }
-        }
-        
-        StringBuilder content = new StringBuilder();
-        for (int i = 2; i < headingElement.size(); i++) {
-            JsonNode child = headingElement.get(i);
-            if (child.isTextual()) {
-                content.append(child.asText());
-            } else if (child.isArray()) {
+        renderer.beginHeading(Math.max(1, ContentTag.headingLevel(doc.tagCode(headingElement))));
+        for (int child = doc.firstChild(headingElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isText(child)) {
+                renderer.text(doc, child, false);
+            } else {
                 // 标题中不应用粗体样式（标题本身已经是粗体）
-                content.append(parseTextStyle(child, false));
+                renderTextStyle(doc, child, false, renderer);
             }
         }
-        
-        String headingText = content.toString().trim();
-        if (headingText.isEmpty()) {
-            return "";
-        }
-        
-        return "#".repeat(level) + " " + headingText;
+        renderer.endHeading();
     }
     
     /**
      * 解析列表元素
      * 
+     * @param doc 文档内容
      * @param listElement 列表元素
-     * @return Markdown 列表
+     * @param renderer 渲染器
      */
-    private String parseList(JsonNode listElement) {
-        if (!listElement.isArray() || listElement.size() < 2) {
-            return "";
+    private void renderList(ContentDocument doc, int listElement, ContentRenderer renderer) {
+        if (!doc.isElement(listElement) || doc.size(listElement) < 2) {
+            return;
         }
         
-        String tag = listElement.get(0).asText();
-        boolean isOrdered = "ol".equals(tag);
-        
-        StringBuilder list = new StringBuilder();
-        int itemNumber = 1;
-        
-        for (int i = 2; i < listElement.size(); i++) {
-            JsonNode item = listElement.get(i);
-            if (!item.isArray() || item.size() < 2) {
+        renderer.beginList(doc.tagCode(listElement) == ContentTag.OL);
+        for (int item = doc.firstChild(listElement); item >= 0; item = doc.nextSibling(item)) {
+            if (!doc.isElement(item) || doc.size(item) < 2) {
                 continue;
             }
             
-            String itemTag = item.get(0).asText();
-            if (!"li".equals(itemTag)) {
+            if (doc.tagCode(item) != ContentTag.LI) {
                 continue;
             }
             
-            StringBuilder itemContent = new StringBuilder();
-            for (int j = 2; j < item.size(); j++) {
-                JsonNode child = item.get(j);
-                if (child.isTextual()) {
-                    itemContent.append(child.asText());
-                } else if (child.isArray()) {
-                    itemContent.append(parseTextStyle(child));
-                }
-            }
-            
-            String itemText = itemContent.toString().trim();
-            if (!itemText.isEmpty()) {
-                if (isOrdered) {
-                    list.append(itemNumber++).append(". ").append(itemText).append("\n");
+            renderer.beginListItem();
+            for (int child = doc.firstChild(item); child >= 0; child = doc.nextSibling(child)) {
+                if (doc.isText(child)) {
+                    renderer.text(doc, child, false);
                 } else {
-                    list.append("- ").append(itemText).append("\n");
+                    renderTextStyle(doc, child, true, renderer);
                 }
             }
+            renderer.endListItem();
         }
-        
-        return list.toString();
+        renderer.endList();
     }
     
     /**
      * 解析引用块元素
      * 
+     * @param context 渲染上下文
      * @param blockquoteElement 引用块元素
-     * @return Markdown 引用块
      */
-    private String parseBlockquote(JsonNode blockquoteElement) {
-        if (!blockquoteElement.isArray() || blockquoteElement.size() < 2) {
-            return "";
-        }
-        
-        String tag = blockquoteElement.get(0).asText();
-        if (!"blockquote".equals(tag)) {
-            return "";
+    private void renderBlockquote(RenderContext context, int blockquoteElement) {
+        ContentDocument doc = context.doc;
+        ContentRenderer renderer = context.renderer;
+        if (!doc.isElement(blockquoteElement) || doc.size(blockquoteElement) < 2) {
+            return;
         }
         
-        StringBuilder quote = new StringBuilder();
+        renderer.beginBlockquote();
         
         // 遍历引用块中的元素
-        for (int i = 2; i < blockquoteElement.size(); i++) {
-            JsonNode child = blockquoteElement.get(i);
-            
-            if (child.isArray() && child.size() > 0) {
-                String childTag = child.get(0).asText();
-                String childContent = "";
-                
-                switch (childTag) {
-                    case "p":
-                        childContent = parseParagraph(child);
-                        break;
-                    case "h1":
-                    case "h2":
-                    case "h3":
-                    case "h4":
-                    case "h5":
-                    case "h6":
-                        childContent = parseHeading(child);
+        for (int child = doc.firstChild(blockquoteElement); child >= 0; child = doc.nextSibling(child)) {
+            if (doc.isElement(child) && doc.size(child) > 0) {
+                switch (doc.tagCode(child)) {
+                    case ContentTag.H1:
+                    case ContentTag.H2:
+                    case ContentTag.H3:
+                    case ContentTag.H4:
+                    case ContentTag.H5:
+                    case ContentTag.H6:
+                        renderHeading(doc, child, renderer);
                         break;
-                    case "ul":
-                    case "ol":
-                        childContent = parseList(child);
+                    case ContentTag.UL:
+                    case ContentTag.OL:
+                        renderList(doc, child, renderer);
                         break;
-                    case "code":
-                        childContent = parseCodeBlock(child);
+                    case ContentTag.CODE:
+                        renderCodeBlock(doc, child, renderer);
                         break;
                     default:
-                        childContent = parseParagraph(child);
-                }
-                
-                if (!childContent.isEmpty()) {
-                    // 为每一行添加 > 前缀
-                    String[] lines = childContent.split("\n");
-                    for (String line : lines) {
-                        quote.append("> ").append(line).append("\n");
-                    }
+                        renderParagraph(context, child);
                 }
-            } else if (child.isTextual()) {
-                quote.append("> ").append(child.asText()).append("\n");
+            } else if (doc.isText(child)) {
+                renderer.text(doc, child, false);
             }
         }
         
-        return quote.toString();
+        renderer.endBlockquote();
+    }
+    
+    /**
+     * 单个文档的渲染上下文
+     */
+    private static final class RenderContext {
+        
+        // 图片保存方式
+        private final ImageSink images;
+        
+        // 当前文档（用于解析文档引用）
+        private final ContentDocument doc;
+        
+        // 渲染器
+        private final ContentRenderer renderer;
+        
+        // 当前文档的处理时限，没有绑定时为 null
+        private final Deadline deadline;
+        
+        // 图片计数器
+        private int imageCounter;
+        
+        RenderContext(ImageSink images, ContentDocument doc, ContentRenderer renderer, Deadline deadline) {
+            this.images = images;
+            this.doc = doc;
+            this.renderer = renderer;
+            this.deadline = deadline;
+        }
     }
 }
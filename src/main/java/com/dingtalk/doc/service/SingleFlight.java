@@ -0,0 +1,65 @@
+package com.dingtalk.doc.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并执行
+ * 同一个 key 同时只执行一次，执行期间到达的相同请求等待并共享这次执行的结果（或异常）。
+ * 执行在第一个调用者的线程上完成，线程上绑定的时限、指标和 JFR 事件都归属于它
+ *
+ * @param <K> 请求标识
+ * @param <V> 结果类型
+ * @author DingTalk Doc Parser Team
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行或等待同一 key 正在进行的执行
+     *
+     * @param key 请求标识
+     * @param action 执行逻辑
+     * @param onShared 请求被合并到已有执行时的回调（用于计数）
+     * @return 执行结果
+     */
+    V execute(K key, Supplier<V> action, Runnable onShared) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            onShared.run();
+            return await(existing);
+        }
+
+        try {
+            V result = action.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            // 原样抛出执行者的异常，调用方的异常处理（熔断 503、超时 504）不受影响
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
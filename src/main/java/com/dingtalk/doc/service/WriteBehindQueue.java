@@ -0,0 +1,199 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.config.WriteBehindConfig;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 输出异步写入队列
+ * 每个 I/O 线程有一个有界队列（lane），任务按 key 固定分到同一个 lane，同一文档的图片写入、
+ * Markdown 提交和清理严格按提交顺序执行。I/O 线程每次取出一批任务连续处理；
+ * 队列满时提交方阻塞等待，最多等待 enqueue-timeout（flush 为其剩余时间）。
+ * 未开启时任务直接在调用线程上执行
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+class WriteBehindQueue {
+
+    /**
+     * 写入任务
+     */
+    @FunctionalInterface
+    interface IoAction {
+
+        void run() throws IOException;
+    }
+
+    private final WriteBehindConfig config;
+    private final ParseMetrics parseMetrics;
+    private final List<BlockingQueue<Runnable>> lanes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    WriteBehindQueue(WriteBehindConfig config, ParseMetrics parseMetrics) {
+        this.config = config;
+        this.parseMetrics = parseMetrics;
+        if (!config.isEnabled()) {
+            return;
+        }
+
+        // 配置校验之外（例如直接构造时）也至少有一个 I/O 线程
+        int threads = Math.max(1, config.getThreads());
+        int capacity = Math.max(1, config.getQueueCapacity() / threads);
+        for (int i = 0; i < threads; i++) {
+            BlockingQueue<Runnable> lane = new ArrayBlockingQueue<>(capacity);
+            lanes.add(lane);
+            Thread worker = new Thread(() -> drain(lane), "file-writer-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        parseMetrics.registerWriteQueue(lanes, queues -> queues.stream().mapToInt(BlockingQueue::size).sum());
+        log.info("输出异步写入已开启: {} 个 I/O 线程, 队列容量 {}", threads, capacity * threads);
+    }
+
+    boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 提交写入任务，未开启时直接执行
+     *
+     * @param key 同一 key 的任务按顺序执行（通常是文档的临时目录）
+     * @param description 任务描述，用于日志
+     * @param action 写入逻辑
+     * @param onFailure 异步执行失败时的回调
+     * @throws IOException 未开启时写入失败；开启时队列满且等待超时，或等待时被中断
+     */
+    void submit(Object key, String description, IoAction action, Runnable onFailure) throws IOException {
+        if (!config.isEnabled()) {
+            action.run();
+            return;
+        }
+
+        enqueue(key, () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("异步写入失败: {}", description, e);
+                parseMetrics.recordWriteFailed();
+                onFailure.run();
+            }
+        });
+    }
+
+    /**
+     * 等待调用之前提交的所有任务写完
+     *
+     * @param timeout 最长等待时间
+     * @return 是否在时限内写完
+     */
+    boolean flush(Duration timeout) {
+        if (!config.isEnabled()) {
+            return true;
+        }
+
+        // 每个 lane 放一个标记，标记执行时它前面的任务都已完成；入队等待也计入 timeout
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<CompletableFuture<Void>> markers = new ArrayList<>();
+        for (BlockingQueue<Runnable> lane : lanes) {
+            CompletableFuture<Void> marker = new CompletableFuture<>();
+            if (!put(lane, () -> marker.complete(null), deadline - System.nanoTime())) {
+                return false;
+            }
+            markers.add(marker);
+        }
+        try {
+            CompletableFuture.allOf(markers.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 关闭时写完队列中剩余的任务
+     */
+    @PreDestroy
+    void shutdown() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!flush(Duration.ofMillis(config.getShutdownTimeout()))) {
+            log.warn("关闭时输出队列未在 {} ms 内写完，剩余 {} 个任务", config.getShutdownTimeout(),
+                lanes.stream().mapToInt(BlockingQueue::size).sum());
+        }
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void enqueue(Object key, Runnable task) throws IOException {
+        BlockingQueue<Runnable> lane = lanes.get(Math.floorMod(key.hashCode(), lanes.size()));
+        if (!put(lane, task, TimeUnit.MILLISECONDS.toNanos(config.getEnqueueTimeout()))) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IOException("等待输出队列时被中断");
+            }
+            throw new IOException("输出队列已满，等待 " + config.getEnqueueTimeout() + " ms 超时");
+        }
+    }
+
+    /**
+     * 放入任务，队列满时最多等待 timeoutNanos
+     *
+     * @return 是否已放入；等待超时或被中断时返回 false
+     */
+    private boolean put(BlockingQueue<Runnable> lane, Runnable task, long timeoutNanos) {
+        if (lane.offer(task)) {
+            return true;
+        }
+        // 队列已满，阻塞提交方
+        parseMetrics.recordWriteQueueFull();
+        try {
+            return lane.offer(task, Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drain(BlockingQueue<Runnable> lane) {
+        List<Runnable> batch = new ArrayList<>(config.getBatchSize());
+        while (running) {
+            try {
+                batch.add(lane.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            lane.drainTo(batch, config.getBatchSize() - 1);
+            for (Runnable task : batch) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("输出写入任务异常", e);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.dingtalk.doc.service.api;
 
 import com.dingtalk.doc.config.DingTalkApiConfig;
+import com.dingtalk.doc.service.http.RetryExecutor;
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.*;
@@ -8,6 +11,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+
 /**
  * 钉钉 API 客户端
  * 封装 HTTP 请求，自动处理 Token 认证
@@ -22,14 +27,20 @@ public class DingTalkApiClient {
     private final DingTalkAuthService authService;
     private final DingTalkApiConfig config;
     private final RestTemplate restTemplate;
+    private final HttpClientMetrics httpClientMetrics;
+    private final RetryExecutor retryExecutor;
 
     public DingTalkApiClient(
             DingTalkAuthService authService,
             DingTalkApiConfig config,
-            RestTemplate restTemplate) {
+            RestTemplate restTemplate,
+            HttpClientMetrics httpClientMetrics,
+            RetryExecutor retryExecutor) {
         this.authService = authService;
         this.config = config;
         this.restTemplate = restTemplate;
+        this.httpClientMetrics = httpClientMetrics;
+        this.retryExecutor = retryExecutor;
     }
 
     /**
@@ -53,33 +64,20 @@ public class DingTalkApiClient {
         try {
             log.debug("GET 请求: {}", url);
 
-            ResponseEntity<T> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    responseType
-            );
-
-            return response.getBody();
+            return exchange(url, HttpMethod.GET, entity, responseType);
 
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
                 // Token 可能过期，强制刷新后重试
                 log.warn("Token 可能过期，强制刷新后重试");
                 authService.forceRefresh();
+                recordUnauthorizedRetry(url, headers);
 
                 // 重试一次
                 headers.set("x-acs-dingtalk-access-token", authService.getAccessToken());
                 entity = new HttpEntity<>(headers);
 
-                ResponseEntity<T> response = restTemplate.exchange(
-                        url,
-                        HttpMethod.GET,
-                        entity,
-                        responseType
-                );
-
-                return response.getBody();
+                return exchange(url, HttpMethod.GET, entity, responseType);
             }
 
             log.error("API 请求失败: {}", e.getMessage());
@@ -106,8 +104,7 @@ public class DingTalkApiClient {
         try {
             log.debug("GET 请求（Token 参数）: {}", url);
 
-            ResponseEntity<T> response = restTemplate.getForEntity(url, responseType);
-            return response.getBody();
+            return exchange(url, HttpMethod.GET, HttpEntity.EMPTY, responseType);
 
         } catch (Exception e) {
             log.error("API 请求失败: {}", e.getMessage());
@@ -138,37 +135,42 @@ public class DingTalkApiClient {
         try {
             log.debug("POST 请求: {}", url);
 
-            ResponseEntity<T> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    responseType
-            );
-
-            return response.getBody();
+            return exchange(url, HttpMethod.POST, entity, responseType);
 
         } catch (HttpClientErrorException e) {
             if (e.getStatusCode() == HttpStatus.UNAUTHORIZED) {
                 // Token 可能过期，强制刷新后重试
                 log.warn("Token 可能过期，强制刷新后重试");
                 authService.forceRefresh();
+                recordUnauthorizedRetry(url, headers);
 
-                // 重试一次
-                headers.set("x-acs-dingtalk-access-token", authService.getAccessToken());
+                // 重试一次，Token 在 URL 参数中，需要用新 Token 重新拼接
+                url = baseUrl + path + "?access_token=" + authService.getAccessToken();
                 entity = new HttpEntity<>(requestBody, headers);
 
-                ResponseEntity<T> response = restTemplate.exchange(
-                        url,
-                        HttpMethod.POST,
-                        entity,
-                        responseType
-                );
-
-                return response.getBody();
+                return exchange(url, HttpMethod.POST, entity, responseType);
             }
 
             log.error("API 请求失败: {}", e.getMessage());
             throw new RuntimeException("API 请求失败: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * 发送请求，429/5xx 和连接异常按 {@link RetryExecutor} 的策略重试
+     */
+    private <T> T exchange(String url, HttpMethod method, HttpEntity<?> entity, Class<T> responseType) {
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(URI.create(url), entity.getHeaders());
+        ResponseEntity<T> response = retryExecutor.execute(endpoint, method,
+                () -> restTemplate.exchange(url, method, entity, responseType));
+        return response.getBody();
+    }
+
+    /**
+     * 记录一次 401 触发的 Token 刷新和重试
+     */
+    private void recordUnauthorizedRetry(String url, HttpHeaders headers) {
+        httpClientMetrics.recordTokenRefresh("unauthorized");
+        httpClientMetrics.recordRetry(UpstreamEndpoint.of(URI.create(url), headers), "unauthorized");
+    }
 }
@@ -1,6 +1,9 @@
 package com.dingtalk.doc.service.api;
 
 import com.dingtalk.doc.config.DingTalkApiConfig;
+import com.dingtalk.doc.service.http.RetryExecutor;
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
@@ -13,6 +16,7 @@ import java.util.Map;
 
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
@@ -33,15 +37,20 @@ public class DingTalkAuthService {
     
     private final DingTalkApiConfig config;
     private final RestTemplate restTemplate;
+    private final HttpClientMetrics httpClientMetrics;
+    private final RetryExecutor retryExecutor;
     
     private String accessToken;
     private long tokenExpireTime;
     
     private final Object lock = new Object();
     
-    public DingTalkAuthService(DingTalkApiConfig config, RestTemplate restTemplate) {
+    public DingTalkAuthService(DingTalkApiConfig config, RestTemplate restTemplate,
+                               HttpClientMetrics httpClientMetrics, RetryExecutor retryExecutor) {
         this.config = config;
         this.restTemplate = restTemplate;
+        this.httpClientMetrics = httpClientMetrics;
+        this.retryExecutor = retryExecutor;
     }
     
     /**
@@ -62,6 +71,7 @@ public class DingTalkAuthService {
                 return accessToken;
             }
             
+            httpClientMetrics.recordTokenRefresh(accessToken == null ? "initial" : "expired");
             return refreshAccessToken();
         }
     }
@@ -94,7 +104,8 @@ public class DingTalkAuthService {
             HttpEntity<Map<String, String>> entity = new HttpEntity<>(requestBody, headers);
             
             // 发送POST请求
-            ResponseEntity<JsonNode> response = restTemplate.postForEntity(url, entity, JsonNode.class);
+            ResponseEntity<JsonNode> response = retryExecutor.execute(UpstreamEndpoint.OAUTH2, HttpMethod.POST,
+                () -> restTemplate.postForEntity(url, entity, JsonNode.class));
             JsonNode body = response.getBody();
             
             if (body != null) {
@@ -151,7 +162,8 @@ public class DingTalkAuthService {
         try {
             log.info("开始刷新 AccessToken（旧版API）...");
             
-            ResponseEntity<JsonNode> response = restTemplate.getForEntity(url, JsonNode.class);
+            ResponseEntity<JsonNode> response = retryExecutor.execute(UpstreamEndpoint.OAUTH2, HttpMethod.GET,
+                () -> restTemplate.getForEntity(url, JsonNode.class));
             JsonNode body = response.getBody();
             
             if (body != null) {
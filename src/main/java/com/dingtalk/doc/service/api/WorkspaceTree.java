@@ -0,0 +1,453 @@
+package com.dingtalk.doc.service.api;
+
+import com.dingtalk.doc.model.DocNode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 知识库节点树快照（不可变）
+ * 节点按 ID、父节点和修改时间建好内存索引，列出子节点、路径解析和增量查询都不需要访问开放平台。
+ *
+ * 每个节点额外记录 changedAt：首次同步时等于节点的修改时间，之后的同步中发现新增、改名、移动或修改时
+ * 记为该次同步的时间；同步时消失的节点保留为删除记录（tombstone），
+ * 因此 {@link #changedSince} / {@link #deletedSince} 能回答"某个时间点之后变了什么"
+ *
+ * <pre>
+ * 文件格式（DataOutputStream，字符串去重后按序号引用）：
+ * int 魔数, int 版本, long 同步时间
+ * int 字符串数, 每个 UTF 字符串
+ * int 节点数, 每个: int nodeId, int parentId, int name, int type, int docType, int url,
+ *                  long createTime, long modifiedTime, long changedAt, boolean hasChildren
+ * int 删除记录数, 每个: int nodeId, int name, int path, long deletedAt
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class WorkspaceTree {
+
+    private static final int MAGIC = 0x44545754;
+    private static final int VERSION = 1;
+
+    /**
+     * 被删除的节点
+     */
+    public static final class Tombstone {
+
+        private final String nodeId;
+        private final String name;
+        private final String path;
+        private final long deletedAt;
+
+        Tombstone(String nodeId, String name, String path, long deletedAt) {
+            this.nodeId = nodeId;
+            this.name = name;
+            this.path = path;
+            this.deletedAt = deletedAt;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getDeletedAt() {
+            return deletedAt;
+        }
+    }
+
+    private static final class Entry {
+
+        String nodeId;
+        String parentId;
+        String name;
+        String type;
+        String docType;
+        String url;
+        long createTime;
+        long modifiedTime;
+        long changedAt;
+        boolean hasChildren;
+        // 父节点在数组中的下标，父节点不在树中（顶层）时为 -1
+        int parent = -1;
+    }
+
+    private static final int[] NONE = new int[0];
+
+    private final String workspaceId;
+    private final long syncedAt;
+    private final Entry[] entries;
+    private final List<Tombstone> tombstones;
+
+    private final Map<String, Integer> byId = new HashMap<>();
+    private final Map<String, int[]> childrenByParent = new HashMap<>();
+    private final int[] topLevel;
+    // 按 changedAt 升序排列的节点下标
+    private final int[] byChangedAt;
+
+    private WorkspaceTree(String workspaceId, long syncedAt, Entry[] entries, List<Tombstone> tombstones) {
+        this.workspaceId = workspaceId;
+        this.syncedAt = syncedAt;
+        this.entries = entries;
+        this.tombstones = tombstones;
+
+        for (int i = 0; i < entries.length; i++) {
+            byId.put(entries[i].nodeId, i);
+        }
+        Map<String, List<Integer>> children = new LinkedHashMap<>();
+        List<Integer> top = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = entries[i];
+            Integer parent = entry.parentId == null ? null : byId.get(entry.parentId);
+            entry.parent = parent == null || parent == i ? -1 : parent;
+            if (entry.parent < 0) {
+                top.add(i);
+            }
+            if (entry.parentId != null) {
+                children.computeIfAbsent(entry.parentId, key -> new ArrayList<>()).add(i);
+            }
+        }
+        children.forEach((parentId, list) -> childrenByParent.put(parentId, toArray(list)));
+        this.topLevel = toArray(top);
+
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> entries[i].changedAt));
+        this.byChangedAt = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 由一次完整同步得到的节点构建新快照
+     *
+     * @param workspaceId 知识库 ID
+     * @param nodes 知识库的全部节点
+     * @param previous 上一次的快照（首次同步为 null）
+     * @param syncedAt 本次同步时间
+     * @param tombstoneRetention 删除记录保留时间（毫秒）
+     * @return 新快照
+     */
+    static WorkspaceTree build(String workspaceId, List<DocNode> nodes, WorkspaceTree previous,
+                               long syncedAt, long tombstoneRetention) {
+        Map<String, Entry> current = new LinkedHashMap<>();
+        for (DocNode node : nodes) {
+            Entry entry = new Entry();
+            entry.nodeId = node.getNodeId();
+            entry.parentId = blankToNull(node.getParentId());
+            entry.name = node.getName();
+            entry.type = node.getType();
+            entry.docType = node.getDocType();
+            entry.url = node.getUrl();
+            entry.createTime = valueOf(node.getCreateTime());
+            entry.modifiedTime = valueOf(node.getModifiedTime());
+            entry.hasChildren = Boolean.TRUE.equals(node.getHasChildren());
+
+            Entry old = previous == null ? null : previous.entry(entry.nodeId);
+            if (previous == null) {
+                entry.changedAt = entry.modifiedTime;
+            } else if (old == null || !sameContent(old, entry)) {
+                // 移入的节点修改时间可能很早，按发现变化的时间记录
+                entry.changedAt = Math.max(entry.modifiedTime, syncedAt);
+            } else {
+                entry.changedAt = old.changedAt;
+            }
+            current.put(entry.nodeId, entry);
+        }
+
+        List<Tombstone> tombstones = new ArrayList<>();
+        if (previous != null) {
+            for (Tombstone tombstone : previous.tombstones) {
+                if (!current.containsKey(tombstone.nodeId) && syncedAt - tombstone.deletedAt <= tombstoneRetention) {
+                    tombstones.add(tombstone);
+                }
+            }
+            for (int i = 0; i < previous.entries.length; i++) {
+                Entry old = previous.entries[i];
+                if (!current.containsKey(old.nodeId)) {
+                    tombstones.add(new Tombstone(old.nodeId, old.name, previous.pathOf(i), syncedAt));
+                }
+            }
+        }
+        return new WorkspaceTree(workspaceId, syncedAt, current.values().toArray(new Entry[0]), tombstones);
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    /**
+     * 最近一次与开放平台同步的时间
+     */
+    public long getSyncedAt() {
+        return syncedAt;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * 按 ID 查找节点
+     *
+     * @return 节点，不存在时返回 null
+     */
+    public DocNode getNode(String nodeId) {
+        Integer index = byId.get(nodeId);
+        return index == null ? null : toDocNode(index);
+    }
+
+    /**
+     * 子节点列表
+     *
+     * @param parentNodeId 父节点 ID，为 null 时返回顶层节点
+     */
+    public List<DocNode> children(String parentNodeId) {
+        int[] indexes = parentNodeId == null || parentNodeId.isEmpty()
+            ? topLevel
+            : childrenByParent.getOrDefault(parentNodeId, NONE);
+        return toDocNodes(indexes);
+    }
+
+    /**
+     * 按名称路径查找节点，如 /产品/需求/PRD；同级重名时返回第一个
+     *
+     * @return 节点，不存在时返回 null
+     */
+    public DocNode resolve(String path) {
+        int[] candidates = topLevel;
+        int found = -1;
+        for (String name : path.split("/")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            found = -1;
+            for (int index : candidates) {
+                if (name.equals(entries[index].name)) {
+                    found = index;
+                    break;
+                }
+            }
+            if (found < 0) {
+                return null;
+            }
+            candidates = childrenByParent.getOrDefault(entries[found].nodeId, NONE);
+        }
+        return found < 0 ? null : toDocNode(found);
+    }
+
+    /**
+     * 节点的名称路径
+     *
+     * @return 路径，节点不存在时返回 null
+     */
+    public String pathOf(String nodeId) {
+        Integer index = byId.get(nodeId);
+        return index == null ? null : pathOf(index);
+    }
+
+    /**
+     * 指定时间之后新增或变化的节点，按变化时间升序
+     *
+     * @param since 时间戳（毫秒，不含）
+     */
+    public List<DocNode> changedSince(long since) {
+        int low = 0;
+        int high = byChangedAt.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[byChangedAt[mid]].changedAt <= since) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return toDocNodes(Arrays.copyOfRange(byChangedAt, low, byChangedAt.length));
+    }
+
+    /**
+     * 指定时间之后被删除的节点（保留期内）
+     *
+     * @param since 时间戳（毫秒，不含）
+     */
+    public List<Tombstone> deletedSince(long since) {
+        List<Tombstone> result = new ArrayList<>();
+        for (Tombstone tombstone : tombstones) {
+            if (tombstone.deletedAt > since) {
+                result.add(tombstone);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入文件格式
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            for (String value : new String[]{entry.nodeId, entry.parentId, entry.name, entry.type, entry.docType, entry.url}) {
+                intern(strings, value);
+            }
+        }
+        for (Tombstone tombstone : tombstones) {
+            intern(strings, tombstone.nodeId);
+            intern(strings, tombstone.name);
+            intern(strings, tombstone.path);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(syncedAt);
+        out.writeInt(strings.size());
+        for (String value : strings.keySet()) {
+            out.writeUTF(value);
+        }
+        out.writeInt(entries.length);
+        for (Entry entry : entries) {
+            out.writeInt(intern(strings, entry.nodeId));
+            out.writeInt(intern(strings, entry.parentId));
+            out.writeInt(intern(strings, entry.name));
+            out.writeInt(intern(strings, entry.type));
+            out.writeInt(intern(strings, entry.docType));
+            out.writeInt(intern(strings, entry.url));
+            out.writeLong(entry.createTime);
+            out.writeLong(entry.modifiedTime);
+            out.writeLong(entry.changedAt);
+            out.writeBoolean(entry.hasChildren);
+        }
+        out.writeInt(tombstones.size());
+        for (Tombstone tombstone : tombstones) {
+            out.writeInt(intern(strings, tombstone.nodeId));
+            out.writeInt(intern(strings, tombstone.name));
+            out.writeInt(intern(strings, tombstone.path));
+            out.writeLong(tombstone.deletedAt);
+        }
+    }
+
+    /**
+     * 读取文件格式
+     */
+    static WorkspaceTree readFrom(String workspaceId, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("不是有效的知识库索引文件: " + workspaceId);
+        }
+        long syncedAt = in.readLong();
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        Entry[] entries = new Entry[in.readInt()];
+        for (int i = 0; i < entries.length; i++) {
+            Entry entry = new Entry();
+            entry.nodeId = string(strings, in.readInt());
+            entry.parentId = string(strings, in.readInt());
+            entry.name = string(strings, in.readInt());
+            entry.type = string(strings, in.readInt());
+            entry.docType = string(strings, in.readInt());
+            entry.url = string(strings, in.readInt());
+            entry.createTime = in.readLong();
+            entry.modifiedTime = in.readLong();
+            entry.changedAt = in.readLong();
+            entry.hasChildren = in.readBoolean();
+            entries[i] = entry;
+        }
+        int tombstoneCount = in.readInt();
+        List<Tombstone> tombstones = new ArrayList<>(tombstoneCount);
+        for (int i = 0; i < tombstoneCount; i++) {
+            tombstones.add(new Tombstone(string(strings, in.readInt()), string(strings, in.readInt()),
+                string(strings, in.readInt()), in.readLong()));
+        }
+        return new WorkspaceTree(workspaceId, syncedAt, entries, tombstones);
+    }
+
+    private Entry entry(String nodeId) {
+        Integer index = byId.get(nodeId);
+        return index == null ? null : entries[index];
+    }
+
+    private String pathOf(int index) {
+        List<String> names = new ArrayList<>();
+        // 深度不超过节点数，防止异常数据中的环
+        for (int i = index, depth = 0; i >= 0 && depth <= entries.length; i = entries[i].parent, depth++) {
+            names.add(entries[i].name);
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = names.size() - 1; i >= 0; i--) {
+            path.append('/').append(names.get(i));
+        }
+        return path.toString();
+    }
+
+    private List<DocNode> toDocNodes(int[] indexes) {
+        List<DocNode> nodes = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            nodes.add(toDocNode(index));
+        }
+        return nodes;
+    }
+
+    private DocNode toDocNode(int index) {
+        Entry entry = entries[index];
+        DocNode node = new DocNode();
+        node.setNodeId(entry.nodeId);
+        node.setName(entry.name);
+        node.setType(entry.type);
+        node.setDocType(entry.docType);
+        node.setParentId(entry.parentId);
+        node.setWorkspaceId(workspaceId);
+        node.setUrl(entry.url);
+        node.setCreateTime(entry.createTime);
+        node.setModifiedTime(entry.modifiedTime);
+        node.setHasChildren(entry.hasChildren);
+        return node;
+    }
+
+    private static boolean sameContent(Entry a, Entry b) {
+        return Objects.equals(a.parentId, b.parentId)
+            && Objects.equals(a.name, b.name)
+            && Objects.equals(a.type, b.type)
+            && Objects.equals(a.docType, b.docType)
+            && Objects.equals(a.url, b.url)
+            && a.modifiedTime == b.modifiedTime;
+    }
+
+    /**
+     * 字符串序号，null 记为 -1
+     */
+    private static int intern(Map<String, Integer> strings, String value) {
+        return value == null ? -1 : strings.computeIfAbsent(value, key -> strings.size());
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,297 @@
+package com.dingtalk.doc.service.api;
+
+import com.dingtalk.doc.config.WorkspaceIndexConfig;
+import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.model.Workspace;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 知识库节点树本地索引
+ * 知识库列表和每个知识库的完整节点树保存在本地（节点树格式见 {@link WorkspaceTree}），
+ * 查询直接读内存中的快照；首次访问某个知识库时同步一次，之后由后台线程按 refresh-interval 与开放平台对账。
+ *
+ * 同步逐层调用节点列表接口，任何一层失败都放弃本次同步、保留旧快照，
+ * 不会因为接口偶发失败把整棵子树误判为已删除
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "dingtalk.api.enabled", havingValue = "true")
+public class WorkspaceTreeIndex {
+
+    private static final String TREE_SUFFIX = ".tree";
+    private static final String WORKSPACES_FILE = "workspaces.json";
+
+    private final DingTalkWorkspaceService workspaceService;
+    private final WorkspaceIndexConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, WorkspaceTree> trees = new ConcurrentHashMap<>();
+    private final Map<String, Object> syncLocks = new ConcurrentHashMap<>();
+    private volatile List<Workspace> workspaces;
+    private ScheduledExecutorService scheduler;
+
+    public WorkspaceTreeIndex(DingTalkWorkspaceService workspaceService, WorkspaceIndexConfig config) {
+        this.workspaceService = workspaceService;
+        this.config = config;
+    }
+
+    /**
+     * 加载本地索引并启动后台对账
+     */
+    @PostConstruct
+    public void load() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        Path dir = getIndexDir();
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(TREE_SUFFIX)) {
+                        loadTree(file, name);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("加载知识库索引失败", e);
+            }
+            Path workspacesFile = dir.resolve(WORKSPACES_FILE);
+            if (Files.exists(workspacesFile)) {
+                try {
+                    workspaces = objectMapper.readValue(workspacesFile.toFile(), new TypeReference<List<Workspace>>() { });
+                } catch (IOException e) {
+                    log.warn("加载知识库列表索引失败: {}", workspacesFile, e);
+                }
+            }
+            log.info("知识库索引已加载: {} 个知识库节点树", trees.size());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "workspace-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile,
+            config.getRefreshInterval(), config.getRefreshInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 已索引的节点树
+     *
+     * @param workspaceId 知识库 ID
+     * @return 快照，未索引或未开启时返回 null
+     */
+    public WorkspaceTree getTree(String workspaceId) {
+        return config.isEnabled() ? trees.get(workspaceId) : null;
+    }
+
+    /**
+     * 已索引的节点树，未索引时立即同步一次
+     *
+     * @param workspaceId 知识库 ID
+     * @return 快照，未开启时返回 null
+     */
+    public WorkspaceTree getOrSync(String workspaceId) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        WorkspaceTree tree = trees.get(workspaceId);
+        return tree != null ? tree : sync(workspaceId);
+    }
+
+    /**
+     * 从开放平台完整同步一个知识库的节点树
+     *
+     * @param workspaceId 知识库 ID
+     * @return 新快照，未开启时返回 null
+     */
+    public WorkspaceTree sync(String workspaceId) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        synchronized (syncLocks.computeIfAbsent(workspaceId, key -> new Object())) {
+            long start = System.currentTimeMillis();
+            List<DocNode> nodes = fetchAllNodes(workspaceId);
+            WorkspaceTree tree = WorkspaceTree.build(workspaceId, nodes, trees.get(workspaceId),
+                start, config.getTombstoneRetention());
+            persist(tree);
+            trees.put(workspaceId, tree);
+            log.info("知识库节点树已同步: workspaceId={}, {} 个节点, 耗时 {} ms",
+                workspaceId, tree.size(), System.currentTimeMillis() - start);
+            return tree;
+        }
+    }
+
+    /**
+     * 在后台同步知识库（用于未索引时先直接调用接口返回结果的场景）
+     */
+    public void syncLater(String workspaceId) {
+        if (scheduler != null && !trees.containsKey(workspaceId)) {
+            scheduler.execute(() -> syncQuietly(workspaceId));
+        }
+    }
+
+    /**
+     * 已索引的知识库列表
+     *
+     * @return 列表，未索引或未开启时返回 null
+     */
+    public List<Workspace> getWorkspaces() {
+        return config.isEnabled() ? workspaces : null;
+    }
+
+    /**
+     * 从开放平台获取知识库列表并更新索引
+     */
+    public List<Workspace> syncWorkspaces() {
+        List<Workspace> latest = workspaceService.getWorkspaces();
+        if (config.isEnabled()) {
+            workspaces = latest;
+            try {
+                Path dir = Files.createDirectories(getIndexDir());
+                Path temp = dir.resolve(WORKSPACES_FILE + ".tmp");
+                objectMapper.writeValue(temp.toFile(), latest);
+                Files.move(temp, dir.resolve(WORKSPACES_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.warn("保存知识库列表索引失败", e);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 后台对账：刷新知识库列表（访问过时）和所有已索引的节点树
+     */
+    void reconcile() {
+        if (workspaces != null) {
+            try {
+                syncWorkspaces();
+            } catch (RuntimeException e) {
+                log.warn("知识库列表对账失败: {}", e.getMessage());
+            }
+        }
+        for (String workspaceId : new ArrayList<>(trees.keySet())) {
+            syncQuietly(workspaceId);
+        }
+    }
+
+    private void syncQuietly(String workspaceId) {
+        try {
+            sync(workspaceId);
+        } catch (RuntimeException e) {
+            log.warn("知识库节点树同步失败，保留旧索引: workspaceId={}, {}", workspaceId, e.getMessage());
+        }
+    }
+
+    /**
+     * 逐层获取全部节点，任一层失败时抛出异常
+     */
+    private List<DocNode> fetchAllNodes(String workspaceId) {
+        List<DocNode> all = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add("");
+        while (!pending.isEmpty()) {
+            String parentId = pending.poll();
+            for (DocNode node : workspaceService.getNodes(workspaceId, parentId.isEmpty() ? null : parentId)) {
+                if (!visited.add(node.getNodeId())) {
+                    continue;
+                }
+                if (!parentId.isEmpty() && (node.getParentId() == null || node.getParentId().isEmpty())) {
+                    node.setParentId(parentId);
+                }
+                all.add(node);
+                if ("folder".equals(node.getType()) && !Boolean.FALSE.equals(node.getHasChildren())) {
+                    pending.add(node.getNodeId());
+                }
+            }
+        }
+        return all;
+    }
+
+    private void loadTree(Path file, String name) {
+        String workspaceId = decode(name.substring(0, name.length() - TREE_SUFFIX.length()));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            trees.put(workspaceId, WorkspaceTree.readFrom(workspaceId, in));
+        } catch (IOException | RuntimeException e) {
+            // 下次访问时重新同步
+            log.warn("知识库索引文件损坏，已忽略: {}", file, e);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子改名，读取方不会看到写了一半的索引
+     */
+    private void persist(WorkspaceTree tree) {
+        try {
+            Path dir = Files.createDirectories(getIndexDir());
+            Path file = dir.resolve(encode(tree.getWorkspaceId()) + TREE_SUFFIX);
+            Path temp = dir.resolve(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                tree.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // 内存中的快照仍然可用，下次同步时重试
+            log.warn("保存知识库索引失败: workspaceId={}", tree.getWorkspaceId(), e);
+        }
+    }
+
+    private Path getIndexDir() {
+        return Paths.get(config.getDir()).toAbsolutePath();
+    }
+
+    /**
+     * 知识库 ID 编码为文件名
+     */
+    private static String encode(String workspaceId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(workspaceId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String fileName) {
+        return new String(Base64.getUrlDecoder().decode(fileName), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,227 @@
+package com.dingtalk.doc.service.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 批量解析检查点
+ * 每个知识库一个只追加的 JSONL 日志，记录已完成的节点和每次失败：
+ *
+ * <pre>
+ * {"event":"done","nodeId":"...","at":1700000000000}
+ * {"event":"failed","nodeId":"...","attempt":2,"error":"...","at":1700000000000}
+ * </pre>
+ *
+ * 每条记录写入后立即 fsync。进程在写入中途退出时最后一行可能不完整，读取时跳过，
+ * 打开时补上换行，之后的记录从新的一行开始。
+ * 完成记录可能在 I/O 线程上写入（输出异步提交之后），写入方法是同步的；
+ * 关闭后到达的记录只记录日志，不写入也不抛出异常
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+final class ParseCheckpoint implements Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * 节点最近一次失败
+     */
+    static final class Failure {
+
+        private final int attempts;
+        private final long at;
+
+        Failure(int attempts, long at) {
+            this.attempts = attempts;
+            this.at = at;
+        }
+
+        /**
+         * 累计失败次数（包括之前的批量解析）
+         */
+        int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * 最近一次失败的时间（毫秒时间戳）
+         */
+        long getAt() {
+            return at;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+
+    private ParseCheckpoint(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * 打开（不存在时创建）检查点日志，读入已有记录
+     *
+     * @param file 日志文件
+     */
+    static ParseCheckpoint open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        ParseCheckpoint checkpoint = new ParseCheckpoint(file, channel);
+        try {
+            checkpoint.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return checkpoint;
+    }
+
+    private void load() throws IOException {
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode record;
+                try {
+                    record = MAPPER.readTree(line);
+                } catch (IOException e) {
+                    skipped++;
+                    continue;
+                }
+                String nodeId = record.path("nodeId").asText(null);
+                if (nodeId == null) {
+                    skipped++;
+                    continue;
+                }
+                if ("done".equals(record.path("event").asText())) {
+                    done.add(nodeId);
+                    failures.remove(nodeId);
+                } else if ("failed".equals(record.path("event").asText())) {
+                    failures.put(nodeId, new Failure(record.path("attempt").asInt(1), record.path("at").asLong()));
+                }
+            }
+        }
+        if (skipped > 0) {
+            log.warn("检查点日志中有 {} 行无法识别，已跳过: {}", skipped, file);
+        }
+
+        // 上次退出时最后一行没有写完，新记录从下一行开始
+        try (SeekableByteChannel reader = Files.newByteChannel(file, StandardOpenOption.READ)) {
+            long size = reader.size();
+            if (size > 0) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                reader.position(size - 1).read(last);
+                if (last.get(0) != '\n') {
+                    write("\n");
+                }
+            }
+        }
+    }
+
+    boolean isDone(String nodeId) {
+        return done.contains(nodeId);
+    }
+
+    /**
+     * 节点最近一次失败，没有失败或之后已完成时返回 null
+     */
+    Failure getFailure(String nodeId) {
+        return failures.get(nodeId);
+    }
+
+    int doneCount() {
+        return done.size();
+    }
+
+    /**
+     * 记录节点已完成（输出已提交）
+     */
+    void markDone(String nodeId) {
+        ObjectNode record = MAPPER.createObjectNode()
+            .put("event", "done")
+            .put("nodeId", nodeId)
+            .put("at", System.currentTimeMillis());
+        append(record);
+        done.add(nodeId);
+        failures.remove(nodeId);
+    }
+
+    /**
+     * 记录节点失败
+     *
+     * @param attempt 累计失败次数
+     * @param error 失败原因
+     */
+    void markFailed(String nodeId, int attempt, String error) {
+        long now = System.currentTimeMillis();
+        ObjectNode record = MAPPER.createObjectNode()
+            .put("event", "failed")
+            .put("nodeId", nodeId)
+            .put("attempt", attempt)
+            .put("error", error)
+            .put("at", now);
+        append(record);
+        failures.put(nodeId, new Failure(attempt, now));
+    }
+
+    /**
+     * 关闭并删除日志（批量解析全部完成时）
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+    }
+
+    private synchronized void append(ObjectNode record) {
+        if (!channel.isOpen()) {
+            // 批量解析等异步写入超时后已关闭检查点，迟到的记录丢弃，对应文档在下次续跑时重新解析
+            log.warn("检查点已关闭，记录未写入: {} {}", file, record);
+            return;
+        }
+        try {
+            write(MAPPER.writeValueAsString(record) + "\n");
+        } catch (IOException e) {
+            // 检查点只影响重启后的续跑，写入失败不中断批量解析
+            log.error("写入检查点失败: {}", file, e);
+        }
+    }
+
+    private synchronized void write(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+}
@@ -0,0 +1,335 @@
+package com.dingtalk.doc.service.batch;
+
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import com.dingtalk.doc.config.ParseAllConfig;
+import com.dingtalk.doc.exception.ParseAllConflictException;
+import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.model.ParseAllResult;
+import com.dingtalk.doc.model.dto.ProgressEvent;
+import com.dingtalk.doc.service.FileManager;
+import com.dingtalk.doc.service.MarkdownGenerator;
+import com.dingtalk.doc.service.api.DingTalkWorkspaceService;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.progress.SseProgressListener;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.service.scheduler.Priority;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 知识库批量解析
+ * 逐个解析知识库中的文档并保存到输出目录。进度记录在检查点日志（{@link ParseCheckpoint}，
+ * 位于输出目录的 parse-all.checkpoint-dir 下，每个知识库一个文件）中：
+ * <ul>
+ *   <li>文档的输出提交后才记为完成（write-behind 时在写入完成后），重启后再次调用时跳过</li>
+ *   <li>失败的文档排到最后，按退避间隔重试，每次批量解析最多尝试 max-attempts 次；
+ *       之前失败的文档在续跑时同样排到最后，退避间隔从上次失败的时间算起</li>
+ *   <li>执行线程被中断时停止，正在解析的文档不记为失败，续跑时重新解析</li>
+ *   <li>所有文档都完成后删除检查点，下次批量解析从头开始</li>
+ * </ul>
+ * 同一知识库同时只能有一个批量解析；每个文档按 bulk 优先级排队（{@link ParseScheduler}），
+ * 取得名额后在单个文档的处理时限（{@link Deadline}）内完成，排队时间不计入
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dingtalk.api.enabled", havingValue = "true")
+public class WorkspaceParseService {
+
+    /**
+     * 批量解析结束时等待异步写入完成的最长时间
+     */
+    private static final Duration FLUSH_TIMEOUT = Duration.ofMinutes(5);
+
+    private final DingTalkWorkspaceService workspaceService;
+    private final MarkdownGenerator markdownGenerator;
+    private final FileManager fileManager;
+    private final ParseAllConfig config;
+    private final HttpTimeoutConfig timeoutConfig;
+    private final ParseScheduler scheduler;
+
+    // 正在批量解析的知识库及开始时间
+    private final Map<String, Long> running = new ConcurrentHashMap<>();
+
+    /**
+     * 等待重试的文档
+     */
+    private static final class Retry {
+
+        private final DocNode node;
+        private final long readyAt;
+        // 本次批量解析中的第几次尝试
+        private final int attempt;
+        // 累计失败次数（包括之前的批量解析）
+        private final int failures;
+
+        private Retry(DocNode node, long readyAt, int attempt, int failures) {
+            this.node = node;
+            this.readyAt = readyAt;
+            this.attempt = attempt;
+            this.failures = failures;
+        }
+    }
+
+    /**
+     * 一次批量解析的状态
+     */
+    private static final class Run {
+
+        private final String workspaceId;
+        private final ParseCheckpoint checkpoint;
+        private final SseProgressListener progress;
+        private final ParseAllResult result;
+        private final int total;
+        private final PriorityQueue<Retry> retries = new PriorityQueue<>(Comparator.comparingLong(retry -> retry.readyAt));
+        // 已有最终结果的文档数（成功、放弃重试或之前已完成）
+        private int completed;
+
+        private Run(String workspaceId, ParseCheckpoint checkpoint, SseProgressListener progress,
+                    ParseAllResult result, int total) {
+            this.workspaceId = workspaceId;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+            this.result = result;
+            this.total = total;
+        }
+    }
+
+    /**
+     * 批量解析知识库中的所有文档
+     *
+     * @param workspaceId 知识库 ID
+     * @param resume 是否从上次的检查点继续，false 时丢弃检查点从头开始
+     * @param progress 进度流，为 null 时不推送
+     * @return 统计结果
+     * @throws ParseAllConflictException 该知识库已有批量解析在进行
+     */
+    public ParseAllResult parseAll(String workspaceId, boolean resume, SseProgressListener progress) {
+        Long startedAt = running.putIfAbsent(workspaceId, System.currentTimeMillis());
+        if (startedAt != null) {
+            throw new ParseAllConflictException(workspaceId, startedAt);
+        }
+        try {
+            return doParseAll(workspaceId, resume, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读写检查点失败: " + e.getMessage(), e);
+        } finally {
+            running.remove(workspaceId);
+        }
+    }
+
+    private ParseAllResult doParseAll(String workspaceId, boolean resume, SseProgressListener progress)
+            throws IOException {
+        // 1. 获取所有节点，只处理文件类型
+        List<DocNode> allNodes = workspaceService.getAllNodesRecursively(workspaceId, null);
+        List<DocNode> files = new ArrayList<>();
+        for (DocNode node : allNodes) {
+            if ("file".equals(node.getType())) {
+                files.add(node);
+            }
+        }
+
+        Path checkpointFile = fileManager.resolveInBaseDir(config.getCheckpointDir())
+            .resolve(fileManager.sanitizeFilename(workspaceId) + ".jsonl");
+        if (!resume) {
+            Files.deleteIfExists(checkpointFile);
+        }
+
+        ParseAllResult result = ParseAllResult.builder()
+            .workspaceId(workspaceId)
+            .totalNodes(allNodes.size())
+            .skippedCount(allNodes.size() - files.size())
+            .build();
+        ParseCheckpoint checkpoint = ParseCheckpoint.open(checkpointFile);
+        try {
+            Run run = new Run(workspaceId, checkpoint, progress, result, files.size());
+
+            // 2. 跳过已完成的文档，之前失败的排到最后，退避间隔从上次失败算起
+            List<DocNode> pending = new ArrayList<>();
+            for (DocNode node : files) {
+                ParseCheckpoint.Failure failure = checkpoint.getFailure(node.getNodeId());
+                if (checkpoint.isDone(node.getNodeId())) {
+                    result.setResumedCount(result.getResumedCount() + 1);
+                } else if (failure != null) {
+                    run.retries.add(new Retry(node, failure.getAt() + backoff(failure.getAttempts()),
+                        1, failure.getAttempts()));
+                } else {
+                    pending.add(node);
+                }
+            }
+            run.completed = result.getResumedCount();
+            if (result.getResumedCount() > 0 || !run.retries.isEmpty()) {
+                log.info("从检查点继续批量解析: workspaceId={}, 已完成 {} 个, 之前失败 {} 个",
+                    workspaceId, result.getResumedCount(), run.retries.size());
+            }
+
+            // 3. 依次解析，失败的文档按退避时间排入重试队列
+            for (DocNode node : pending) {
+                if (cancelled(workspaceId)) {
+                    break;
+                }
+                parseOne(run, node, 1, 0);
+            }
+            while (!run.retries.isEmpty() && !cancelled(workspaceId)) {
+                Retry retry = run.retries.poll();
+                long wait = retry.readyAt - System.currentTimeMillis();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        log.warn("批量解析等待重试时被中断: workspaceId={}", workspaceId);
+                        break;
+                    }
+                }
+                result.setRetriedCount(result.getRetriedCount() + 1);
+                parseOne(run, retry.node, retry.attempt, retry.failures);
+            }
+
+            // 4. 异步写入模式下等文件全部落盘，完成记录在提交后才写入检查点
+            if (!fileManager.flush(FLUSH_TIMEOUT)) {
+                // 检查点随后关闭，之后才提交的文档没有完成记录，下次续跑时重新解析
+                log.warn("批量解析结束时输出仍未写完，未写完的文档下次续跑时重新解析: workspaceId={}", workspaceId);
+            }
+            boolean complete = true;
+            for (DocNode node : files) {
+                complete &= checkpoint.isDone(node.getNodeId());
+            }
+            result.setComplete(complete);
+        } finally {
+            if (result.isComplete()) {
+                checkpoint.delete();
+            } else {
+                checkpoint.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析一个文档
+     *
+     * @param attempt 本次批量解析中的第几次尝试
+     * @param failures 之前累计失败的次数
+     */
+    private void parseOne(Run run, DocNode node, int attempt, int failures) {
+        String nodeId = node.getNodeId();
+        if (run.progress != null) {
+            run.progress.startDocument(nodeId);
+        }
+        ProgressEvent event = ProgressEvent.builder().title(node.getName()).attempt(attempt).build();
+        // 取得名额后开始计算处理时限，与单文档解析相同
+        try (ParseScheduler.Permit permit = scheduler.acquire(Priority.BULK, run.workspaceId);
+             Deadline.Scope ignored = Deadline.after(timeoutConfig.getDocumentDeadline()).bind()) {
+            // 获取文档内容
+            JsonNode content = workspaceService.getDocumentContent(run.workspaceId, nodeId);
+
+            // 准备输出目录，生成 Markdown 并保存，提交完成后记入检查点
+            try (FileManager.StagedOutput output = fileManager.stageOutput(node.getName())) {
+                String markdown = markdownGenerator.generateMarkdown(
+                    content,
+                    node.getName(),
+                    null,
+                    output.getDirectory()
+                );
+                event.setFilePath(fileManager.commitOutput(output, markdown, () -> run.checkpoint.markDone(nodeId)));
+                event.setOutputBytes((long) markdown.getBytes(StandardCharsets.UTF_8).length);
+            }
+
+            run.result.setSuccessCount(run.result.getSuccessCount() + 1);
+            run.completed++;
+            event.setStatus("success");
+            log.info("成功解析文档: {}", node.getName());
+
+        } catch (Exception e) {
+            if (interrupted(e)) {
+                // 被取消而不是失败：不记失败、不重试，文档保持未完成，续跑时重新解析
+                event.setStatus("cancelled");
+                log.info("批量解析被取消，文档保持未完成: {}", node.getName());
+                finishDocument(run, event);
+                return;
+            }
+            int failed = failures + 1;
+            run.checkpoint.markFailed(nodeId, failed, e.getMessage());
+            event.setError(e.getMessage());
+            if (attempt < config.getMaxAttempts()) {
+                long delay = backoff(failed);
+                run.retries.add(new Retry(node, System.currentTimeMillis() + delay, attempt + 1, failed));
+                event.setStatus("retry");
+                log.warn("解析文档失败，{} ms 后重试（第 {} 次）: {}", delay, attempt, node.getName(), e);
+            } else {
+                run.result.setFailureCount(run.result.getFailureCount() + 1);
+                run.completed++;
+                event.setStatus("failure");
+                log.error("解析文档失败，已尝试 {} 次: {}", attempt, node.getName(), e);
+            }
+        }
+
+        finishDocument(run, event);
+    }
+
+    private static void finishDocument(Run run, ProgressEvent event) {
+        if (run.progress != null) {
+            event.setCompleted(run.completed);
+            event.setTotal(run.total);
+            run.progress.finishDocument(event);
+        }
+    }
+
+    /**
+     * 解析失败是否由取消引起：线程已被中断，或异常链中有中断异常（抛出处可能清除了中断标记）
+     */
+    private static boolean interrupted(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof ClosedByInterruptException
+                    || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行线程被中断（进度流的客户端已断开）时停止批量解析，已完成的文档保留在检查点中
+     */
+    private static boolean cancelled(String workspaceId) {
+        if (!Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        log.warn("批量解析被取消: workspaceId={}", workspaceId);
+        return true;
+    }
+
+    /**
+     * 第 failures 次失败后的重试等待时间
+     */
+    private long backoff(int failures) {
+        int shift = Math.min(Math.max(failures - 1, 0), 20);
+        return Math.min(config.getRetryBackoff() << shift, config.getRetryBackoffMax());
+    }
+}
@@ -0,0 +1,58 @@
+package com.dingtalk.doc.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 导出归档格式
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public enum ArchiveFormat {
+
+    ZIP("zip", "application/zip"),
+    TAR_GZ("tar.gz", "application/gzip");
+
+    private final String extension;
+    private final String contentType;
+
+    ArchiveFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 按扩展名查找格式
+     *
+     * @param extension zip / tar.gz / tgz
+     * @return 格式，不支持时返回 null
+     */
+    public static ArchiveFormat fromExtension(String extension) {
+        if (extension == null) {
+            return null;
+        }
+        return switch (extension.trim().toLowerCase()) {
+            case "zip" -> ZIP;
+            case "tar.gz", "tgz" -> TAR_GZ;
+            default -> null;
+        };
+    }
+
+    /**
+     * 在输出流上创建归档写入器
+     */
+    ArchiveWriter open(OutputStream out) throws IOException {
+        return switch (this) {
+            case ZIP -> new ZipArchiveWriter(out);
+            case TAR_GZ -> new TarGzArchiveWriter(out);
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.dingtalk.doc.service.export;
+
+import java.io.IOException;
+
+/**
+ * 流式归档写入器
+ * 条目写入后立即进入底层输出流，不在本地落盘；非线程安全
+ *
+ * @author DingTalk Doc Parser Team
+ */
+interface ArchiveWriter {
+
+    /**
+     * 写入一个文件条目
+     *
+     * @param path 条目路径（使用 / 分隔）
+     * @param data 文件内容
+     * @param compressible 内容是否值得压缩（图片通常已经压缩过）
+     */
+    void addEntry(String path, byte[] data, boolean compressible) throws IOException;
+
+    /**
+     * 把已写入的条目推送给客户端
+     */
+    void flush() throws IOException;
+
+    /**
+     * 写入归档结尾，不关闭底层输出流
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,115 @@
+package com.dingtalk.doc.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * tar.gz 归档写入器
+ * 写 POSIX ustar 格式；路径超过 100 字节或包含非 ASCII 字符（中文标题）时额外写一个 PAX 扩展头记录完整路径
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class TarGzArchiveWriter implements ArchiveWriter {
+
+    private static final int BLOCK = 512;
+    private static final int NAME_LENGTH = 100;
+
+    private final GZIPOutputStream gzip;
+    private final long mtime = System.currentTimeMillis() / 1000;
+    private int paxCounter;
+
+    TarGzArchiveWriter(OutputStream out) throws IOException {
+        // syncFlush 使 flush() 把已压缩的数据推给客户端
+        this.gzip = new GZIPOutputStream(out, 64 * 1024, true);
+    }
+
+    @Override
+    public void addEntry(String path, byte[] data, boolean compressible) throws IOException {
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        if (name.length > NAME_LENGTH || name.length != path.length()) {
+            byte[] pax = paxRecord("path", path);
+            writeHeader("PaxHeaders/" + (++paxCounter), pax.length, (byte) 'x');
+            writeData(pax);
+            // ustar 头中的路径只作为不支持 PAX 的工具的回退
+            writeHeader("entry_" + paxCounter, data.length, (byte) '0');
+        } else {
+            writeHeader(path, data.length, (byte) '0');
+        }
+        writeData(data);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        gzip.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // 两个全零块表示归档结束
+        gzip.write(new byte[BLOCK * 2]);
+        gzip.finish();
+        gzip.flush();
+    }
+
+    private void writeHeader(String name, long size, byte type) throws IOException {
+        byte[] header = new byte[BLOCK];
+        put(header, 0, NAME_LENGTH, name.getBytes(StandardCharsets.US_ASCII));
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime);
+        header[156] = type;
+        put(header, 257, 6, "ustar\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 263, 2, "00".getBytes(StandardCharsets.US_ASCII));
+
+        // 校验和按校验和字段全为空格计算
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        header[155] = ' ';
+
+        gzip.write(header);
+    }
+
+    private void writeData(byte[] data) throws IOException {
+        gzip.write(data);
+        int padding = (BLOCK - data.length % BLOCK) % BLOCK;
+        if (padding > 0) {
+            gzip.write(new byte[padding]);
+        }
+    }
+
+    /**
+     * PAX 记录格式："长度 key=value\n"，长度包含自身的位数
+     */
+    private static byte[] paxRecord(String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length = body + String.valueOf(length).length();
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void put(byte[] header, int offset, int length, byte[] value) {
+        System.arraycopy(value, 0, header, offset, Math.min(length, value.length));
+    }
+
+    /**
+     * 以 NUL 结尾的八进制数字段
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        String padded = "0".repeat(Math.max(0, length - 1 - digits.length())) + digits;
+        put(header, offset, length - 1, padded.getBytes(StandardCharsets.US_ASCII));
+        header[offset + length - 1] = 0;
+    }
+}
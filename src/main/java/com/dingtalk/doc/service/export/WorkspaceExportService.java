@@ -0,0 +1,154 @@
+package com.dingtalk.doc.service.export;
+
+import com.dingtalk.doc.config.ChunkConfig;
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.service.DingTalkHttpClient;
+import com.dingtalk.doc.service.FileManager;
+import com.dingtalk.doc.service.MarkdownGenerator;
+import com.dingtalk.doc.service.api.DingTalkWorkspaceService;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.render.RenderFormat;
+import com.dingtalk.doc.service.render.RenderOptions;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.service.scheduler.Priority;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 知识库归档导出
+ * 逐个渲染知识库中的文档，Markdown 和图片直接写入 ZIP / tar.gz 输出流，不在本地落盘。
+ * 每个文档渲染完成后整体写入并 flush，客户端在导出过程中就能收到已完成的文档
+ *
+ * <pre>
+ * 归档结构：
+ * 文档标题/文档标题.md
+ * 文档标题/文档标题.chunks.jsonl（开启分块导出时）
+ * 文档标题/images/image_001.png
+ * _failures.txt（有文档失败时）
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dingtalk.api.enabled", havingValue = "true")
+public class WorkspaceExportService {
+
+    private final DingTalkWorkspaceService workspaceService;
+    private final MarkdownGenerator markdownGenerator;
+    private final DingTalkHttpClient httpClient;
+    private final FileManager fileManager;
+    private final HttpTimeoutConfig timeoutConfig;
+    private final ChunkConfig chunkConfig;
+    private final ParseScheduler scheduler;
+
+    /**
+     * 导出知识库
+     *
+     * @param workspaceId 知识库 ID
+     * @param format 归档格式
+     * @param chunks 是否同时导出分块（JSONL，供向量化 / RAG 索引使用）
+     * @param out 输出流（HTTP 响应体），调用方负责关闭
+     * @throws IOException 写出失败（通常是客户端断开）
+     */
+    public void export(String workspaceId, ArchiveFormat format, boolean chunks, OutputStream out) throws IOException {
+        log.info("开始导出知识库: workspaceId={}, format={}", workspaceId, format.getExtension());
+        long start = System.currentTimeMillis();
+
+        List<DocNode> nodes = workspaceService.getAllNodesRecursively(workspaceId, null);
+        ArchiveWriter archive = format.open(out);
+        Set<String> usedNames = new HashSet<>();
+        List<String> failures = new ArrayList<>();
+        int exported = 0;
+        Set<RenderFormat> formats = chunks
+            ? EnumSet.of(RenderFormat.MARKDOWN, RenderFormat.CHUNKS)
+            : EnumSet.of(RenderFormat.MARKDOWN);
+
+        for (DocNode node : nodes) {
+            if (!"file".equals(node.getType())) {
+                continue;
+            }
+
+            String dir = uniqueName(fileManager.sanitizeFilename(node.getName()), usedNames);
+            Map<String, byte[]> images = new LinkedHashMap<>();
+            Map<RenderFormat, String> rendered;
+            try {
+                rendered = render(workspaceId, node, dir, images, formats);
+            } catch (RuntimeException e) {
+                log.error("导出文档失败: {}", node.getName(), e);
+                failures.add(node.getName() + " (" + node.getNodeId() + "): " + e.getMessage());
+                continue;
+            }
+
+            // 图片先于 Markdown 写入，解压到一半时不会出现引用缺失图片的 Markdown
+            for (Map.Entry<String, byte[]> image : images.entrySet()) {
+                archive.addEntry(image.getKey(), image.getValue(), false);
+            }
+            archive.addEntry(dir + "/" + dir + ".md",
+                rendered.get(RenderFormat.MARKDOWN).getBytes(StandardCharsets.UTF_8), true);
+            if (chunks) {
+                archive.addEntry(dir + "/" + dir + "." + RenderFormat.CHUNKS.getExtension(),
+                    rendered.get(RenderFormat.CHUNKS).getBytes(StandardCharsets.UTF_8), true);
+            }
+            archive.flush();
+            exported++;
+        }
+
+        if (!failures.isEmpty()) {
+            archive.addEntry("_failures.txt", String.join("\n", failures).getBytes(StandardCharsets.UTF_8), true);
+        }
+        archive.finish();
+
+        log.info("知识库导出完成: workspaceId={}, 成功 {} 个, 失败 {} 个, 耗时 {} ms",
+            workspaceId, exported, failures.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 渲染单个文档，图片下载到内存
+     * 按 bulk 优先级排队，排队时间不计入文档的处理时限
+     */
+    private Map<RenderFormat, String> render(String workspaceId, DocNode node, String dir,
+                                             Map<String, byte[]> images, Set<RenderFormat> formats) {
+        // 与单文档解析相同的处理时限
+        try (ParseScheduler.Permit permit = scheduler.acquire(Priority.BULK, workspaceId);
+             Deadline.Scope ignored = Deadline.after(timeoutConfig.getDocumentDeadline()).bind()) {
+            JsonNode content = workspaceService.getDocumentContent(workspaceId, node.getNodeId());
+            RenderOptions options = new RenderOptions(node.getNodeId(),
+                chunkConfig.getMaxTokens(), chunkConfig.getOverlapTokens());
+            return markdownGenerator.render(ContentDocument.from(content), node.getName(), (src, relativePath) -> {
+                byte[] data = httpClient.fetchImage(src, null);
+                if (data.length > 0) {
+                    images.put(dir + "/" + relativePath, data);
+                }
+            }, formats, options);
+        }
+    }
+
+    /**
+     * 同名文档加序号区分
+     */
+    private static String uniqueName(String name, Set<String> usedNames) {
+        String candidate = name;
+        for (int i = 2; !usedNames.add(candidate); i++) {
+            candidate = name + "_" + i;
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,53 @@
+package com.dingtalk.doc.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP 归档写入器
+ * 文本条目使用 DEFLATE，已压缩的图片直接 STORED，避免重复压缩浪费 CPU
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class ZipArchiveWriter implements ArchiveWriter {
+
+    private final OutputStream out;
+    private final ZipOutputStream zip;
+
+    ZipArchiveWriter(OutputStream out) {
+        this.out = out;
+        this.zip = new ZipOutputStream(out);
+    }
+
+    @Override
+    public void addEntry(String path, byte[] data, boolean compressible) throws IOException {
+        ZipEntry entry = new ZipEntry(path);
+        if (!compressible) {
+            // STORED 条目需要预先写入大小和 CRC
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        zip.flush();
+        out.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        zip.finish();
+        out.flush();
+    }
+}
@@ -0,0 +1,102 @@
+package com.dingtalk.doc.service.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD 自适应令牌桶
+ * 桶容量为 1 秒的令牌量。令牌不足时预约未来的令牌（余额为负），调用方按返回的时间等待，
+ * 因此并发请求会按速率依次放行。
+ *
+ * <ul>
+ *   <li>正常响应：rate += additiveIncrease / rate，满负荷时每秒约增加 additiveIncrease</li>
+ *   <li>限流信号（429/503/响应过慢）：rate *= multiplicativeDecrease，冷却期内只减一次</li>
+ * </ul>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class AdaptiveRateLimiter {
+
+    private final double minRate;
+    private final double maxRate;
+    private final double additiveIncrease;
+    private final double multiplicativeDecrease;
+    private final long decreaseCooldownNanos;
+
+    // 单调时钟（纳秒）
+    private final LongSupplier clock;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long lastDecrease;
+
+    AdaptiveRateLimiter(double initialRate, double minRate, double maxRate,
+                        double additiveIncrease, double multiplicativeDecrease, long decreaseCooldownMillis,
+                        LongSupplier clock) {
+        this.minRate = Math.max(0.01, minRate);
+        this.maxRate = Math.max(this.minRate, maxRate);
+        this.additiveIncrease = additiveIncrease;
+        this.multiplicativeDecrease = multiplicativeDecrease;
+        this.decreaseCooldownNanos = TimeUnit.MILLISECONDS.toNanos(decreaseCooldownMillis);
+        this.clock = clock;
+        this.rate = Math.min(this.maxRate, Math.max(this.minRate, initialRate));
+        this.tokens = this.rate;
+        this.lastRefill = clock.getAsLong();
+        this.lastDecrease = lastRefill - decreaseCooldownNanos;
+    }
+
+    /**
+     * 预约一个令牌
+     *
+     * @param maxWaitNanos 最长等待时间
+     * @return 需要等待的纳秒数；超过 maxWaitNanos 时不预约并返回 -1
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        refill(clock.getAsLong());
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long waitNanos = (long) ((1 - tokens) / rate * 1_000_000_000L);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitNanos;
+    }
+
+    /**
+     * 正常响应，加性增加速率
+     */
+    synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + additiveIncrease / rate);
+    }
+
+    /**
+     * 收到限流信号，乘性减少速率
+     *
+     * @return 是否真的减速（冷却期内返回 false）
+     */
+    synchronized boolean onThrottled() {
+        long now = clock.getAsLong();
+        if (now - lastDecrease < decreaseCooldownNanos) {
+            return false;
+        }
+        refill(now);
+        lastDecrease = now;
+        rate = Math.max(minRate, rate * multiplicativeDecrease);
+        // 减速后桶容量随之缩小
+        tokens = Math.min(tokens, rate);
+        return true;
+    }
+
+    synchronized double rate() {
+        return rate;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(rate, tokens + (now - lastRefill) / 1_000_000_000.0 * rate);
+        lastRefill = now;
+    }
+}
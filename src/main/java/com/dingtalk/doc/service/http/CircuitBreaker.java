@@ -0,0 +1,167 @@
+package com.dingtalk.doc.service.http;
+
+/**
+ * 计数窗口熔断器
+ *
+ * <ul>
+ *   <li>关闭：记录最近 windowSize 次调用，失败率或慢调用率超过阈值时打开</li>
+ *   <li>打开：拒绝所有调用，openDuration 之后进入半开</li>
+ *   <li>半开：最多放行 probes 个探测请求，全部成功则关闭，任一失败或过慢则重新打开</li>
+ * </ul>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * 调用结果
+     */
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        /**
+         * 不计入统计（如 429 限流，或请求没有真正发出）
+         */
+        IGNORED
+    }
+
+    /**
+     * 状态变化监听
+     */
+    interface Listener {
+        void onStateChange(State from, State to);
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long openDurationMillis;
+    private final int probes;
+    private final Listener listener;
+
+    /**
+     * 环形窗口：bit0 表示失败，bit1 表示慢调用
+     */
+    private final byte[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, int slowCallRateThreshold,
+                   long openDurationMillis, int probes, Listener listener) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.probes = Math.max(1, probes);
+        this.listener = listener;
+        this.window = new byte[this.windowSize];
+    }
+
+    /**
+     * 申请一次调用
+     *
+     * @return 允许调用时返回 -1，否则返回建议等待的毫秒数
+     */
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openDurationMillis - System.currentTimeMillis();
+            if (remaining > 0) {
+                return remaining;
+            }
+            transition(State.HALF_OPEN);
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= probes) {
+                // 探测请求还没有结果，其他请求继续快速失败
+                return openDurationMillis;
+            }
+            probesInFlight++;
+        }
+        return -1;
+    }
+
+    /**
+     * 记录调用结果，每次 tryAcquire 成功后必须调用一次
+     *
+     * @param outcome 结果
+     * @param slow 是否为慢调用
+     */
+    synchronized void onResult(Outcome outcome, boolean slow) {
+        if (state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (outcome == Outcome.IGNORED) {
+                return;
+            }
+            if (outcome == Outcome.FAILURE || slow) {
+                open();
+            } else if (++probeSuccesses >= probes) {
+                resetWindow();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED || outcome == Outcome.IGNORED) {
+            return;
+        }
+
+        byte flags = (byte) ((outcome == Outcome.FAILURE ? 1 : 0) | (slow ? 2 : 0));
+        if (calls == windowSize) {
+            byte evicted = window[next];
+            failures -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            calls++;
+        }
+        window[next] = flags;
+        next = (next + 1) % windowSize;
+        failures += flags & 1;
+        slowCalls += (flags >> 1) & 1;
+
+        if (calls >= minimumCalls
+                && (failures * 100 >= failureRateThreshold * calls || slowCalls * 100 >= slowCallRateThreshold * calls)) {
+            open();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        next = 0;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        if (from != to && listener != null) {
+            listener.onStateChange(from, to);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpCircuitBreakerConfig;
+import com.dingtalk.doc.exception.CircuitOpenException;
+import com.dingtalk.doc.service.http.CircuitBreaker.Outcome;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游熔断拦截器
+ * 熔断器打开时直接抛出 {@link CircuitOpenException}，不占用连接也不等待超时。
+ * 注册在限流拦截器之前，熔断期间的请求不会去排队等令牌；判断慢调用时扣除等待令牌的时间，
+ * 限流降速导致的排队不会让健康的上游熔断
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class CircuitBreakerInterceptor implements ClientHttpRequestInterceptor {
+
+    private final HttpCircuitBreakerConfig config;
+    private final HttpClientMetrics metrics;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final Map<UpstreamEndpoint, CircuitBreaker> breakers = new EnumMap<>(UpstreamEndpoint.class);
+
+    public CircuitBreakerInterceptor(HttpCircuitBreakerConfig config, HttpClientMetrics metrics,
+                                     RateLimitInterceptor rateLimitInterceptor) {
+        this.config = config;
+        this.metrics = metrics;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            // 首页和文档页面是同一个主机，共用一个熔断器
+            if (endpoint == UpstreamEndpoint.HOME || !config.enabled(endpoint)) {
+                continue;
+            }
+            CircuitBreaker breaker = new CircuitBreaker(
+                config.getSlidingWindowSize(),
+                config.getMinimumCalls(),
+                config.failureRateThreshold(endpoint),
+                config.getSlowCallRateThreshold(),
+                config.openDuration(endpoint),
+                config.getHalfOpenProbes(),
+                (from, to) -> {
+                    log.warn("上游 {} 熔断器状态变化: {} -> {}", endpoint.getTag(), from, to);
+                    metrics.recordCircuitTransition(endpoint, to.name().toLowerCase());
+                });
+            breakers.put(endpoint, breaker);
+            metrics.registerCircuitBreaker(endpoint, breaker, b -> b.state().ordinal());
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        UpstreamEndpoint endpoint = group(UpstreamEndpoint.of(request.getURI(), request.getHeaders()));
+        CircuitBreaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            return execution.execute(request, body);
+        }
+
+        long retryAfter = breaker.tryAcquire();
+        if (retryAfter >= 0) {
+            metrics.recordCircuitRejected(endpoint);
+            throw new CircuitOpenException(endpoint.getTag(), retryAfter);
+        }
+
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException e) {
+            // 读取超时被文档时限截短时不代表上游故障
+            Deadline deadline = Deadline.current();
+            breaker.onResult(deadline != null && deadline.isExpired() ? Outcome.IGNORED : Outcome.FAILURE, false);
+            throw e;
+        } catch (RuntimeException e) {
+            // 例如限流等待超时，请求没有真正发出
+            breaker.onResult(Outcome.IGNORED, false);
+            throw e;
+        }
+
+        long elapsed = System.nanoTime() - start - rateLimitInterceptor.lastWaitNanos();
+        boolean slow = elapsed > TimeUnit.MILLISECONDS.toNanos(config.slowCallThreshold(endpoint));
+        int status = response.getStatusCode().value();
+        if (status == 429) {
+            breaker.onResult(Outcome.IGNORED, false);
+        } else if (status >= 500) {
+            breaker.onResult(Outcome.FAILURE, slow);
+        } else {
+            breaker.onResult(Outcome.SUCCESS, slow);
+        }
+        return response;
+    }
+
+    private UpstreamEndpoint group(UpstreamEndpoint endpoint) {
+        return endpoint == UpstreamEndpoint.HOME ? UpstreamEndpoint.PAGE : endpoint;
+    }
+}
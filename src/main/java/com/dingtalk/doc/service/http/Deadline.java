@@ -0,0 +1,102 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.exception.DeadlineExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个文档的处理时限
+ * 解析服务在文档取得执行名额后创建并绑定到当前线程（排队时间不计入），流水线中的出站请求、重试、限流等待和图片下载都受它约束：
+ * 连接和读取超时不会超过剩余时间，超时后不再重试，剩余图片保留原始地址
+ *
+ * <pre>
+ * try (Deadline.Scope ignored = Deadline.after(120_000).bind()) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long budgetMillis;
+    private final long expiresAtNanos;
+
+    private Deadline(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+        this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    /**
+     * 从现在起 millis 毫秒后到期
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(millis);
+    }
+
+    /**
+     * 当前线程绑定的时限，没有时返回 null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 剩余毫秒数，已过期时返回 0
+     */
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 已过期时抛出 {@link DeadlineExceededException}
+     *
+     * @param stage 当前步骤，用于错误信息
+     */
+    public void check(String stage) {
+        if (isExpired()) {
+            throw exceeded(stage, null);
+        }
+    }
+
+    /**
+     * 创建超时异常
+     *
+     * @param stage 当前步骤
+     * @param cause 原始异常，可以为 null
+     */
+    public DeadlineExceededException exceeded(String stage, Throwable cause) {
+        String message = String.format("文档处理超过时限 %d ms（%s）", budgetMillis, stage);
+        return cause == null ? new DeadlineExceededException(message) : new DeadlineExceededException(message, cause);
+    }
+
+    /**
+     * 绑定到当前线程，关闭 Scope 时恢复之前的时限
+     */
+    public Scope bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 时限绑定范围
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.DingTalkApiConfig;
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * 按接口分类和文档时限设置超时的请求工厂
+ * 连接和读取超时取接口分类的配置，并且不超过当前文档时限的剩余时间
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public class DeadlineAwareRequestFactory extends SimpleClientHttpRequestFactory {
+
+    private final DingTalkApiConfig apiConfig;
+    private final HttpTimeoutConfig timeoutConfig;
+
+    public DeadlineAwareRequestFactory(DingTalkApiConfig apiConfig, HttpTimeoutConfig timeoutConfig) {
+        this.apiConfig = apiConfig;
+        this.timeoutConfig = timeoutConfig;
+    }
+
+    @Override
+    protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+        super.prepareConnection(connection, httpMethod);
+
+        UpstreamEndpoint endpoint = DeadlineInterceptor.currentEndpoint();
+        long connectTimeout = timeoutConfig.connectTimeout(endpoint, apiConfig.getConnectTimeout());
+        long readTimeout = timeoutConfig.readTimeout(endpoint, apiConfig.getReadTimeout());
+
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            long remaining = deadline.remainingMillis();
+            if (remaining <= 0) {
+                throw deadline.exceeded(endpoint == null ? connection.getURL().getHost() : endpoint.getTag(), null);
+            }
+            connectTimeout = Math.min(connectTimeout, remaining);
+            readTimeout = Math.min(readTimeout, remaining);
+        }
+
+        connection.setConnectTimeout((int) connectTimeout);
+        connection.setReadTimeout((int) readTimeout);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dingtalk.doc.service.http;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 超时拦截器
+ * 文档时限已过期时不再发出请求；否则记录本次请求的接口分类，
+ * 供 {@link DeadlineAwareRequestFactory} 在建立连接时选择超时配置
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Component
+public class DeadlineInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final ThreadLocal<UpstreamEndpoint> CURRENT_ENDPOINT = new ThreadLocal<>();
+
+    /**
+     * 当前线程正在发出的请求的接口分类
+     */
+    static UpstreamEndpoint currentEndpoint() {
+        return CURRENT_ENDPOINT.get();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(request.getURI(), request.getHeaders());
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            deadline.check(endpoint.getTag());
+        }
+
+        CURRENT_ENDPOINT.set(endpoint);
+        try {
+            return execution.execute(request, body);
+        } finally {
+            CURRENT_ENDPOINT.remove();
+        }
+    }
+}
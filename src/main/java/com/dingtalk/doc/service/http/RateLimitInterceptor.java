@@ -0,0 +1,134 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpRateLimitConfig;
+import com.dingtalk.doc.exception.HttpRequestException;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 出站请求自适应限流拦截器
+ * 按接口分类取令牌，并根据响应状态和耗时调整对应分类的速率。
+ * 注册在指标拦截器之前，排队等待的时间不会计入上游耗时；等待时间不超过当前文档时限的剩余时间。
+ * 外层的熔断拦截器通过 {@link #lastWaitNanos()} 从请求耗时中扣除等待时间
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+    private final HttpRateLimitConfig config;
+    private final HttpClientMetrics metrics;
+    private final Map<UpstreamEndpoint, AdaptiveRateLimiter> limiters = new EnumMap<>(UpstreamEndpoint.class);
+
+    // 当前线程最近一次请求等待令牌的时间（纳秒），拦截器链在调用线程上同步执行
+    private final ThreadLocal<long[]> lastWait = ThreadLocal.withInitial(() -> new long[1]);
+
+    // 单调时钟（纳秒），令牌桶和响应耗时都按它计算，测试中替换为可控时钟
+    LongSupplier clock = System::nanoTime;
+
+    public RateLimitInterceptor(HttpRateLimitConfig config, HttpClientMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        for (UpstreamEndpoint endpoint : UpstreamEndpoint.values()) {
+            if (!config.enabled(endpoint)) {
+                continue;
+            }
+            AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(
+                config.initialRate(endpoint),
+                config.minRate(endpoint),
+                config.maxRate(endpoint),
+                config.getAdditiveIncrease(),
+                config.getMultiplicativeDecrease(),
+                config.getDecreaseCooldown(),
+                () -> clock.getAsLong());
+            limiters.put(endpoint, limiter);
+            metrics.registerRateLimit(endpoint, limiter, AdaptiveRateLimiter::rate);
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        long[] wait = lastWait.get();
+        wait[0] = 0;
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(request.getURI(), request.getHeaders());
+        AdaptiveRateLimiter limiter = limiters.get(endpoint);
+        if (limiter == null) {
+            return execution.execute(request, body);
+        }
+
+        wait[0] = acquire(endpoint, limiter);
+
+        long start = clock.getAsLong();
+        ClientHttpResponse response = execution.execute(request, body);
+        long elapsed = clock.getAsLong() - start;
+
+        int status = response.getStatusCode().value();
+        if (status == 429 || status == 503) {
+            throttled(endpoint, limiter, String.valueOf(status));
+        } else if (elapsed > TimeUnit.MILLISECONDS.toNanos(config.getLatencyThreshold())) {
+            throttled(endpoint, limiter, "slow");
+        } else if (status < 400) {
+            limiter.onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * 当前线程最近一次请求等待限流令牌的时间，没有经过限流时为 0
+     *
+     * @return 等待时间（纳秒）
+     */
+    public long lastWaitNanos() {
+        return lastWait.get()[0];
+    }
+
+    /**
+     * 取一个令牌，必要时等待
+     *
+     * @return 等待时间（纳秒）
+     */
+    private long acquire(UpstreamEndpoint endpoint, AdaptiveRateLimiter limiter) {
+        long maxWait = config.getMaxWait();
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            maxWait = Math.min(maxWait, deadline.remainingMillis());
+        }
+        long waitNanos = limiter.reserve(TimeUnit.MILLISECONDS.toNanos(maxWait));
+        if (waitNanos < 0) {
+            throw new HttpRequestException("限流等待超时: " + endpoint.getTag()
+                + "，当前速率 " + String.format("%.1f", limiter.rate()) + " 次/秒");
+        }
+        metrics.recordRateLimitWait(endpoint, waitNanos);
+        if (waitNanos == 0) {
+            return 0;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpRequestException("等待限流令牌时被中断", e);
+        }
+        return waitNanos;
+    }
+
+    private void throttled(UpstreamEndpoint endpoint, AdaptiveRateLimiter limiter, String reason) {
+        if (limiter.onThrottled()) {
+            log.warn("{} 收到限流信号（{}），速率降至 {} 次/秒",
+                endpoint.getTag(), reason, String.format("%.1f", limiter.rate()));
+            metrics.recordRateLimitDecrease(endpoint, reason);
+        }
+    }
+}
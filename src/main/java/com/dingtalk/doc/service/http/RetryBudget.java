@@ -0,0 +1,45 @@
+package com.dingtalk.doc.service.http;
+
+/**
+ * 全局重试预算
+ * 每个请求存入 ratio 个令牌，每次重试取出 1 个令牌，令牌不足时不再重试。
+ * 这样持续的重试量不会超过请求量的 ratio 倍，钉钉故障期间重试不会把流量放大
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    RetryBudget(double ratio, int burst) {
+        this.ratio = ratio;
+        this.maxTokens = burst;
+        this.tokens = burst;
+    }
+
+    /**
+     * 记录一个新请求
+     */
+    synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * 尝试为一次重试取出令牌
+     *
+     * @return 预算足够时返回 true
+     */
+    synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized double available() {
+        return tokens;
+    }
+}
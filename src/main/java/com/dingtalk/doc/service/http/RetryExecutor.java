@@ -0,0 +1,186 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpRetryConfig;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * 出站 HTTP 重试执行器
+ * 包在 RestTemplate 调用外层，每次尝试都会重新经过拦截器（指标等）。
+ *
+ * <ul>
+ *   <li>可重试：429、500、502、503、504 和连接类 IO 异常</li>
+ *   <li>非幂等请求只在确定服务端没有处理时重试：连接建立失败或 429</li>
+ *   <li>指数退避加抖动，服务端返回 Retry-After 时至少等待指定时间</li>
+ *   <li>全局重试预算耗尽后直接失败，避免故障期间放大流量</li>
+ *   <li>重试等待会超过当前文档时限时直接失败</li>
+ * </ul>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class RetryExecutor {
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 500, 502, 503, 504);
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+        HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS);
+
+    private final HttpRetryConfig config;
+    private final HttpClientMetrics metrics;
+    private final RetryBudget budget;
+
+    // 退避等待，测试中替换为记录等待时间
+    Sleeper sleeper = Thread::sleep;
+
+    public RetryExecutor(HttpRetryConfig config, HttpClientMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.budget = new RetryBudget(config.getBudgetRatio(), config.getBudgetBurst());
+        metrics.registerRetryBudget(budget, RetryBudget::available);
+    }
+
+    /**
+     * 执行请求，失败时按策略重试
+     *
+     * @param endpoint 接口分类
+     * @param method 请求方法
+     * @param call 单次请求
+     * @return 请求结果
+     */
+    public <T> T execute(UpstreamEndpoint endpoint, HttpMethod method, Supplier<T> call) {
+        if (!config.isEnabled()) {
+            return call.get();
+        }
+
+        budget.deposit();
+        int maxAttempts = Math.max(1, config.maxAttempts(endpoint));
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long delay = retryDelay(endpoint, method, attempt, e);
+                if (delay < 0) {
+                    throw e;
+                }
+                // 等待之后已经超过文档时限，不再重试
+                Deadline deadline = Deadline.current();
+                if (deadline != null && deadline.remainingMillis() <= delay) {
+                    throw deadline.exceeded(endpoint.getTag() + " 重试", e);
+                }
+                if (!budget.tryAcquire()) {
+                    log.warn("重试预算已耗尽，放弃重试: {}", endpoint.getTag());
+                    metrics.recordRetryBudgetExhausted(endpoint);
+                    throw e;
+                }
+
+                String reason = reason(e);
+                metrics.recordRetry(endpoint, reason);
+                log.warn("{} 请求失败（{}），{} ms 后进行第 {} 次重试", endpoint.getTag(), reason, delay, attempt);
+                try {
+                    sleeper.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算下次重试前的等待时间
+     *
+     * @return 等待毫秒数，不可重试时返回 -1
+     */
+    private long retryDelay(UpstreamEndpoint endpoint, HttpMethod method, int attempt, RuntimeException e) {
+        Boolean configured = config.idempotent(endpoint);
+        boolean idempotent = configured != null ? configured : IDEMPOTENT_METHODS.contains(method);
+
+        long retryAfter = 0;
+        if (e instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            if (!RETRYABLE_STATUS.contains(status)) {
+                return -1;
+            }
+            // 429 说明请求没有被处理，非幂等请求也可以安全重试
+            if (!idempotent && status != 429) {
+                return -1;
+            }
+            retryAfter = retryAfterMillis(responseException.getResponseHeaders());
+            if (retryAfter > config.getMaxRetryAfter()) {
+                log.warn("Retry-After {} ms 超过上限，放弃重试", retryAfter);
+                return -1;
+            }
+        } else if (e instanceof ResourceAccessException) {
+            // 连接没有建立时请求一定没有发出；其他 IO 异常只对幂等请求重试
+            if (!idempotent && !(e.getCause() instanceof ConnectException)) {
+                return -1;
+            }
+        } else {
+            return -1;
+        }
+
+        long base = (long) Math.min(config.maxBackoff(endpoint),
+            config.initialBackoff(endpoint) * Math.pow(config.getMultiplier(), attempt - 1));
+        double jitter = Math.min(1.0, Math.max(0.0, config.getJitter()));
+        long delay = base - (long) (base * jitter * ThreadLocalRandom.current().nextDouble());
+        return Math.max(delay, retryAfter);
+    }
+
+    /**
+     * 解析 Retry-After，支持秒数和 HTTP 日期两种格式
+     */
+    private long retryAfterMillis(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，按 HTTP 日期解析
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException ignored) {
+            log.debug("无法解析 Retry-After: {}", value);
+            return 0;
+        }
+    }
+
+    /**
+     * 退避等待
+     */
+    @FunctionalInterface
+    interface Sleeper {
+
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private String reason(RuntimeException e) {
+        if (e instanceof RestClientResponseException responseException) {
+            return String.valueOf(responseException.getStatusCode().value());
+        }
+        return "io_error";
+    }
+}
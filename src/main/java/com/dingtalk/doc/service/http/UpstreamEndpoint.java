@@ -0,0 +1,142 @@
+package com.dingtalk.doc.service.http;
+
+import org.springframework.http.HttpHeaders;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 上游接口分类
+ * 按请求 URL 和请求头把出站请求归入固定的几类，并给出低基数的接口模板，用作指标标签
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public enum UpstreamEndpoint {
+
+    /**
+     * alidocs 首页（Cookie 验证）
+     */
+    HOME("home"),
+
+    /**
+     * 文档页面 /i/nodes/{nodeId}
+     */
+    PAGE("page"),
+
+    /**
+     * 文档数据接口 /api/document/data
+     */
+    DOCUMENT_DATA("document_data"),
+
+    /**
+     * 文档中的图片
+     */
+    IMAGE("image"),
+
+    /**
+     * AccessToken 接口
+     */
+    OAUTH2("oauth2"),
+
+    /**
+     * 其他开放平台接口（知识库、用户等）
+     */
+    OPEN_API("open_api");
+
+    private static final String ACCESS_TOKEN_HEADER = "x-acs-dingtalk-access-token";
+
+    private static final Set<String> OAUTH2_PATHS = Set.of("/oauth2/accessToken", "/gettoken");
+
+    private static final Pattern IMAGE_PATH = Pattern.compile("(?i).+\\.(png|jpe?g|gif|webp|bmp|svg|avif)$");
+
+    /**
+     * 路径模板：把节点 ID、知识库 ID 之类的变量替换掉，避免标签基数失控
+     */
+    private static final Map<Pattern, String> TEMPLATES = Map.of(
+        Pattern.compile("^/i/nodes/[^/]+$"), "/i/nodes/{nodeId}",
+        Pattern.compile("^/wiki/workspaces/[^/]+/nodes/[^/]+$"), "/wiki/workspaces/{workspaceId}/nodes/{nodeId}",
+        Pattern.compile("^/wiki/workspaces/[^/]+$"), "/wiki/workspaces/{workspaceId}"
+    );
+
+    private static final Set<String> STATIC_PATHS = Set.of(
+        "/api/document/data",
+        "/oauth2/accessToken",
+        "/gettoken",
+        "/wiki/workspaces",
+        "/v2.0/wiki/workspaces",
+        "/v2.0/wiki/nodes",
+        "/topapi/v2/user/get",
+        "/topapi/v2/user/getbymobile"
+    );
+
+    private final String tag;
+
+    UpstreamEndpoint(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * 对出站请求分类
+     *
+     * @param uri 请求地址
+     * @param headers 请求头
+     * @return 接口分类
+     */
+    public static UpstreamEndpoint of(URI uri, HttpHeaders headers) {
+        String path = path(uri);
+        if (OAUTH2_PATHS.contains(path)) {
+            return OAUTH2;
+        }
+        if (headers.containsKey(ACCESS_TOKEN_HEADER) || path.startsWith("/v2.0/") || path.startsWith("/wiki/")
+                || path.startsWith("/topapi/")) {
+            return OPEN_API;
+        }
+        if ("/api/document/data".equals(path)) {
+            return DOCUMENT_DATA;
+        }
+        if (path.startsWith("/i/nodes/")) {
+            return PAGE;
+        }
+        if ("/".equals(path)) {
+            return HOME;
+        }
+        String accept = headers.getFirst(HttpHeaders.ACCEPT);
+        if ((accept != null && accept.startsWith("image/")) || IMAGE_PATH.matcher(path).matches()) {
+            return IMAGE;
+        }
+        return OPEN_API;
+    }
+
+    /**
+     * 低基数的接口模板
+     *
+     * @param uri 请求地址
+     * @return 如 /i/nodes/{nodeId}；图片统一为 {image}，无法识别的路径为 {other}
+     */
+    public String template(URI uri) {
+        if (this == IMAGE) {
+            return "{image}";
+        }
+        String path = path(uri);
+        if (this == HOME || STATIC_PATHS.contains(path)) {
+            return path;
+        }
+        for (Map.Entry<Pattern, String> template : TEMPLATES.entrySet()) {
+            if (template.getKey().matcher(path).matches()) {
+                return template.getValue();
+            }
+        }
+        return "{other}";
+    }
+
+    private static String path(URI uri) {
+        String path = uri.getPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+}
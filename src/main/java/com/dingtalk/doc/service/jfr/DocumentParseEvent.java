@@ -0,0 +1,39 @@
+package com.dingtalk.doc.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：一次完整的文档解析（从开始到保存文件）
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Name("com.dingtalk.doc.DocumentParse")
+@Label("Document Parse")
+@Category({"DingTalk Doc Parser", "Parse"})
+@Description("一次完整的文档解析，持续时间即解析总耗时")
+@StackTrace(false)
+public class DocumentParseEvent extends jdk.jfr.Event {
+
+    @Label("Document URL")
+    @Description("请求中的文档 URL 或 Node ID")
+    public String documentUrl;
+
+    @Label("Node ID")
+    public String nodeId;
+
+    @Label("Title")
+    public String title;
+
+    @Label("Markdown Size")
+    @Description("生成的 Markdown 字节数（UTF-8）")
+    @DataAmount
+    public long markdownBytes;
+
+    @Label("Success")
+    public boolean success;
+}
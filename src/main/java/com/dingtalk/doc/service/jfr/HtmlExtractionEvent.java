@@ -0,0 +1,27 @@
+package com.dingtalk.doc.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：从文档页面 HTML 中提取 mainsite_server_content
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Name("com.dingtalk.doc.HtmlExtraction")
+@Label("HTML Extraction")
+@Category({"DingTalk Doc Parser", "Parse"})
+@Description("用 Jsoup 解析文档页面并提取 mainsite_server_content")
+@StackTrace(false)
+public class HtmlExtractionEvent extends jdk.jfr.Event {
+
+    @Label("Node ID")
+    public String nodeId;
+
+    @Label("HTML Size")
+    @Description("页面 HTML 字符数")
+    public long htmlChars;
+}
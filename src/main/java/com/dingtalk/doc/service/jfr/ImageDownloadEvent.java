@@ -0,0 +1,29 @@
+package com.dingtalk.doc.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：下载并保存一张图片
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Name("com.dingtalk.doc.ImageDownload")
+@Label("Image Download")
+@Category({"DingTalk Doc Parser", "Network"})
+@StackTrace(false)
+public class ImageDownloadEvent extends jdk.jfr.Event {
+
+    @Label("Image URL")
+    public String url;
+
+    @Label("Image Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
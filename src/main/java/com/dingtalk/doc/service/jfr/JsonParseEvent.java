@@ -0,0 +1,27 @@
+package com.dingtalk.doc.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：解析文档数据中 checkpoint.content 的 JSON 字符串
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Name("com.dingtalk.doc.JsonParse")
+@Label("Document JSON Parse")
+@Category({"DingTalk Doc Parser", "Parse"})
+@Description("把 checkpoint.content 字符串解析为紧凑文档模型")
+@StackTrace(false)
+public class JsonParseEvent extends jdk.jfr.Event {
+
+    @Label("Node ID")
+    public String nodeId;
+
+    @Label("JSON Size")
+    @Description("content JSON 字符数")
+    public long jsonChars;
+}
@@ -0,0 +1,38 @@
+package com.dingtalk.doc.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR 事件：把文档内容渲染为 Markdown（包含图片下载）
+ * 记录文档形态（块数、表格数、图片数），便于把耗时尖刺对应到具体文档
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Name("com.dingtalk.doc.MarkdownRender")
+@Label("Markdown Render")
+@Category({"DingTalk Doc Parser", "Parse"})
+@Description("把文档内容渲染为 Markdown，包含图片下载")
+@StackTrace(false)
+public class MarkdownRenderEvent extends jdk.jfr.Event {
+
+    @Label("Title")
+    public String title;
+
+    @Label("Blocks")
+    @Description("body 中的顶层元素数")
+    public int blocks;
+
+    @Label("Tables")
+    public int tables;
+
+    @Label("Images")
+    public int images;
+
+    @Label("Markdown Size")
+    @Description("生成的 Markdown 字符数")
+    public long markdownChars;
+}
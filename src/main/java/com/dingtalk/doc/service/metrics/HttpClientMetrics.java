@@ -0,0 +1,207 @@
+package com.dingtalk.doc.service.metrics;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 出站 HTTP 指标
+ * 上游耗时和响应大小由 {@link HttpMetricsInterceptor} 记录；解压耗时、重试和 Token 刷新由各客户端记录。
+ * 上游耗时只包含等待钉钉和传输响应体的时间，解压、解析等本地 CPU 时间单独统计
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Component
+public class HttpClientMetrics {
+
+    private final MeterRegistry registry;
+
+    public HttpClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 记录一次上游请求
+     *
+     * @param host 目标主机
+     * @param endpoint 接口分类
+     * @param template 接口模板
+     * @param method 请求方法
+     * @param status 状态码，连接失败时为 IO_ERROR
+     * @param nanos 从发出请求到响应体读完的耗时
+     * @param responseBytes 实际传输的响应体字节数（压缩后）
+     */
+    public void recordExchange(String host, UpstreamEndpoint endpoint, String template, String method,
+                               String status, long nanos, long responseBytes) {
+        Timer.builder("dingtalk.http.client.requests")
+                .description("出站 HTTP 请求耗时（含响应体传输）")
+                .tag("host", host)
+                .tag("family", endpoint.getTag())
+                .tag("endpoint", template)
+                .tag("method", method)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        DistributionSummary.builder("dingtalk.http.client.response.size")
+                .description("出站 HTTP 响应体大小")
+                .baseUnit("bytes")
+                .tag("host", host)
+                .tag("family", endpoint.getTag())
+                .tag("endpoint", template)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(responseBytes);
+    }
+
+    /**
+     * 记录 gzip 解压耗时和解压后大小
+     *
+     * @param endpoint 接口分类
+     * @param action 解压逻辑，返回解压后的字节
+     * @return 解压后的字节
+     */
+    public byte[] timeDecompression(UpstreamEndpoint endpoint, Supplier<byte[]> action) {
+        byte[] decompressed = Timer.builder("dingtalk.http.client.decompression")
+                .description("响应体 gzip 解压耗时")
+                .tag("family", endpoint.getTag())
+                .register(registry)
+                .record(action);
+        if (decompressed != null) {
+            DistributionSummary.builder("dingtalk.http.client.decompressed.size")
+                    .description("解压后的响应体大小")
+                    .baseUnit("bytes")
+                    .tag("family", endpoint.getTag())
+                    .register(registry)
+                    .record(decompressed.length);
+        }
+        return decompressed;
+    }
+
+    /**
+     * 记录一次重试
+     *
+     * @param endpoint 接口分类
+     * @param reason 重试原因，如 unauthorized
+     */
+    public void recordRetry(UpstreamEndpoint endpoint, String reason) {
+        Counter.builder("dingtalk.http.client.retries")
+                .description("出站 HTTP 重试次数")
+                .tag("family", endpoint.getTag())
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次因重试预算耗尽而放弃的重试
+     */
+    public void recordRetryBudgetExhausted(UpstreamEndpoint endpoint) {
+        Counter.builder("dingtalk.http.client.retry_budget_exhausted")
+                .description("因重试预算耗尽而放弃的重试次数")
+                .tag("family", endpoint.getTag())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 注册重试预算剩余令牌数
+     */
+    public <T> void registerRetryBudget(T budget, ToDoubleFunction<T> available) {
+        Gauge.builder("dingtalk.http.client.retry_budget", budget, available)
+                .description("全局重试预算剩余令牌数")
+                .register(registry);
+    }
+
+    /**
+     * 注册某个接口分类的当前限流速率
+     */
+    public <T> void registerRateLimit(UpstreamEndpoint endpoint, T limiter, ToDoubleFunction<T> rate) {
+        Gauge.builder("dingtalk.http.client.rate_limit", limiter, rate)
+                .description("自适应限流当前速率（请求/秒）")
+                .tag("family", endpoint.getTag())
+                .register(registry);
+    }
+
+    /**
+     * 记录等待限流令牌的时间
+     */
+    public void recordRateLimitWait(UpstreamEndpoint endpoint, long nanos) {
+        Timer.builder("dingtalk.http.client.rate_limit.wait")
+                .description("等待限流令牌的时间")
+                .tag("family", endpoint.getTag())
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次限流减速
+     *
+     * @param reason 429 / 503 / slow
+     */
+    public void recordRateLimitDecrease(UpstreamEndpoint endpoint, String reason) {
+        Counter.builder("dingtalk.http.client.rate_limit.decreases")
+                .description("自适应限流减速次数")
+                .tag("family", endpoint.getTag())
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 注册熔断器状态：0 关闭，1 打开，2 半开
+     */
+    public <T> void registerCircuitBreaker(UpstreamEndpoint endpoint, T breaker, ToDoubleFunction<T> state) {
+        Gauge.builder("dingtalk.http.client.circuit_breaker.state", breaker, state)
+                .description("熔断器状态：0 关闭，1 打开，2 半开")
+                .tag("family", endpoint.getTag())
+                .register(registry);
+    }
+
+    /**
+     * 记录熔断器状态变化
+     *
+     * @param state 新状态：closed / open / half_open
+     */
+    public void recordCircuitTransition(UpstreamEndpoint endpoint, String state) {
+        Counter.builder("dingtalk.http.client.circuit_breaker.transitions")
+                .description("熔断器状态变化次数")
+                .tag("family", endpoint.getTag())
+                .tag("state", state)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次被熔断器拒绝的请求
+     */
+    public void recordCircuitRejected(UpstreamEndpoint endpoint) {
+        Counter.builder("dingtalk.http.client.circuit_breaker.rejected")
+                .description("熔断期间被直接拒绝的请求数")
+                .tag("family", endpoint.getTag())
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次 AccessToken 刷新
+     *
+     * @param reason 刷新原因：expired（到期刷新）/ unauthorized（收到 401 后强制刷新）
+     */
+    public void recordTokenRefresh(String reason) {
+        Counter.builder("dingtalk.http.client.token_refreshes")
+                .description("AccessToken 刷新次数")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+}
@@ -0,0 +1,130 @@
+package com.dingtalk.doc.service.metrics;
+
+import com.dingtalk.doc.service.http.UpstreamEndpoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 出站 HTTP 指标拦截器
+ * 计时从发出请求开始，到 RestTemplate 关闭响应（响应体已读完）为止，同时统计实际传输的响应体字节数
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Component
+@RequiredArgsConstructor
+public class HttpMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    private final HttpClientMetrics metrics;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        UpstreamEndpoint endpoint = UpstreamEndpoint.of(request.getURI(), request.getHeaders());
+        String host = request.getURI().getHost() == null ? "unknown" : request.getURI().getHost();
+        String template = endpoint.template(request.getURI());
+        String method = request.getMethod().name();
+        long start = System.nanoTime();
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException e) {
+            metrics.recordExchange(host, endpoint, template, method, "IO_ERROR", System.nanoTime() - start, 0);
+            throw e;
+        }
+
+        return new MeteredResponse(response, (status, bytes) ->
+                metrics.recordExchange(host, endpoint, template, method, status, System.nanoTime() - start, bytes));
+    }
+
+    /**
+     * 响应关闭时的回调
+     */
+    private interface CloseCallback {
+        void closed(String status, long bytes);
+    }
+
+    /**
+     * 统计响应体字节数，并在关闭时记录指标
+     */
+    private static final class MeteredResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final CloseCallback callback;
+        private InputStream body;
+        private long bytes;
+        private boolean closed;
+
+        MeteredResponse(ClientHttpResponse delegate, CloseCallback callback) {
+            this.delegate = delegate;
+            this.callback = callback;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b != -1) {
+                            bytes++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int off, int len) throws IOException {
+                        int n = super.read(buffer, off, len);
+                        if (n > 0) {
+                            bytes += n;
+                        }
+                        return n;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            String status;
+            try {
+                status = String.valueOf(delegate.getStatusCode().value());
+            } catch (IOException e) {
+                status = "IO_ERROR";
+            }
+            delegate.close();
+            callback.closed(status, bytes);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.dingtalk.doc.service.metrics;
+
+import com.dingtalk.doc.service.progress.ParseProgress;
+import com.dingtalk.doc.service.progress.ParseProgressListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 文档解析指标
+ * 记录 parseDocument 各步骤耗时、下载字节数、图片和文档计数以及在途解析数；
+ * 当前线程绑定了 {@link ParseProgress} 监听器时，同时通知步骤开始、结束和下载字节数
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Component
+public class ParseMetrics {
+
+    /**
+     * 解析步骤
+     */
+    public enum Stage {
+        COOKIE_VALIDATION("cookie_validation"),
+        PAGE_FETCH("page_fetch"),
+        MAINSITE_EXTRACTION("mainsite_extraction"),
+        DATA_POST("data_post"),
+        CONTENT_EXTRACTION("content_extraction"),
+        RENDER("render"),
+        IMAGE_DOWNLOAD("image_download"),
+        FILE_SAVE("file_save"),
+        QUEUE_WAIT("queue_wait");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * 下载内容类型
+     */
+    public enum Download {
+        PAGE("page"),
+        DATA("data"),
+        IMAGE("image");
+
+        private final String tag;
+
+        Download(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Download, Counter> downloadedBytes = new EnumMap<>(Download.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ParseMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("dingtalk.parse.stage")
+                    .description("文档解析各步骤耗时")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        for (Download download : Download.values()) {
+            downloadedBytes.put(download, Counter.builder("dingtalk.parse.downloaded")
+                    .description("解析过程中下载的字节数")
+                    .baseUnit("bytes")
+                    .tag("type", download.tag)
+                    .register(registry));
+        }
+
+        Gauge.builder("dingtalk.parse.in_flight", inFlight, AtomicInteger::get)
+                .description("正在进行的文档解析数")
+                .register(registry);
+    }
+
+    /**
+     * 记录某个步骤的耗时
+     *
+     * @param stage 步骤
+     * @param action 步骤逻辑
+     * @return 步骤结果
+     */
+    public <T> T time(Stage stage, Supplier<T> action) {
+        ParseProgressListener progress = ParseProgress.current();
+        if (progress == null) {
+            return stageTimers.get(stage).record(action);
+        }
+
+        progress.stageStarted(stage);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = stageTimers.get(stage).record(action);
+            success = true;
+            return result;
+        } finally {
+            progress.stageFinished(stage, System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 记录某个步骤的耗时（无返回值）
+     */
+    public void time(Stage stage, Runnable action) {
+        time(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 记录下载的字节数
+     */
+    public void recordDownloaded(Download type, long bytes) {
+        downloadedBytes.get(type).increment(bytes);
+        ParseProgressListener progress = ParseProgress.current();
+        if (progress != null) {
+            progress.downloaded(type, bytes);
+        }
+    }
+
+    /**
+     * 记录一次图片处理结果
+     *
+     * @param success 是否下载成功
+     */
+    public void recordImage(boolean success) {
+        Counter.builder("dingtalk.parse.images")
+                .description("处理的图片数")
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一张因文档超过时限而跳过下载的图片
+     */
+    public void recordImageSkipped() {
+        Counter.builder("dingtalk.parse.images")
+                .description("处理的图片数")
+                .tag("outcome", "skipped")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次合并到正在进行的相同解析上的请求
+     */
+    public void recordCoalesced() {
+        Counter.builder("dingtalk.parse.coalesced")
+                .description("合并到正在进行的相同解析上的请求数")
+                .register(registry)
+                .increment();
+        ParseProgressListener progress = ParseProgress.current();
+        if (progress != null) {
+            progress.coalesced();
+        }
+    }
+
+    /**
+     * 注册输出异步写入队列长度
+     *
+     * @param queue 队列
+     * @param size 取队列长度
+     */
+    public <T> void registerWriteQueue(T queue, ToDoubleFunction<T> size) {
+        Gauge.builder("dingtalk.parse.write_queue.size", queue, size)
+                .description("输出异步写入队列中等待的任务数")
+                .register(registry);
+    }
+
+    /**
+     * 注册解析调度中某个优先级类别的执行数和排队数
+     *
+     * @param priority 优先级类别
+     * @param lane 类别状态
+     * @param running 取正在执行的文档数
+     * @param waiting 取排队中的文档数
+     */
+    public <T> void registerSchedulerLane(String priority, T lane, ToDoubleFunction<T> running,
+                                          ToDoubleFunction<T> waiting) {
+        Gauge.builder("dingtalk.parse.scheduler.running", lane, running)
+                .description("各优先级类别正在执行的文档数")
+                .tag("priority", priority)
+                .register(registry);
+        Gauge.builder("dingtalk.parse.scheduler.waiting", lane, waiting)
+                .description("各优先级类别排队等待执行的文档数")
+                .tag("priority", priority)
+                .register(registry);
+    }
+
+    /**
+     * 记录一次因输出队列已满而阻塞的提交
+     */
+    public void recordWriteQueueFull() {
+        Counter.builder("dingtalk.parse.write_queue.blocked")
+                .description("输出队列已满、提交方被阻塞的次数")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 记录一次异步写入失败
+     */
+    public void recordWriteFailed() {
+        Counter.builder("dingtalk.parse.write_queue.failed")
+                .description("输出异步写入失败的任务数")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 开始一次文档解析，返回的 Sample 需要传给 {@link #parseFinished}
+     */
+    public Timer.Sample parseStarted() {
+        inFlight.incrementAndGet();
+        return Timer.start(registry);
+    }
+
+    /**
+     * 结束一次文档解析，记录总耗时和文档计数
+     *
+     * @param sample parseStarted 返回的 Sample
+     * @param success 是否成功
+     */
+    public void parseFinished(Timer.Sample sample, boolean success) {
+        inFlight.decrementAndGet();
+        String outcome = success ? "success" : "failure";
+        sample.stop(Timer.builder("dingtalk.parse.duration")
+                .description("单个文档解析总耗时")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+        Counter.builder("dingtalk.parse.documents")
+                .description("解析的文档数")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+}
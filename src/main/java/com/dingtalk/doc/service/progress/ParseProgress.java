@@ -0,0 +1,52 @@
+package com.dingtalk.doc.service.progress;
+
+/**
+ * 当前线程的解析进度监听器
+ * 与 {@link com.dingtalk.doc.service.http.Deadline} 一样按线程绑定，解析流程不需要逐层传递：
+ *
+ * <pre>
+ * try (ParseProgress.Scope ignored = ParseProgress.bind(listener)) {
+ *     documentService.parseDocument(...);
+ * }
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class ParseProgress {
+
+    private static final ThreadLocal<ParseProgressListener> CURRENT = new ThreadLocal<>();
+
+    private ParseProgress() {
+    }
+
+    /**
+     * 当前线程绑定的监听器，没有时返回 null
+     */
+    public static ParseProgressListener current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 绑定到当前线程，关闭 Scope 时恢复之前的监听器
+     */
+    public static Scope bind(ParseProgressListener listener) {
+        ParseProgressListener previous = CURRENT.get();
+        CURRENT.set(listener);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 监听器绑定范围
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,42 @@
+package com.dingtalk.doc.service.progress;
+
+import com.dingtalk.doc.service.metrics.ParseMetrics.Download;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+
+/**
+ * 解析进度监听器
+ * 通过 {@link ParseProgress#bind} 绑定到解析线程，ParseMetrics 在步骤开始、结束和下载时回调。
+ * 回调在解析线程上同步执行，实现不应抛出异常或长时间阻塞
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public interface ParseProgressListener {
+
+    /**
+     * 步骤开始
+     */
+    default void stageStarted(Stage stage) {
+    }
+
+    /**
+     * 步骤结束
+     *
+     * @param stage 步骤
+     * @param elapsedNanos 步骤耗时
+     * @param success 是否成功
+     */
+    default void stageFinished(Stage stage, long elapsedNanos, boolean success) {
+    }
+
+    /**
+     * 下载了一段内容（页面、数据或图片）
+     */
+    default void downloaded(Download type, long bytes) {
+    }
+
+    /**
+     * 请求合并到了正在进行的相同解析上，之后不会再有步骤事件，直到那次解析结束
+     */
+    default void coalesced() {
+    }
+}
@@ -0,0 +1,105 @@
+package com.dingtalk.doc.service.progress;
+
+import com.dingtalk.doc.config.ProgressStreamConfig;
+import com.dingtalk.doc.model.dto.ParseResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 解析进度流
+ * 在专用线程池上执行解析任务，执行期间把 {@link SseProgressListener} 绑定到该线程，
+ * 请求线程直接返回 SseEmitter。任务负责调用 complete / fail 发送最终结果，未调用时连接在任务结束后关闭。
+ * 客户端断开或连接超时时中断执行任务的线程，任务在下一个可中断的等待处（排队、限流、重试退避）停止
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class ParseProgressStreams {
+
+    private final ProgressStreamConfig config;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService heartbeats;
+
+    public ParseProgressStreams(ProgressStreamConfig config) {
+        this.config = config;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getQueueCapacity()), runnable -> {
+                Thread thread = new Thread(runnable, "parse-stream-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "parse-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 开始一个进度流
+     *
+     * @param task 解析任务，在线程池上执行，通过监听器发送批量解析的文档事件和最终结果
+     * @return 返回给客户端的 SseEmitter
+     */
+    public SseEmitter start(Consumer<SseProgressListener> task) {
+        SseEmitter emitter = new SseEmitter(config.getTimeout());
+        SseProgressListener listener = new SseProgressListener(emitter);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(listener::heartbeat,
+            config.getHeartbeatInterval(), config.getHeartbeatInterval(), TimeUnit.MILLISECONDS);
+
+        Future<?> future;
+        try {
+            future = executor.submit(() -> run(task, listener, heartbeat));
+        } catch (RejectedExecutionException e) {
+            log.warn("进度流线程池已满，拒绝请求");
+            heartbeat.cancel(false);
+            listener.fail(ParseResponse.failure("服务繁忙", "等待执行的解析过多，请稍后重试"));
+            return emitter;
+        }
+
+        // 客户端断开或连接超时后没有人接收结果，中断任务（已结束时无影响）
+        Runnable closed = () -> {
+            listener.close();
+            heartbeat.cancel(false);
+            future.cancel(true);
+        };
+        emitter.onCompletion(closed);
+        emitter.onTimeout(closed);
+        emitter.onError(e -> closed.run());
+        return emitter;
+    }
+
+    private void run(Consumer<SseProgressListener> task, SseProgressListener listener, ScheduledFuture<?> heartbeat) {
+        try (ParseProgress.Scope ignored = ParseProgress.bind(listener)) {
+            task.accept(listener);
+        } catch (RuntimeException e) {
+            log.error("进度流任务失败", e);
+            listener.fail(ParseResponse.failure("解析失败", e.getMessage()));
+        } finally {
+            heartbeat.cancel(false);
+            listener.finish();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        executor.shutdownNow();
+    }
+}
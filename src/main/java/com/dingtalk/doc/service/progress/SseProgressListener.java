@@ -0,0 +1,191 @@
+package com.dingtalk.doc.service.progress;
+
+import com.dingtalk.doc.model.dto.ProgressEvent;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Download;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把解析进度写成 SSE 事件：
+ *
+ * <pre>
+ * event: stage      步骤开始 / 结束，结束时带耗时和期间下载的字节数；每张图片一组 image_download 事件
+ * event: coalesced  合并到了正在进行的相同解析上
+ * event: document   批量解析中一个文档完成
+ * event: result     最终结果，之后连接关闭
+ * event: error      失败原因，之后连接关闭
+ * </pre>
+ *
+ * 步骤和文档事件在解析线程上发送，心跳在调度线程上发送（SseEmitter 的发送是同步的）。
+ * 客户端断开后不再发送，解析本身继续完成
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+public final class SseProgressListener implements ParseProgressListener {
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final SseEmitter emitter;
+    private final long startNanos = System.nanoTime();
+
+    // 各步骤的嵌套层数和期间下载的字节数（render 包含其中的 image_download）
+    private final int[] openStages = new int[STAGES.length];
+    private final long[] stageBytes = new long[STAGES.length];
+
+    private int images;
+
+    // 批量解析中当前文档
+    private String nodeId;
+    private long documentStartNanos;
+    private long documentBytes;
+
+    private volatile boolean closed;
+
+    SseProgressListener(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void stageStarted(Stage stage) {
+        if (openStages[stage.ordinal()]++ == 0) {
+            stageBytes[stage.ordinal()] = 0;
+        }
+        send("stage", stageEvent(stage, "started"));
+    }
+
+    @Override
+    public void stageFinished(Stage stage, long elapsedNanos, boolean success) {
+        openStages[stage.ordinal()]--;
+        ProgressEvent event = stageEvent(stage, success ? "finished" : "failed");
+        event.setBytes(stageBytes[stage.ordinal()]);
+        event.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        send("stage", event);
+    }
+
+    @Override
+    public void downloaded(Download type, long bytes) {
+        for (int i = 0; i < STAGES.length; i++) {
+            if (openStages[i] > 0) {
+                stageBytes[i] += bytes;
+            }
+        }
+        documentBytes += bytes;
+    }
+
+    @Override
+    public void coalesced() {
+        send("coalesced", ProgressEvent.builder().totalMs(totalMillis()).build());
+    }
+
+    /**
+     * 批量解析：开始解析一个文档，之后的步骤事件带上它的节点 ID
+     */
+    public void startDocument(String nodeId) {
+        this.nodeId = nodeId;
+        this.documentStartNanos = System.nanoTime();
+        this.documentBytes = 0;
+        this.images = 0;
+    }
+
+    /**
+     * 批量解析：一个文档完成，补上节点 ID、下载字节数和耗时后发送 document 事件
+     *
+     * @param event 文档事件，至少包含 status
+     */
+    public void finishDocument(ProgressEvent event) {
+        if (event.getNodeId() == null) {
+            event.setNodeId(nodeId);
+        }
+        event.setBytes(documentBytes);
+        event.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - documentStartNanos));
+        event.setTotalMs(totalMillis());
+        send("document", event);
+        nodeId = null;
+    }
+
+    /**
+     * 发送最终结果并关闭连接
+     */
+    public void complete(Object result) {
+        send("result", result);
+        finish();
+    }
+
+    /**
+     * 发送失败原因并关闭连接
+     */
+    public void fail(Object error) {
+        send("error", error);
+        finish();
+    }
+
+    /**
+     * 发送心跳注释，避免代理因连接空闲而断开
+     */
+    void heartbeat() {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+        }
+    }
+
+    /**
+     * 关闭连接（已关闭时忽略）
+     */
+    void finish() {
+        if (!closed) {
+            closed = true;
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 连接已由客户端断开或超时
+     */
+    void close() {
+        closed = true;
+    }
+
+    private ProgressEvent stageEvent(Stage stage, String status) {
+        ProgressEvent event = ProgressEvent.builder()
+                .stage(stage.getTag())
+                .status(status)
+                .nodeId(nodeId)
+                .totalMs(totalMillis())
+                .build();
+        if (stage == Stage.IMAGE_DOWNLOAD) {
+            if ("started".equals(status)) {
+                images++;
+            }
+            event.setImage(images);
+        }
+        return event;
+    }
+
+    private long totalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void send(String name, Object data) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，解析继续
+            log.debug("进度事件发送失败，停止推送: {}", e.getMessage());
+            closed = true;
+        }
+    }
+}
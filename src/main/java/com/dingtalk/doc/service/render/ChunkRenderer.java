@@ -0,0 +1,325 @@
+package com.dingtalk.doc.service.render;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * 分块渲染器，输出 JSONL，每行一个分块：
+ *
+ * <pre>
+ * {"nodeId":"...","title":"...","index":0,"headings":["一级标题","二级标题"],"text":"...","tokens":120}
+ * </pre>
+ *
+ * 文本与纯文本输出相同；每个标题开始一个新的章节，章节内按块累积，超过 maxTokens 时写出一个分块，
+ * 下一个分块以上一块末尾约 overlapTokens 的内容开头，单个块过长时在空白或标点处切开。
+ * 每切出一个分块立即写到输出，只缓存当前分块；没有指定输出时写到内存，由 {@link #getResult()} 返回
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class ChunkRenderer extends PlainTextRenderer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String nodeId;
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    // 当前章节的标题路径，下标为标题级别 - 1
+    private final String[] headings = new String[6];
+
+    // 当前分块，开头可能是上一块的重叠部分
+    private final StringBuilder chunk = new StringBuilder();
+    private int chunkTokens;
+
+    // 当前分块是否有重叠部分之外的新内容
+    private boolean fresh;
+
+    private boolean lastWasRow;
+    private int chunkIndex;
+
+    // 分块输出，由调用方关闭；为 null 时写到 buffer
+    private final Writer out;
+    private final StringWriter buffer;
+    private JsonGenerator json;
+    private String title;
+
+    private String result;
+
+    ChunkRenderer(RenderOptions options) {
+        this(options, null);
+    }
+
+    /**
+     * @param options 渲染选项
+     * @param out 分块输出，为 null 时缓存在内存中
+     */
+    ChunkRenderer(RenderOptions options, Writer out) {
+        this.buffer = out == null ? new StringWriter() : null;
+        this.out = out == null ? buffer : out;
+        this.nodeId = options.getNodeId();
+        this.maxTokens = Math.max(1, options.getChunkMaxTokens());
+        int overlap = Math.max(0, options.getChunkOverlapTokens());
+        this.overlapTokens = overlap < maxTokens ? overlap : maxTokens / 2;
+    }
+
+    @Override
+    public void beginDocument(String title) {
+        this.title = title;
+        try {
+            json = JSON_FACTORY.createGenerator(out);
+            // 每行一个分块，行之间只有换行；输出由调用方关闭
+            json.setRootValueSeparator(null);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        } catch (IOException e) {
+            throw new RuntimeException("创建分块输出失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void endDocument() {
+        flush(false);
+        try {
+            json.close();
+        } catch (IOException e) {
+            throw new RuntimeException("写入分块失败: " + e.getMessage(), e);
+        }
+        if (buffer != null) {
+            result = buffer.toString();
+        }
+    }
+
+    /**
+     * 分块 JSONL；写到调用方的输出时为 null
+     */
+    @Override
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    void block(String text) {
+        add(text, false);
+    }
+
+    @Override
+    void heading(int level, String text) {
+        // 标题是章节边界，上一章节的内容不延续到新章节
+        flush(false);
+        headings[level - 1] = text;
+        for (int i = level; i < headings.length; i++) {
+            headings[i] = null;
+        }
+    }
+
+    @Override
+    void tableRow(CharSequence cells) {
+        add(cells.toString(), true);
+    }
+
+    private void add(String text, boolean row) {
+        String separator = row && lastWasRow ? "\n" : "\n\n";
+        lastWasRow = row;
+
+        int tokens = estimateTokens(text, 0, text.length());
+        if (fresh && chunkTokens + tokens > maxTokens) {
+            flush(true);
+        }
+        if (chunkTokens + tokens <= maxTokens) {
+            append(text, tokens, separator);
+            return;
+        }
+
+        // 单个块超过剩余容量：按 token 数切开，尽量在空白或标点处
+        int pos = 0;
+        while (pos < text.length()) {
+            int end = cut(text, pos, Math.max(1, maxTokens - chunkTokens));
+            String piece = text.substring(pos, end).trim();
+            if (!piece.isEmpty()) {
+                append(piece, estimateTokens(piece, 0, piece.length()), separator);
+            }
+            pos = end;
+            if (pos < text.length()) {
+                flush(true);
+            }
+        }
+    }
+
+    private void append(String text, int tokens, String separator) {
+        if (chunk.length() > 0) {
+            chunk.append(separator);
+        }
+        chunk.append(text);
+        chunkTokens += tokens;
+        fresh = true;
+    }
+
+    /**
+     * 写出当前分块
+     *
+     * @param keepOverlap 是否把末尾的重叠部分留给下一个分块
+     */
+    private void flush(boolean keepOverlap) {
+        if (fresh) {
+            writeChunk();
+            fresh = false;
+        }
+        if (!keepOverlap || overlapTokens == 0 || chunk.length() == 0) {
+            chunk.setLength(0);
+            chunkTokens = 0;
+            return;
+        }
+
+        int start = overlapStart();
+        chunk.delete(0, start);
+        chunkTokens = estimateTokens(chunk, 0, chunk.length());
+    }
+
+    /**
+     * 末尾约 overlapTokens 的起始位置，尽量从一个词或一句话的开头开始
+     */
+    private int overlapStart() {
+        int end = chunk.length();
+        int tokens = 0;
+        int run = 0;
+        int start = end;
+        while (start > 0) {
+            char c = chunk.charAt(start - 1);
+            int cost = cost(c, run);
+            run = nextRun(c, run);
+            if (tokens + cost > overlapTokens) {
+                break;
+            }
+            tokens += cost;
+            start--;
+        }
+
+        // 跳过被截断的半个词
+        if (start > 0 && !isBoundary(chunk.charAt(start - 1))) {
+            for (int i = start; i < end; i++) {
+                if (isBoundary(chunk.charAt(i))) {
+                    if (i + 1 < end) {
+                        start = i + 1;
+                    }
+                    break;
+                }
+            }
+        }
+        while (start < end && Character.isWhitespace(chunk.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private void writeChunk() {
+        try {
+            json.writeStartObject();
+            json.writeStringField("nodeId", nodeId);
+            json.writeStringField("title", title);
+            json.writeNumberField("index", chunkIndex++);
+            json.writeArrayFieldStart("headings");
+            for (String heading : headings) {
+                if (heading != null) {
+                    json.writeString(heading);
+                }
+            }
+            json.writeEndArray();
+            json.writeStringField("text", chunk.toString());
+            json.writeNumberField("tokens", chunkTokens);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            // 分块切出后立即交给输出，不在生成器中积压
+            json.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("写入分块失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从 from 开始最多 budget 个 token 的切分位置，尽量在空白或标点之后
+     */
+    private static int cut(String text, int from, int budget) {
+        int tokens = 0;
+        int run = 0;
+        int end = from;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            int cost = cost(c, run);
+            run = nextRun(c, run);
+            if (tokens + cost > budget) {
+                break;
+            }
+            tokens += cost;
+            end++;
+        }
+        if (end == text.length()) {
+            return end;
+        }
+        if (end == from) {
+            end++;
+        }
+        if (Character.isHighSurrogate(text.charAt(end - 1)) && end < text.length()) {
+            end++;
+        }
+
+        // 在后半段中找最后一个空白或标点
+        for (int i = end - 1; i > from + (end - from) / 2; i--) {
+            if (isBoundary(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * 近似的 token 数：中日韩字符每个计 1，连续的字母数字每 4 个计 1，空白不计，其它符号每个计 1
+     */
+    static int estimateTokens(CharSequence text, int start, int end) {
+        int tokens = 0;
+        int run = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            tokens += cost(c, run);
+            run = nextRun(c, run);
+        }
+        return tokens;
+    }
+
+    /**
+     * 单个字符的 token 数
+     *
+     * @param run 之前连续的字母数字个数（不含中日韩字符）
+     */
+    private static int cost(char c, int run) {
+        if (isCjk(c)) {
+            return 1;
+        }
+        if (Character.isLetterOrDigit(c)) {
+            return run % 4 == 0 ? 1 : 0;
+        }
+        return Character.isWhitespace(c) ? 0 : 1;
+    }
+
+    private static int nextRun(char c, int run) {
+        return Character.isLetterOrDigit(c) && !isCjk(c) ? run + 1 : 0;
+    }
+
+    private static boolean isCjk(char c) {
+        if (c < 0x2E80) {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static boolean isBoundary(char c) {
+        return Character.isWhitespace(c) || c == '。' || c == '，' || c == '；' || c == '！' || c == '？'
+            || c == '.' || c == ',' || c == ';' || c == '!' || c == '?';
+    }
+}
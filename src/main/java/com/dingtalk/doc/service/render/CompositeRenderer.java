@@ -0,0 +1,202 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+
+import java.util.List;
+
+/**
+ * 组合渲染器：把同一次遍历的事件依次转发给多个渲染器，一次遍历同时输出多种格式。
+ * 组合渲染器本身没有结果，结果从各个 {@link FormatRenderer} 分别读取
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class CompositeRenderer implements ContentRenderer {
+
+    private final ContentRenderer[] renderers;
+
+    public CompositeRenderer(List<? extends ContentRenderer> renderers) {
+        this.renderers = renderers.toArray(new ContentRenderer[0]);
+    }
+
+    @Override
+    public void beginDocument(String title) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginDocument(title);
+        }
+    }
+
+    @Override
+    public void endDocument() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endDocument();
+        }
+    }
+
+    @Override
+    public void beginParagraph() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginParagraph();
+        }
+    }
+
+    @Override
+    public void endParagraph() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endParagraph();
+        }
+    }
+
+    @Override
+    public void beginListParagraph(int level, boolean ordered) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginListParagraph(level, ordered);
+        }
+    }
+
+    @Override
+    public void endListParagraph() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endListParagraph();
+        }
+    }
+
+    @Override
+    public void beginHeading(int level) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginHeading(level);
+        }
+    }
+
+    @Override
+    public void endHeading() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endHeading();
+        }
+    }
+
+    @Override
+    public void beginList(boolean ordered) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginList(ordered);
+        }
+    }
+
+    @Override
+    public void beginListItem() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginListItem();
+        }
+    }
+
+    @Override
+    public void endListItem() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endListItem();
+        }
+    }
+
+    @Override
+    public void endList() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endList();
+        }
+    }
+
+    @Override
+    public void beginBlockquote() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginBlockquote();
+        }
+    }
+
+    @Override
+    public void endBlockquote() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endBlockquote();
+        }
+    }
+
+    @Override
+    public void beginTable() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginTable();
+        }
+    }
+
+    @Override
+    public void beginRow() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginRow();
+        }
+    }
+
+    @Override
+    public void beginCell() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginCell();
+        }
+    }
+
+    @Override
+    public void endCell() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endCell();
+        }
+    }
+
+    @Override
+    public void endRow() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endRow();
+        }
+    }
+
+    @Override
+    public void endTable() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endTable();
+        }
+    }
+
+    @Override
+    public void code(String language, String code) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.code(language, code);
+        }
+    }
+
+    @Override
+    public void text(ContentDocument doc, int textNode, boolean bold) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.text(doc, textNode, bold);
+        }
+    }
+
+    @Override
+    public void beginLink(String href) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.beginLink(href);
+        }
+    }
+
+    @Override
+    public void endLink() {
+        for (ContentRenderer renderer : renderers) {
+            renderer.endLink();
+        }
+    }
+
+    @Override
+    public void docRef(String title, String url) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.docRef(title, url);
+        }
+    }
+
+    @Override
+    public void image(String name, String src, String localPath) {
+        for (ContentRenderer renderer : renderers) {
+            renderer.image(name, src, localPath);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+
+/**
+ * 文档渲染器
+ * MarkdownGenerator 遍历一次文档内容，按文档顺序把结构事件交给渲染器，每种输出格式一个实现。
+ * 元素是否有效、图片是否下载、文档引用指向哪里都由遍历方决定，渲染器只负责输出格式
+ *
+ * <pre>
+ * 块级事件：段落、列表段落（带 list 属性的 p）、标题、列表（ul/ol）、引用块、表格、代码块
+ * 行内事件：文本、链接、文档引用、图片，出现在段落、列表段落、标题、列表项、单元格和链接中；
+ *           引用块中直接出现的文本不在任何段落里
+ * </pre>
+ *
+ * 渲染器实例有状态，只用于一次渲染；各格式的渲染结果见 {@link FormatRenderer}
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public interface ContentRenderer {
+
+    void beginDocument(String title);
+
+    void endDocument();
+
+    void beginParagraph();
+
+    void endParagraph();
+
+    /**
+     * 列表段落（带 list 属性的段落）
+     *
+     * @param level 缩进级别，从 0 开始
+     * @param ordered 是否有序
+     */
+    void beginListParagraph(int level, boolean ordered);
+
+    void endListParagraph();
+
+    /**
+     * @param level 标题级别 1-6
+     */
+    void beginHeading(int level);
+
+    void endHeading();
+
+    void beginList(boolean ordered);
+
+    void beginListItem();
+
+    void endListItem();
+
+    void endList();
+
+    void beginBlockquote();
+
+    void endBlockquote();
+
+    void beginTable();
+
+    /**
+     * 表格行，只有包含单元格的行才会出现
+     */
+    void beginRow();
+
+    void beginCell();
+
+    void endCell();
+
+    void endRow();
+
+    void endTable();
+
+    /**
+     * 代码块，code 不为空
+     *
+     * @param language 语言标识，例如 java
+     * @param code 代码
+     */
+    void code(String language, String code);
+
+    /**
+     * 文本
+     *
+     * @param doc 文档内容
+     * @param textNode 文本节点
+     * @param bold 是否粗体
+     */
+    void text(ContentDocument doc, int textNode, boolean bold);
+
+    void beginLink(String href);
+
+    void endLink();
+
+    /**
+     * 文档引用
+     *
+     * @param title 被引用文档的名称
+     * @param url 被引用文档的地址，没有时为空字符串
+     */
+    void docRef(String title, String url);
+
+    /**
+     * 图片
+     *
+     * @param name 图片名称
+     * @param src 原始地址，没有时为空字符串
+     * @param localPath 已下载时相对于文档目录的路径（例如 images/image_001.png），否则为 null
+     */
+    void image(String name, String src, String localPath);
+}
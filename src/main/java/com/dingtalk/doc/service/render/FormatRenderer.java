@@ -0,0 +1,15 @@
+package com.dingtalk.doc.service.render;
+
+/**
+ * 输出一种格式的渲染器，由 {@link RenderFormat#newRenderer} 创建。
+ * 只转发事件的渲染器（例如 {@link CompositeRenderer}）没有自己的结果，不实现此接口
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public interface FormatRenderer extends ContentRenderer {
+
+    /**
+     * 渲染结果，endDocument 之后调用
+     */
+    String getResult();
+}
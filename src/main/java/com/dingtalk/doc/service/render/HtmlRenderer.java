@@ -0,0 +1,409 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * HTML 渲染器，输出完整的 HTML 文档
+ * 段落、标题、列表项的内容先写入 inline，为空则跳过；
+ * 连续的列表段落按级别嵌套为 ul/ol，遇到其它块时关闭。
+ * 链接只输出 http、https、mailto 和相对地址，其它协议（javascript: 等）的链接只输出文本
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class HtmlRenderer implements FormatRenderer {
+
+    private final StringBuilder out = new StringBuilder();
+
+    // 当前段落、标题、列表段落或列表项的内容（已转义）
+    private final StringBuilder inline = new StringBuilder();
+
+    private boolean inlineOpen;
+
+    private int headingLevel;
+    private int listParagraphLevel;
+    private boolean listParagraphOrdered;
+
+    // 列表段落嵌套栈：每一级是否有序，每一级都有一个未关闭的 li
+    private boolean[] levels = new boolean[8];
+    private int depth;
+
+    // 当前 ul/ol 的起始位置及其中写出的项数
+    private int listStart;
+    private int listItems;
+
+    // 当前引用块的起始位置
+    private int quoteStart;
+
+    // 当前链接、是否输出为 a 标签及其文本的起始位置
+    private String linkHref;
+    private boolean linkSafe;
+    private int linkTextStart;
+
+    private boolean inCell;
+    private boolean firstRow;
+    private boolean bodyOpen;
+
+    private String result;
+
+    @Override
+    public void beginDocument(String title) {
+        out.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+        escape(title, out);
+        out.append("</title>\n</head>\n<body>\n<h1>");
+        escape(title, out);
+        out.append("</h1>\n");
+    }
+
+    @Override
+    public void endDocument() {
+        closeLists();
+        out.append("</body>\n</html>\n");
+        result = out.toString();
+    }
+
+    @Override
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    public void beginParagraph() {
+        openInline();
+    }
+
+    @Override
+    public void endParagraph() {
+        if (closeInline()) {
+            closeLists();
+            out.append("<p>").append(inline).append("</p>\n");
+        }
+    }
+
+    @Override
+    public void beginListParagraph(int level, boolean ordered) {
+        listParagraphLevel = level;
+        listParagraphOrdered = ordered;
+        openInline();
+    }
+
+    @Override
+    public void endListParagraph() {
+        if (!closeInline()) {
+            return;
+        }
+        int target = listParagraphLevel + 1;
+        while (depth > target) {
+            closeLevel();
+        }
+        if (depth == target) {
+            if (levels[depth - 1] != listParagraphOrdered) {
+                closeLevel();
+            } else {
+                out.append("</li>\n");
+            }
+        }
+        while (depth < target) {
+            // 跳过的中间级别使用同一种列表，并放在一个空的 li 中
+            openLevel(listParagraphOrdered);
+            if (depth < target) {
+                out.append("<li>\n");
+            }
+        }
+        out.append("<li>").append(inline);
+    }
+
+    @Override
+    public void beginHeading(int level) {
+        headingLevel = level;
+        openInline();
+    }
+
+    @Override
+    public void endHeading() {
+        if (closeInline()) {
+            closeLists();
+            out.append("<h").append(headingLevel).append('>').append(inline)
+                .append("</h").append(headingLevel).append(">\n");
+        }
+    }
+
+    @Override
+    public void beginList(boolean ordered) {
+        closeLists();
+        listStart = out.length();
+        listItems = 0;
+        out.append(ordered ? "<ol>\n" : "<ul>\n");
+    }
+
+    @Override
+    public void beginListItem() {
+        openInline();
+    }
+
+    @Override
+    public void endListItem() {
+        if (closeInline()) {
+            out.append("<li>").append(inline).append("</li>\n");
+            listItems++;
+        }
+    }
+
+    @Override
+    public void endList() {
+        if (listItems == 0) {
+            out.setLength(listStart);
+        } else {
+            out.append(out.charAt(listStart + 1) == 'o' ? "</ol>\n" : "</ul>\n");
+        }
+    }
+
+    @Override
+    public void beginBlockquote() {
+        closeLists();
+        quoteStart = out.length();
+        out.append("<blockquote>\n");
+    }
+
+    @Override
+    public void endBlockquote() {
+        closeLists();
+        if (out.length() == quoteStart + "<blockquote>\n".length()) {
+            out.setLength(quoteStart);
+        } else {
+            out.append("</blockquote>\n");
+        }
+    }
+
+    @Override
+    public void beginTable() {
+        closeLists();
+        out.append("<table>\n");
+        firstRow = true;
+        bodyOpen = false;
+    }
+
+    @Override
+    public void beginRow() {
+        if (firstRow) {
+            out.append("<thead>\n");
+        } else if (!bodyOpen) {
+            out.append("<tbody>\n");
+            bodyOpen = true;
+        }
+        out.append("<tr>");
+    }
+
+    @Override
+    public void beginCell() {
+        out.append(firstRow ? "<th>" : "<td>");
+        inCell = true;
+    }
+
+    @Override
+    public void endCell() {
+        inCell = false;
+        out.append(firstRow ? "</th>" : "</td>");
+    }
+
+    @Override
+    public void endRow() {
+        out.append("</tr>\n");
+        if (firstRow) {
+            out.append("</thead>\n");
+            firstRow = false;
+        }
+    }
+
+    @Override
+    public void endTable() {
+        if (bodyOpen) {
+            out.append("</tbody>\n");
+        }
+        out.append("</table>\n");
+    }
+
+    @Override
+    public void code(String language, String code) {
+        closeLists();
+        out.append("<pre><code");
+        if (!language.isEmpty()) {
+            out.append(" class=\"language-");
+            escape(language, out);
+            out.append('"');
+        }
+        out.append('>');
+        escape(code, out);
+        out.append("</code></pre>\n");
+    }
+
+    @Override
+    public void text(ContentDocument doc, int textNode, boolean bold) {
+        if (!inlineOpen && !inCell) {
+            // 引用块中直接出现的文本
+            closeLists();
+            out.append("<p>");
+            escape(doc.text(textNode), out);
+            out.append("</p>\n");
+            return;
+        }
+        StringBuilder target = target();
+        if (bold) {
+            target.append("<strong>");
+            escape(doc.text(textNode), target);
+            target.append("</strong>");
+        } else {
+            escape(doc.text(textNode), target);
+        }
+    }
+
+    @Override
+    public void beginLink(String href) {
+        StringBuilder target = target();
+        linkHref = href;
+        linkSafe = isSafeUrl(href);
+        if (linkSafe) {
+            target.append("<a href=\"");
+            escape(href, target);
+            target.append("\">");
+        }
+        linkTextStart = target.length();
+    }
+
+    @Override
+    public void endLink() {
+        StringBuilder target = target();
+        // 链接文本为空时显示 URL
+        if (target.length() == linkTextStart) {
+            escape(linkHref, target);
+        }
+        if (linkSafe) {
+            target.append("</a>");
+        }
+    }
+
+    @Override
+    public void docRef(String title, String url) {
+        StringBuilder target = target();
+        if (url.isEmpty() || !isSafeUrl(url)) {
+            target.append("《");
+            escape(title, target);
+            target.append("》");
+        } else {
+            target.append("<a href=\"");
+            escape(url, target);
+            target.append("\">《");
+            escape(title, target);
+            target.append("》</a>");
+        }
+    }
+
+    @Override
+    public void image(String name, String src, String localPath) {
+        StringBuilder target = target();
+        if (src.isEmpty()) {
+            target.append("[图片: ");
+            escape(name, target);
+            target.append(']');
+            return;
+        }
+        target.append("<img src=\"");
+        escape(localPath != null ? "./" + localPath : src, target);
+        target.append("\" alt=\"");
+        escape(name, target);
+        target.append("\">");
+    }
+
+    private StringBuilder target() {
+        return inCell ? out : inline;
+    }
+
+    private void openInline() {
+        inline.setLength(0);
+        inlineOpen = true;
+    }
+
+    /**
+     * @return 内容是否不为空白
+     */
+    private boolean closeInline() {
+        inlineOpen = false;
+        for (int i = 0; i < inline.length(); i++) {
+            if (inline.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void openLevel(boolean ordered) {
+        if (depth == levels.length) {
+            levels = Arrays.copyOf(levels, depth * 2);
+        }
+        levels[depth++] = ordered;
+        out.append(ordered ? "<ol>\n" : "<ul>\n");
+    }
+
+    private void closeLevel() {
+        out.append(levels[--depth] ? "</li>\n</ol>\n" : "</li>\n</ul>\n");
+    }
+
+    /**
+     * 关闭由列表段落打开的所有列表
+     */
+    private void closeLists() {
+        while (depth > 0) {
+            closeLevel();
+        }
+    }
+
+    /**
+     * 是否可以作为 href 输出：http、https、mailto 或没有协议的相对地址。
+     * 协议名中的空白和控制字符会被浏览器忽略（例如 "java\tscript:"），判断前先去掉
+     */
+    static boolean isSafeUrl(String url) {
+        StringBuilder scheme = new StringBuilder();
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                String name = scheme.toString().toLowerCase(Locale.ROOT);
+                return name.equals("http") || name.equals("https") || name.equals("mailto");
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                // 冒号之前先出现路径、查询或片段，是相对地址
+                return true;
+            }
+            if (c > ' ') {
+                scheme.append(c);
+            }
+        }
+        return true;
+    }
+
+    private static void escape(String text, StringBuilder target) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    target.append("&amp;");
+                    break;
+                case '<':
+                    target.append("&lt;");
+                    break;
+                case '>':
+                    target.append("&gt;");
+                    break;
+                case '"':
+                    target.append("&quot;");
+                    break;
+                case '\'':
+                    target.append("&#39;");
+                    break;
+                default:
+                    target.append(c);
+            }
+        }
+    }
+}
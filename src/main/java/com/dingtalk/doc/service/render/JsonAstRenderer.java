@@ -0,0 +1,244 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * JSON AST 渲染器
+ * 输出与渲染事件一一对应的结构化文档，每个节点带 type 字段：
+ *
+ * <pre>
+ * {"type":"document","title":"...","children":[块...]}
+ * 块：paragraph{children}、listParagraph{level,ordered,children}、heading{level,children}、
+ *     list{ordered,items:[{children}]}、blockquote{children}、table{rows:[{cells:[{children}]}]}、
+ *     code{language,code}
+ * 行内：text{text,bold}、link{href,children}、docRef{title,url}、image{alt,src,path}
+ * </pre>
+ *
+ * 与 Markdown 一致，内容为空白的段落、标题、列表项不输出
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class JsonAstRenderer implements FormatRenderer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectNode document = MAPPER.createObjectNode();
+
+    // 打开的节点及其 children，栈顶是当前写入位置
+    private final Deque<ObjectNode> nodes = new ArrayDeque<>();
+    private final Deque<ArrayNode> containers = new ArrayDeque<>();
+
+    // 当前列表的 items 或表格的 rows / 当前行的 cells
+    private ArrayNode items;
+    private ArrayNode rows;
+    private ArrayNode cells;
+
+    private String result;
+
+    @Override
+    public void beginDocument(String title) {
+        document.put("type", "document");
+        document.put("title", title);
+        containers.push(document.putArray("children"));
+    }
+
+    @Override
+    public void endDocument() {
+        try {
+            result = MAPPER.writeValueAsString(document);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("生成 JSON 失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    public void beginParagraph() {
+        open(node("paragraph"));
+    }
+
+    @Override
+    public void endParagraph() {
+        closeUnlessBlank();
+    }
+
+    @Override
+    public void beginListParagraph(int level, boolean ordered) {
+        open(node("listParagraph").put("level", level).put("ordered", ordered));
+    }
+
+    @Override
+    public void endListParagraph() {
+        closeUnlessBlank();
+    }
+
+    @Override
+    public void beginHeading(int level) {
+        open(node("heading").put("level", level));
+    }
+
+    @Override
+    public void endHeading() {
+        closeUnlessBlank();
+    }
+
+    @Override
+    public void beginList(boolean ordered) {
+        ObjectNode list = node("list").put("ordered", ordered);
+        items = list.putArray("items");
+        nodes.push(list);
+    }
+
+    @Override
+    public void beginListItem() {
+        ObjectNode item = MAPPER.createObjectNode();
+        nodes.push(item);
+        containers.push(item.putArray("children"));
+    }
+
+    @Override
+    public void endListItem() {
+        ObjectNode item = nodes.pop();
+        if (!isBlank(containers.pop())) {
+            items.add(item);
+        }
+    }
+
+    @Override
+    public void endList() {
+        ObjectNode list = nodes.pop();
+        if (!items.isEmpty()) {
+            containers.peek().add(list);
+        }
+        items = null;
+    }
+
+    @Override
+    public void beginBlockquote() {
+        open(node("blockquote"));
+    }
+
+    @Override
+    public void endBlockquote() {
+        ObjectNode quote = nodes.pop();
+        if (!containers.pop().isEmpty()) {
+            containers.peek().add(quote);
+        }
+    }
+
+    @Override
+    public void beginTable() {
+        ObjectNode table = node("table");
+        rows = table.putArray("rows");
+        containers.peek().add(table);
+    }
+
+    @Override
+    public void beginRow() {
+        cells = rows.addObject().putArray("cells");
+    }
+
+    @Override
+    public void beginCell() {
+        containers.push(cells.addObject().putArray("children"));
+    }
+
+    @Override
+    public void endCell() {
+        containers.pop();
+    }
+
+    @Override
+    public void endRow() {
+        cells = null;
+    }
+
+    @Override
+    public void endTable() {
+        rows = null;
+    }
+
+    @Override
+    public void code(String language, String code) {
+        containers.peek().add(node("code").put("language", language).put("code", code));
+    }
+
+    @Override
+    public void text(ContentDocument doc, int textNode, boolean bold) {
+        ObjectNode text = node("text").put("text", doc.text(textNode));
+        if (bold) {
+            text.put("bold", true);
+        }
+        containers.peek().add(text);
+    }
+
+    @Override
+    public void beginLink(String href) {
+        open(node("link").put("href", href));
+    }
+
+    @Override
+    public void endLink() {
+        // 链接总是保留，文本为空时由使用方显示 href
+        ObjectNode link = nodes.pop();
+        containers.pop();
+        containers.peek().add(link);
+    }
+
+    @Override
+    public void docRef(String title, String url) {
+        containers.peek().add(node("docRef").put("title", title).put("url", url));
+    }
+
+    @Override
+    public void image(String name, String src, String localPath) {
+        ObjectNode image = node("image").put("alt", name).put("src", src);
+        if (localPath != null) {
+            image.put("path", localPath);
+        }
+        containers.peek().add(image);
+    }
+
+    private static ObjectNode node(String type) {
+        return MAPPER.createObjectNode().put("type", type);
+    }
+
+    /**
+     * 打开一个带 children 的节点，关闭时才加入父节点
+     */
+    private void open(ObjectNode node) {
+        nodes.push(node);
+        containers.push(node.putArray("children"));
+    }
+
+    private void closeUnlessBlank() {
+        ObjectNode node = nodes.pop();
+        if (!isBlank(containers.pop())) {
+            containers.peek().add(node);
+        }
+    }
+
+    /**
+     * 只包含空白文本时视为空白
+     */
+    private static boolean isBlank(ArrayNode children) {
+        for (JsonNode child : children) {
+            if (!"text".equals(child.path("type").asText()) || !child.path("text").asText().isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,302 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+
+/**
+ * Markdown 渲染器
+ * 段落、标题、列表项的内容先写入 inline 去掉首尾空白，为空则跳过；
+ * 表格逐行直接写入文档；引用块中的每一行加上 "> " 前缀
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class MarkdownRenderer implements FormatRenderer {
+
+    private final StringBuilder out = new StringBuilder();
+
+    // 当前段落、标题、列表段落或列表项的内容
+    private final StringBuilder inline = new StringBuilder();
+
+    private boolean inlineOpen;
+
+    // 当前列表段落的前缀或标题级别
+    private String listPrefix;
+    private int headingLevel;
+
+    // 当前 ul/ol，不在列表中时为 null
+    private StringBuilder list;
+    private boolean listOrdered;
+    private int itemNumber;
+
+    // 当前引用块，不在引用块中时为 null
+    private StringBuilder quote;
+
+    // 当前链接文本，不在链接中时为 null
+    private final StringBuilder linkText = new StringBuilder();
+    private String linkHref;
+
+    private boolean inCell;
+    private int cellStart;
+    private int tableStart;
+    private boolean firstRow;
+    private int cellCount;
+
+    private String result;
+
+    @Override
+    public void beginDocument(String title) {
+        out.append("# ").append(title).append("\n\n");
+    }
+
+    @Override
+    public void endDocument() {
+        result = out.toString().trim();
+    }
+
+    @Override
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    public void beginParagraph() {
+        openInline();
+    }
+
+    @Override
+    public void endParagraph() {
+        emitBlock(closeInline());
+    }
+
+    @Override
+    public void beginListParagraph(int level, boolean ordered) {
+        // 每级缩进 2 个空格
+        listPrefix = "  ".repeat(level) + (ordered ? "1. " : "- ");
+        openInline();
+    }
+
+    @Override
+    public void endListParagraph() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            emitBlock(listPrefix + text);
+        }
+    }
+
+    @Override
+    public void beginHeading(int level) {
+        headingLevel = level;
+        openInline();
+    }
+
+    @Override
+    public void endHeading() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            emitBlock("#".repeat(headingLevel) + " " + text);
+        }
+    }
+
+    @Override
+    public void beginList(boolean ordered) {
+        list = new StringBuilder();
+        listOrdered = ordered;
+        itemNumber = 1;
+    }
+
+    @Override
+    public void beginListItem() {
+        openInline();
+    }
+
+    @Override
+    public void endListItem() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            if (listOrdered) {
+                list.append(itemNumber++).append(". ").append(text).append("\n");
+            } else {
+                list.append("- ").append(text).append("\n");
+            }
+        }
+    }
+
+    @Override
+    public void endList() {
+        String block = list.toString();
+        list = null;
+        emitBlock(block);
+    }
+
+    @Override
+    public void beginBlockquote() {
+        quote = new StringBuilder();
+    }
+
+    @Override
+    public void endBlockquote() {
+        String block = quote.toString();
+        quote = null;
+        emitBlock(block);
+    }
+
+    @Override
+    public void beginTable() {
+        tableStart = out.length();
+        firstRow = true;
+    }
+
+    @Override
+    public void beginRow() {
+        out.append('|');
+        cellCount = 0;
+    }
+
+    @Override
+    public void beginCell() {
+        out.append(' ');
+        cellStart = out.length();
+        inCell = true;
+    }
+
+    @Override
+    public void endCell() {
+        inCell = false;
+
+        // 在 out 中就地去掉首尾空白（与 String.trim 相同）
+        int end = out.length();
+        while (end > cellStart && out.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        out.setLength(end);
+        int first = cellStart;
+        while (first < end && out.charAt(first) <= ' ') {
+            first++;
+        }
+        out.delete(cellStart, first);
+
+        // 替换换行符为空格（Markdown 表格不支持多行）
+        for (int i = cellStart; i < out.length(); i++) {
+            if (out.charAt(i) == '\n') {
+                out.setCharAt(i, ' ');
+            }
+        }
+        out.append(" |");
+        cellCount++;
+    }
+
+    @Override
+    public void endRow() {
+        out.append('\n');
+
+        // 如果是第一行，添加分隔符
+        if (firstRow) {
+            out.append('|');
+            for (int k = 0; k < cellCount; k++) {
+                out.append(" --- |");
+            }
+            out.append('\n');
+            firstRow = false;
+        }
+    }
+
+    @Override
+    public void endTable() {
+        if (out.length() > tableStart) {
+            out.append("\n\n");
+        }
+    }
+
+    @Override
+    public void code(String language, String code) {
+        emitBlock("```" + language + "\n" + code + "\n```");
+    }
+
+    @Override
+    public void text(ContentDocument doc, int textNode, boolean bold) {
+        if (quote != null && !inlineOpen && !inCell) {
+            // 引用块中直接出现的文本单独成行
+            doc.appendText(textNode, quote.append("> ")).append("\n");
+            return;
+        }
+        StringBuilder target = target();
+        if (bold) {
+            doc.appendText(textNode, target.append("**")).append("**");
+        } else {
+            doc.appendText(textNode, target);
+        }
+    }
+
+    @Override
+    public void beginLink(String href) {
+        linkHref = href;
+        linkText.setLength(0);
+    }
+
+    @Override
+    public void endLink() {
+        String href = linkHref;
+        String text = linkText.toString().trim();
+        linkHref = null;
+
+        // 如果链接文本为空或与 URL 相同，只显示 URL
+        if (text.isEmpty() || text.equals(href)) {
+            target().append(href);
+        } else {
+            target().append('[').append(text).append("](").append(href).append(')');
+        }
+    }
+
+    @Override
+    public void docRef(String title, String url) {
+        if (url.isEmpty()) {
+            target().append("《").append(title).append("》");
+        } else {
+            // 保留书名号，例如 [《Google api回传问题》](链接)
+            target().append("[《").append(title).append("》](").append(url).append(')');
+        }
+    }
+
+    @Override
+    public void image(String name, String src, String localPath) {
+        if (src.isEmpty()) {
+            target().append("[图片: ").append(name).append(']');
+        } else if (localPath != null) {
+            target().append("![").append(name).append("](./").append(localPath).append(')');
+        } else {
+            target().append("![").append(name).append("](").append(src).append(')');
+        }
+    }
+
+    private StringBuilder target() {
+        if (linkHref != null) {
+            return linkText;
+        }
+        return inCell ? out : inline;
+    }
+
+    private void openInline() {
+        inline.setLength(0);
+        inlineOpen = true;
+    }
+
+    private String closeInline() {
+        inlineOpen = false;
+        return inline.toString().trim();
+    }
+
+    /**
+     * 写出一个块，块之间空一行；在引用块中则为每一行添加 "> " 前缀
+     */
+    private void emitBlock(String block) {
+        if (block.isEmpty()) {
+            return;
+        }
+        if (quote != null) {
+            for (String line : block.split("\n")) {
+                quote.append("> ").append(line).append("\n");
+            }
+        } else {
+            out.append(block).append("\n\n");
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.dingtalk.doc.service.render;
+
+import com.dingtalk.doc.model.ContentDocument;
+
+/**
+ * 纯文本渲染器
+ * 只保留文字：块之间空一行，列表段落保留缩进，表格单元格以制表符分隔，
+ * 链接只保留文本（没有文本时保留 URL），图片不输出。
+ * 子类可以覆盖 {@link #block}、{@link #heading} 和 {@link #tableRow}，按块接收文本
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class PlainTextRenderer implements FormatRenderer {
+
+    private final StringBuilder out = new StringBuilder();
+
+    // 当前段落、标题、列表段落或列表项的内容
+    private final StringBuilder inline = new StringBuilder();
+
+    private boolean inlineOpen;
+
+    private String indent;
+    private int headingLevel;
+
+    // 当前 ul/ol，不在列表中时为 null
+    private StringBuilder list;
+
+    // 当前表格行，单元格以制表符分隔
+    private final StringBuilder row = new StringBuilder();
+
+    private boolean inCell;
+    private int cellStart;
+    private int tableRows;
+    private boolean firstCell;
+
+    private String linkHref;
+    private int linkTextStart;
+
+    private String result;
+
+    @Override
+    public void beginDocument(String title) {
+        out.append(title).append("\n\n");
+    }
+
+    @Override
+    public void endDocument() {
+        result = out.toString().trim();
+    }
+
+    @Override
+    public String getResult() {
+        return result;
+    }
+
+    @Override
+    public void beginParagraph() {
+        openInline();
+    }
+
+    @Override
+    public void endParagraph() {
+        emitBlock(closeInline());
+    }
+
+    @Override
+    public void beginListParagraph(int level, boolean ordered) {
+        indent = "  ".repeat(level);
+        openInline();
+    }
+
+    @Override
+    public void endListParagraph() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            emitBlock(indent + text);
+        }
+    }
+
+    @Override
+    public void beginHeading(int level) {
+        headingLevel = level;
+        openInline();
+    }
+
+    @Override
+    public void endHeading() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            heading(headingLevel, text);
+        }
+    }
+
+    @Override
+    public void beginList(boolean ordered) {
+        list = new StringBuilder();
+    }
+
+    @Override
+    public void beginListItem() {
+        openInline();
+    }
+
+    @Override
+    public void endListItem() {
+        String text = closeInline();
+        if (!text.isEmpty()) {
+            list.append(text).append('\n');
+        }
+    }
+
+    @Override
+    public void endList() {
+        String block = list.toString();
+        list = null;
+        emitBlock(block.trim());
+    }
+
+    @Override
+    public void beginBlockquote() {
+    }
+
+    @Override
+    public void endBlockquote() {
+    }
+
+    @Override
+    public void beginTable() {
+        tableRows = 0;
+    }
+
+    @Override
+    public void beginRow() {
+        row.setLength(0);
+        firstCell = true;
+    }
+
+    @Override
+    public void beginCell() {
+        if (!firstCell) {
+            row.append('\t');
+        }
+        firstCell = false;
+        cellStart = row.length();
+        inCell = true;
+    }
+
+    @Override
+    public void endCell() {
+        inCell = false;
+
+        // 单元格内容去掉首尾空白，换行替换为空格，保证一行一条记录
+        int end = row.length();
+        while (end > cellStart && row.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        row.setLength(end);
+        int first = cellStart;
+        while (first < end && row.charAt(first) <= ' ') {
+            first++;
+        }
+        row.delete(cellStart, first);
+        for (int i = cellStart; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (c == '\n' || c == '\t') {
+                row.setCharAt(i, ' ');
+            }
+        }
+    }
+
+    @Override
+    public void endRow() {
+        tableRow(row);
+        tableRows++;
+    }
+
+    @Override
+    public void endTable() {
+        if (tableRows > 0) {
+            out.append('\n');
+        }
+    }
+
+    @Override
+    public void code(String language, String code) {
+        emitBlock(code);
+    }
+
+    @Override
+    public void text(ContentDocument doc, int textNode, boolean bold) {
+        if (!inlineOpen && !inCell) {
+            // 引用块中直接出现的文本
+            emitBlock(doc.text(textNode).trim());
+            return;
+        }
+        doc.appendText(textNode, target());
+    }
+
+    @Override
+    public void beginLink(String href) {
+        linkHref = href;
+        linkTextStart = target().length();
+    }
+
+    @Override
+    public void endLink() {
+        StringBuilder target = target();
+        boolean blank = true;
+        for (int i = linkTextStart; i < target.length() && blank; i++) {
+            blank = target.charAt(i) <= ' ';
+        }
+        if (blank) {
+            target.append(linkHref);
+        }
+        linkHref = null;
+    }
+
+    @Override
+    public void docRef(String title, String url) {
+        target().append("《").append(title).append("》");
+    }
+
+    @Override
+    public void image(String name, String src, String localPath) {
+    }
+
+    private StringBuilder target() {
+        return inCell ? row : inline;
+    }
+
+    private void openInline() {
+        inline.setLength(0);
+        inlineOpen = true;
+    }
+
+    private String closeInline() {
+        inlineOpen = false;
+        return inline.toString().trim();
+    }
+
+    private void emitBlock(String block) {
+        if (!block.isEmpty()) {
+            block(block);
+        }
+    }
+
+    /**
+     * 一个文本块（段落、列表、代码等），块之间空一行
+     *
+     * @param text 块内容，不为空
+     */
+    void block(String text) {
+        out.append(text).append("\n\n");
+    }
+
+    /**
+     * 标题，纯文本中与普通块相同
+     *
+     * @param level 标题级别 1-6
+     * @param text 标题内容，不为空
+     */
+    void heading(int level, String text) {
+        block(text);
+    }
+
+    /**
+     * 表格的一行，单元格以制表符分隔
+     *
+     * @param cells 行内容，只在调用期间有效
+     */
+    void tableRow(CharSequence cells) {
+        out.append(cells).append('\n');
+    }
+}
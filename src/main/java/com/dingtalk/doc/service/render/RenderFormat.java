@@ -0,0 +1,98 @@
+package com.dingtalk.doc.service.render;
+
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * 输出格式
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public enum RenderFormat {
+
+    MARKDOWN("md", "text/markdown"),
+
+    HTML("html", "text/html"),
+
+    /**
+     * 纯文本，去掉所有标记，供检索和 LLM 使用
+     */
+    TEXT("txt", "text/plain"),
+
+    /**
+     * 结构化的 JSON AST
+     */
+    JSON("json", "application/json"),
+
+    /**
+     * 按章节和 token 数切分的 JSONL 分块，供向量化 / RAG 索引使用
+     */
+    CHUNKS("chunks.jsonl", "application/x-ndjson");
+
+    private final String extension;
+    private final String contentType;
+
+    RenderFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * 文件扩展名（不含点号）
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 创建该格式的渲染器
+     *
+     * @param options 渲染选项
+     */
+    public FormatRenderer newRenderer(RenderOptions options) {
+        return newRenderer(options, null);
+    }
+
+    /**
+     * 创建该格式的渲染器，分块格式直接写到 chunkOutput
+     *
+     * @param options 渲染选项
+     * @param chunkOutput 分块输出，每切出一个分块立即写入，渲染器的结果为 null；
+     *                    为 null 时缓存在内存中。其它格式忽略此参数
+     */
+    public FormatRenderer newRenderer(RenderOptions options, Writer chunkOutput) {
+        switch (this) {
+            case HTML:
+                return new HtmlRenderer();
+            case TEXT:
+                return new PlainTextRenderer();
+            case JSON:
+                return new JsonAstRenderer();
+            case CHUNKS:
+                return new ChunkRenderer(options, chunkOutput);
+            default:
+                return new MarkdownRenderer();
+        }
+    }
+
+    /**
+     * 按名称或扩展名查找格式（不区分大小写）
+     *
+     * @param name 例如 markdown、md、html、text、txt、json、chunks
+     * @return 格式
+     * @throws IllegalArgumentException 不支持的格式
+     */
+    public static RenderFormat of(String name) {
+        String value = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+        for (RenderFormat format : values()) {
+            if (format.name().toLowerCase(Locale.ROOT).equals(value) || format.extension.equals(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的输出格式: " + name);
+    }
+}
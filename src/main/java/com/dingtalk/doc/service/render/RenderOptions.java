@@ -0,0 +1,31 @@
+package com.dingtalk.doc.service.render;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 渲染选项，目前只有分块输出使用
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenderOptions {
+
+    /**
+     * 文档的 Node ID，写入每个分块
+     */
+    private String nodeId;
+
+    /**
+     * 每个分块的最大 token 数
+     */
+    private int chunkMaxTokens = 512;
+
+    /**
+     * 相邻分块之间重叠的 token 数
+     */
+    private int chunkOverlapTokens = 64;
+}
@@ -0,0 +1,269 @@
+package com.dingtalk.doc.service.scheduler;
+
+import com.dingtalk.doc.config.ParseSchedulerConfig;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics.Stage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 解析调度器
+ * 每个文档在处理前取得一个执行名额，处理完归还，任务仍在调用线程上执行（线程上绑定的时限、进度监听器不变）：
+ *
+ * <pre>
+ * try (ParseScheduler.Permit ignored = scheduler.acquire(Priority.BULK, workspaceId)) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * 名额分配：
+ * <ul>
+ *   <li>总数不超过 max-concurrency，每个类别不超过自己的上限；bulk 上限低于总上限时，差额只有交互解析能用</li>
+ *   <li>有名额空出时交互解析优先，批量任务使用剩下的名额</li>
+ *   <li>同一类别内按来源加权公平排队（start-time fair queuing）：每个请求的虚拟完成时间为
+ *       max(虚拟时间, 该来源上一个请求的完成时间) + 1 / 权重，完成时间最小的先执行。
+ *       一个知识库排了上千个文档时，其它知识库的文档不用等它全部处理完</li>
+ * </ul>
+ * 排队时间记为 queue_wait 步骤。各解析服务在取得名额之后才绑定文档的 {@link Deadline}，排队时间不计入文档时限；
+ * 调用方排队前已绑定时限时，排队受其约束，超时抛出 DeadlineExceededException
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class ParseScheduler {
+
+    private static final Permit NOOP = () -> {
+    };
+
+    private final ParseSchedulerConfig config;
+    private final ParseMetrics parseMetrics;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+
+    private int running;
+    private long sequence;
+
+    public ParseScheduler(ParseSchedulerConfig config, ParseMetrics parseMetrics) {
+        this.config = config;
+        this.parseMetrics = parseMetrics;
+        lanes.put(Priority.INTERACTIVE, new Lane(config.getInteractiveConcurrency()));
+        lanes.put(Priority.BULK, new Lane(config.getBulkConcurrency()));
+        for (Map.Entry<Priority, Lane> entry : lanes.entrySet()) {
+            Lane lane = entry.getValue();
+            parseMetrics.registerSchedulerLane(entry.getKey().getTag(), lane,
+                l -> l.running, l -> l.waitingCount);
+        }
+        if (config.isEnabled()) {
+            log.info("解析调度已开启: 总上限 {}, interactive {}, bulk {}", config.getMaxConcurrency(),
+                config.getInteractiveConcurrency(), config.getBulkConcurrency());
+        }
+    }
+
+    /**
+     * 执行名额，关闭时归还
+     */
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * 排队等待一个执行名额
+     *
+     * @param priority 优先级类别
+     * @param flow 来源（知识库 ID、用户等），同一类别内按来源公平分配
+     * @return 执行名额，处理完后关闭
+     */
+    public Permit acquire(Priority priority, String flow) {
+        if (!config.isEnabled()) {
+            return NOOP;
+        }
+        return parseMetrics.time(Stage.QUEUE_WAIT, () -> await(priority, flow));
+    }
+
+    private Permit await(Priority priority, String flow) {
+        Deadline deadline = Deadline.current();
+        Lane lane = lanes.get(priority);
+        lock.lock();
+        try {
+            Waiter waiter = lane.enqueue(flow, weight(flow), sequence++, lock.newCondition());
+            dispatch();
+            while (!waiter.granted) {
+                try {
+                    if (deadline == null) {
+                        waiter.condition.await();
+                    } else if (waiter.condition.awaitNanos(
+                            TimeUnit.MILLISECONDS.toNanos(deadline.remainingMillis())) <= 0 && !waiter.granted) {
+                        lane.cancel(waiter);
+                        throw deadline.exceeded("排队等待执行", null);
+                    }
+                } catch (InterruptedException e) {
+                    if (waiter.granted) {
+                        release(lane);
+                    } else {
+                        lane.cancel(waiter);
+                    }
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("排队等待执行时被中断", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        boolean[] closed = new boolean[1];
+        return () -> {
+            if (!closed[0]) {
+                closed[0] = true;
+                lock.lock();
+                try {
+                    release(lane);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    private void release(Lane lane) {
+        lane.running--;
+        running--;
+        dispatch();
+    }
+
+    /**
+     * 把空出的名额分给排队的请求，交互解析优先
+     */
+    private void dispatch() {
+        while (running < config.getMaxConcurrency()) {
+            Lane lane = lanes.get(Priority.INTERACTIVE);
+            if (!lane.ready()) {
+                lane = lanes.get(Priority.BULK);
+                if (!lane.ready()) {
+                    return;
+                }
+            }
+            lane.grant();
+            running++;
+        }
+    }
+
+    private int weight(String flow) {
+        Integer weight = flow == null ? null : config.getWeights().get(flow);
+        return weight == null || weight <= 0 ? 1 : weight;
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static final class Waiter {
+
+        private final String flow;
+        // 同一来源前面的请求放弃排队时前移
+        private double start;
+        private double finish;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(String flow, double start, double finish, long sequence, Condition condition) {
+            this.flow = flow;
+            this.start = start;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * 一个优先级类别：并发上限、按虚拟完成时间排序的等待队列
+     */
+    private static final class Lane {
+
+        private final int limit;
+        private final PriorityQueue<Waiter> waiting = new PriorityQueue<>((a, b) -> a.finish != b.finish
+            ? Double.compare(a.finish, b.finish)
+            : Long.compare(a.sequence, b.sequence));
+
+        // 各来源最后一个请求的虚拟完成时间，不超过虚拟时间的来源可以丢弃（效果相同）
+        private final Map<String, Double> lastFinish = new HashMap<>();
+        private double virtualTime;
+
+        // 指标线程读取
+        private volatile int running;
+        private volatile int waitingCount;
+
+        private Lane(int limit) {
+            this.limit = limit;
+        }
+
+        private Waiter enqueue(String flow, int weight, long sequence, Condition condition) {
+            String key = flow == null ? "" : flow;
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(key, 0.0));
+            Waiter waiter = new Waiter(key, start, start + 1.0 / weight, sequence, condition);
+            lastFinish.put(key, waiter.finish);
+            waiting.add(waiter);
+            waitingCount = waiting.size();
+            return waiter;
+        }
+
+        private boolean ready() {
+            return !waiting.isEmpty() && running < limit;
+        }
+
+        private void grant() {
+            Waiter waiter = waiting.poll();
+            waitingCount = waiting.size();
+            running++;
+            virtualTime = Math.max(virtualTime, waiter.start);
+            lastFinish.values().removeIf(finish -> finish <= virtualTime);
+            waiter.granted = true;
+            waiter.condition.signal();
+        }
+
+        /**
+         * 没拿到名额就放弃排队（超时、中断）：撤回它占用的虚拟时间，
+         * 同一来源排在它后面的请求依次前移，该来源的完成时间退回到最后一个仍在排队的请求
+         */
+        private void cancel(Waiter waiter) {
+            waiting.remove(waiter);
+            List<Waiter> later = new ArrayList<>();
+            for (Waiter other : waiting) {
+                if (other.flow.equals(waiter.flow) && other.sequence > waiter.sequence) {
+                    later.add(other);
+                }
+            }
+            waiting.removeAll(later);
+            later.sort(Comparator.comparingLong(other -> other.sequence));
+
+            double finish = waiter.start;
+            for (Waiter other : later) {
+                double length = other.finish - other.start;
+                other.start = Math.max(virtualTime, finish);
+                other.finish = other.start + length;
+                finish = other.finish;
+                waiting.add(other);
+            }
+            if (finish > virtualTime) {
+                lastFinish.put(waiter.flow, finish);
+            } else {
+                lastFinish.remove(waiter.flow);
+            }
+            waitingCount = waiting.size();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.dingtalk.doc.service.scheduler;
+
+/**
+ * 解析任务的优先级类别
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public enum Priority {
+
+    /**
+     * 用户等待结果的单文档解析，优先分配执行名额
+     */
+    INTERACTIVE("interactive"),
+
+    /**
+     * 批量解析和知识库导出中的每个文档，使用交互请求剩下的名额
+     */
+    BULK("bulk");
+
+    private final String tag;
+
+    Priority(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,108 @@
+package com.dingtalk.doc.service.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 全文检索分词器
+ * 中日韩文字按相邻两字切分（二元分词，单独一个字时保留单字），其他字母和数字按连续片段切成小写单词，
+ * 其余字符（标点、Markdown 标记）作为分隔符。不依赖词典，索引和查询使用同一套规则
+ *
+ * <pre>
+ * "钉钉文档 Parser v2" → [钉钉, 钉文, 文档, parser, v2]
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class CjkTokenizer {
+
+    /**
+     * 超长的单词（base64、哈希值等）不进索引
+     */
+    private static final int MAX_WORD_LENGTH = 64;
+
+    /**
+     * Markdown 图片引用只有本地路径，没有检索价值
+     */
+    private static final Pattern MARKDOWN_IMAGE = Pattern.compile("!\\[[^\\]]*]\\([^)]*\\)");
+
+    private CjkTokenizer() {
+    }
+
+    /**
+     * 切分文本
+     *
+     * @param text 文本
+     * @return 词项，按出现顺序，可能重复
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        String cleaned = MARKDOWN_IMAGE.matcher(text).replaceAll(" ");
+        int length = cleaned.length();
+        int i = 0;
+        while (i < length) {
+            int cp = cleaned.codePointAt(i);
+            if (isCjk(cp)) {
+                int end = i;
+                while (end < length && isCjk(cleaned.codePointAt(end))) {
+                    end += Character.charCount(cleaned.codePointAt(end));
+                }
+                addBigrams(cleaned.substring(i, end), terms);
+                i = end;
+            } else if (Character.isLetterOrDigit(cp)) {
+                int end = i;
+                while (end < length) {
+                    int next = cleaned.codePointAt(end);
+                    if (isCjk(next) || !Character.isLetterOrDigit(next)) {
+                        break;
+                    }
+                    end += Character.charCount(next);
+                }
+                if (end - i <= MAX_WORD_LENGTH) {
+                    terms.add(cleaned.substring(i, end).toLowerCase(Locale.ROOT));
+                }
+                i = end;
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 统计词频
+     *
+     * @param text 文本
+     * @return 词项 → 出现次数
+     */
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    private static void addBigrams(String run, List<String> terms) {
+        int[] codePoints = run.codePoints().toArray();
+        if (codePoints.length == 1) {
+            terms.add(run);
+            return;
+        }
+        for (int j = 0; j + 1 < codePoints.length; j++) {
+            terms.add(new String(codePoints, j, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,33 @@
+package com.dingtalk.doc.service.search;
+
+/**
+ * 索引中的文档信息
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class IndexedDoc {
+
+    /**
+     * Markdown 文件绝对路径，同一路径只有最新一次索引有效
+     */
+    final String path;
+
+    final String title;
+
+    /**
+     * 索引时文件的修改时间（毫秒），启动时据此判断文件是否在索引之后被改过
+     */
+    final long modifiedTime;
+
+    /**
+     * 词项总数（BM25 的文档长度）
+     */
+    final int length;
+
+    IndexedDoc(String path, String title, long modifiedTime, int length) {
+        this.path = path;
+        this.title = title;
+        this.modifiedTime = modifiedTime;
+        this.length = length;
+    }
+}
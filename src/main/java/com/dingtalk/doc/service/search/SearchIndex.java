@@ -0,0 +1,643 @@
+package com.dingtalk.doc.service.search;
+
+import com.dingtalk.doc.config.SearchIndexConfig;
+import com.dingtalk.doc.model.dto.SearchHit;
+import com.dingtalk.doc.model.dto.SearchResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 本地全文检索索引
+ * 文档提交时由 FileManager 调用 {@link #index} 增量加入内存缓冲，缓冲达到 search.index.flush-docs
+ * 或定时写成一个不可变的索引段（{@link Segment}），段文件内存映射后直接查询；段数超过上限时后台合并。
+ * 同一路径重新索引时旧版本只标记失效，合并时丢弃。
+ *
+ * 索引保存在输出目录的 .index 下，segments 文件记录当前有效的段（从旧到新）。
+ * 启动时对比输出目录和索引中记录的修改时间，补建崩溃前未写盘或在索引之外被修改的文档。
+ * 排序使用 BM25，中文按二元分词（{@link CjkTokenizer}）
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+@Component
+public class SearchIndex {
+
+    private static final String INDEX_DIR = ".index";
+    private static final String MANIFEST = "segments";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * 有效文档的位置：所在的段和 docId，还在内存缓冲中时 segment 为 null
+     */
+    private static final class DocRef {
+
+        final Segment segment;
+        final int docId;
+
+        DocRef(Segment segment, int docId) {
+            this.segment = segment;
+            this.docId = docId;
+        }
+    }
+
+    /**
+     * 内存缓冲中的文档
+     */
+    private static final class PendingDoc {
+
+        final IndexedDoc doc;
+        final Map<String, Integer> frequencies;
+
+        PendingDoc(IndexedDoc doc, Map<String, Integer> frequencies) {
+            this.doc = doc;
+            this.frequencies = frequencies;
+        }
+    }
+
+    private final SearchIndexConfig config;
+
+    // 以下状态由读写锁保护：查询持读锁，索引、写段和合并后的切换持写锁
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, PendingDoc> buffer = new HashMap<>();
+    private final Map<String, DocRef> live = new HashMap<>();
+    private long totalLength;
+
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledExecutorService executor;
+    private volatile Path indexDir;
+
+    public SearchIndex(SearchIndexConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 打开输出目录下的索引，并在后台补建缺失的文档
+     *
+     * @param outputDir 输出基础目录
+     */
+    public void open(Path outputDir) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        indexDir = outputDir.resolve(INDEX_DIR);
+
+        lock.writeLock().lock();
+        try {
+            loadSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(() -> recover(outputDir));
+        executor.scheduleWithFixedDelay(this::flushQuietly,
+            config.getFlushInterval(), config.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 索引（或重新索引）一个文档，失败只记录日志，不影响文档输出
+     *
+     * @param filePath Markdown 文件路径
+     * @param title 文档标题
+     * @param content Markdown 内容
+     */
+    public void index(String filePath, String title, String content) {
+        if (!config.isEnabled() || indexDir == null) {
+            return;
+        }
+        try {
+            String path = Paths.get(filePath).toAbsolutePath().toString();
+            Map<String, Integer> frequencies = CjkTokenizer.termFrequencies(title + "\n" + content);
+            int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+            long modifiedTime = Files.getLastModifiedTime(Paths.get(path)).toMillis();
+            PendingDoc pending = new PendingDoc(new IndexedDoc(path, title, modifiedTime, length), frequencies);
+
+            lock.writeLock().lock();
+            try {
+                unlink(path);
+                buffer.put(path, pending);
+                live.put(path, new DocRef(null, -1));
+                totalLength += length;
+                if (buffer.size() >= config.getFlushDocs()) {
+                    flush();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("文档加入检索索引失败: {}", filePath, e);
+        }
+    }
+
+    /**
+     * 从索引中移除文档
+     *
+     * @param filePath Markdown 文件路径
+     */
+    public void remove(String filePath) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unlink(Paths.get(filePath).toAbsolutePath().toString());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索
+     *
+     * @param query 查询内容
+     * @param limit 最多返回的结果数
+     * @return 按 BM25 得分排序的结果和摘要
+     */
+    public SearchResponse search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(CjkTokenizer.tokenize(query)));
+        if (terms.isEmpty()) {
+            return new SearchResponse(query, 0, List.of());
+        }
+
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredDoc::score));
+        int total = 0;
+
+        lock.readLock().lock();
+        try {
+            int docCount = live.size();
+            double averageLength = docCount == 0 ? 1 : Math.max(1.0, (double) totalLength / docCount);
+
+            // 词典查找结果和全局 docFreq（包含已失效的旧版本，与 Lucene 一致，只影响 idf 的精度）
+            int[][] termIds = new int[segments.size()][terms.size()];
+            double[] idf = new double[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                byte[] term = terms.get(t).getBytes(StandardCharsets.UTF_8);
+                int docFreq = 0;
+                for (int s = 0; s < segments.size(); s++) {
+                    Segment segment = segments.get(s);
+                    termIds[s][t] = segment.findTerm(term);
+                    if (termIds[s][t] >= 0) {
+                        docFreq += segment.docFreq(termIds[s][t]);
+                    }
+                }
+                for (PendingDoc pending : buffer.values()) {
+                    if (pending.frequencies.containsKey(terms.get(t))) {
+                        docFreq++;
+                    }
+                }
+                // 失效的旧版本可能使 docFreq 超过有效文档数，截断后 idf 保持为正
+                docFreq = Math.min(docFreq, docCount);
+                idf[t] = Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+            }
+
+            for (int s = 0; s < segments.size(); s++) {
+                Segment segment = segments.get(s);
+                double[] scores = new double[segment.docCount()];
+                for (int t = 0; t < terms.size(); t++) {
+                    if (termIds[s][t] < 0) {
+                        continue;
+                    }
+                    double weight = idf[t];
+                    segment.forEachPosting(termIds[s][t], (docId, frequency) -> {
+                        if (segment.live.get(docId)) {
+                            scores[docId] += weight * bm25(frequency, segment.doc(docId).length, averageLength);
+                        }
+                    });
+                }
+                for (int docId = 0; docId < scores.length; docId++) {
+                    if (scores[docId] > 0) {
+                        total++;
+                        offer(top, new ScoredDoc(segment.doc(docId), scores[docId]), limit);
+                    }
+                }
+            }
+
+            for (PendingDoc pending : buffer.values()) {
+                double score = 0;
+                for (int t = 0; t < terms.size(); t++) {
+                    Integer frequency = pending.frequencies.get(terms.get(t));
+                    if (frequency != null) {
+                        score += idf[t] * bm25(frequency, pending.doc.length, averageLength);
+                    }
+                }
+                if (score > 0) {
+                    total++;
+                    offer(top, new ScoredDoc(pending.doc, score), limit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 摘要读取文件，不占用索引锁
+        List<ScoredDoc> ranked = new ArrayList<>(top);
+        ranked.sort(Comparator.comparingDouble(ScoredDoc::score).reversed());
+        List<SearchHit> hits = new ArrayList<>(ranked.size());
+        for (ScoredDoc scored : ranked) {
+            hits.add(new SearchHit(scored.doc.title, scored.doc.path,
+                Math.round(scored.score * 100) / 100.0, snippet(scored.doc.path, query, terms)));
+        }
+        return new SearchResponse(query, total, hits);
+    }
+
+    /**
+     * 把内存缓冲写成新的索引段
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (buffer.isEmpty() || indexDir == null) {
+                return;
+            }
+            List<IndexedDoc> docs = new ArrayList<>(buffer.size());
+            Map<String, Segment.PostingsBuilder> postings = new HashMap<>();
+            for (PendingDoc pending : buffer.values()) {
+                int docId = docs.size();
+                docs.add(pending.doc);
+                pending.frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new Segment.PostingsBuilder()).add(docId, frequency));
+            }
+
+            Segment segment = writeSegment(docs, postings);
+            for (int docId = 0; docId < docs.size(); docId++) {
+                live.put(docs.get(docId).path, new DocRef(segment, docId));
+            }
+            buffer.clear();
+            segments.add(segment);
+            writeManifest();
+            log.debug("检索索引段已写入: {} ({} 个文档)", segment.getFile().getFileName(), docs.size());
+
+            if (segments.size() > config.getMaxSegments() && executor != null && !executor.isShutdown()) {
+                executor.execute(this::mergeQuietly);
+            }
+        } catch (IOException e) {
+            // 缓冲保留，下次写盘时重试
+            log.error("写入检索索引段失败", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * 合并所有索引段，只保留有效文档。
+     * 合并在后台线程上进行，期间查询和索引照常；切换时合并期间被重新索引的文档在新段中标记失效
+     */
+    void merge() throws IOException {
+        List<Segment> merging;
+        List<BitSet> liveDocs = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            merging = new ArrayList<>(segments);
+            for (Segment segment : merging) {
+                liveDocs.add((BitSet) segment.live.clone());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (merging.size() < 2) {
+            return;
+        }
+
+        List<IndexedDoc> docs = new ArrayList<>();
+        int[][] remap = new int[merging.size()][];
+        for (int s = 0; s < merging.size(); s++) {
+            Segment segment = merging.get(s);
+            remap[s] = new int[segment.docCount()];
+            for (int docId = 0; docId < segment.docCount(); docId++) {
+                remap[s][docId] = liveDocs.get(s).get(docId) ? docs.size() : -1;
+                if (remap[s][docId] >= 0) {
+                    docs.add(segment.doc(docId));
+                }
+            }
+        }
+
+        // 按段的新旧顺序合并，新 docId 在每个倒排表中保持递增
+        Map<String, Segment.PostingsBuilder> postings = new HashMap<>();
+        for (int s = 0; s < merging.size(); s++) {
+            Segment segment = merging.get(s);
+            int[] ids = remap[s];
+            for (int termId = 0; termId < segment.termCount(); termId++) {
+                Segment.PostingsBuilder[] target = new Segment.PostingsBuilder[1];
+                String term = segment.term(termId);
+                segment.forEachPosting(termId, (docId, frequency) -> {
+                    if (ids[docId] >= 0) {
+                        if (target[0] == null) {
+                            target[0] = postings.computeIfAbsent(term, key -> new Segment.PostingsBuilder());
+                        }
+                        target[0].add(ids[docId], frequency);
+                    }
+                });
+            }
+        }
+
+        Segment merged = writeSegment(docs, postings);
+
+        lock.writeLock().lock();
+        try {
+            for (int s = 0; s < merging.size(); s++) {
+                Segment segment = merging.get(s);
+                for (int docId = 0; docId < remap[s].length; docId++) {
+                    int newId = remap[s][docId];
+                    if (newId < 0) {
+                        continue;
+                    }
+                    DocRef ref = live.get(segment.doc(docId).path);
+                    if (ref != null && ref.segment == segment && ref.docId == docId) {
+                        live.put(segment.doc(docId).path, new DocRef(merged, newId));
+                    } else {
+                        merged.live.clear(newId);
+                    }
+                }
+            }
+            // 合并的是当时全部的段，放在最前面，合并期间新写的段仍然更新
+            segments.removeAll(merging);
+            segments.add(0, merged);
+            writeManifest();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (Segment segment : merging) {
+            // 已映射的内存在没有引用后由 GC 释放，Linux/macOS 上删除不受影响
+            Files.deleteIfExists(segment.getFile());
+        }
+        log.info("检索索引段已合并: {} 个段 → {}（{} 个文档）", merging.size(), merged.getFile().getFileName(), docs.size());
+    }
+
+    private void mergeQuietly() {
+        try {
+            merge();
+        } catch (IOException | RuntimeException e) {
+            log.error("合并检索索引段失败", e);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("写入检索索引段失败", e);
+        }
+    }
+
+    /**
+     * 把路径的当前版本标记为失效，调用方持有写锁
+     */
+    private void unlink(String path) {
+        DocRef ref = live.remove(path);
+        if (ref == null) {
+            return;
+        }
+        if (ref.segment != null) {
+            ref.segment.live.clear(ref.docId);
+            totalLength -= ref.segment.doc(ref.docId).length;
+        } else {
+            totalLength -= buffer.remove(path).doc.length;
+        }
+    }
+
+    /**
+     * 按 segments 文件加载索引段，删除不在其中的残留文件（写了一半的段、合并后没删掉的旧段）
+     */
+    private void loadSegments() {
+        Path manifest = indexDir.resolve(MANIFEST);
+        Set<String> names = new HashSet<>();
+        try {
+            if (Files.exists(manifest)) {
+                for (String name : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                    if (name.isBlank()) {
+                        continue;
+                    }
+                    names.add(name);
+                    generation.set(Math.max(generation.get(), parseGeneration(name) + 1));
+                    try {
+                        Segment segment = Segment.open(indexDir.resolve(name));
+                        // 后面的段更新，覆盖前面段中的同一路径
+                        for (int docId = 0; docId < segment.docCount(); docId++) {
+                            String path = segment.doc(docId).path;
+                            unlink(path);
+                            live.put(path, new DocRef(segment, docId));
+                            totalLength += segment.doc(docId).length;
+                        }
+                        segments.add(segment);
+                    } catch (IOException e) {
+                        // 其中的文档由启动补建重新索引
+                        log.error("检索索引段损坏，已跳过: {}", name, e);
+                    }
+                }
+            }
+            if (Files.isDirectory(indexDir)) {
+                try (Stream<Path> files = Files.list(indexDir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        String name = file.getFileName().toString();
+                        if (!name.equals(MANIFEST) && !names.contains(name)) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("加载检索索引失败，将重建索引", e);
+        }
+        log.info("检索索引已加载: {} 个段, {} 个文档", segments.size(), live.size());
+    }
+
+    /**
+     * 补建索引：输出目录中修改时间与索引不一致（或未索引）的文档重新索引，已不存在的文档移除
+     */
+    private void recover(Path outputDir) {
+        if (!Files.isDirectory(outputDir)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<String> present = new HashSet<>();
+        int reindexed = 0;
+        try (Stream<Path> dirs = Files.list(outputDir)) {
+            for (Path dir : (Iterable<Path>) dirs::iterator) {
+                String title = dir.getFileName().toString();
+                Path markdown = dir.resolve(title + ".md");
+                if (title.startsWith(".") || !Files.isRegularFile(markdown)) {
+                    continue;
+                }
+                String path = markdown.toAbsolutePath().toString();
+                present.add(path);
+                if (indexedTime(path) != Files.getLastModifiedTime(markdown).toMillis()) {
+                    index(path, title, Files.readString(markdown));
+                    reindexed++;
+                }
+            }
+        } catch (IOException e) {
+            log.error("补建检索索引失败", e);
+            return;
+        }
+
+        int removed = 0;
+        lock.writeLock().lock();
+        try {
+            for (String path : new ArrayList<>(live.keySet())) {
+                if (!present.contains(path) && !Files.exists(Paths.get(path))) {
+                    unlink(path);
+                    removed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        flush();
+        if (reindexed > 0 || removed > 0) {
+            log.info("检索索引补建完成: 重新索引 {} 个, 移除 {} 个, 耗时 {} ms",
+                reindexed, removed, System.currentTimeMillis() - start);
+        }
+    }
+
+    private long indexedTime(String path) {
+        lock.readLock().lock();
+        try {
+            DocRef ref = live.get(path);
+            if (ref == null) {
+                return -1;
+            }
+            return ref.segment != null ? ref.segment.doc(ref.docId).modifiedTime : buffer.get(path).doc.modifiedTime;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Segment writeSegment(List<IndexedDoc> docs, Map<String, Segment.PostingsBuilder> postings)
+            throws IOException {
+        Files.createDirectories(indexDir);
+        Path file = indexDir.resolve(SEGMENT_PREFIX + generation.getAndIncrement() + SEGMENT_SUFFIX);
+        Segment.write(file, docs, postings);
+        return Segment.open(file);
+    }
+
+    /**
+     * 原子替换 segments 文件，调用方持有写锁
+     */
+    private void writeManifest() throws IOException {
+        List<String> names = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            names.add(segment.getFile().getFileName().toString());
+        }
+        Path temp = indexDir.resolve(MANIFEST + ".tmp");
+        Files.write(temp, names, StandardCharsets.UTF_8);
+        Files.move(temp, indexDir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long parseGeneration(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static double bm25(int frequency, int length, double averageLength) {
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private static void offer(PriorityQueue<ScoredDoc> top, ScoredDoc candidate, int limit) {
+        if (top.size() < limit) {
+            top.add(candidate);
+        } else if (candidate.score > top.peek().score) {
+            top.poll();
+            top.add(candidate);
+        }
+    }
+
+    /**
+     * 截取第一个命中位置附近的文本作为摘要
+     */
+    private String snippet(String path, String query, List<String> terms) {
+        String content;
+        try {
+            content = Files.readString(Paths.get(path));
+        } catch (IOException e) {
+            return null;
+        }
+        String lower = content.toLowerCase(Locale.ROOT);
+        int position = lower.indexOf(query.trim().toLowerCase(Locale.ROOT));
+        if (position < 0) {
+            for (String term : terms) {
+                int found = lower.indexOf(term);
+                if (found >= 0 && (position < 0 || found < position)) {
+                    position = found;
+                }
+            }
+        }
+
+        int length = config.getSnippetLength();
+        int start = Math.max(0, Math.min(position, content.length()) - length / 3);
+        int end = Math.min(content.length(), start + length);
+        String text = content.substring(start, end).replaceAll("\\s+", " ").trim();
+        return (start > 0 ? "…" : "") + text + (end < content.length() ? "…" : "");
+    }
+
+    private static final class ScoredDoc {
+
+        final IndexedDoc doc;
+        final double score;
+
+        ScoredDoc(IndexedDoc doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+
+        double score() {
+            return score;
+        }
+    }
+}
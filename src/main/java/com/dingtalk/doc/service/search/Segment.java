@@ -0,0 +1,289 @@
+package com.dingtalk.doc.service.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的索引段
+ * 一个段对应一个文件，写入后不再修改；查询时整个文件以只读方式内存映射，词典二分查找、倒排表按需读取，
+ * 只有文档表加载到堆上。文档被重新索引或删除后只在 {@link #live} 中清除标记，合并段时才真正丢弃
+ *
+ * <pre>
+ * 文件结构：
+ * 文档表    每个文档: long 修改时间, int 长度, int 路径字节数, 路径, int 标题字节数, 标题
+ * 倒排表    每个词项: docFreq 个 (int docId, int 词频)
+ * 词项数据  所有词项的 UTF-8 字节
+ * 词典      每个词项 20 字节: int 词项偏移, int 词项字节数, long 倒排表偏移, int docFreq（按 UTF-8 字节序排序）
+ * 尾部      int 文档数, int 词项数, long 词典偏移, long 词项数据偏移, int 版本, int 魔数
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x44545349;
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = 32;
+    private static final int TERM_ENTRY_SIZE = 20;
+
+    /**
+     * 倒排表遍历回调
+     */
+    @FunctionalInterface
+    interface PostingConsumer {
+
+        void accept(int docId, int frequency);
+    }
+
+    /**
+     * 写入段时使用的倒排表
+     */
+    static final class PostingsBuilder {
+
+        private int[] data = new int[8];
+        private int size;
+
+        void add(int docId, int frequency) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = docId;
+            data[size++] = frequency;
+        }
+
+        int docFreq() {
+            return size / 2;
+        }
+    }
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final IndexedDoc[] docs;
+    private final int termCount;
+    private final int termIndexOffset;
+    private final int termDataOffset;
+
+    /**
+     * 仍然有效的文档，读写由 SearchIndex 的读写锁保护
+     */
+    final BitSet live;
+
+    private Segment(Path file, MappedByteBuffer buffer, IndexedDoc[] docs,
+                    int termCount, int termIndexOffset, int termDataOffset) {
+        this.file = file;
+        this.buffer = buffer;
+        this.docs = docs;
+        this.termCount = termCount;
+        this.termIndexOffset = termIndexOffset;
+        this.termDataOffset = termDataOffset;
+        this.live = new BitSet(docs.length);
+        this.live.set(0, docs.length);
+    }
+
+    /**
+     * 打开并内存映射段文件
+     */
+    static Segment open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < FOOTER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("索引段文件大小异常: " + file);
+            }
+            // 映射在通道关闭后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int footer = buffer.capacity() - FOOTER_SIZE;
+        if (buffer.getInt(footer + 28) != MAGIC || buffer.getInt(footer + 24) != VERSION) {
+            throw new IOException("不是有效的索引段文件: " + file);
+        }
+        int docCount = buffer.getInt(footer);
+        int termCount = buffer.getInt(footer + 4);
+        int termIndexOffset = (int) buffer.getLong(footer + 8);
+        int termDataOffset = (int) buffer.getLong(footer + 16);
+
+        IndexedDoc[] docs = new IndexedDoc[docCount];
+        int position = 0;
+        for (int i = 0; i < docCount; i++) {
+            long modifiedTime = buffer.getLong(position);
+            int length = buffer.getInt(position + 8);
+            position += 12;
+            String path = readString(buffer, position);
+            position += 4 + buffer.getInt(position);
+            String title = readString(buffer, position);
+            position += 4 + buffer.getInt(position);
+            docs[i] = new IndexedDoc(path, title, modifiedTime, length);
+        }
+        return new Segment(file, buffer, docs, termCount, termIndexOffset, termDataOffset);
+    }
+
+    /**
+     * 写入段文件：先写临时文件并 fsync，再原子改名
+     *
+     * @param file 段文件
+     * @param docs 文档表，下标即 docId
+     * @param postings 词项 → 倒排表（docId 递增）
+     */
+    static void write(Path file, List<IndexedDoc> docs, Map<String, PostingsBuilder> postings) throws IOException {
+        // 词典按 UTF-8 字节序排序，与查询时的比较方式一致
+        List<byte[]> terms = new ArrayList<>(postings.size());
+        List<PostingsBuilder> lists = new ArrayList<>(postings.size());
+        postings.entrySet().stream()
+            .map(entry -> Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()))
+            .sorted((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()))
+            .forEach(entry -> {
+                terms.add(entry.getKey());
+                lists.add(entry.getValue());
+            });
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+            for (IndexedDoc doc : docs) {
+                out.writeLong(doc.modifiedTime);
+                out.writeInt(doc.length);
+                writeString(out, doc.path);
+                writeString(out, doc.title);
+            }
+
+            long[] postingsOffsets = new long[terms.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                postingsOffsets[i] = out.size();
+                PostingsBuilder list = lists.get(i);
+                for (int j = 0; j < list.size; j++) {
+                    out.writeInt(list.data[j]);
+                }
+            }
+
+            int termDataOffset = out.size();
+            int[] termOffsets = new int[terms.size()];
+            for (int i = 0; i < terms.size(); i++) {
+                termOffsets[i] = out.size() - termDataOffset;
+                out.write(terms.get(i));
+            }
+
+            int termIndexOffset = out.size();
+            for (int i = 0; i < terms.size(); i++) {
+                out.writeInt(termOffsets[i]);
+                out.writeInt(terms.get(i).length);
+                out.writeLong(postingsOffsets[i]);
+                out.writeInt(lists.get(i).docFreq());
+            }
+
+            out.writeInt(docs.size());
+            out.writeInt(terms.size());
+            out.writeLong(termIndexOffset);
+            out.writeLong(termDataOffset);
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int docCount() {
+        return docs.length;
+    }
+
+    IndexedDoc doc(int docId) {
+        return docs[docId];
+    }
+
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * 在词典中二分查找词项
+     *
+     * @return 词项序号，不存在时返回 -1
+     */
+    int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    String term(int termIndex) {
+        int entry = termIndexOffset + termIndex * TERM_ENTRY_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(termDataOffset + buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int docFreq(int termIndex) {
+        return buffer.getInt(termIndexOffset + termIndex * TERM_ENTRY_SIZE + 16);
+    }
+
+    /**
+     * 遍历词项的倒排表（包括已失效的文档）
+     */
+    void forEachPosting(int termIndex, PostingConsumer consumer) {
+        int entry = termIndexOffset + termIndex * TERM_ENTRY_SIZE;
+        int position = (int) buffer.getLong(entry + 8);
+        int docFreq = buffer.getInt(entry + 16);
+        for (int i = 0; i < docFreq; i++, position += 8) {
+            consumer.accept(buffer.getInt(position), buffer.getInt(position + 4));
+        }
+    }
+
+    /**
+     * 按无符号字节序比较词典中的词项和查询词项（绝对位置读取，多线程并发查询安全）
+     */
+    private int compareTerm(int termIndex, byte[] term) {
+        int entry = termIndexOffset + termIndex * TERM_ENTRY_SIZE;
+        int offset = termDataOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(offset + i) & 0xff, term[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, int position) {
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,239 @@
+package com.dingtalk.doc.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Markdown 读取接口测试：ETag、304、Range 和预压缩版本的选择
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class DocumentControllerTest {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final Instant MODIFIED = Instant.parse("2026-01-02T03:04:05Z");
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mockMvc;
+
+    private Path markdown;
+
+    private byte[] gzipped;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders.standaloneSetup(new DocumentController(null, null, null)).build();
+        markdown = dir.resolve("文档.md");
+        gzipped = write(markdown, "# 文档\n\n正文内容");
+    }
+
+    @Test
+    void servesFileWithValidators() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(Files.readAllBytes(markdown)))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, MODIFIED.toEpochMilli()))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andReturn();
+
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"").endsWith("\"").doesNotContain("-gz");
+    }
+
+    @Test
+    void matchingEtagReturnsNotModifiedWithCacheHeaders() throws Exception {
+        String etag = etag(null);
+
+        for (String ifNoneMatch : new String[]{etag, "W/" + etag, "\"other\", " + etag}) {
+            MvcResult result = mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                    .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().string(""))
+                .andReturn();
+            assertThat(result.getResponse().getHeaders(HttpHeaders.ETAG)).as(ifNoneMatch).containsExactly(etag);
+        }
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void ifModifiedSinceReturnsNotModified() throws Exception {
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED)))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED.minusSeconds(60))))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void rangeReturnsPartialContent() throws Exception {
+        byte[] bytes = Files.readAllBytes(markdown);
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.RANGE, "bytes=2-7"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-7/" + bytes.length))
+            .andExpect(content().bytes(Arrays.copyOfRange(bytes, 2, 8)));
+    }
+
+    @Test
+    void selectsPrecompressedFileByQuality() throws Exception {
+        for (String accept : new String[]{"gzip", "gzip, deflate, br", "br;q=1.0, gzip;q=0.5", "*", "x-gzip"}) {
+            MvcResult result = mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                    .header(HttpHeaders.ACCEPT_ENCODING, accept))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(gzipped))
+                .andReturn();
+            assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).as(accept).endsWith("-gz\"");
+        }
+
+        for (String accept : new String[]{"gzip;q=0", "gzip; q=0.0, deflate", "br, *;q=0", "identity", "deflate, *;q=1, gzip;q=0"}) {
+            mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                    .header(HttpHeaders.ACCEPT_ENCODING, accept))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(Files.readAllBytes(markdown)));
+        }
+    }
+
+    @Test
+    void staleGzipIsIgnored() throws Exception {
+        Files.setLastModifiedTime(markdown.resolveSibling("文档.md.gz"), FileTime.from(MODIFIED.minusSeconds(1)));
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void gzipEtagDoesNotMatchPlainRepresentation() throws Exception {
+        String gzipEtag = etag("gzip");
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/document/markdown").param("filePath", markdown.toString())
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void sendfileBranchHonoursConditionalRequests() throws Exception {
+        Path large = dir.resolve("大文件.md");
+        write(large, "正文".repeat(20_000));
+        String etag = mockMvc.perform(get("/api/document/markdown").param("filePath", large.toString())
+                .requestAttr(SENDFILE_SUPPORT, true))
+            .andExpect(status().isOk())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, Files.size(large)))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(result -> assertThat(result.getRequest().getAttribute(SENDFILE_FILENAME))
+                .isEqualTo(large.toAbsolutePath().toString()))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/document/markdown").param("filePath", large.toString())
+                .requestAttr(SENDFILE_SUPPORT, true).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+            .andExpect(result -> assertThat(result.getRequest().getAttribute(SENDFILE_FILENAME)).isNull());
+
+        // 之前只检查 If-None-Match
+        mockMvc.perform(get("/api/document/markdown").param("filePath", large.toString())
+                .requestAttr(SENDFILE_SUPPORT, true).header(HttpHeaders.IF_MODIFIED_SINCE, httpDate(MODIFIED)))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void rejectsMissingAndNonMarkdownFiles() throws Exception {
+        mockMvc.perform(get("/api/document/markdown").param("filePath", dir.resolve("missing.md").toString()))
+            .andExpect(status().isNotFound());
+        Path text = Files.writeString(dir.resolve("a.txt"), "x");
+        mockMvc.perform(get("/api/document/markdown").param("filePath", text.toString()))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void parsesAcceptEncodingQuality() {
+        assertThat(DocumentController.acceptsGzip(null)).isFalse();
+        assertThat(DocumentController.acceptsGzip("")).isFalse();
+        assertThat(DocumentController.acceptsGzip("GZIP")).isTrue();
+        assertThat(DocumentController.acceptsGzip("gzip;q=0.001")).isTrue();
+        assertThat(DocumentController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(DocumentController.acceptsGzip("gzip ; Q=0.000")).isFalse();
+        assertThat(DocumentController.acceptsGzip("gzip;q=abc")).isFalse();
+        assertThat(DocumentController.acceptsGzip("*;q=0.5")).isTrue();
+        assertThat(DocumentController.acceptsGzip("*;q=0.5, gzip;q=0")).isFalse();
+        assertThat(DocumentController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(DocumentController.acceptsGzip("gzipx, deflate")).isFalse();
+    }
+
+    /**
+     * 写入 Markdown 和同名 .md.gz，修改时间都设为 MODIFIED
+     *
+     * @return .md.gz 的内容
+     */
+    private static byte[] write(Path file, String content) throws Exception {
+        Files.writeString(file, content);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        Files.write(gz, buffer.toByteArray());
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        Files.setLastModifiedTime(gz, FileTime.from(MODIFIED));
+        return buffer.toByteArray();
+    }
+
+    private String etag(String acceptEncoding) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/document/markdown").param("filePath", markdown.toString());
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return mockMvc.perform(request).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
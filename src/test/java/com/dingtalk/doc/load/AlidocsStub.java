@@ -0,0 +1,207 @@
+package com.dingtalk.doc.load;
+
+import com.dingtalk.doc.support.DocumentShape;
+import com.dingtalk.doc.support.SyntheticDocument;
+import com.dingtalk.doc.support.SyntheticDocumentGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+/**
+ * 基于 WireMock 的 alidocs / 开放平台桩服务
+ * 提供文档页面、文档数据、图片、oauth2 Token 和知识库节点接口，支持延迟和错误注入
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public class AlidocsStub {
+
+    public static final String WORKSPACE_ID = "load-test-workspace";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final StubSettings settings;
+    private final WireMockServer server;
+    private final List<SyntheticDocument> documents = new ArrayList<>();
+
+    public AlidocsStub(StubSettings settings) {
+        this.settings = settings;
+        this.server = new WireMockServer(WireMockConfiguration.options()
+                .dynamicPort()
+                .containerThreads(200)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(50)
+                .extensions(new FaultInjector(settings)));
+    }
+
+    /**
+     * 启动桩服务并注册所有接口
+     */
+    public AlidocsStub start() {
+        server.start();
+
+        // 图片地址需要指向桩服务，因此在端口确定后再生成文档
+        DocumentShape shape = DocumentShape.builder()
+                .targetBytes(settings.getDocumentBytes())
+                .imageBaseUrl(baseUrl() + "/media")
+                .docBaseUrl(baseUrl())
+                .pageBytes(32 * 1024)
+                .build();
+        for (int i = 0; i < settings.getDocuments(); i++) {
+            documents.add(new SyntheticDocumentGenerator(settings.getSeed() + i).generate(shape));
+        }
+
+        stubCookieValidation();
+        stubDocuments();
+        stubImages();
+        stubOpenApi();
+        return this;
+    }
+
+    public void stop() {
+        server.stop();
+    }
+
+    public String baseUrl() {
+        return server.baseUrl();
+    }
+
+    public List<SyntheticDocument> documents() {
+        return documents;
+    }
+
+    /**
+     * 桩服务收到的请求总数
+     */
+    public int requestCount() {
+        return server.getAllServeEvents().size();
+    }
+
+    /**
+     * CookieManager.validateCookie 访问的首页
+     */
+    private void stubCookieValidation() {
+        server.stubFor(get(urlEqualTo("/"))
+                .willReturn(delayed(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "text/html; charset=utf-8")
+                        .withBody("<!DOCTYPE html><html><body>alidocs</body></html>"))));
+    }
+
+    /**
+     * 文档页面、文档数据以及开放平台 API 形式的文档内容
+     */
+    private void stubDocuments() {
+        for (SyntheticDocument document : documents) {
+            server.stubFor(get(urlPathEqualTo("/i/nodes/" + document.getNodeId()))
+                    .atPriority(5)
+                    .willReturn(delayed(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "text/html; charset=utf-8")
+                            .withBody(document.pageHtml()))));
+
+            // DingTalkApiClient 通过 Token 访问同一路径时返回内容 JSON
+            server.stubFor(get(urlPathEqualTo("/i/nodes/" + document.getNodeId()))
+                    .atPriority(1)
+                    .withHeader("x-acs-dingtalk-access-token", matching(".+"))
+                    .willReturn(delayed(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody(document.contentJson()))));
+
+            server.stubFor(post(urlPathEqualTo("/api/document/data"))
+                    .withHeader("a-dentry-key", equalTo(document.getDentryKey()))
+                    .willReturn(delayed(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody(document.documentDataJson()))));
+
+            server.stubFor(get(urlPathMatching("/wiki/workspaces/[^/]+/nodes/" + document.getNodeId()))
+                    .willReturn(delayed(aResponse()
+                            .withStatus(200)
+                            .withHeader("Content-Type", "application/json")
+                            .withBody(nodeJson(document).toString()))));
+        }
+    }
+
+    private void stubImages() {
+        byte[] image = new byte[settings.getImageBytes()];
+        new Random(settings.getSeed()).nextBytes(image);
+        // PNG 文件头
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, image, 0, Math.min(signature.length, image.length));
+
+        server.stubFor(get(urlPathMatching("/media/.+"))
+                .willReturn(delayed(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "image/png")
+                        .withBody(image))));
+    }
+
+    /**
+     * oauth2 Token 和知识库节点列表
+     */
+    private void stubOpenApi() {
+        ObjectNode token = MAPPER.createObjectNode();
+        token.put("accessToken", "load-test-token");
+        token.put("expireIn", 7200);
+        server.stubFor(post(urlPathEqualTo("/oauth2/accessToken"))
+                .willReturn(delayed(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(token.toString()))));
+
+        ObjectNode rootNodes = MAPPER.createObjectNode();
+        ArrayNode nodes = rootNodes.putArray("nodes");
+        documents.forEach(document -> nodes.add(nodeJson(document)));
+        server.stubFor(get(urlPathEqualTo("/v2.0/wiki/nodes"))
+                .withQueryParam("parentNodeId", absent())
+                .willReturn(delayed(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(rootNodes.toString()))));
+
+        server.stubFor(get(urlPathEqualTo("/v2.0/wiki/nodes"))
+                .withQueryParam("parentNodeId", matching(".+"))
+                .willReturn(delayed(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"nodes\":[]}"))));
+    }
+
+    private ObjectNode nodeJson(SyntheticDocument document) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("nodeId", document.getNodeId());
+        node.put("name", document.getTitle());
+        node.put("type", "file");
+        node.put("docType", "doc");
+        node.put("parentId", "");
+        node.put("url", baseUrl() + "/i/nodes/" + document.getNodeId());
+        node.put("hasChildren", false);
+        return node;
+    }
+
+    private ResponseDefinitionBuilder delayed(ResponseDefinitionBuilder response) {
+        if (settings.getJitterMillis() > 0) {
+            return response.withUniformRandomDelay(settings.getLatencyMillis(),
+                    settings.getLatencyMillis() + settings.getJitterMillis());
+        }
+        return response.withFixedDelay(settings.getLatencyMillis());
+    }
+}
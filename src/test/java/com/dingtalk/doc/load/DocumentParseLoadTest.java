@@ -0,0 +1,219 @@
+package com.dingtalk.doc.load;
+
+import com.dingtalk.doc.service.FileManager;
+import com.dingtalk.doc.support.SyntheticDocument;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /api/document/parse 和 parse-all 的端到端负载测试
+ * 应用连接本地 WireMock 桩服务，不访问真实钉钉；默认跳过，需要显式开启：
+ *
+ * <pre>
+ * mvn test -Dtest=DocumentParseLoadTest -Dload.enabled=true \
+ *     -Dload.rps=50 -Dload.duration-seconds=60 -Dstub.latency-ms=80 -Dstub.error-rate=0.02
+ * </pre>
+ *
+ * 报告和应用的 Prometheus 指标输出到控制台和 target/load-reports 目录
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class DocumentParseLoadTest {
+
+    private static AlidocsStub stub;
+
+    private static Path outputDir;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FileManager fileManager;
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) throws Exception {
+        stub = new AlidocsStub(StubSettings.fromSystemProperties()).start();
+        outputDir = Files.createTempDirectory("load-test-docs");
+
+        registry.add("dingtalk.api.enabled", () -> "true");
+        registry.add("dingtalk.api.base-url", stub::baseUrl);
+        registry.add("dingtalk.api.doc-base-url", stub::baseUrl);
+        registry.add("dingtalk.api.api-doc-base-url", stub::baseUrl);
+        registry.add("dingtalk.api.document-data-url", () -> stub.baseUrl() + "/api/document/data");
+        registry.add("http.client.disable-ssl-validation", () -> "false");
+        registry.add("file.output.base-dir", () -> outputDir.toString());
+        registry.add("logging.level.com.dingtalk", () -> System.getProperty("load.log-level", "WARN"));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        if (stub != null) {
+            stub.stop();
+        }
+        FileSystemUtils.deleteRecursively(outputDir.toFile());
+    }
+
+    @Test
+    void parseDocumentAtTargetRps() throws Exception {
+        List<SyntheticDocument> documents = stub.documents();
+
+        LoadReport report = driver().run(
+            "POST /api/document/parse",
+            Double.parseDouble(System.getProperty("load.rps", "20")),
+            warmup(),
+            duration(),
+            n -> {
+                SyntheticDocument document = documents.get((int) (n % documents.size()));
+                String body = "{\"documentUrl\":\"" + document.getNodeId() + "\",\"cookie\":\"load-test-cookie\"}";
+                return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/document/parse"))
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofMinutes(2))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            });
+
+        publish(report, "parse.txt");
+        scrapeMetrics("parse-metrics.txt");
+        assertThat(report.getSucceeded()).isPositive();
+        // 输出提交后整体改名，负载结束时不应残留写了一半的临时目录（异步写入时先等队列写完）
+        assertThat(fileManager.flush(Duration.ofSeconds(30))).isTrue();
+        assertThat(outputDir.resolve(".staging")).isEmptyDirectory();
+    }
+
+    @Test
+    void parseAllAtTargetRps() throws Exception {
+        // 同一知识库同时只能有一个批量解析（其余返回 409），每个请求使用不同的知识库 ID，桩服务对任意知识库返回相同的节点
+        LoadReport report = driver().run(
+            "POST /api/dingtalk/workspaces/{id}/parse-all",
+            Double.parseDouble(System.getProperty("load.parse-all-rps", "0.5")),
+            warmup(),
+            duration(),
+            n -> HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                            + "/api/dingtalk/workspaces/" + AlidocsStub.WORKSPACE_ID + "-" + n + "/parse-all"))
+                    .timeout(Duration.ofMinutes(10))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build());
+
+        publish(report, "parse-all.txt");
+        scrapeMetrics("parse-all-metrics.txt");
+        assertThat(report.getSucceeded()).isPositive();
+        assertThat(report.getStatusCounts()).doesNotContainKey(409);
+    }
+
+    @Test
+    void parseAllOnBusyWorkspaceReturnsConflict() throws Exception {
+        URI uri = URI.create("http://localhost:" + port
+                + "/api/dingtalk/workspaces/" + AlidocsStub.WORKSPACE_ID + "-busy/parse-all");
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        List<Integer> statuses = new ArrayList<>();
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            statuses.add(response.get(10, TimeUnit.MINUTES).statusCode());
+        }
+        assertThat(statuses).contains(200, 409).containsOnly(200, 409);
+    }
+
+    @Test
+    void exportWorkspaceAtTargetRps() throws Exception {
+        URI uri = URI.create("http://localhost:" + port
+                + "/api/dingtalk/workspaces/" + AlidocsStub.WORKSPACE_ID + "/export?format=zip");
+
+        // 先完整下载一次，确认每个文档都在归档中
+        HttpResponse<InputStream> response = HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        assertThat(response.statusCode()).isEqualTo(200);
+        int markdownEntries = 0;
+        try (ZipInputStream zip = new ZipInputStream(response.body())) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                if (entry.getName().endsWith(".md")) {
+                    markdownEntries++;
+                }
+            }
+        }
+        assertThat(markdownEntries).isEqualTo(stub.documents().size());
+
+        LoadReport report = driver().run(
+            "GET /api/dingtalk/workspaces/{id}/export",
+            Double.parseDouble(System.getProperty("load.export-rps", "0.5")),
+            warmup(),
+            duration(),
+            n -> HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMinutes(10))
+                    .GET()
+                    .build());
+
+        publish(report, "export.txt");
+        scrapeMetrics("export-metrics.txt");
+        assertThat(report.getSucceeded()).isPositive();
+    }
+
+    /**
+     * 保存应用自身的 dingtalk_* 指标（Prometheus 格式），便于和负载报告对照
+     */
+    private void scrapeMetrics(String fileName) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus"))
+                .GET()
+                .build();
+        String body = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).body();
+        String metrics = body.lines()
+                .filter(line -> line.contains("dingtalk_"))
+                .collect(Collectors.joining(System.lineSeparator()));
+        Path file = Paths.get("target", "load-reports", fileName);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, metrics, StandardCharsets.UTF_8);
+    }
+
+    private static LoadDriver driver() {
+        return new LoadDriver(Integer.getInteger("load.max-in-flight", 256));
+    }
+
+    private static Duration warmup() {
+        return Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+    }
+
+    private static Duration duration() {
+        return Duration.ofSeconds(Long.getLong("load.duration-seconds", 30));
+    }
+
+    private static void publish(LoadReport report, String fileName) {
+        System.out.println(report.format());
+        System.out.printf("桩服务累计请求: %d%n", stub.requestCount());
+        report.writeTo(Paths.get("target", "load-reports", fileName));
+    }
+}
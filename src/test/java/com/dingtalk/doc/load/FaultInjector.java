@@ -0,0 +1,62 @@
+package com.dingtalk.doc.load;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+
+import java.util.Random;
+
+/**
+ * WireMock 错误注入扩展
+ * 按比例把正常响应替换为 503 或 429，作用于所有桩
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class FaultInjector implements ResponseDefinitionTransformerV2 {
+
+    private final Random random;
+    private final double errorRate;
+    private final double throttleRate;
+
+    FaultInjector(StubSettings settings) {
+        this.random = new Random(settings.getSeed());
+        this.errorRate = settings.getErrorRate();
+        this.throttleRate = settings.getThrottleRate();
+    }
+
+    @Override
+    public ResponseDefinition transform(ServeEvent serveEvent) {
+        ResponseDefinition original = serveEvent.getResponseDefinition();
+        if (errorRate <= 0 && throttleRate <= 0) {
+            return original;
+        }
+
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+
+        if (roll < errorRate) {
+            return ResponseDefinitionBuilder.responseDefinition()
+                    .withStatus(503)
+                    .withBody("injected upstream failure")
+                    .withFixedDelay(original.getFixedDelayMilliseconds())
+                    .withRandomDelay(original.getDelayDistribution())
+                    .build();
+        }
+        if (roll < errorRate + throttleRate) {
+            return ResponseDefinitionBuilder.responseDefinition()
+                    .withStatus(429)
+                    .withHeader("Retry-After", "1")
+                    .withBody("injected throttling")
+                    .build();
+        }
+        return original;
+    }
+
+    @Override
+    public String getName() {
+        return "fault-injector";
+    }
+}
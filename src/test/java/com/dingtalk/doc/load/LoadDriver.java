@@ -0,0 +1,222 @@
+package com.dingtalk.doc.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * 开环负载驱动器
+ * 按固定速率发送请求（不等待上一个请求完成），记录延迟分布和堆/GC 统计
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Slf4j
+public class LoadDriver {
+
+    private final HttpClient httpClient;
+    private final int maxInFlight;
+
+    public LoadDriver(int maxInFlight) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(16))
+                .build();
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 运行一轮负载
+     *
+     * @param name 场景名称
+     * @param targetRps 目标每秒请求数
+     * @param warmup 预热时长（不计入统计）
+     * @param duration 统计时长
+     * @param requests 第 n 个请求的构造函数
+     * @return 统计结果
+     */
+    public LoadReport run(String name, double targetRps, Duration warmup, Duration duration,
+                          LongFunction<HttpRequest> requests) throws InterruptedException {
+        Recorder warmupRecorder = new Recorder();
+        runPhase(targetRps, warmup, requests, warmupRecorder);
+
+        resetPeakUsage();
+        GcSnapshot gcBefore = GcSnapshot.take();
+        Recorder recorder = new Recorder();
+        long start = System.nanoTime();
+        runPhase(targetRps, duration, requests, recorder);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        GcSnapshot gcAfter = GcSnapshot.take();
+
+        long[] latencies = recorder.latencies();
+        Arrays.sort(latencies);
+
+        return LoadReport.builder()
+                .name(name)
+                .targetRps(targetRps)
+                .durationSeconds(elapsedSeconds)
+                .sent(recorder.sent.sum())
+                .succeeded(recorder.succeeded.sum())
+                .failed(recorder.failed.sum())
+                .dropped(recorder.dropped.sum())
+                .p50Millis(percentile(latencies, 0.50))
+                .p90Millis(percentile(latencies, 0.90))
+                .p99Millis(percentile(latencies, 0.99))
+                .maxMillis(latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6)
+                .heapUsedBytes(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed())
+                .heapPeakBytes(heapPeak())
+                .gcCount(gcAfter.count - gcBefore.count)
+                .gcTimeMillis(gcAfter.timeMillis - gcBefore.timeMillis)
+                .statusCounts(new TreeMap<>(recorder.statusCounts()))
+                .build();
+    }
+
+    /**
+     * 按固定间隔发送请求，结束后等待在途请求完成
+     */
+    private void runPhase(double targetRps, Duration duration, LongFunction<HttpRequest> requests,
+                          Recorder recorder) throws InterruptedException {
+        if (duration.isZero() || targetRps <= 0) {
+            return;
+        }
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong sequence = new AtomicLong();
+        long periodNanos = Math.max(1, (long) (1_000_000_000L / targetRps));
+
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ticker.scheduleAtFixedRate(() -> {
+            if (inFlight.get() >= maxInFlight) {
+                recorder.dropped.increment();
+                return;
+            }
+
+            HttpRequest request = requests.apply(sequence.getAndIncrement());
+            inFlight.incrementAndGet();
+            recorder.sent.increment();
+            long sentAt = System.nanoTime();
+
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long latency = System.nanoTime() - sentAt;
+                        inFlight.decrementAndGet();
+                        if (error != null) {
+                            recorder.record(-1, latency);
+                        } else {
+                            recorder.record(response.statusCode(), latency);
+                        }
+                    });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(duration.toMillis());
+        ticker.shutdownNow();
+
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        if (inFlight.get() > 0) {
+            log.warn("仍有 {} 个请求未完成", inFlight.get());
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static void resetPeakUsage() {
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long heapPeak() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    /**
+     * 延迟和状态码记录
+     */
+    private static final class Recorder {
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private long[] latencies = new long[1024];
+        private int size;
+
+        synchronized void record(int status, long latencyNanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (status >= 200 && status < 300) {
+                succeeded.increment();
+            } else {
+                failed.increment();
+            }
+        }
+
+        synchronized long[] latencies() {
+            return Arrays.copyOf(latencies, size);
+        }
+
+        Map<Integer, Long> statusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+
+    /**
+     * GC 次数和耗时快照
+     */
+    private static final class GcSnapshot {
+
+        private final long count;
+        private final long timeMillis;
+
+        private GcSnapshot(long count, long timeMillis) {
+            this.count = count;
+            this.timeMillis = timeMillis;
+        }
+
+        static GcSnapshot take() {
+            long count = 0;
+            long time = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                time += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcSnapshot(count, time);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.dingtalk.doc.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 负载测试结果
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Value
+@Builder
+public class LoadReport {
+
+    String name;
+
+    double targetRps;
+
+    double durationSeconds;
+
+    long sent;
+
+    long succeeded;
+
+    long failed;
+
+    /**
+     * 因在途请求达到上限而未发送的请求数
+     */
+    long dropped;
+
+    double p50Millis;
+
+    double p90Millis;
+
+    double p99Millis;
+
+    double maxMillis;
+
+    long heapUsedBytes;
+
+    long heapPeakBytes;
+
+    long gcCount;
+
+    long gcTimeMillis;
+
+    Map<Integer, Long> statusCounts;
+
+    /**
+     * 实际吞吐量（完成请求数 / 秒）
+     */
+    public double getThroughput() {
+        return durationSeconds <= 0 ? 0 : (succeeded + failed) / durationSeconds;
+    }
+
+    public String format() {
+        return String.format(
+            "== %s ==%n" +
+            "目标 RPS: %.1f, 持续: %.1fs%n" +
+            "发送: %d, 成功: %d, 失败: %d, 丢弃: %d%n" +
+            "吞吐量: %.1f req/s%n" +
+            "延迟(ms): p50=%.1f p90=%.1f p99=%.1f max=%.1f%n" +
+            "堆: 当前 %.1f MB, 峰值 %.1f MB%n" +
+            "GC: %d 次, 累计 %d ms%n" +
+            "状态码: %s%n",
+            name, targetRps, durationSeconds,
+            sent, succeeded, failed, dropped,
+            getThroughput(),
+            p50Millis, p90Millis, p99Millis, maxMillis,
+            heapUsedBytes / 1024.0 / 1024.0, heapPeakBytes / 1024.0 / 1024.0,
+            gcCount, gcTimeMillis,
+            statusCounts);
+    }
+
+    /**
+     * 写入报告文件
+     */
+    public void writeTo(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(file, format(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
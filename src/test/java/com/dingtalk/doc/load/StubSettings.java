@@ -0,0 +1,78 @@
+package com.dingtalk.doc.load;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * alidocs 桩服务参数
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Value
+@Builder
+public class StubSettings {
+
+    /**
+     * 固定延迟（毫秒）
+     */
+    @Builder.Default
+    int latencyMillis = 50;
+
+    /**
+     * 在固定延迟之上叠加的随机抖动上限（毫秒）
+     */
+    @Builder.Default
+    int jitterMillis = 0;
+
+    /**
+     * 注入 503 错误的比例（0.0 ~ 1.0）
+     */
+    @Builder.Default
+    double errorRate = 0.0;
+
+    /**
+     * 注入 429 限流的比例（0.0 ~ 1.0）
+     */
+    @Builder.Default
+    double throttleRate = 0.0;
+
+    /**
+     * 生成的文档数量
+     */
+    @Builder.Default
+    int documents = 20;
+
+    /**
+     * 每篇文档 body 的目标大小（字节）
+     */
+    @Builder.Default
+    int documentBytes = 64 * 1024;
+
+    /**
+     * 图片响应大小（字节）
+     */
+    @Builder.Default
+    int imageBytes = 16 * 1024;
+
+    /**
+     * 生成文档和注入错误使用的随机种子
+     */
+    @Builder.Default
+    long seed = 42L;
+
+    /**
+     * 从系统属性读取（-Dstub.latency-ms=100 -Dstub.error-rate=0.05 ...）
+     */
+    public static StubSettings fromSystemProperties() {
+        return StubSettings.builder()
+                .latencyMillis(Integer.getInteger("stub.latency-ms", 50))
+                .jitterMillis(Integer.getInteger("stub.jitter-ms", 0))
+                .errorRate(Double.parseDouble(System.getProperty("stub.error-rate", "0")))
+                .throttleRate(Double.parseDouble(System.getProperty("stub.throttle-rate", "0")))
+                .documents(Integer.getInteger("stub.documents", 20))
+                .documentBytes(Integer.getInteger("stub.document-bytes", 64 * 1024))
+                .imageBytes(Integer.getInteger("stub.image-bytes", 16 * 1024))
+                .seed(Long.getLong("load.seed", 42L))
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.config.SearchIndexConfig;
+import com.dingtalk.doc.config.WriteBehindConfig;
+import com.dingtalk.doc.exception.FileOperationException;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.search.SearchIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 输出暂存与原子提交测试（同步写入）
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class FileManagerTest {
+
+    @TempDir
+    Path baseDir;
+
+    private FileManager fileManager;
+
+    @BeforeEach
+    void setUp() {
+        fileManager = newFileManager(baseDir, new WriteBehindConfig());
+    }
+
+    /**
+     * 创建不带检索索引的文件管理器
+     */
+    static FileManager newFileManager(Path baseDir, WriteBehindConfig writeBehind) {
+        SearchIndexConfig searchConfig = new SearchIndexConfig();
+        searchConfig.setEnabled(false);
+        WriteBehindQueue queue = new WriteBehindQueue(writeBehind, new ParseMetrics(new SimpleMeterRegistry()));
+        FileManager fileManager = new FileManager(queue, new SearchIndex(searchConfig));
+        ReflectionTestUtils.setField(fileManager, "baseDir", baseDir.toString());
+        ReflectionTestUtils.setField(fileManager, "fsyncPolicy", FileManager.FsyncPolicy.NONE);
+        ReflectionTestUtils.setField(fileManager, "precompress", true);
+        fileManager.cleanupStaleOutputs();
+        return fileManager;
+    }
+
+    @Test
+    void commitToFreshTarget() throws Exception {
+        String filePath;
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.writeFile(Paths.get(output.getDirectory(), "images", "image_001.png").toString(), new byte[]{1, 2, 3});
+            // 提交前最终目录不存在
+            assertThat(baseDir.resolve("文档")).doesNotExist();
+            filePath = fileManager.commitOutput(output, "# 文档\n\n正文");
+        }
+
+        Path target = baseDir.resolve("文档");
+        assertThat(Paths.get(filePath)).isEqualTo(target.resolve("文档.md"));
+        assertThat(target.resolve("文档.md")).hasContent("# 文档\n\n正文");
+        assertThat(target.resolve("文档.md.gz")).exists();
+        assertThat(target.resolve("images/image_001.png")).hasBinaryContent(new byte[]{1, 2, 3});
+        assertThat(children(baseDir.resolve(".staging"))).isZero();
+    }
+
+    @Test
+    void commitReplacesExistingTargetThroughTrash() throws Exception {
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.writeFile(Paths.get(output.getDirectory(), "images", "old.png").toString(), new byte[]{1});
+            fileManager.commitOutput(output, "旧版本");
+        }
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.commitOutput(output, "新版本");
+        }
+
+        Path target = baseDir.resolve("文档");
+        assertThat(target.resolve("文档.md")).hasContent("新版本");
+        // 整个目录被替换，旧版本独有的文件不会残留
+        assertThat(target.resolve("images/old.png")).doesNotExist();
+        assertThat(children(baseDir.resolve(".trash"))).isZero();
+        assertThat(children(baseDir.resolve(".staging"))).isZero();
+    }
+
+    @Test
+    void failedCommitKeepsOldOutput() throws Exception {
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.commitOutput(output, "旧版本");
+        }
+
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            // Markdown 文件的位置被目录占用，写入失败
+            Files.createDirectories(Paths.get(output.getDirectory(), "文档.md"));
+            assertThatThrownBy(() -> fileManager.commitOutput(output, "新版本"))
+                .isInstanceOf(FileOperationException.class);
+        }
+
+        assertThat(baseDir.resolve("文档/文档.md")).hasContent("旧版本");
+        assertThat(children(baseDir.resolve(".staging"))).isZero();
+    }
+
+    @Test
+    void closingUncommittedOutputDiscardsIt() throws Exception {
+        Path staging;
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            staging = Paths.get(output.getDirectory());
+            fileManager.writeFile(staging.resolve("images/image_001.png").toString(), new byte[]{1});
+            Files.writeString(staging.resolve("partial.md"), "写了一半", StandardCharsets.UTF_8);
+        }
+
+        assertThat(staging).doesNotExist();
+        assertThat(baseDir.resolve("文档")).doesNotExist();
+    }
+
+    @Test
+    void commitTwiceIsRejected() {
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.commitOutput(output, "内容");
+            assertThatThrownBy(() -> fileManager.commitOutput(output, "内容"))
+                .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    static long children(Path dir) throws Exception {
+        if (!Files.exists(dir)) {
+            return 0;
+        }
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.count();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.model.ContentTag;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.support.DocumentShape;
+import com.dingtalk.doc.support.NoopImageHttpClient;
+import com.dingtalk.doc.support.SyntheticDocument;
+import com.dingtalk.doc.support.SyntheticDocumentGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Markdown 对照测试：ContentDocument 事件渲染的输出与原 JsonNode 实现逐字节一致
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class MarkdownParityTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final MarkdownGenerator generator =
+        new MarkdownGenerator(new NoopImageHttpClient(), new ParseMetrics(new SimpleMeterRegistry()));
+
+    private final JsonNodeMarkdownGenerator legacy = new JsonNodeMarkdownGenerator();
+
+    @Test
+    void recordedDocumentData() throws Exception {
+        String documentData = fixture("document-data.json");
+        String contentJson = MAPPER.readTree(documentData)
+            .path("data").path("documentContent").path("checkpoint").path("content").asText();
+        JsonNode content = MAPPER.readTree(contentJson);
+
+        // 解析接口实际走的路径：从 document_data 流式读取内容
+        DocumentParser parser = new DocumentParser(null, MAPPER, new ParseMetrics(new SimpleMeterRegistry()));
+        ContentDocument extracted = parser.extractDocumentContent(documentData);
+
+        String expected = assertParity(content, extracted, "接口说明");
+        assertThat(expected).contains("| **接口** | **方法** | **说明** |", "[《接口设计说明》]", "![架构图](./images/image_001.png)");
+        assertParity(content, ContentDocument.from(content), "接口说明");
+    }
+
+    @Test
+    void syntheticDocuments() throws Exception {
+        for (long seed = 1; seed <= 20; seed++) {
+            SyntheticDocumentGenerator documents = new SyntheticDocumentGenerator(seed);
+            for (DocumentShape shape : List.of(DocumentShape.balanced(16 * 1024),
+                                               DocumentShape.tableHeavy(16 * 1024),
+                                               DocumentShape.textOnly(8 * 1024))) {
+                SyntheticDocument document = documents.generate(shape);
+                JsonNode content = document.getContent();
+                assertParity(content, ContentDocument.from(content), document.getTitle());
+                assertParity(content, ContentDocument.read(MAPPER.createParser(document.contentJson())),
+                    document.getTitle());
+            }
+        }
+    }
+
+    @Test
+    void unknownTags() throws Exception {
+        // 预置字典之外的标签：正文、段落、列表、引用块、标题和单元格中各放一些
+        String contentJson = content(
+            "['hr',{}]",
+            "['callout',{},['p',{},['span',{},'提示内容']]]",
+            "['h7',{},['span',{},'不是标题']]",
+            "['',{},'空标签']",
+            "['p',{},['span',{},'前'],['mention',{'uid':'1'},'@张三'],['em',{},'斜体'],'后']",
+            "['p',{'list':{'level':0}},['span',{},'列表'],['emoji',{},'😀']]",
+            "['ul',{},['li',{},['mark',{},'高亮']],['item',{},'跳过']]",
+            "['blockquote',{},['div',{},['span',{},'引用']],['p',{},['span',{},'保留']]]",
+            "['h2',{},['sup',{},'1'],['span',{'bold':true},'标题']]",
+            "['table',{},['tr',{},['tc',{},['div',{},'格']],['td',{},'格'],['tc',{},['p',{},['sub',{},'下标'],'文本']]]]");
+        JsonNode content = MAPPER.readTree(contentJson);
+        ContentDocument document = ContentDocument.from(content);
+
+        int callout = document.nextSibling(document.firstChild(document.getBody()));
+        assertThat(document.tag(callout)).isEqualTo("callout");
+        assertThat(document.tagCode(callout)).isEqualTo(ContentTag.OTHER);
+
+        String markdown = assertParity(content, document, "未知标签");
+        assertParity(content, ContentDocument.read(MAPPER.createParser(contentJson)), "未知标签");
+        assertThat(markdown).contains("前后", "## 标题", "> 保留").doesNotContain("提示内容", "不是标题", "@张三");
+    }
+
+    @Test
+    void mergedCells() throws Exception {
+        // 合并单元格只是 tc 上的属性，被合并掉的单元格不出现在后续行中，各行的单元格数因此不同
+        String contentJson = content(
+            "['table',{'colsWidth':[100,100,100]},"
+                + "['tr',{},['tc',{'colSpan':2},['p',{},['span',{'bold':true},'合并表头']]],['tc',{},['p',{},'说明']]],"
+                + "['tr',{},['tc',{'rowSpan':2},['p',{},'跨两行']],['tc',{},['p',{},'a']],['tc',{},['p',{},'b']]],"
+                + "['tr',{},['tc',{},['p',{},'c']],['tc',{},['p',{},'d']]],"
+                + "['tr',{},['tc',{},['p',{},'1']],['tc',{},['p',{},'2']],['tc',{},['p',{},'3']],['tc',{},['p',{},'4']]]]",
+            "['table',{},['tr',{}],['tr',{},['td',{},'不是单元格']],"
+                + "['tr',{},['tc',{'colSpan':3},['p',{},'首个有单元格的行作为表头']]],"
+                + "['tr',{},['tc',{}],['tc',{},['p',{}]],['tc',{},['p',{},'x']]]]",
+            "['table',{},['tr',{},['td',{},'没有有效行']]]",
+            "['p',{},['span',{},'表格之间']]",
+            "['table',{},['tr',{},['tc',{},['p',{},'末尾表格']]]]");
+
+        JsonNode content = MAPPER.readTree(contentJson);
+        String markdown = assertParity(content, ContentDocument.from(content), "合并单元格");
+        assertParity(content, ContentDocument.read(MAPPER.createParser(contentJson)), "合并单元格");
+        assertThat(markdown).contains("| **合并表头** | 说明 |\n| --- | --- |\n| 跨两行 | a | b |\n| c | d |\n");
+        assertThat(markdown).contains("| 首个有单元格的行作为表头 |\n| --- |\n|  |  | x |");
+        assertThat(markdown).endsWith("| 末尾表格 |\n| --- |");
+    }
+
+    @Test
+    void cellsWithNewlinesAndPipes() throws Exception {
+        String contentJson = content(
+            "['table',{},"
+                + "['tr',{},['tc',{},['p',{},'列|名']],['tc',{},['p',{},['span',{'bold':true},'多\\n行']]]],"
+                + "['tr',{},['tc',{},['p',{},'\\n  首尾空白  \\n']],['tc',{},['p',{},'a | b \\\\| c']]],"
+                + "['tr',{},['tc',{},['p',{},'第一段'],['p',{},'第二段\\n']],['tc',{},['p',{},'回车\\r\\n换行']]],"
+                + "['tr',{},['tc',{},['p',{},' ']],['tc',{},['p',{},['span',{},'\\n'],['span',{},'x\\n\\ny']]]]]");
+
+        JsonNode content = MAPPER.readTree(contentJson);
+        String markdown = assertParity(content, ContentDocument.from(content), "单元格换行");
+        assertParity(content, ContentDocument.read(MAPPER.createParser(contentJson)), "单元格换行");
+        // 单元格中的换行替换为空格，竖线原样保留
+        assertThat(markdown).contains("| 列|名 | **多 行** |", "| 首尾空白 | a | b \\| c |", "| 第一段第二段 |",
+            "|  | x  y |");
+    }
+
+    /**
+     * 用单引号书写的 body 元素拼成 main/parts/body 结构的内容 JSON
+     */
+    private static String content(String... elements) {
+        String body = String.join(",", elements).replace('\'', '"');
+        return "{\"main\":\"m\",\"parts\":{\"m\":{\"data\":{\"body\":[\"root\",{}," + body + "]}}}}";
+    }
+
+    /**
+     * 两种实现渲染同一文档，Markdown 和图片保存顺序都相同
+     *
+     * @return 渲染出的 Markdown
+     */
+    private String assertParity(JsonNode content, ContentDocument document, String title) {
+        List<String> legacyImages = new ArrayList<>();
+        String expected = legacy.generateMarkdown(content, title,
+            (src, relativePath) -> legacyImages.add(src + " -> " + relativePath));
+
+        List<String> images = new ArrayList<>();
+        String actual = generator.generateMarkdown(document, title,
+            (src, relativePath) -> images.add(src + " -> " + relativePath));
+
+        assertThat(actual).as(title).isEqualTo(expected);
+        assertThat(images).as(title).isEqualTo(legacyImages);
+        return expected;
+    }
+
+    private static String fixture(String name) throws Exception {
+        try (InputStream in = MarkdownParityTest.class.getResourceAsStream("/fixtures/" + name)) {
+            assertThat(in).as(name).isNotNull();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
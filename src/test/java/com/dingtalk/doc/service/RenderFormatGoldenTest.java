@@ -0,0 +1,128 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.model.ContentDocument;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.render.RenderFormat;
+import com.dingtalk.doc.service.render.RenderOptions;
+import com.dingtalk.doc.support.DocumentShape;
+import com.dingtalk.doc.support.NoopImageHttpClient;
+import com.dingtalk.doc.support.SyntheticDocument;
+import com.dingtalk.doc.support.SyntheticDocumentGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 多格式输出测试：HTML、纯文本、JSON AST 和分块与 golden 文件一致，
+ * 同时输出多种格式时每种格式的结果与单独渲染相同，Markdown 与原 JsonNode 实现相同
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class RenderFormatGoldenTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TITLE = "对照文档";
+
+    private final MarkdownGenerator generator =
+        new MarkdownGenerator(new NoopImageHttpClient(), new ParseMetrics(new SimpleMeterRegistry()));
+
+    private final RenderOptions options = new RenderOptions("node", 40, 8);
+
+    @Test
+    void htmlMatchesGolden() throws Exception {
+        assertThat(renderGolden(RenderFormat.HTML)).isEqualTo(resource("golden/document.html"));
+    }
+
+    @Test
+    void textMatchesGolden() throws Exception {
+        assertThat(renderGolden(RenderFormat.TEXT)).isEqualTo(resource("golden/document.txt"));
+    }
+
+    @Test
+    void jsonAstMatchesGolden() throws Exception {
+        JsonNode ast = MAPPER.readTree(renderGolden(RenderFormat.JSON));
+        assertThat(ast).isEqualTo(MAPPER.readTree(resource("golden/document.json")));
+    }
+
+    @Test
+    void chunksMatchGolden() throws Exception {
+        assertThat(renderGolden(RenderFormat.CHUNKS)).isEqualTo(resource("golden/document.chunks.jsonl"));
+    }
+
+    @Test
+    void streamedChunksMatchGolden() throws Exception {
+        ContentDocument document = ContentDocument.from(MAPPER.readTree(resource("golden/content.json")));
+        StringWriter chunks = new StringWriter();
+
+        Map<RenderFormat, String> results = generator.render(document, TITLE, (src, path) -> { },
+            EnumSet.of(RenderFormat.MARKDOWN, RenderFormat.CHUNKS), options, chunks);
+        // 分块直接写到输出，不在结果中
+        assertThat(results).containsOnlyKeys(RenderFormat.MARKDOWN);
+        assertThat(chunks.toString()).isEqualTo(resource("golden/document.chunks.jsonl"));
+    }
+
+    @Test
+    void multiFormatMarkdownMatchesJsonNodeImplementation() throws Exception {
+        JsonNode content = MAPPER.readTree(resource("golden/content.json"));
+        String expected = new JsonNodeMarkdownGenerator().generateMarkdown(content, TITLE, (src, path) -> { });
+
+        Map<RenderFormat, String> results = generator.render(ContentDocument.from(content), TITLE,
+            (src, path) -> { }, EnumSet.allOf(RenderFormat.class), options);
+        assertThat(results.get(RenderFormat.MARKDOWN)).isEqualTo(expected);
+    }
+
+    @Test
+    void compositeMatchesSingleFormatRenders() throws Exception {
+        assertCompositeMatches(ContentDocument.from(MAPPER.readTree(resource("golden/content.json"))), TITLE);
+
+        for (long seed = 1; seed <= 5; seed++) {
+            SyntheticDocumentGenerator documents = new SyntheticDocumentGenerator(seed);
+            for (DocumentShape shape : List.of(DocumentShape.balanced(16 * 1024), DocumentShape.tableHeavy(16 * 1024))) {
+                SyntheticDocument document = documents.generate(shape);
+                assertCompositeMatches(ContentDocument.from(document.getContent()), document.getTitle());
+            }
+        }
+    }
+
+    /**
+     * 一次遍历输出全部格式，与逐个格式单独渲染的结果相同，图片只保存一次
+     */
+    private void assertCompositeMatches(ContentDocument document, String title) {
+        List<String> images = new ArrayList<>();
+        Map<RenderFormat, String> all = generator.render(document, title, (src, path) -> images.add(path),
+            EnumSet.allOf(RenderFormat.class), options);
+        assertThat(all).containsOnlyKeys(RenderFormat.values());
+
+        for (RenderFormat format : RenderFormat.values()) {
+            List<String> singleImages = new ArrayList<>();
+            Map<RenderFormat, String> single = generator.render(document, title, (src, path) -> singleImages.add(path),
+                EnumSet.of(format), options);
+            assertThat(all.get(format)).as(title + " " + format).isEqualTo(single.get(format));
+            assertThat(images).as(title + " " + format).isEqualTo(singleImages);
+        }
+    }
+
+    private String renderGolden(RenderFormat format) throws Exception {
+        ContentDocument document = ContentDocument.from(MAPPER.readTree(resource("golden/content.json")));
+        return generator.render(document, TITLE, (src, path) -> { }, EnumSet.of(format), options).get(format);
+    }
+
+    private static String resource(String name) throws Exception {
+        try (InputStream in = RenderFormatGoldenTest.class.getResourceAsStream("/" + name)) {
+            assertThat(in).as(name).isNotNull();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.dingtalk.doc.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 相同请求合并执行测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersWithSameKeyRunActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        AtomicInteger shared = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = submitAll(() -> singleFlight.execute("doc", () -> {
+            runs.incrementAndGet();
+            await(release);
+            return "result";
+        }, shared::incrementAndGet), shared);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        }
+        assertThat(runs).hasValue(1);
+        assertThat(shared).hasValue(CALLERS - 1);
+    }
+
+    @Test
+    void leaderExceptionReachesEveryFollower() throws Exception {
+        AtomicInteger shared = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("上游不可用");
+
+        List<Future<String>> results = submitAll(() -> singleFlight.execute("doc", () -> {
+            await(release);
+            throw failure;
+        }, shared::incrementAndGet), shared);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            // 跟随者收到的是执行者抛出的同一个异常，不是 CompletionException
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isSameAs(failure);
+        }
+    }
+
+    @Test
+    void keyIsReleasedAfterCompletion() {
+        AtomicInteger runs = new AtomicInteger();
+        Runnable notShared = () -> {
+            throw new AssertionError("执行结束后的请求不应合并");
+        };
+
+        assertThat(singleFlight.execute("doc", () -> "first-" + runs.incrementAndGet(), notShared)).isEqualTo("first-1");
+        assertThat(singleFlight.execute("doc", () -> "first-" + runs.incrementAndGet(), notShared)).isEqualTo("first-2");
+
+        // 失败后同样释放
+        assertThatThrownBy(() -> singleFlight.execute("doc", () -> {
+            throw new IllegalStateException("失败");
+        }, notShared)).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute("doc", () -> "again", notShared)).isEqualTo("again");
+    }
+
+    @Test
+    void differentKeysRunIndependently() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Future<String> a = executor.submit(() -> singleFlight.execute("a", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return "a";
+        }, () -> { }));
+        Future<String> b = executor.submit(() -> singleFlight.execute("b", () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+            return "b";
+        }, () -> { }));
+
+        assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+        assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+    }
+
+    /**
+     * 提交 CALLERS 个调用，等到除执行者之外的调用都已合并
+     */
+    private List<Future<String>> submitAll(Callable<String> call, AtomicInteger shared)
+            throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(call));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (shared.get() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
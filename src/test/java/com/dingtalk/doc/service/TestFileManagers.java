@@ -0,0 +1,20 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.config.WriteBehindConfig;
+
+import java.nio.file.Path;
+
+/**
+ * 供其它包的测试创建文件管理器（同步写入、不带检索索引）
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public final class TestFileManagers {
+
+    private TestFileManagers() {
+    }
+
+    public static FileManager create(Path baseDir) {
+        return FileManagerTest.newFileManager(baseDir, new WriteBehindConfig());
+    }
+}
@@ -0,0 +1,258 @@
+package com.dingtalk.doc.service;
+
+import com.dingtalk.doc.config.WriteBehindConfig;
+import com.dingtalk.doc.exception.FileOperationException;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 输出异步写入队列测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class WriteBehindQueueTest {
+
+    @TempDir
+    Path baseDir;
+
+    private final List<WriteBehindQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        queues.forEach(WriteBehindQueue::shutdown);
+    }
+
+    @Test
+    void tasksWithSameKeyRunInSubmissionOrder() throws Exception {
+        WriteBehindQueue queue = newQueue(4, 16);
+        Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "doc-" + (i % 7);
+            int sequence = i;
+            queue.submit(key, "任务 " + i,
+                () -> executed.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence),
+                () -> { });
+        }
+
+        assertThat(queue.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(executed).hasSize(7);
+        executed.values().forEach(sequences -> assertThat(sequences).isSorted());
+        assertThat(executed.values().stream().mapToInt(List::size).sum()).isEqualTo(500);
+    }
+
+    @Test
+    void flushWaitsForEarlierTasksOnly() throws Exception {
+        WriteBehindQueue queue = newQueue(2, 16);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        queue.submit("slow", "慢任务", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.incrementAndGet();
+        }, () -> { });
+
+        // 前面的任务未完成时 flush 超时
+        assertThat(queue.flush(Duration.ofMillis(100))).isFalse();
+
+        release.countDown();
+        assertThat(queue.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(done).hasValue(1);
+    }
+
+    @Test
+    void flushReturnsImmediatelyWhenDisabled() throws Exception {
+        WriteBehindQueue queue = new WriteBehindQueue(new WriteBehindConfig(), new ParseMetrics(new SimpleMeterRegistry()));
+        AtomicInteger done = new AtomicInteger();
+        queue.submit("doc", "同步任务", done::incrementAndGet, () -> { });
+
+        // 未开启时在调用线程上直接执行
+        assertThat(done).hasValue(1);
+        assertThat(queue.flush(Duration.ZERO)).isTrue();
+    }
+
+    @Test
+    void zeroThreadsFallsBackToOne() throws Exception {
+        WriteBehindQueue queue = newQueue(0, 16);
+        AtomicInteger done = new AtomicInteger();
+        queue.submit("doc", "任务", done::incrementAndGet, () -> { });
+
+        assertThat(queue.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(done).hasValue(1);
+    }
+
+    @Test
+    void failedImageWritePreventsCommit() throws Exception {
+        WriteBehindConfig config = writeBehindConfig(2, 16);
+        FileManager fileManager = FileManagerTest.newFileManager(baseDir, config);
+        queues.add((WriteBehindQueue) ReflectionTestUtils.getField(fileManager, "writeQueue"));
+
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.commitOutput(output, "旧版本");
+        }
+        assertThat(fileManager.flush(Duration.ofSeconds(5))).isTrue();
+
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            // images 被同名文件占用，图片写入在 I/O 线程上失败
+            Files.writeString(Paths.get(output.getDirectory(), "images"), "");
+            fileManager.writeFile(Paths.get(output.getDirectory(), "images", "image_001.png").toString(), new byte[]{1});
+            fileManager.commitOutput(output, "新版本");
+        }
+        assertThat(fileManager.flush(Duration.ofSeconds(5))).isTrue();
+
+        // 放弃整个提交，旧输出保留，临时目录被清理
+        assertThat(baseDir.resolve("文档/文档.md")).hasContent("旧版本");
+        assertThat(FileManagerTest.children(baseDir.resolve(".staging"))).isZero();
+        assertThat((Set<?>) ReflectionTestUtils.getField(fileManager, "failedOutputs"))
+            .isEmpty();
+    }
+
+    @Test
+    void submitFailsWhenQueueStaysFull() throws Exception {
+        WriteBehindConfig config = writeBehindConfig(1, 1);
+        config.setEnqueueTimeout(100);
+        WriteBehindQueue queue = newQueue(config);
+        CountDownLatch release = block(queue);
+        try {
+            // 队列容量为 1，I/O 线程卡住时第二个任务等待超时
+            queue.submit("doc", "排队", () -> { }, () -> { });
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> queue.submit("doc", "超时", () -> { }, () -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("输出队列已满");
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+            // flush 放入标记的等待也不超过它的时限
+            start = System.nanoTime();
+            assertThat(queue.flush(Duration.ofMillis(100))).isFalse();
+            assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+        }
+        assertThat(queue.flush(Duration.ofSeconds(5))).isTrue();
+    }
+
+    @Test
+    void interruptedSubmitFails() throws Exception {
+        WriteBehindQueue queue = newQueue(writeBehindConfig(1, 1));
+        CountDownLatch release = block(queue);
+        try {
+            queue.submit("doc", "排队", () -> { }, () -> { });
+            Thread.currentThread().interrupt();
+            assertThatThrownBy(() -> queue.submit("doc", "中断", () -> { }, () -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("被中断");
+            assertThat(Thread.interrupted()).isTrue();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void enqueueTimeoutAbandonsStagedOutput() throws Exception {
+        WriteBehindConfig config = writeBehindConfig(1, 1);
+        config.setEnqueueTimeout(100);
+        FileManager fileManager = FileManagerTest.newFileManager(baseDir, config);
+        WriteBehindQueue queue = (WriteBehindQueue) ReflectionTestUtils.getField(fileManager, "writeQueue");
+        queues.add(queue);
+
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            fileManager.commitOutput(output, "旧版本");
+        }
+        assertThat(fileManager.flush(Duration.ofSeconds(5))).isTrue();
+
+        try (FileManager.StagedOutput output = fileManager.stageOutput("文档")) {
+            CountDownLatch release = block(queue);
+            try {
+                queue.submit("other", "排队", () -> { }, () -> { });
+                assertThatThrownBy(() -> fileManager.writeFile(
+                        Paths.get(output.getDirectory(), "images", "image_001.png").toString(), new byte[]{1}))
+                    .isInstanceOf(FileOperationException.class)
+                    .hasMessageContaining("输出队列已满");
+            } finally {
+                release.countDown();
+            }
+            fileManager.commitOutput(output, "新版本");
+        }
+        assertThat(fileManager.flush(Duration.ofSeconds(5))).isTrue();
+
+        // 缺图片的输出不提交，失败记录随提交移除
+        assertThat(baseDir.resolve("文档/文档.md")).hasContent("旧版本");
+        assertThat((Set<?>) ReflectionTestUtils.getField(fileManager, "failedOutputs")).isEmpty();
+    }
+
+    @Test
+    void failedWriteOutsideStagingIsNotRecorded() throws Exception {
+        FileManager fileManager = FileManagerTest.newFileManager(baseDir, writeBehindConfig(2, 16));
+        queues.add((WriteBehindQueue) ReflectionTestUtils.getField(fileManager, "writeQueue"));
+
+        // 目标目录被同名文件占用，写入在 I/O 线程上失败
+        Files.writeString(baseDir.resolve("plain"), "");
+        fileManager.writeFile(baseDir.resolve("plain").resolve("a.png").toString(), new byte[]{1});
+        assertThat(fileManager.flush(Duration.ofSeconds(5))).isTrue();
+
+        // 不属于任何临时输出，没有提交或清理会移除它，因此不记录
+        assertThat((Set<?>) ReflectionTestUtils.getField(fileManager, "failedOutputs")).isEmpty();
+    }
+
+    /**
+     * 让唯一的 I/O 线程卡在一个任务上，直到返回的 latch 被释放
+     */
+    private static CountDownLatch block(WriteBehindQueue queue) throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.submit("blocker", "阻塞", () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> { });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private WriteBehindQueue newQueue(WriteBehindConfig config) {
+        WriteBehindQueue queue = new WriteBehindQueue(config, new ParseMetrics(new SimpleMeterRegistry()));
+        queues.add(queue);
+        return queue;
+    }
+
+    private WriteBehindQueue newQueue(int threads, int capacity) {
+        return newQueue(writeBehindConfig(threads, capacity));
+    }
+
+    private static WriteBehindConfig writeBehindConfig(int threads, int capacity) {
+        WriteBehindConfig config = new WriteBehindConfig();
+        config.setEnabled(true);
+        config.setThreads(threads);
+        config.setQueueCapacity(capacity);
+        config.setShutdownTimeout(1000);
+        return config;
+    }
+}
@@ -0,0 +1,252 @@
+package com.dingtalk.doc.service.api;
+
+import com.dingtalk.doc.config.WorkspaceIndexConfig;
+import com.dingtalk.doc.model.DocNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 知识库节点树索引测试：同步、持久化与加载、损坏的索引文件、重新同步和失败时保留旧快照
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class WorkspaceTreeIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private final StubWorkspaceService workspaceService = new StubWorkspaceService();
+
+    private final List<WorkspaceTreeIndex> indexes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        workspaceService.put(node("f1", "产品", "folder", 50), null);
+        workspaceService.put(node("d1", "需求", "file", 100), "f1");
+        workspaceService.put(node("f2", "设计", "folder", 60), "f1");
+        workspaceService.put(node("d2", "PRD", "file", 300), "f2");
+        workspaceService.put(node("d3", "README", "file", 200), null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexes.forEach(WorkspaceTreeIndex::close);
+    }
+
+    @Test
+    void syncWalksEveryLevel() {
+        WorkspaceTreeIndex index = newIndex();
+
+        WorkspaceTree tree = index.getOrSync("ws");
+        assertThat(tree.size()).isEqualTo(5);
+        // 开放平台返回的子节点没有 parentId，按所在层级补上
+        assertThat(tree.resolve("/产品/设计/PRD").getNodeId()).isEqualTo("d2");
+        assertThat(tree.getNode("d2").getParentId()).isEqualTo("f2");
+        assertThat(workspaceService.requests).containsExactly("", "f1", "f2");
+
+        // 已索引时不再访问开放平台
+        assertThat(index.getOrSync("ws")).isSameAs(tree);
+        assertThat(index.getTree("ws")).isSameAs(tree);
+        assertThat(workspaceService.requests).hasSize(3);
+    }
+
+    @Test
+    void persistedTreeIsLoadedOnStartup() {
+        WorkspaceTree synced = newIndex().sync("ws");
+        int requests = workspaceService.requests.size();
+
+        WorkspaceTreeIndex restarted = newIndex();
+        WorkspaceTree loaded = restarted.getTree("ws");
+        assertThat(loaded).isNotNull();
+        assertThat(loaded.getSyncedAt()).isEqualTo(synced.getSyncedAt());
+        assertThat(loaded.pathOf("d2")).isEqualTo("/产品/设计/PRD");
+        assertThat(loaded.changedSince(0)).isEqualTo(synced.changedSince(0));
+        assertThat(workspaceService.requests).hasSize(requests);
+    }
+
+    @Test
+    void corruptOrPartialIndexFileIsIgnored() throws Exception {
+        newIndex().sync("ws");
+        newIndex().sync("other");
+        Path wsFile = treeFile("ws");
+        Path otherFile = treeFile("other");
+
+        Files.write(wsFile, "not an index".getBytes());
+        byte[] valid = Files.readAllBytes(otherFile);
+        Files.write(otherFile, Arrays.copyOf(valid, valid.length / 2));
+        // 临时文件不是索引
+        Files.write(indexDir.resolve(wsFile.getFileName() + ".tmp"), new byte[]{1, 2, 3});
+
+        WorkspaceTreeIndex restarted = newIndex();
+        assertThat(restarted.getTree("ws")).isNull();
+        assertThat(restarted.getTree("other")).isNull();
+
+        // 下次访问时重新同步并覆盖损坏的文件
+        assertThat(restarted.getOrSync("ws").size()).isEqualTo(5);
+        assertThat(newIndex().getTree("ws")).isNotNull();
+    }
+
+    @Test
+    void resyncReplacesSubtrees() throws Exception {
+        WorkspaceTreeIndex index = newIndex();
+        WorkspaceTree first = index.sync("ws");
+        Thread.sleep(5);
+
+        // "设计"移到新的顶层目录下，"需求"被删除
+        workspaceService.remove("d1");
+        workspaceService.put(node("f3", "归档", "folder", 70), null);
+        workspaceService.move("f2", "f3");
+
+        WorkspaceTree second = index.sync("ws");
+        assertThat(index.getTree("ws")).isSameAs(second);
+        assertThat(second.resolve("/归档/设计/PRD").getNodeId()).isEqualTo("d2");
+        assertThat(second.resolve("/产品/设计")).isNull();
+        assertThat(second.children("f1")).isEmpty();
+
+        // 增量查询：移动的目录和新目录在本次同步时变化，子节点本身没有变化
+        assertThat(second.changedSince(first.getSyncedAt()))
+            .extracting(DocNode::getNodeId).containsExactlyInAnyOrder("f2", "f3");
+        assertThat(second.deletedSince(first.getSyncedAt()))
+            .extracting(WorkspaceTree.Tombstone::getNodeId, WorkspaceTree.Tombstone::getPath)
+            .containsExactly(tuple("d1", "/产品/需求"));
+
+        // 重启后删除记录仍在
+        WorkspaceTree reloaded = newIndex().getTree("ws");
+        assertThat(reloaded.deletedSince(first.getSyncedAt())).hasSize(1);
+        assertThat(reloaded.resolve("/归档/设计/PRD").getNodeId()).isEqualTo("d2");
+    }
+
+    @Test
+    void failedLevelKeepsPreviousSnapshot() {
+        WorkspaceTreeIndex index = newIndex();
+        WorkspaceTree first = index.sync("ws");
+
+        // 某一层失败时不能把整棵子树当作已删除
+        workspaceService.failing.add("f2");
+        assertThatThrownBy(() -> index.sync("ws")).hasMessageContaining("接口失败");
+        index.reconcile();
+        assertThat(index.getTree("ws")).isSameAs(first);
+        assertThat(newIndex().getTree("ws").getSyncedAt()).isEqualTo(first.getSyncedAt());
+
+        workspaceService.failing.clear();
+        index.reconcile();
+        assertThat(index.getTree("ws")).isNotSameAs(first);
+        assertThat(index.getTree("ws").deletedSince(0)).isEmpty();
+    }
+
+    @Test
+    void disabledIndexDoesNothing() {
+        WorkspaceIndexConfig config = config();
+        config.setEnabled(false);
+        WorkspaceTreeIndex index = new WorkspaceTreeIndex(workspaceService, config);
+        index.load();
+
+        assertThat(index.getOrSync("ws")).isNull();
+        assertThat(index.sync("ws")).isNull();
+        assertThat(workspaceService.requests).isEmpty();
+    }
+
+    private WorkspaceTreeIndex newIndex() {
+        WorkspaceTreeIndex index = new WorkspaceTreeIndex(workspaceService, config());
+        index.load();
+        indexes.add(index);
+        return index;
+    }
+
+    private WorkspaceIndexConfig config() {
+        WorkspaceIndexConfig config = new WorkspaceIndexConfig();
+        config.setDir(indexDir.toString());
+        return config;
+    }
+
+    private Path treeFile(String workspaceId) throws Exception {
+        String name = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(workspaceId.getBytes(StandardCharsets.UTF_8)) + ".tree";
+        try (Stream<Path> files = Files.list(indexDir)) {
+            assertThat(files.map(file -> file.getFileName().toString())).contains(name);
+        }
+        return indexDir.resolve(name);
+    }
+
+    private static DocNode node(String nodeId, String name, String type, long modifiedTime) {
+        DocNode node = new DocNode();
+        node.setNodeId(nodeId);
+        node.setName(name);
+        node.setType(type);
+        node.setModifiedTime(modifiedTime);
+        node.setHasChildren("folder".equals(type));
+        return node;
+    }
+
+    /**
+     * 内存中的知识库，按层返回节点
+     */
+    private static final class StubWorkspaceService extends DingTalkWorkspaceService {
+
+        private final Map<String, DocNode> nodes = new LinkedHashMap<>();
+        private final Map<String, String> parents = new LinkedHashMap<>();
+        private final Set<String> failing = new HashSet<>();
+        private final List<String> requests = new ArrayList<>();
+
+        StubWorkspaceService() {
+            super(null, null);
+        }
+
+        void put(DocNode node, String parentId) {
+            nodes.put(node.getNodeId(), node);
+            parents.put(node.getNodeId(), parentId);
+        }
+
+        void move(String nodeId, String parentId) {
+            parents.put(nodeId, parentId);
+        }
+
+        void remove(String nodeId) {
+            nodes.remove(nodeId);
+            parents.remove(nodeId);
+        }
+
+        @Override
+        public List<DocNode> getNodes(String workspaceId, String parentNodeId) {
+            String key = parentNodeId == null ? "" : parentNodeId;
+            requests.add(key);
+            if (failing.contains(key)) {
+                throw new RuntimeException("接口失败: " + key);
+            }
+            List<DocNode> result = new ArrayList<>();
+            parents.forEach((nodeId, parentId) -> {
+                if (key.equals(parentId == null ? "" : parentId)) {
+                    // 每次返回新对象，和真实接口一样子节点不带 parentId
+                    DocNode source = nodes.get(nodeId);
+                    DocNode copy = new DocNode();
+                    copy.setNodeId(source.getNodeId());
+                    copy.setName(source.getName());
+                    copy.setType(source.getType());
+                    copy.setModifiedTime(source.getModifiedTime());
+                    copy.setHasChildren(source.getHasChildren());
+                    result.add(copy);
+                }
+            });
+            return result;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.dingtalk.doc.service.api;
+
+import com.dingtalk.doc.model.DocNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 知识库节点树快照测试：路径解析、变化时间、删除记录和文件格式
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class WorkspaceTreeTest {
+
+    private static final long RETENTION = 10_000;
+
+    @Test
+    void resolvesPathsAndChildren() {
+        WorkspaceTree tree = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+
+        assertThat(tree.size()).isEqualTo(5);
+        assertThat(tree.resolve("/产品/设计/PRD").getNodeId()).isEqualTo("d2");
+        assertThat(tree.resolve("产品/需求/").getNodeId()).isEqualTo("d1");
+        assertThat(tree.resolve("//README").getNodeId()).isEqualTo("d3");
+        assertThat(tree.resolve("/产品/不存在")).isNull();
+        assertThat(tree.resolve("/设计")).isNull();
+        assertThat(tree.resolve("/")).isNull();
+
+        assertThat(tree.pathOf("d2")).isEqualTo("/产品/设计/PRD");
+        assertThat(tree.pathOf("f1")).isEqualTo("/产品");
+        assertThat(tree.pathOf("missing")).isNull();
+
+        assertThat(ids(tree.children(null))).containsExactly("f1", "d3");
+        assertThat(ids(tree.children(""))).containsExactly("f1", "d3");
+        assertThat(ids(tree.children("f1"))).containsExactly("d1", "f2");
+        assertThat(tree.children("d1")).isEmpty();
+
+        DocNode node = tree.getNode("d2");
+        assertThat(node.getWorkspaceId()).isEqualTo("ws");
+        assertThat(node.getParentId()).isEqualTo("f2");
+        assertThat(node.getModifiedTime()).isEqualTo(300L);
+        assertThat(tree.getNode("missing")).isNull();
+    }
+
+    @Test
+    void duplicateNamesResolveToFirst() {
+        List<DocNode> nodes = new ArrayList<>(sample());
+        nodes.add(node("d4", "f1", "需求", "file", 400));
+
+        WorkspaceTree tree = WorkspaceTree.build("ws", nodes, null, 1000, RETENTION);
+        assertThat(tree.resolve("/产品/需求").getNodeId()).isEqualTo("d1");
+        assertThat(ids(tree.children("f1"))).containsExactly("d1", "f2", "d4");
+    }
+
+    @Test
+    void nodeWithMissingParentIsTopLevel() {
+        List<DocNode> nodes = new ArrayList<>(sample());
+        nodes.add(node("orphan", "gone", "孤儿", "file", 10));
+
+        WorkspaceTree tree = WorkspaceTree.build("ws", nodes, null, 1000, RETENTION);
+        assertThat(ids(tree.children(null))).containsExactly("f1", "d3", "orphan");
+        assertThat(tree.pathOf("orphan")).isEqualTo("/孤儿");
+    }
+
+    @Test
+    void firstBuildUsesModifiedTime() {
+        WorkspaceTree tree = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+
+        assertThat(ids(tree.changedSince(0))).containsExactly("f1", "f2", "d1", "d3", "d2");
+        // since 不含
+        assertThat(ids(tree.changedSince(100))).containsExactly("d3", "d2");
+        assertThat(tree.changedSince(300)).isEmpty();
+        assertThat(tree.deletedSince(0)).isEmpty();
+    }
+
+    @Test
+    void rebuildRecordsChangesAndTombstones() {
+        WorkspaceTree first = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+
+        // 改名 d1，删除整个"设计"子树，新增一个修改时间早于同步时间的 d4
+        List<DocNode> nodes = List.of(
+            node("f1", null, "产品", "folder", 50),
+            node("d1", "f1", "需求 v2", "file", 100),
+            node("d4", "f1", "移入的文档", "file", 500),
+            node("d3", null, "README", "file", 200));
+        WorkspaceTree second = WorkspaceTree.build("ws", nodes, first, 2000, RETENTION);
+
+        assertThat(ids(second.changedSince(1000))).containsExactly("d1", "d4");
+        assertThat(second.getNode("d4").getModifiedTime()).isEqualTo(500L);
+        // 没有变化的节点保留原来的变化时间
+        assertThat(ids(second.changedSince(0))).containsExactly("f1", "d3", "d1", "d4");
+
+        assertThat(second.deletedSince(1000))
+            .extracting(WorkspaceTree.Tombstone::getNodeId, WorkspaceTree.Tombstone::getPath,
+                WorkspaceTree.Tombstone::getDeletedAt)
+            .containsExactlyInAnyOrder(
+                tuple("f2", "/产品/设计", 2000L),
+                tuple("d2", "/产品/设计/PRD", 2000L));
+        assertThat(second.deletedSince(2000)).isEmpty();
+        assertThat(second.resolve("/产品/设计/PRD")).isNull();
+        assertThat(second.resolve("/产品/需求 v2").getNodeId()).isEqualTo("d1");
+    }
+
+    @Test
+    void movedSubtreeKeepsChildrenUnderNewPath() {
+        WorkspaceTree first = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+
+        // "设计"移到顶层，子节点本身没有变化
+        List<DocNode> nodes = new ArrayList<>(sample());
+        nodes.set(2, node("f2", null, "设计", "folder", 60));
+        WorkspaceTree second = WorkspaceTree.build("ws", nodes, first, 2000, RETENTION);
+
+        assertThat(second.resolve("/设计/PRD").getNodeId()).isEqualTo("d2");
+        assertThat(second.resolve("/产品/设计/PRD")).isNull();
+        assertThat(ids(second.children("f1"))).containsExactly("d1");
+        assertThat(ids(second.changedSince(1000))).containsExactly("f2");
+        assertThat(second.deletedSince(0)).isEmpty();
+    }
+
+    @Test
+    void tombstonesExpireAndAreDroppedWhenNodeReturns() {
+        WorkspaceTree first = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+        List<DocNode> withoutReadme = new ArrayList<>(sample());
+        withoutReadme.removeIf(node -> node.getNodeId().equals("d3"));
+        List<DocNode> withoutPrd = new ArrayList<>(withoutReadme);
+        withoutPrd.removeIf(node -> node.getNodeId().equals("d2"));
+
+        WorkspaceTree second = WorkspaceTree.build("ws", withoutReadme, first, 2000, RETENTION);
+        WorkspaceTree third = WorkspaceTree.build("ws", withoutPrd, second, 3000, RETENTION);
+        assertThat(third.deletedSince(0)).extracting(WorkspaceTree.Tombstone::getNodeId).containsExactly("d3", "d2");
+
+        // 超过保留期的删除记录被清理
+        WorkspaceTree fourth = WorkspaceTree.build("ws", withoutPrd, third, 2000 + RETENTION + 1, RETENTION);
+        assertThat(fourth.deletedSince(0)).extracting(WorkspaceTree.Tombstone::getNodeId).containsExactly("d2");
+
+        // 节点恢复后不再报告删除
+        WorkspaceTree fifth = WorkspaceTree.build("ws", sample(), fourth, 2000 + RETENTION + 2, RETENTION);
+        assertThat(fifth.deletedSince(0)).isEmpty();
+        assertThat(ids(fifth.changedSince(2000 + RETENTION + 1))).containsExactlyInAnyOrder("d2", "d3");
+    }
+
+    @Test
+    void roundTripsThroughFileFormat() throws Exception {
+        WorkspaceTree first = WorkspaceTree.build("ws", sample(), null, 1000, RETENTION);
+        WorkspaceTree tree = WorkspaceTree.build("ws", sample().subList(0, 4), first, 2000, RETENTION);
+
+        WorkspaceTree loaded = WorkspaceTree.readFrom("ws", new DataInputStream(new ByteArrayInputStream(bytes(tree))));
+
+        assertThat(loaded.getWorkspaceId()).isEqualTo("ws");
+        assertThat(loaded.getSyncedAt()).isEqualTo(2000);
+        assertThat(loaded.size()).isEqualTo(tree.size());
+        for (DocNode node : tree.changedSince(Long.MIN_VALUE)) {
+            assertThat(loaded.getNode(node.getNodeId())).isEqualTo(node);
+            assertThat(loaded.pathOf(node.getNodeId())).isEqualTo(tree.pathOf(node.getNodeId()));
+        }
+        assertThat(ids(loaded.changedSince(0))).isEqualTo(ids(tree.changedSince(0)));
+        assertThat(ids(loaded.children("f1"))).containsExactly("d1", "f2");
+        // 空字段原样保留
+        assertThat(loaded.getNode("f1").getDocType()).isNull();
+        assertThat(loaded.getNode("f1").getUrl()).isNull();
+        assertThat(loaded.deletedSince(0))
+            .extracting(WorkspaceTree.Tombstone::getNodeId, WorkspaceTree.Tombstone::getName,
+                WorkspaceTree.Tombstone::getPath, WorkspaceTree.Tombstone::getDeletedAt)
+            .containsExactly(tuple("d3", "README", "/README", 2000L));
+    }
+
+    @Test
+    void rejectsCorruptOrPartialFile() throws Exception {
+        byte[] valid = bytes(WorkspaceTree.build("ws", sample(), null, 1000, RETENTION));
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] ^= 0x7F;
+        assertThatThrownBy(() -> read(badMagic))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("不是有效的知识库索引文件");
+
+        byte[] badVersion = valid.clone();
+        badVersion[7] = 99;
+        assertThatThrownBy(() -> read(badVersion)).hasMessageContaining("不是有效的知识库索引文件");
+
+        // 写了一半的文件
+        for (int length : new int[]{0, 6, 20, valid.length / 2, valid.length - 1}) {
+            assertThatThrownBy(() -> read(Arrays.copyOf(valid, length)))
+                .as("截断到 %d 字节", length)
+                .isInstanceOf(EOFException.class);
+        }
+    }
+
+    /**
+     * 产品/需求、产品/设计/PRD、README
+     */
+    private static List<DocNode> sample() {
+        return List.of(
+            node("f1", null, "产品", "folder", 50),
+            node("d1", "f1", "需求", "file", 100),
+            node("f2", "f1", "设计", "folder", 60),
+            node("d2", "f2", "PRD", "file", 300),
+            node("d3", "", "README", "file", 200));
+    }
+
+    private static DocNode node(String nodeId, String parentId, String name, String type, long modifiedTime) {
+        DocNode node = new DocNode();
+        node.setNodeId(nodeId);
+        node.setParentId(parentId);
+        node.setName(name);
+        node.setType(type);
+        if ("file".equals(type)) {
+            node.setDocType("doc");
+            node.setUrl("https://alidocs.dingtalk.com/i/nodes/" + nodeId);
+        }
+        node.setCreateTime(modifiedTime - 10);
+        node.setModifiedTime(modifiedTime);
+        node.setHasChildren("folder".equals(type));
+        return node;
+    }
+
+    private static List<String> ids(List<DocNode> nodes) {
+        return nodes.stream().map(DocNode::getNodeId).toList();
+    }
+
+    private static byte[] bytes(WorkspaceTree tree) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            tree.writeTo(out);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static WorkspaceTree read(byte[] data) throws IOException {
+        return WorkspaceTree.readFrom("ws", new DataInputStream(new ByteArrayInputStream(data)));
+    }
+}
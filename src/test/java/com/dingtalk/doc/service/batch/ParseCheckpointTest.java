@@ -0,0 +1,123 @@
+package com.dingtalk.doc.service.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 批量解析检查点测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class ParseCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumesAfterTruncatedLastLine() throws Exception {
+        Path file = dir.resolve("checkpoints/workspace.jsonl");
+        Files.createDirectories(file.getParent());
+        // 进程在写第二条记录时退出
+        Files.writeString(file, "{\"event\":\"done\",\"nodeId\":\"a\",\"at\":1}\n{\"event\":\"done\",\"nod",
+            StandardCharsets.UTF_8);
+
+        try (ParseCheckpoint checkpoint = ParseCheckpoint.open(file)) {
+            assertThat(checkpoint.isDone("a")).isTrue();
+            assertThat(checkpoint.doneCount()).isEqualTo(1);
+            checkpoint.markDone("b");
+        }
+
+        // 新记录从新的一行开始，不会和写了一半的行拼在一起
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).isEqualTo("{\"event\":\"done\",\"nod");
+        assertThat(lines.get(2)).startsWith("{\"event\":\"done\",\"nodeId\":\"b\"");
+
+        try (ParseCheckpoint checkpoint = ParseCheckpoint.open(file)) {
+            assertThat(checkpoint.isDone("a")).isTrue();
+            assertThat(checkpoint.isDone("b")).isTrue();
+            assertThat(checkpoint.doneCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void tracksFailuresUntilDone() throws Exception {
+        Path file = dir.resolve("workspace.jsonl");
+        long before = System.currentTimeMillis();
+        try (ParseCheckpoint checkpoint = ParseCheckpoint.open(file)) {
+            assertThat(checkpoint.getFailure("a")).isNull();
+
+            checkpoint.markFailed("a", 1, "超时");
+            checkpoint.markFailed("a", 2, "超时");
+            checkpoint.markFailed("b", 1, "图片下载失败");
+            assertThat(checkpoint.getFailure("a").getAttempts()).isEqualTo(2);
+            assertThat(checkpoint.getFailure("a").getAt()).isGreaterThanOrEqualTo(before);
+
+            // 完成后不再算失败
+            checkpoint.markDone("b");
+            assertThat(checkpoint.getFailure("b")).isNull();
+            assertThat(checkpoint.isDone("b")).isTrue();
+            assertThat(checkpoint.isDone("a")).isFalse();
+        }
+
+        // 重新打开后状态相同，失败次数和时间来自日志
+        try (ParseCheckpoint checkpoint = ParseCheckpoint.open(file)) {
+            ParseCheckpoint.Failure failure = checkpoint.getFailure("a");
+            assertThat(failure.getAttempts()).isEqualTo(2);
+            assertThat(failure.getAt()).isGreaterThanOrEqualTo(before);
+            assertThat(checkpoint.getFailure("b")).isNull();
+            assertThat(checkpoint.isDone("b")).isTrue();
+            assertThat(checkpoint.doneCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void skipsUnrecognizedLines() throws Exception {
+        Path file = dir.resolve("workspace.jsonl");
+        Files.writeString(file, "not json\n{\"event\":\"done\"}\n\n{\"event\":\"done\",\"nodeId\":\"a\",\"at\":1}\n",
+            StandardCharsets.UTF_8);
+
+        try (ParseCheckpoint checkpoint = ParseCheckpoint.open(file)) {
+            assertThat(checkpoint.isDone("a")).isTrue();
+            assertThat(checkpoint.doneCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void recordsAfterCloseAreDropped() throws Exception {
+        Path file = dir.resolve("workspace.jsonl");
+        ParseCheckpoint checkpoint = ParseCheckpoint.open(file);
+        checkpoint.markDone("a");
+        checkpoint.close();
+
+        // 批量解析关闭检查点后 I/O 线程才提交的文档
+        checkpoint.markDone("b");
+        checkpoint.markFailed("c", 1, "失败");
+
+        try (ParseCheckpoint reopened = ParseCheckpoint.open(file)) {
+            assertThat(reopened.isDone("a")).isTrue();
+            assertThat(reopened.isDone("b")).isFalse();
+            assertThat(reopened.getFailure("c")).isNull();
+        }
+    }
+
+    @Test
+    void deleteRemovesLog() throws Exception {
+        Path file = dir.resolve("workspace.jsonl");
+        ParseCheckpoint checkpoint = ParseCheckpoint.open(file);
+        checkpoint.markDone("a");
+        checkpoint.delete();
+
+        assertThat(file).doesNotExist();
+        try (ParseCheckpoint reopened = ParseCheckpoint.open(file)) {
+            assertThat(reopened.doneCount()).isZero();
+        }
+    }
+}
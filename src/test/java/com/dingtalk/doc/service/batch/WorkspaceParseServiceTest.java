@@ -0,0 +1,131 @@
+package com.dingtalk.doc.service.batch;
+
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import com.dingtalk.doc.config.ParseAllConfig;
+import com.dingtalk.doc.config.ParseSchedulerConfig;
+import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.model.ParseAllResult;
+import com.dingtalk.doc.service.MarkdownGenerator;
+import com.dingtalk.doc.service.TestFileManagers;
+import com.dingtalk.doc.service.api.DingTalkWorkspaceService;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.support.NoopImageHttpClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 知识库批量解析测试：取消时正在解析的文档不记为失败
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class WorkspaceParseServiceTest {
+
+    @TempDir
+    Path baseDir;
+
+    @AfterEach
+    void clearInterrupt() {
+        Thread.interrupted();
+    }
+
+    @Test
+    void interruptedDocumentStaysPending() throws Exception {
+        // b 普通失败，a 解析时线程被中断，c 在取消之后
+        StubWorkspaceService workspace = new StubWorkspaceService(List.of("b", "a", "c"), nodeId -> {
+            if ("a".equals(nodeId)) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("获取内容失败: " + nodeId);
+        });
+
+        ParseAllResult result = newService(workspace).parseAll("ws", true, null);
+        assertThat(Thread.interrupted()).isTrue();
+
+        assertThat(workspace.requested).containsExactly("b", "a");
+        assertThat(result.getFailureCount()).isEqualTo(1);
+        assertThat(result.getRetriedCount()).isZero();
+        assertThat(result.isComplete()).isFalse();
+        try (ParseCheckpoint checkpoint = openCheckpoint()) {
+            assertThat(checkpoint.getFailure("b")).isNotNull();
+            assertThat(checkpoint.getFailure("a")).isNull();
+            assertThat(checkpoint.isDone("a")).isFalse();
+        }
+    }
+
+    @Test
+    void interruptCauseCountsAsCancellation() throws Exception {
+        // 抛出处已清除中断标记，只剩异常链中的 InterruptedException
+        StubWorkspaceService workspace = new StubWorkspaceService(List.of("a", "b"), nodeId -> {
+            throw new RuntimeException("等待响应时被中断", new InterruptedException());
+        });
+
+        ParseAllResult result = newService(workspace).parseAll("ws", true, null);
+        // 恢复中断标记，后续文档不再解析
+        assertThat(Thread.interrupted()).isTrue();
+
+        assertThat(workspace.requested).containsExactly("a");
+        assertThat(result.getFailureCount()).isZero();
+        try (ParseCheckpoint checkpoint = openCheckpoint()) {
+            assertThat(checkpoint.getFailure("a")).isNull();
+        }
+    }
+
+    private WorkspaceParseService newService(DingTalkWorkspaceService workspace) {
+        ParseAllConfig config = new ParseAllConfig();
+        config.setMaxAttempts(1);
+        ParseMetrics metrics = new ParseMetrics(new SimpleMeterRegistry());
+        return new WorkspaceParseService(workspace, new MarkdownGenerator(new NoopImageHttpClient(), metrics),
+            TestFileManagers.create(baseDir), config, new HttpTimeoutConfig(),
+            new ParseScheduler(new ParseSchedulerConfig(), metrics));
+    }
+
+    private ParseCheckpoint openCheckpoint() throws Exception {
+        return ParseCheckpoint.open(baseDir.resolve(new ParseAllConfig().getCheckpointDir()).resolve("ws.jsonl"));
+    }
+
+    /**
+     * 返回固定的文件节点，获取内容时调用给定的处理
+     */
+    private static final class StubWorkspaceService extends DingTalkWorkspaceService {
+
+        private final List<String> nodeIds;
+        private final Function<String, JsonNode> content;
+        private final List<String> requested = new ArrayList<>();
+
+        StubWorkspaceService(List<String> nodeIds, Function<String, JsonNode> content) {
+            super(null, null);
+            this.nodeIds = nodeIds;
+            this.content = content;
+        }
+
+        @Override
+        public List<DocNode> getAllNodesRecursively(String workspaceId, String parentNodeId) {
+            List<DocNode> nodes = new ArrayList<>();
+            for (String nodeId : nodeIds) {
+                DocNode node = new DocNode();
+                node.setNodeId(nodeId);
+                node.setName("文档" + nodeId);
+                node.setType("file");
+                nodes.add(node);
+            }
+            return nodes;
+        }
+
+        @Override
+        public JsonNode getDocumentContent(String workspaceId, String nodeId) {
+            requested.add(nodeId);
+            return content.apply(nodeId);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.dingtalk.doc.service.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 把测试中写出的归档读回为 条目路径 → 内容（按写入顺序）
+ *
+ * @author DingTalk Doc Parser Team
+ */
+final class ArchiveReader {
+
+    private ArchiveReader() {
+    }
+
+    static Map<String, byte[]> read(ArchiveFormat format, byte[] archive) throws IOException {
+        return format == ArchiveFormat.ZIP ? readZip(archive) : readTarGz(archive);
+    }
+
+    static Map<String, byte[]> readZip(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive), StandardCharsets.UTF_8)) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 读取 ustar 条目，PAX 扩展头中的 path 覆盖下一个条目的路径；校验每个头的校验和
+     */
+    static Map<String, byte[]> readTarGz(byte[] archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archive))) {
+            DataInputStream in = new DataInputStream(gzip);
+            String paxPath = null;
+            byte[] header = new byte[512];
+            while (true) {
+                in.readFully(header);
+                if (isZero(header)) {
+                    // 结尾是两个全零块
+                    in.readFully(header);
+                    if (!isZero(header) || gzip.read() != -1) {
+                        throw new IOException("归档结尾不完整");
+                    }
+                    return entries;
+                }
+                checkChecksum(header);
+                if (!"ustar".equals(text(header, 257, 5))) {
+                    throw new IOException("不是 ustar 头");
+                }
+                int size = (int) Long.parseLong(text(header, 124, 11), 8);
+                byte[] data = new byte[size];
+                in.readFully(data);
+                in.readFully(new byte[(512 - size % 512) % 512]);
+
+                if (header[156] == 'x') {
+                    paxPath = paxPath(data);
+                } else {
+                    entries.put(paxPath != null ? paxPath : text(header, 0, 100), data);
+                    paxPath = null;
+                }
+            }
+        }
+    }
+
+    private static String paxPath(byte[] data) throws IOException {
+        String records = new String(data, StandardCharsets.UTF_8);
+        int space = records.indexOf(' ');
+        int length = Integer.parseInt(records.substring(0, space));
+        if (length != data.length) {
+            throw new IOException("PAX 记录长度不符: " + length + " != " + data.length);
+        }
+        String record = records.substring(space + 1, records.length() - 1);
+        if (!record.startsWith("path=")) {
+            throw new IOException("不支持的 PAX 记录: " + record);
+        }
+        return record.substring("path=".length());
+    }
+
+    private static void checkChecksum(byte[] header) throws IOException {
+        long expected = Long.parseLong(text(header, 148, 6), 8);
+        byte[] copy = Arrays.copyOf(header, header.length);
+        Arrays.fill(copy, 148, 156, (byte) ' ');
+        long actual = 0;
+        for (byte b : copy) {
+            actual += b & 0xff;
+        }
+        if (actual != expected) {
+            throw new IOException("tar 头校验和错误");
+        }
+    }
+
+    private static String text(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dingtalk.doc.service.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 归档写入器测试：写出的 ZIP 和 tar.gz 能被标准读取方式读回
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class ArchiveWriterTest {
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void entriesReadBack(ArchiveFormat format) throws Exception {
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put("doc/doc.md", "# 标题\n\n正文".getBytes(StandardCharsets.UTF_8));
+        expected.put("doc/images/image_001.png", new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 1, 2});
+        // 非 ASCII 路径
+        expected.put("设计文档/设计文档.md", "中文路径".getBytes(StandardCharsets.UTF_8));
+        // 超过 ustar 的 100 字节路径
+        String longDir = "d".repeat(120);
+        expected.put(longDir + "/" + longDir + ".md", "长路径".getBytes(StandardCharsets.UTF_8));
+        // 恰好一个块、空文件和跨块的内容
+        expected.put("block.txt", "x".repeat(512).getBytes(StandardCharsets.US_ASCII));
+        expected.put("empty.txt", new byte[0]);
+        expected.put("large.txt", "0123456789".repeat(1000).getBytes(StandardCharsets.US_ASCII));
+
+        Map<String, byte[]> actual = ArchiveReader.read(format, write(format, expected));
+
+        assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+        expected.forEach((path, data) -> assertThat(actual.get(path)).as(path).isEqualTo(data));
+    }
+
+    @Test
+    void zipStoresIncompressibleEntries() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveWriter writer = ArchiveFormat.ZIP.open(out);
+        writer.addEntry("a.md", "文本".repeat(100).getBytes(StandardCharsets.UTF_8), true);
+        writer.addEntry("a.png", new byte[]{1, 2, 3}, false);
+        writer.finish();
+
+        Map<String, Integer> methods = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                methods.put(entry.getName(), entry.getMethod());
+            }
+        }
+        assertThat(methods).containsEntry("a.md", ZipEntry.DEFLATED).containsEntry("a.png", ZipEntry.STORED);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void flushPushesCompletedEntries(ArchiveFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveWriter writer = format.open(out);
+        writer.addEntry("a.md", "正文".repeat(1000).getBytes(StandardCharsets.UTF_8), true);
+        writer.flush();
+
+        // 还没有结束归档，已写入的条目已经到达输出流
+        assertThat(out.size()).isPositive();
+        int flushed = out.size();
+        writer.finish();
+        assertThat(out.size()).isGreaterThan(flushed);
+    }
+
+    @Test
+    void formatFromExtension() {
+        assertThat(ArchiveFormat.fromExtension("ZIP")).isEqualTo(ArchiveFormat.ZIP);
+        assertThat(ArchiveFormat.fromExtension(" tgz ")).isEqualTo(ArchiveFormat.TAR_GZ);
+        assertThat(ArchiveFormat.fromExtension("tar.gz")).isEqualTo(ArchiveFormat.TAR_GZ);
+        assertThat(ArchiveFormat.fromExtension("rar")).isNull();
+        assertThat(ArchiveFormat.fromExtension(null)).isNull();
+    }
+
+    private static byte[] write(ArchiveFormat format, Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArchiveWriter writer = format.open(out);
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            writer.addEntry(entry.getKey(), entry.getValue(), !entry.getKey().endsWith(".png"));
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+}
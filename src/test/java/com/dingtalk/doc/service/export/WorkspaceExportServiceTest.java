@@ -0,0 +1,241 @@
+package com.dingtalk.doc.service.export;
+
+import com.dingtalk.doc.config.ChunkConfig;
+import com.dingtalk.doc.config.HttpTimeoutConfig;
+import com.dingtalk.doc.config.ParseSchedulerConfig;
+import com.dingtalk.doc.model.DocNode;
+import com.dingtalk.doc.service.MarkdownGenerator;
+import com.dingtalk.doc.service.TestFileManagers;
+import com.dingtalk.doc.service.api.DingTalkWorkspaceService;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import com.dingtalk.doc.service.scheduler.ParseScheduler;
+import com.dingtalk.doc.support.NoopImageHttpClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 知识库导出测试：写出小型知识库后用 ZIP / tar.gz 读回，检查条目、内容、文件名清理、分块和失败文档
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class WorkspaceExportServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+    @TempDir
+    Path baseDir;
+
+    private final StubWorkspaceService workspaceService = new StubWorkspaceService();
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void exportsDocumentsWithImages(ArchiveFormat format) throws Exception {
+        workspaceService.add(folder("f1", "产品"));
+        workspaceService.add(file("d1", "需求", "需求正文", true));
+        workspaceService.add(file("d2", "周报", "第一周", false));
+
+        Map<String, byte[]> entries = export(format, false);
+
+        assertThat(entries.keySet()).containsExactly(
+            "需求/images/image_001.png", "需求/需求.md", "周报/周报.md");
+        assertThat(entries.get("需求/images/image_001.png")).isEqualTo(PNG);
+        assertThat(text(entries, "需求/需求.md"))
+            .startsWith("# 需求")
+            .contains("需求正文", "![架构图](./images/image_001.png)");
+        assertThat(text(entries, "周报/周报.md")).contains("第一周");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void sanitizesAndDeduplicatesNames(ArchiveFormat format) throws Exception {
+        workspaceService.add(file("d1", "../../etc/passwd", "逃逸", false));
+        workspaceService.add(file("d2", "a:b*c?", "非法字符", false));
+        workspaceService.add(file("d3", "周报", "第一份", false));
+        workspaceService.add(file("d4", "周报", "第二份", false));
+        workspaceService.add(file("d5", "  ", "空标题", false));
+
+        Map<String, byte[]> entries = export(format, false);
+
+        assertThat(entries.keySet()).containsExactly(
+            "_._.._etc_passwd/_._.._etc_passwd.md",
+            "a_b_c_/a_b_c_.md",
+            "周报/周报.md",
+            "周报_2/周报_2.md",
+            "未命名文档/未命名文档.md");
+        assertThat(entries.keySet()).allSatisfy(path -> {
+            assertThat(path).doesNotStartWith("/").doesNotContain("/../").doesNotStartWith("../");
+            assertThat(path.split("/")).doesNotContain("..", ".");
+        });
+        assertThat(text(entries, "周报_2/周报_2.md")).contains("第二份");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void includesChunksWhenRequested(ArchiveFormat format) throws Exception {
+        workspaceService.add(file("d1", "需求", "需求正文", false));
+
+        Map<String, byte[]> entries = export(format, true);
+
+        assertThat(entries.keySet()).containsExactly("需求/需求.md", "需求/需求.chunks.jsonl");
+        String[] lines = text(entries, "需求/需求.chunks.jsonl").split("\n");
+        assertThat(lines).hasSize(1);
+        JsonNode chunk = MAPPER.readTree(lines[0]);
+        assertThat(chunk.get("nodeId").asText()).isEqualTo("d1");
+        assertThat(chunk.get("title").asText()).isEqualTo("需求");
+        assertThat(chunk.get("text").asText()).contains("需求正文");
+
+        assertThat(export(format, false).keySet()).containsExactly("需求/需求.md");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ArchiveFormat.class)
+    void failedDocumentIsSkippedAndListed(ArchiveFormat format) throws Exception {
+        workspaceService.add(file("d1", "第一篇", "正文一", true));
+        workspaceService.add(file("bad", "损坏文档", null, true));
+        workspaceService.add(file("d3", "第三篇", "正文三", false));
+
+        Map<String, byte[]> entries = export(format, true);
+
+        // 失败的文档不留下任何条目（包括已经下载的图片），前后的文档完整
+        assertThat(entries.keySet()).containsExactly(
+            "第一篇/images/image_001.png", "第一篇/第一篇.md", "第一篇/第一篇.chunks.jsonl",
+            "第三篇/第三篇.md", "第三篇/第三篇.chunks.jsonl",
+            "_failures.txt");
+        assertThat(text(entries, "_failures.txt")).isEqualTo("损坏文档 (bad): 获取文档内容失败: bad");
+        assertThat(text(entries, "第三篇/第三篇.md")).contains("正文三");
+    }
+
+    @Test
+    void clientDisconnectStopsExport() {
+        workspaceService.add(file("d1", "第一篇", "正文一", false));
+        workspaceService.add(file("d2", "第二篇", "正文二", false));
+
+        // 第一个文档写完、推送给客户端时发现连接已断开
+        OutputStream broken = new ByteArrayOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        assertThatThrownBy(() -> newService().export("ws", ArchiveFormat.TAR_GZ, false, broken))
+            .isInstanceOf(IOException.class)
+            .hasMessage("Broken pipe");
+        assertThat(workspaceService.contentRequests).containsExactly("d1");
+    }
+
+    private Map<String, byte[]> export(ArchiveFormat format, boolean chunks) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        newService().export("ws", format, chunks, out);
+        return ArchiveReader.read(format, out.toByteArray());
+    }
+
+    private WorkspaceExportService newService() {
+        ParseMetrics parseMetrics = new ParseMetrics(new SimpleMeterRegistry());
+        ImageClient httpClient = new ImageClient();
+        return new WorkspaceExportService(workspaceService, new MarkdownGenerator(httpClient, parseMetrics),
+            httpClient, TestFileManagers.create(baseDir), new HttpTimeoutConfig(), new ChunkConfig(),
+            new ParseScheduler(new ParseSchedulerConfig(), parseMetrics));
+    }
+
+    private static String text(Map<String, byte[]> entries, String path) {
+        assertThat(entries).containsKey(path);
+        return new String(entries.get(path), StandardCharsets.UTF_8);
+    }
+
+    private static StubNode folder(String nodeId, String name) {
+        return new StubNode(nodeId, name, "folder", null, false);
+    }
+
+    /**
+     * @param body 正文，为 null 时获取内容失败
+     * @param image 是否带一张图片
+     */
+    private static StubNode file(String nodeId, String name, String body, boolean image) {
+        return new StubNode(nodeId, name, "file", body, image);
+    }
+
+    private static final class StubNode {
+
+        private final DocNode node = new DocNode();
+        private final String body;
+        private final boolean image;
+
+        StubNode(String nodeId, String name, String type, String body, boolean image) {
+            node.setNodeId(nodeId);
+            node.setName(name);
+            node.setType(type);
+            this.body = body;
+            this.image = image;
+        }
+    }
+
+    /**
+     * 内存中的知识库
+     */
+    private static final class StubWorkspaceService extends DingTalkWorkspaceService {
+
+        private final Map<String, StubNode> nodes = new LinkedHashMap<>();
+        private final List<String> contentRequests = new ArrayList<>();
+
+        StubWorkspaceService() {
+            super(null, null);
+        }
+
+        void add(StubNode node) {
+            nodes.put(node.node.getNodeId(), node);
+        }
+
+        @Override
+        public List<DocNode> getAllNodesRecursively(String workspaceId, String parentNodeId) {
+            return nodes.values().stream().map(stub -> stub.node).toList();
+        }
+
+        @Override
+        public JsonNode getDocumentContent(String workspaceId, String nodeId) {
+            contentRequests.add(nodeId);
+            StubNode stub = nodes.get(nodeId);
+            if (stub.body == null) {
+                throw new RuntimeException("获取文档内容失败: " + nodeId);
+            }
+            List<Object> body = new ArrayList<>(List.of("root", Map.of(),
+                List.of("p", Map.of(), List.of("span", Map.of(), stub.body))));
+            if (stub.image) {
+                body.add(List.of("p", Map.of(),
+                    List.of("img", Map.of("src", "https://example.com/arch.png", "name", "架构图"))));
+            }
+            return MAPPER.valueToTree(Map.of("main", "m",
+                "parts", Map.of("m", Map.of("data", Map.of("body", body)))));
+        }
+    }
+
+    /**
+     * 返回固定图片内容，不发起网络请求
+     */
+    private static final class ImageClient extends NoopImageHttpClient {
+
+        @Override
+        public byte[] fetchImage(String imageUrl, String cookie) {
+            return PNG.clone();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.dingtalk.doc.service.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * AIMD 自适应令牌桶测试，时钟由测试控制
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void throttledHalvesRateOncePerCooldown() {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+
+        assertThat(limiter.onThrottled()).isTrue();
+        assertThat(limiter.rate()).isEqualTo(5.0);
+
+        // 同一批 429 在冷却期内只减一次
+        now.addAndGet(SECOND / 2);
+        assertThat(limiter.onThrottled()).isFalse();
+        assertThat(limiter.rate()).isEqualTo(5.0);
+
+        now.addAndGet(SECOND / 2);
+        assertThat(limiter.onThrottled()).isTrue();
+        assertThat(limiter.rate()).isEqualTo(2.5);
+
+        // 不低于最低速率
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(SECOND);
+            limiter.onThrottled();
+        }
+        assertThat(limiter.rate()).isEqualTo(1.0);
+    }
+
+    @Test
+    void decreaseShrinksBucket() {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+        limiter.onThrottled();
+
+        // 减速后桶里最多 5 个令牌
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.reserve(0)).isZero();
+        }
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void successIncreasesRateAdditively() {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+        limiter.onThrottled();
+
+        // 冷却期过后持续成功：每次 +1/rate，满负荷时每秒约 +1
+        now.addAndGet(2 * SECOND);
+        limiter.onSuccess();
+        assertThat(limiter.rate()).isCloseTo(5.2, within(1e-9));
+        for (int i = 0; i < 5; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.rate()).isBetween(6.0, 6.2);
+
+        // 不超过最高速率
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.rate()).isEqualTo(20.0);
+    }
+
+    @Test
+    void refillsWithElapsedTime() {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.reserve(0)).isZero();
+        }
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+
+        now.addAndGet(SECOND / 10);
+        assertThat(limiter.reserve(0)).isZero();
+        assertThat(limiter.reserve(0)).isEqualTo(-1);
+    }
+
+    @Test
+    void concurrentReservationsQueueAtRate() throws Exception {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+        int threads = 30;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return limiter.reserve(10 * SECOND);
+                }));
+            }
+            start.countDown();
+
+            List<Long> waits = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                waits.add(future.get(5, TimeUnit.SECONDS));
+            }
+            Collections.sort(waits);
+
+            // 桶里的 10 个令牌立即放行，其余按 100 ms 间隔预约，不会有两个请求拿到同一个令牌
+            for (int i = 0; i < threads; i++) {
+                long expected = i < 10 ? 0 : (i - 9) * SECOND / 10;
+                assertThat(waits.get(i)).as("第 %d 个", i).isCloseTo(expected, within(1_000L));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reservationBeyondMaxWaitIsNotTaken() {
+        AdaptiveRateLimiter limiter = newLimiter(10);
+        for (int i = 0; i < 10; i++) {
+            limiter.reserve(0);
+        }
+        assertThat(limiter.reserve(SECOND / 20)).isEqualTo(-1);
+
+        // 没有预约，下一个请求仍排在第一位
+        long wait = limiter.reserve(SECOND);
+        assertThat(wait).isCloseTo(SECOND / 10, within(1_000L));
+    }
+
+    private AdaptiveRateLimiter newLimiter(double rate) {
+        return new AdaptiveRateLimiter(rate, 1, 20, 1.0, 0.5, 1000, now::get);
+    }
+}
@@ -0,0 +1,87 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpCircuitBreakerConfig;
+import com.dingtalk.doc.config.HttpRateLimitConfig;
+import com.dingtalk.doc.exception.CircuitOpenException;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 熔断拦截器测试：限流排队不计入慢调用
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class CircuitBreakerInterceptorTest {
+
+    private static final URI DOCUMENT_DATA = URI.create("https://alidocs.dingtalk.com/api/document/data");
+
+    private RateLimitInterceptor rateLimit;
+    private CircuitBreakerInterceptor breaker;
+
+    @BeforeEach
+    void setUp() {
+        HttpClientMetrics metrics = new HttpClientMetrics(new SimpleMeterRegistry());
+
+        // 固定 20 次/秒：桶里的 20 个令牌用完后每个请求排队约 50 ms
+        HttpRateLimitConfig rateLimitConfig = new HttpRateLimitConfig();
+        rateLimitConfig.setInitialRate(20);
+        rateLimitConfig.setMinRate(20);
+        rateLimitConfig.setMaxRate(20);
+        rateLimit = new RateLimitInterceptor(rateLimitConfig, metrics);
+
+        HttpCircuitBreakerConfig breakerConfig = new HttpCircuitBreakerConfig();
+        breakerConfig.setSlidingWindowSize(10);
+        breakerConfig.setMinimumCalls(5);
+        breakerConfig.setSlowCallThreshold(30);
+        breakerConfig.setSlowCallRateThreshold(50);
+        breaker = new CircuitBreakerInterceptor(breakerConfig, metrics, rateLimit);
+    }
+
+    @Test
+    void throttledButFastCallsDoNotOpenBreaker() throws Exception {
+        for (int i = 0; i < 35; i++) {
+            assertThat(call(0).getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        assertThat(rateLimit.lastWaitNanos()).isPositive();
+    }
+
+    @Test
+    void slowUpstreamOpensBreaker() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            call(50);
+        }
+        assertThatThrownBy(() -> call(0)).isInstanceOf(CircuitOpenException.class);
+    }
+
+    /**
+     * 熔断 -> 限流 -> 上游，与 RestTemplate 中的顺序相同
+     *
+     * @param upstreamMillis 上游响应耗时
+     */
+    private ClientHttpResponse call(long upstreamMillis) throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, DOCUMENT_DATA);
+        return breaker.intercept(request, new byte[0], (req, body) -> rateLimit.intercept(req, body, (r, b) -> {
+            if (upstreamMillis > 0) {
+                try {
+                    Thread.sleep(upstreamMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        }));
+    }
+}
@@ -0,0 +1,173 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpRateLimitConfig;
+import com.dingtalk.doc.exception.HttpRequestException;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 限流拦截器测试：按响应状态和耗时调整速率，等待超过上限时失败
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class RateLimitInterceptorTest {
+
+    private static final URI DOCUMENT_DATA = URI.create("https://alidocs.dingtalk.com/api/document/data");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpRateLimitConfig config;
+
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        config = new HttpRateLimitConfig();
+        config.setInitialRate(10);
+        config.setMinRate(1);
+        config.setMaxRate(20);
+        config.setLatencyThreshold(1000);
+        config.setDecreaseCooldown(1000);
+    }
+
+    @Test
+    void tooManyRequestsHalvesRate() throws Exception {
+        RateLimitInterceptor interceptor = newInterceptor();
+
+        call(interceptor, HttpStatus.TOO_MANY_REQUESTS, 0);
+        assertThat(rate()).isEqualTo(5.0);
+        assertThat(decreases("429")).isEqualTo(1.0);
+
+        // 冷却期内的 503 不再减速
+        call(interceptor, HttpStatus.SERVICE_UNAVAILABLE, 0);
+        assertThat(rate()).isEqualTo(5.0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        call(interceptor, HttpStatus.SERVICE_UNAVAILABLE, 0);
+        assertThat(rate()).isEqualTo(2.5);
+        assertThat(decreases("503")).isEqualTo(1.0);
+    }
+
+    @Test
+    void slowResponseHalvesRate() throws Exception {
+        RateLimitInterceptor interceptor = newInterceptor();
+
+        call(interceptor, HttpStatus.OK, 999);
+        assertThat(rate()).isEqualTo(10.1);
+
+        call(interceptor, HttpStatus.OK, 1001);
+        assertThat(rate()).isEqualTo(5.05);
+        assertThat(decreases("slow")).isEqualTo(1.0);
+    }
+
+    @Test
+    void successAfterCooldownIncreasesRate() throws Exception {
+        RateLimitInterceptor interceptor = newInterceptor();
+        call(interceptor, HttpStatus.TOO_MANY_REQUESTS, 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        call(interceptor, HttpStatus.OK, 10);
+        assertThat(rate()).isEqualTo(5.2);
+
+        // 客户端错误不是拥塞信号，也不加速
+        call(interceptor, HttpStatus.NOT_FOUND, 10);
+        assertThat(rate()).isEqualTo(5.2);
+    }
+
+    @Test
+    void waitBeyondMaxWaitFails() throws Exception {
+        config.setInitialRate(1);
+        config.setMaxRate(1);
+        config.setMaxWait(500);
+        RateLimitInterceptor interceptor = newInterceptor();
+
+        call(interceptor, HttpStatus.OK, 0);
+        // 速率固定为 1 次/秒，下一个令牌要 1 秒后才有
+        assertThatThrownBy(() -> call(interceptor, HttpStatus.OK, 0))
+            .isInstanceOf(HttpRequestException.class)
+            .hasMessageContaining("限流等待超时")
+            .hasMessageContaining("document_data");
+
+        // 令牌恢复后正常放行
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(call(interceptor, HttpStatus.OK, 0).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void waitIsBoundedByDeadline() throws Exception {
+        config.setInitialRate(1);
+        config.setMaxRate(1);
+        RateLimitInterceptor interceptor = newInterceptor();
+        call(interceptor, HttpStatus.OK, 0);
+
+        Deadline.Scope scope = Deadline.after(200).bind();
+        try {
+            assertThatThrownBy(() -> call(interceptor, HttpStatus.OK, 0))
+                .isInstanceOf(HttpRequestException.class)
+                .hasMessageContaining("限流等待超时");
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    void disabledEndpointIsNotLimited() throws Exception {
+        config.setInitialRate(1);
+        config.setMaxWait(0);
+        HttpRateLimitConfig.Endpoint endpoint = new HttpRateLimitConfig.Endpoint();
+        endpoint.setEnabled(false);
+        config.getEndpoints().put(UpstreamEndpoint.DOCUMENT_DATA, endpoint);
+        RateLimitInterceptor interceptor = newInterceptor();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(call(interceptor, HttpStatus.OK, 0).getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        assertThat(interceptor.lastWaitNanos()).isZero();
+    }
+
+    private RateLimitInterceptor newInterceptor() {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(config, new HttpClientMetrics(registry));
+        // 令牌桶创建时读取的是系统时钟，可控时钟从同一时刻开始
+        now = new AtomicLong(System.nanoTime());
+        interceptor.clock = now::get;
+        return interceptor;
+    }
+
+    /**
+     * 发起一次请求
+     *
+     * @param upstreamMillis 上游耗时，推进可控时钟而不真的等待
+     */
+    private ClientHttpResponse call(RateLimitInterceptor interceptor, HttpStatus status, long upstreamMillis)
+            throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, DOCUMENT_DATA);
+        return interceptor.intercept(request, new byte[0], (req, body) -> {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(upstreamMillis));
+            return new MockClientHttpResponse(new byte[0], status);
+        });
+    }
+
+    private double rate() {
+        return registry.get("dingtalk.http.client.rate_limit").tag("family", "document_data").gauge().value();
+    }
+
+    private double decreases(String reason) {
+        return registry.get("dingtalk.http.client.rate_limit.decreases")
+            .tag("family", "document_data").tag("reason", reason).counter().count();
+    }
+}
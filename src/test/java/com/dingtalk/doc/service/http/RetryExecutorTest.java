@@ -0,0 +1,239 @@
+package com.dingtalk.doc.service.http;
+
+import com.dingtalk.doc.config.HttpRetryConfig;
+import com.dingtalk.doc.exception.DeadlineExceededException;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 出站 HTTP 重试测试：Retry-After、非幂等请求、文档时限和重试预算
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class RetryExecutorTest {
+
+    private HttpRetryConfig config;
+
+    // 每次退避等待的毫秒数
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        config = new HttpRetryConfig();
+        config.setMaxAttempts(3);
+        config.setInitialBackoff(100);
+        config.setMaxBackoff(1000);
+        config.setMultiplier(2.0);
+        config.setJitter(0);
+        config.setMaxRetryAfter(10_000);
+    }
+
+    @Test
+    void backsOffExponentially() {
+        Stub stub = new Stub(serverError(HttpStatus.SERVICE_UNAVAILABLE), serverError(HttpStatus.BAD_GATEWAY));
+
+        assertThat(newExecutor().execute(UpstreamEndpoint.PAGE, HttpMethod.GET, stub)).isEqualTo("ok");
+        assertThat(stub.calls.get()).isEqualTo(3);
+        assertThat(sleeps).containsExactly(100L, 200L);
+    }
+
+    @Test
+    void honoursRetryAfterSeconds() {
+        Stub stub = new Stub(tooManyRequests("3"));
+
+        assertThat(newExecutor().execute(UpstreamEndpoint.DOCUMENT_DATA, HttpMethod.GET, stub)).isEqualTo("ok");
+        assertThat(sleeps).containsExactly(3000L);
+    }
+
+    @Test
+    void honoursRetryAfterHttpDate() {
+        String at = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(5));
+        Stub stub = new Stub(tooManyRequests(at));
+
+        assertThat(newExecutor().execute(UpstreamEndpoint.DOCUMENT_DATA, HttpMethod.GET, stub)).isEqualTo("ok");
+        // HTTP 日期精确到秒
+        assertThat(sleeps).hasSize(1);
+        assertThat(sleeps.get(0)).isBetween(3000L, 5000L);
+    }
+
+    @Test
+    void retryAfterBeyondLimitIsNotWaited() {
+        config.setMaxRetryAfter(2000);
+        String at = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+
+        for (String retryAfter : List.of("3", at)) {
+            Stub stub = new Stub(tooManyRequests(retryAfter));
+            assertThatThrownBy(() -> newExecutor().execute(UpstreamEndpoint.DOCUMENT_DATA, HttpMethod.GET, stub))
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+            assertThat(stub.calls.get()).isEqualTo(1);
+        }
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void nonIdempotentPostRetriesOnlyWhenNotProcessed() {
+        // 429 和连接建立失败：服务端没有处理请求，可以重试
+        Stub throttled = new Stub(tooManyRequests(null));
+        assertThat(newExecutor().execute(UpstreamEndpoint.OPEN_API, HttpMethod.POST, throttled)).isEqualTo("ok");
+        Stub refused = new Stub(new ResourceAccessException("连接失败", new ConnectException("refused")));
+        assertThat(newExecutor().execute(UpstreamEndpoint.OPEN_API, HttpMethod.POST, refused)).isEqualTo("ok");
+
+        // 5xx 和读取超时：请求可能已被处理，不重试
+        Stub failed = new Stub(serverError(HttpStatus.INTERNAL_SERVER_ERROR));
+        assertThatThrownBy(() -> newExecutor().execute(UpstreamEndpoint.OPEN_API, HttpMethod.POST, failed))
+            .isInstanceOf(HttpServerErrorException.class);
+        Stub timedOut = new Stub(new ResourceAccessException("读取超时", new SocketTimeoutException("Read timed out")));
+        assertThatThrownBy(() -> newExecutor().execute(UpstreamEndpoint.OPEN_API, HttpMethod.POST, timedOut))
+            .isInstanceOf(ResourceAccessException.class);
+
+        assertThat(failed.calls.get()).isEqualTo(1);
+        assertThat(timedOut.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void idempotentOverrideRetriesPostOn5xx() {
+        HttpRetryConfig.Endpoint endpoint = new HttpRetryConfig.Endpoint();
+        endpoint.setIdempotent(true);
+        config.getEndpoints().put(UpstreamEndpoint.DOCUMENT_DATA, endpoint);
+        Stub stub = new Stub(serverError(HttpStatus.BAD_GATEWAY));
+
+        assertThat(newExecutor().execute(UpstreamEndpoint.DOCUMENT_DATA, HttpMethod.POST, stub)).isEqualTo("ok");
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() {
+        Stub stub = new Stub(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found",
+            HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> newExecutor().execute(UpstreamEndpoint.PAGE, HttpMethod.GET, stub))
+            .isInstanceOf(HttpClientErrorException.NotFound.class);
+        assertThat(stub.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void stopsWhenBackoffWouldPassDeadline() {
+        config.setInitialBackoff(5000);
+        Stub stub = new Stub(serverError(HttpStatus.SERVICE_UNAVAILABLE));
+
+        Deadline.Scope scope = Deadline.after(1000).bind();
+        try {
+            assertThatThrownBy(() -> newExecutor().execute(UpstreamEndpoint.PAGE, HttpMethod.GET, stub))
+                .isInstanceOf(DeadlineExceededException.class)
+                .hasCauseInstanceOf(HttpServerErrorException.class);
+        } finally {
+            scope.close();
+        }
+        assertThat(stub.calls.get()).isEqualTo(1);
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void exhaustedBudgetStopsRetries() {
+        // 初始 1 个令牌，每个请求存入 0.5 个
+        config.setBudgetBurst(1);
+        config.setBudgetRatio(0.5);
+        RetryExecutor executor = newExecutor();
+
+        // 第一个请求：存入后仍为 1 个，重试一次后耗尽
+        Stub first = new Stub(serverError(HttpStatus.SERVICE_UNAVAILABLE), serverError(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThatThrownBy(() -> executor.execute(UpstreamEndpoint.PAGE, HttpMethod.GET, first))
+            .isInstanceOf(HttpServerErrorException.class);
+        assertThat(first.calls.get()).isEqualTo(2);
+
+        // 第二个请求只存入 0.5 个，不够重试
+        Stub second = new Stub(serverError(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThatThrownBy(() -> executor.execute(UpstreamEndpoint.PAGE, HttpMethod.GET, second))
+            .isInstanceOf(HttpServerErrorException.class);
+        assertThat(second.calls.get()).isEqualTo(1);
+
+        // 第三个请求再存入 0.5 个，凑够一次重试
+        Stub third = new Stub(serverError(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(executor.execute(UpstreamEndpoint.PAGE, HttpMethod.GET, third)).isEqualTo("ok");
+        assertThat(third.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void budgetRefillsByRatioUpToBurst() {
+        RetryBudget budget = new RetryBudget(0.25, 2);
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isTrue();
+        assertThat(budget.tryAcquire()).isFalse();
+
+        for (int i = 0; i < 3; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.tryAcquire()).isFalse();
+        budget.deposit();
+        assertThat(budget.tryAcquire()).isTrue();
+
+        // 不超过上限
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertThat(budget.available()).isEqualTo(2.0);
+    }
+
+    private RetryExecutor newExecutor() {
+        RetryExecutor executor = new RetryExecutor(config, new HttpClientMetrics(new SimpleMeterRegistry()));
+        executor.sleeper = sleeps::add;
+        return executor;
+    }
+
+    private static HttpServerErrorException serverError(HttpStatus status) {
+        return HttpServerErrorException.create(status, status.getReasonPhrase(), HttpHeaders.EMPTY,
+            new byte[0], StandardCharsets.UTF_8);
+    }
+
+    private static HttpClientErrorException tooManyRequests(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers,
+            new byte[0], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 依次抛出给定的异常，之后返回 "ok"
+     */
+    private static final class Stub implements Supplier<String> {
+
+        private final RuntimeException[] failures;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        Stub(RuntimeException... failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public String get() {
+            int call = calls.getAndIncrement();
+            if (call < failures.length) {
+                throw failures[call];
+            }
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.dingtalk.doc.service.render;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分块渲染器测试：流式写出、重叠、章节边界、标题路径和 token 估算
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class ChunkRendererTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void writesEachChunkAsSoonAsItIsCut() throws Exception {
+        StringWriter out = new StringWriter() {
+            @Override
+            public void close() {
+                throw new AssertionError("输出由调用方关闭");
+            }
+        };
+        ChunkRenderer renderer = new ChunkRenderer(new RenderOptions("n1", 10, 0), out);
+        renderer.beginDocument("文档");
+
+        renderer.block("一二三四五六");
+        assertThat(out.toString()).isEmpty();
+        renderer.block("七八九十甲乙");
+        // 第二块放不下，第一个分块已经写到输出
+        assertThat(lines(out.toString())).hasSize(1);
+        assertThat(lines(out.toString()).get(0).get("text").asText()).isEqualTo("一二三四五六");
+
+        renderer.endDocument();
+        assertThat(lines(out.toString())).hasSize(2);
+        assertThat(renderer.getResult()).isNull();
+    }
+
+    @Test
+    void consecutiveChunksOverlap() throws Exception {
+        List<JsonNode> chunks = render(new RenderOptions("n1", 10, 3), renderer -> {
+            renderer.block("一二三四五六");
+            renderer.block("七八九十甲乙");
+            renderer.block("丙丁戊己庚辛");
+        });
+
+        assertThat(chunks).extracting(chunk -> chunk.get("text").asText())
+            .containsExactly("一二三四五六", "四五六\n\n七八九十甲乙", "十甲乙\n\n丙丁戊己庚辛");
+        assertThat(chunks).extracting(chunk -> chunk.get("tokens").asInt()).containsExactly(6, 9, 9);
+        assertThat(chunks).extracting(chunk -> chunk.get("index").asInt()).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void longBlockIsCutAtBoundaries() throws Exception {
+        List<JsonNode> chunks = render(new RenderOptions("n1", 8, 0), renderer ->
+            renderer.block("第一句话很长。第二句话也长。第三句"));
+
+        assertThat(chunks).extracting(chunk -> chunk.get("text").asText())
+            .containsExactly("第一句话很长。", "第二句话也长。", "第三句");
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.get("tokens").asInt()).isLessThanOrEqualTo(8));
+    }
+
+    @Test
+    void headingStartsNewChunkWithoutOverlap() throws Exception {
+        List<JsonNode> chunks = render(new RenderOptions("n1", 100, 10), renderer -> {
+            renderer.block("前言内容");
+            renderer.heading(2, "小节");
+            renderer.block("小节内容");
+        });
+
+        assertThat(chunks).extracting(chunk -> chunk.get("text").asText()).containsExactly("前言内容", "小节内容");
+        assertThat(chunks.get(0).get("headings")).isEmpty();
+        assertThat(chunks.get(1).get("headings")).containsExactly(MAPPER.valueToTree("小节"));
+    }
+
+    @Test
+    void headingsBreadcrumbAndNodeIdOnEachLine() throws Exception {
+        List<JsonNode> chunks = render(new RenderOptions("node-42", 100, 0), renderer -> {
+            renderer.heading(1, "一");
+            renderer.block("a");
+            renderer.heading(2, "二");
+            renderer.block("b");
+            renderer.heading(2, "三");
+            renderer.block("c");
+            renderer.heading(3, "四");
+            renderer.block("d");
+            renderer.heading(1, "五");
+            renderer.block("e");
+            // 没有内容的章节不输出分块
+            renderer.heading(2, "空");
+        });
+
+        assertThat(chunks).extracting(chunk -> MAPPER.convertValue(chunk.get("headings"), List.class))
+            .containsExactly(List.of("一"), List.of("一", "二"), List.of("一", "三"), List.of("一", "三", "四"),
+                List.of("五"));
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.get("nodeId").asText()).isEqualTo("node-42");
+            assertThat(chunk.get("title").asText()).isEqualTo("文档");
+        });
+    }
+
+    @Test
+    void tableRowsStayOnConsecutiveLines() throws Exception {
+        List<JsonNode> chunks = render(new RenderOptions("n1", 100, 0), renderer -> {
+            renderer.block("表格前");
+            renderer.tableRow("名称\t说明");
+            renderer.tableRow("a\tb");
+            renderer.block("表格后");
+        });
+
+        assertThat(chunks).extracting(chunk -> chunk.get("text").asText())
+            .containsExactly("表格前\n\n名称\t说明\na\tb\n\n表格后");
+    }
+
+    @Test
+    void estimatesCjkAndAlphanumericTokens() {
+        assertThat(tokens("")).isZero();
+        assertThat(tokens("   \n\t")).isZero();
+        // 中日韩字符每个计 1
+        assertThat(tokens("中文分块")).isEqualTo(4);
+        assertThat(tokens("ひらがなカタカナ한국어")).isEqualTo(11);
+        // 连续的字母数字每 4 个计 1
+        assertThat(tokens("abcd")).isEqualTo(1);
+        assertThat(tokens("abcde")).isEqualTo(2);
+        assertThat(tokens("2024 year")).isEqualTo(2);
+        // 中日韩字符打断字母数字的连续计数
+        assertThat(tokens("hello世界abc")).isEqualTo(5);
+        // 其它符号每个计 1
+        assertThat(tokens("a,b。c")).isEqualTo(5);
+        assertThat(ChunkRenderer.estimateTokens("xx中文xx", 2, 4)).isEqualTo(2);
+    }
+
+    private static int tokens(String text) {
+        return ChunkRenderer.estimateTokens(text, 0, text.length());
+    }
+
+    private static List<JsonNode> render(RenderOptions options, Consumer<ChunkRenderer> body) throws Exception {
+        ChunkRenderer renderer = new ChunkRenderer(options);
+        renderer.beginDocument("文档");
+        body.accept(renderer);
+        renderer.endDocument();
+        return lines(renderer.getResult());
+    }
+
+    private static List<JsonNode> lines(String jsonl) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : jsonl.split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(MAPPER.readTree(line));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,84 @@
+package com.dingtalk.doc.service.render;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HTML 渲染器测试：链接地址的协议检查
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class HtmlRendererTest {
+
+    @Test
+    void allowsHttpMailtoAndRelativeUrls() {
+        assertThat(HtmlRenderer.isSafeUrl("https://alidocs.dingtalk.com/i/nodes/abc")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("HTTP://example.com")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("mailto:doc@example.com")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("./images/image_001.png")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("/i/nodes/abc?from=doc:1")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("#section:2")).isTrue();
+        assertThat(HtmlRenderer.isSafeUrl("")).isTrue();
+    }
+
+    @Test
+    void rejectsOtherSchemes() {
+        assertThat(HtmlRenderer.isSafeUrl("javascript:alert(1)")).isFalse();
+        assertThat(HtmlRenderer.isSafeUrl("  JavaScript:alert(1)")).isFalse();
+        assertThat(HtmlRenderer.isSafeUrl("java\tscript:alert(1)")).isFalse();
+        assertThat(HtmlRenderer.isSafeUrl("java\nscript:alert(1)")).isFalse();
+        assertThat(HtmlRenderer.isSafeUrl("data:text/html;base64,PHNjcmlwdD4=")).isFalse();
+        assertThat(HtmlRenderer.isSafeUrl("vbscript:msgbox(1)")).isFalse();
+    }
+
+    @Test
+    void unsafeLinkIsRenderedAsText() {
+        String html = render(renderer -> {
+            renderer.beginParagraph();
+            renderer.beginLink("javascript:alert(\"x\")");
+            renderer.endLink();
+            renderer.endParagraph();
+        });
+
+        assertThat(html).contains("<p>javascript:alert(&quot;x&quot;)</p>");
+        assertThat(html).doesNotContain("<a ");
+    }
+
+    @Test
+    void safeLinkKeepsAnchor() {
+        String html = render(renderer -> {
+            renderer.beginParagraph();
+            renderer.beginLink("https://example.com/?a=1&b=\"2\"");
+            renderer.endLink();
+            renderer.endParagraph();
+        });
+
+        assertThat(html).contains("<p><a href=\"https://example.com/?a=1&amp;b=&quot;2&quot;\">"
+            + "https://example.com/?a=1&amp;b=&quot;2&quot;</a></p>");
+    }
+
+    @Test
+    void unsafeDocRefIsRenderedAsTitle() {
+        String html = render(renderer -> {
+            renderer.beginParagraph();
+            renderer.docRef("设计<文档>", "javascript:alert(1)");
+            renderer.docRef("周报", "https://alidocs.dingtalk.com/i/nodes/abc");
+            renderer.endParagraph();
+        });
+
+        assertThat(html).contains("<p>《设计&lt;文档&gt;》"
+            + "<a href=\"https://alidocs.dingtalk.com/i/nodes/abc\">《周报》</a></p>");
+        assertThat(html).doesNotContain("javascript");
+    }
+
+    private static String render(Consumer<HtmlRenderer> body) {
+        HtmlRenderer renderer = new HtmlRenderer();
+        renderer.beginDocument("测试");
+        body.accept(renderer);
+        renderer.endDocument();
+        return renderer.getResult();
+    }
+}
@@ -0,0 +1,219 @@
+package com.dingtalk.doc.service.scheduler;
+
+import com.dingtalk.doc.config.ParseSchedulerConfig;
+import com.dingtalk.doc.exception.DeadlineExceededException;
+import com.dingtalk.doc.service.http.Deadline;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 解析调度器测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class ParseSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void interactiveGoesFirstAndFlowsAlternateWithinLane() throws Exception {
+        ParseScheduler scheduler = newScheduler(1, 1, 1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        ParseScheduler.Permit held = scheduler.acquire(Priority.BULK, "held");
+
+        // 名额被占用时依次排队：知识库 a 先排了 3 个，b 排了 2 个，最后来一个交互解析
+        List<Future<?>> tasks = new ArrayList<>();
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+        tasks.add(record(scheduler, Priority.INTERACTIVE, "user", order));
+        held.close();
+
+        for (Future<?> task : tasks) {
+            task.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(order).containsExactly("interactive:user", "bulk:a", "bulk:b", "bulk:a", "bulk:b", "bulk:a");
+    }
+
+    @Test
+    void globalAndLaneLimitsHold() throws Exception {
+        // 总共 3 个名额，批量最多 2 个，留 1 个给交互解析
+        ParseScheduler scheduler = newScheduler(3, 3, 2);
+        ParseScheduler.Permit bulk1 = scheduler.acquire(Priority.BULK, "w");
+        ParseScheduler.Permit bulk2 = scheduler.acquire(Priority.BULK, "w");
+        Future<ParseScheduler.Permit> bulk3 = acquireAsync(scheduler, Priority.BULK, "w");
+        awaitWaiting(Priority.BULK, 1);
+
+        // 批量达到上限时交互解析仍能拿到预留的名额
+        ParseScheduler.Permit interactive1 = scheduler.acquire(Priority.INTERACTIVE, "u");
+        Future<ParseScheduler.Permit> interactive2 = acquireAsync(scheduler, Priority.INTERACTIVE, "u");
+        awaitWaiting(Priority.INTERACTIVE, 1);
+        assertThat(gauge("running", Priority.BULK) + gauge("running", Priority.INTERACTIVE)).isEqualTo(3);
+
+        // 空出的名额先给交互解析
+        bulk1.close();
+        ParseScheduler.Permit interactive2Permit = interactive2.get(5, TimeUnit.SECONDS);
+        assertThat(bulk3).isNotDone();
+        assertThat(gauge("running", Priority.INTERACTIVE)).isEqualTo(2);
+
+        // 交互解析释放后批量任务在自己的上限内继续
+        interactive1.close();
+        ParseScheduler.Permit bulk3Permit = bulk3.get(5, TimeUnit.SECONDS);
+        assertThat(gauge("running", Priority.BULK)).isEqualTo(2);
+
+        bulk2.close();
+        bulk3Permit.close();
+        interactive2Permit.close();
+        assertThat(gauge("running", Priority.BULK) + gauge("running", Priority.INTERACTIVE)).isZero();
+    }
+
+    @Test
+    void acquireGivesUpWhenDeadlineExpires() {
+        ParseScheduler scheduler = newScheduler(1, 1, 1);
+        ParseScheduler.Permit held = scheduler.acquire(Priority.BULK, "held");
+
+        long start = System.nanoTime();
+        Deadline.Scope scope = Deadline.after(100).bind();
+        try {
+            assertThatThrownBy(() -> scheduler.acquire(Priority.INTERACTIVE, "u"))
+                .isInstanceOf(DeadlineExceededException.class)
+                .hasMessageContaining("排队等待执行");
+        } finally {
+            scope.close();
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(90L, 2000L);
+        assertThat(gauge("waiting", Priority.INTERACTIVE)).isZero();
+
+        // 放弃的请求不占名额
+        held.close();
+        scheduler.acquire(Priority.INTERACTIVE, "u").close();
+    }
+
+    @Test
+    void abandonedWaitsDoNotPushFlowBack() throws Exception {
+        ParseScheduler scheduler = newScheduler(1, 1, 1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        ParseScheduler.Permit held = scheduler.acquire(Priority.BULK, "held");
+
+        // 知识库 a 的请求排队超时三次，放弃的请求不占用 a 的份额
+        for (int i = 0; i < 3; i++) {
+            Deadline.Scope scope = Deadline.after(20).bind();
+            try {
+                assertThatThrownBy(() -> scheduler.acquire(Priority.BULK, "a"))
+                    .isInstanceOf(DeadlineExceededException.class);
+            } finally {
+                scope.close();
+            }
+        }
+
+        List<Future<?>> tasks = new ArrayList<>();
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+        held.close();
+
+        for (Future<?> task : tasks) {
+            task.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(order).containsExactly("bulk:a", "bulk:b", "bulk:a", "bulk:b");
+    }
+
+    @Test
+    void laterWaitersOfFlowMoveUpWhenOneIsInterrupted() throws Exception {
+        ParseScheduler scheduler = newScheduler(1, 1, 1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        ParseScheduler.Permit held = scheduler.acquire(Priority.BULK, "held");
+
+        List<Future<?>> tasks = new ArrayList<>();
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        Future<?> interrupted = record(scheduler, Priority.BULK, "a", order);
+        tasks.add(record(scheduler, Priority.BULK, "a", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+        tasks.add(record(scheduler, Priority.BULK, "b", order));
+
+        // a 的第二个请求放弃排队，第三个请求接替它的位置
+        interrupted.cancel(true);
+        awaitWaiting(Priority.BULK, 4);
+        held.close();
+
+        for (Future<?> task : tasks) {
+            task.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(order).containsExactly("bulk:a", "bulk:b", "bulk:a", "bulk:b");
+    }
+
+    @Test
+    void disabledSchedulerDoesNotLimit() {
+        ParseSchedulerConfig config = new ParseSchedulerConfig();
+        config.setEnabled(false);
+        config.setMaxConcurrency(1);
+        ParseScheduler scheduler = new ParseScheduler(config, new ParseMetrics(registry));
+
+        ParseScheduler.Permit first = scheduler.acquire(Priority.BULK, "w");
+        ParseScheduler.Permit second = scheduler.acquire(Priority.BULK, "w");
+        first.close();
+        second.close();
+    }
+
+    private ParseScheduler newScheduler(int max, int interactive, int bulk) {
+        ParseSchedulerConfig config = new ParseSchedulerConfig();
+        config.setMaxConcurrency(max);
+        config.setInteractiveConcurrency(interactive);
+        config.setBulkConcurrency(bulk);
+        return new ParseScheduler(config, new ParseMetrics(registry));
+    }
+
+    /**
+     * 在另一个线程上排队，拿到名额后记录顺序并立即归还；返回前等到请求已经进入队列
+     */
+    private Future<?> record(ParseScheduler scheduler, Priority priority, String flow, List<String> order)
+            throws InterruptedException {
+        int waiting = (int) gauge("waiting", priority);
+        Future<?> task = executor.submit(() -> {
+            try (ParseScheduler.Permit permit = scheduler.acquire(priority, flow)) {
+                order.add(priority.getTag() + ":" + flow);
+                permit.close();
+            }
+        });
+        awaitWaiting(priority, waiting + 1);
+        return task;
+    }
+
+    private Future<ParseScheduler.Permit> acquireAsync(ParseScheduler scheduler, Priority priority, String flow) {
+        return executor.submit(() -> scheduler.acquire(priority, flow));
+    }
+
+    private void awaitWaiting(Priority priority, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge("waiting", priority) != expected && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+        }
+        assertThat(gauge("waiting", priority)).isEqualTo(expected);
+    }
+
+    private double gauge(String name, Priority priority) {
+        return registry.get("dingtalk.parse.scheduler." + name).tag("priority", priority.getTag()).gauge().value();
+    }
+}
@@ -0,0 +1,194 @@
+package com.dingtalk.doc.service.search;
+
+import com.dingtalk.doc.config.SearchIndexConfig;
+import com.dingtalk.doc.model.dto.SearchHit;
+import com.dingtalk.doc.model.dto.SearchResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 全文检索索引测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class SearchIndexTest {
+
+    @TempDir
+    Path outputDir;
+
+    private final List<SearchIndex> opened = new ArrayList<>();
+    private SearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(SearchIndex::close);
+    }
+
+    @Test
+    void tokenizesCjkAsBigramsAndWordsAsLowercase() {
+        assertThat(CjkTokenizer.tokenize("钉钉文档 Parser v2"))
+            .containsExactly("钉钉", "钉文", "文档", "parser", "v2");
+        // 单独一个汉字保留单字，标点和 Markdown 标记是分隔符
+        assertThat(CjkTokenizer.tokenize("**字**, Hello-World_2024"))
+            .containsExactly("字", "hello", "world", "2024");
+        assertThat(CjkTokenizer.tokenize("ひらがなカタカナ")).containsExactly(
+            "ひら", "らが", "がな", "なカ", "カタ", "タカ", "カナ");
+    }
+
+    @Test
+    void tokenizerSkipsImagesAndOverlongWords() {
+        assertThat(CjkTokenizer.tokenize("前 ![截图](./images/image_001.png) 后")).containsExactly("前", "后");
+        assertThat(CjkTokenizer.tokenize("hash " + "a".repeat(65) + " end")).containsExactly("hash", "end");
+        assertThat(CjkTokenizer.termFrequencies("文档 文档 doc")).containsEntry("文档", 2).containsEntry("doc", 1);
+    }
+
+    @Test
+    void reindexingPathReplacesBufferedEntry() throws Exception {
+        Path doc = write("a", "苹果的价格");
+        index.index(doc.toString(), "a", "苹果的价格");
+        write("a", "香蕉的价格");
+        index.index(doc.toString(), "a", "香蕉的价格");
+
+        assertThat(search("苹果").getTotal()).isZero();
+        assertThat(paths(search("香蕉"))).containsExactly(doc.toString());
+        assertThat(search("价格").getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void reindexingPathReplacesFlushedEntry() throws Exception {
+        Path doc = write("a", "苹果的价格");
+        index.index(doc.toString(), "a", "苹果的价格");
+        index.flush();
+        write("a", "香蕉的价格");
+        index.index(doc.toString(), "a", "香蕉的价格");
+
+        assertThat(search("苹果").getTotal()).isZero();
+        assertThat(search("价格").getTotal()).isEqualTo(1);
+
+        index.flush();
+        assertThat(search("苹果").getTotal()).isZero();
+        assertThat(paths(search("香蕉"))).containsExactly(doc.toString());
+    }
+
+    @Test
+    void searchFindsDocumentsAfterFlushAndMerge() throws Exception {
+        Path a = indexDoc("a", "知识库导出 ZIP 归档");
+        index.flush();
+        Path b = indexDoc("b", "知识库批量解析");
+        index.flush();
+        indexDoc("a", "检查点日志");
+        index.flush();
+
+        assertThat(paths(search("知识库"))).containsExactly(b.toString());
+        assertThat(segmentFiles()).hasSize(3);
+
+        index.merge();
+
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(paths(search("知识库"))).containsExactly(b.toString());
+        assertThat(paths(search("检查点"))).containsExactly(a.toString());
+        assertThat(search("zip").getTotal()).isZero();
+
+        // 合并后的段继续接收新文档
+        Path c = indexDoc("c", "知识库索引");
+        assertThat(paths(search("知识库"))).containsExactlyInAnyOrder(b.toString(), c.toString());
+    }
+
+    @Test
+    void ranksByBm25AndReturnsSnippet() throws Exception {
+        Path often = indexDoc("often", "熔断 熔断 熔断 上游");
+        Path once = indexDoc("once", "熔断 以及其他很多不相关的内容 内容 内容 内容");
+        index.flush();
+
+        SearchResponse response = search("熔断");
+        assertThat(paths(response)).containsExactly(often.toString(), once.toString());
+        assertThat(response.getHits().get(0).getSnippet()).contains("熔断");
+    }
+
+    @Test
+    void reloadsSegmentsFromIndexDirectoryOnRestart() throws Exception {
+        Path a = indexDoc("a", "苹果 钉钉");
+        index.flush();
+        indexDoc("a", "香蕉 钉钉");
+        Path b = indexDoc("b", "钉钉 开放平台");
+        // close 时写盘
+        index.close();
+        opened.remove(index);
+
+        SearchIndex reopened = open();
+        assertThat(paths(reopened.search("钉钉", 10))).containsExactlyInAnyOrder(a.toString(), b.toString());
+        // 后写入的段覆盖前面段中的同一路径
+        assertThat(reopened.search("苹果", 10).getTotal()).isZero();
+        assertThat(reopened.search("香蕉", 10).getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    void recoversDocumentsMissingFromIndex() throws Exception {
+        // 按输出目录结构（标题/标题.md）写入、但从未索引的文档
+        Path dir = Files.createDirectories(outputDir.resolve("遗漏"));
+        Files.writeString(dir.resolve("遗漏.md"), "# 遗漏\n\n崩溃前没有写盘的文档");
+
+        SearchIndex reopened = open();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (reopened.search("写盘", 10).getTotal() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(reopened.search("写盘", 10).getTotal()).isEqualTo(1);
+    }
+
+    private SearchIndex open() {
+        SearchIndexConfig config = new SearchIndexConfig();
+        // 只在测试中手动写盘和合并
+        config.setFlushDocs(1000);
+        config.setFlushInterval(3_600_000);
+        config.setMaxSegments(100);
+        SearchIndex searchIndex = new SearchIndex(config);
+        searchIndex.open(outputDir);
+        opened.add(searchIndex);
+        return searchIndex;
+    }
+
+    /**
+     * 写入并索引文档，文件放在 docs 下，不会被启动补建扫描到
+     */
+    private Path indexDoc(String title, String content) throws Exception {
+        Path file = write(title, content);
+        index.index(file.toString(), title, content);
+        return file;
+    }
+
+    private Path write(String title, String content) throws Exception {
+        Path file = Files.createDirectories(outputDir.resolve("docs")).resolve(title + ".md");
+        Files.writeString(file, content);
+        return file.toAbsolutePath();
+    }
+
+    private SearchResponse search(String query) {
+        return index.search(query, 10);
+    }
+
+    private static List<String> paths(SearchResponse response) {
+        return response.getHits().stream().map(SearchHit::getFilePath).toList();
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(outputDir.resolve(".index"))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".idx")).toList();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.dingtalk.doc.support;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 合成文档的形态参数
+ * 各类元素按权重随机选择，直到 body 达到目标大小
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Value
+@Builder(toBuilder = true)
+public class DocumentShape {
+
+    /**
+     * body 序列化后的目标大小（字节）
+     */
+    @Builder.Default
+    int targetBytes = 64 * 1024;
+
+    @Builder.Default
+    int paragraphWeight = 40;
+
+    @Builder.Default
+    int headingWeight = 8;
+
+    @Builder.Default
+    int tableWeight = 6;
+
+    @Builder.Default
+    int codeWeight = 6;
+
+    @Builder.Default
+    int listWeight = 12;
+
+    @Builder.Default
+    int imageWeight = 4;
+
+    @Builder.Default
+    int docRefWeight = 4;
+
+    @Builder.Default
+    int blockquoteWeight = 3;
+
+    /**
+     * 表格最大行数（含表头）
+     */
+    @Builder.Default
+    int maxTableRows = 20;
+
+    /**
+     * 表格最大列数
+     */
+    @Builder.Default
+    int maxTableColumns = 6;
+
+    /**
+     * 列表最大嵌套层级（level 从 0 开始）
+     */
+    @Builder.Default
+    int maxListDepth = 3;
+
+    /**
+     * 代码块最大行数
+     */
+    @Builder.Default
+    int maxCodeLines = 30;
+
+    /**
+     * 中文文本所占比例（0-100）
+     */
+    @Builder.Default
+    int chinesePercent = 70;
+
+    /**
+     * 图片地址前缀，负载测试中指向 WireMock
+     */
+    @Builder.Default
+    String imageBaseUrl = "https://static.dingtalk.com/media";
+
+    /**
+     * 文档引用地址前缀
+     */
+    @Builder.Default
+    String docBaseUrl = "https://alidocs.dingtalk.com";
+
+    /**
+     * 页面 HTML 的目标大小（字节），0 表示不填充
+     */
+    @Builder.Default
+    int pageBytes = 0;
+
+    /**
+     * 各类元素混合的默认形态
+     */
+    public static DocumentShape balanced(int targetBytes) {
+        return DocumentShape.builder().targetBytes(targetBytes).build();
+    }
+
+    /**
+     * 以大表格为主的形态（导出的电子表格粘贴到文档中）
+     */
+    public static DocumentShape tableHeavy(int targetBytes) {
+        return DocumentShape.builder()
+                .targetBytes(targetBytes)
+                .paragraphWeight(5)
+                .headingWeight(2)
+                .tableWeight(80)
+                .codeWeight(0)
+                .listWeight(2)
+                .imageWeight(0)
+                .docRefWeight(1)
+                .blockquoteWeight(0)
+                .maxTableRows(200)
+                .maxTableColumns(10)
+                .build();
+    }
+
+    /**
+     * 只有段落和标题的纯文本形态
+     */
+    public static DocumentShape textOnly(int targetBytes) {
+        return DocumentShape.builder()
+                .targetBytes(targetBytes)
+                .tableWeight(0)
+                .codeWeight(0)
+                .listWeight(0)
+                .imageWeight(0)
+                .docRefWeight(0)
+                .blockquoteWeight(0)
+                .build();
+    }
+
+    int totalWeight() {
+        return paragraphWeight + headingWeight + tableWeight + codeWeight
+                + listWeight + imageWeight + docRefWeight + blockquoteWeight;
+    }
+}
@@ -0,0 +1,28 @@
+package com.dingtalk.doc.support;
+
+import com.dingtalk.doc.service.DingTalkHttpClient;
+import com.dingtalk.doc.service.metrics.HttpClientMetrics;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 不发起网络请求的 HTTP 客户端，供渲染测试和基准测试使用
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public class NoopImageHttpClient extends DingTalkHttpClient {
+
+    public NoopImageHttpClient() {
+        super(null, new ParseMetrics(new SimpleMeterRegistry()), new HttpClientMetrics(new SimpleMeterRegistry()), null, null);
+    }
+
+    @Override
+    public void downloadImage(String imageUrl, String cookie, String outputPath) {
+        // 不下载图片
+    }
+
+    @Override
+    public byte[] fetchImage(String imageUrl, String cookie) {
+        return new byte[0];
+    }
+}
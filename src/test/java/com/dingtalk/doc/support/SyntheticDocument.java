@@ -0,0 +1,110 @@
+package com.dingtalk.doc.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 生成的合成文档
+ * 可以输出 MarkdownGenerator 使用的内容 JSON、/api/document/data 响应以及文档页面 HTML
+ *
+ * @author DingTalk Doc Parser Team
+ */
+@Getter
+public class SyntheticDocument {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String nodeId;
+
+    private final String dentryKey;
+
+    private final String title;
+
+    /**
+     * main/parts/body 结构的文档内容
+     */
+    private final ObjectNode content;
+
+    /**
+     * 文档中出现的图片地址（按出现顺序）
+     */
+    private final List<String> imageUrls;
+
+    private final int pageBytes;
+
+    SyntheticDocument(String nodeId, String dentryKey, String title, ObjectNode content,
+                      List<String> imageUrls, int pageBytes) {
+        this.nodeId = nodeId;
+        this.dentryKey = dentryKey;
+        this.title = title;
+        this.content = content;
+        this.imageUrls = List.copyOf(imageUrls);
+        this.pageBytes = pageBytes;
+    }
+
+    /**
+     * 文档内容 JSON 字符串（checkpoint.content 的值）
+     */
+    public String contentJson() {
+        return write(content);
+    }
+
+    /**
+     * POST /api/document/data 的响应体
+     */
+    public String documentDataJson() {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("success", true);
+        ObjectNode data = root.putObject("data");
+        data.put("dentryKey", dentryKey);
+        ObjectNode checkpoint = data.putObject("documentContent").putObject("checkpoint");
+        checkpoint.put("content", contentJson());
+        checkpoint.put("version", 1);
+        return write(root);
+    }
+
+    /**
+     * mainsite_server_content 中的 JSON
+     */
+    public String mainsiteJson() {
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode dentry = root.putObject("dentryInfo").putObject("data");
+        dentry.put("dentryKey", dentryKey);
+        dentry.put("name", title + ".adoc");
+        dentry.put("dentryUuid", nodeId);
+        root.putObject("data").put("nodeId", nodeId);
+        return write(root);
+    }
+
+    /**
+     * GET /i/nodes/{nodeId} 返回的文档页面
+     */
+    public String pageHtml() {
+        StringBuilder html = new StringBuilder(Math.max(1024, pageBytes + 256));
+        html.append("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n<meta charset=\"utf-8\">\n<title>")
+            .append(title)
+            .append("</title>\n</head>\n<body>\n<div id=\"root\"></div>\n")
+            .append("<script id=\"mainsite_server_content\" type=\"application/json\">")
+            .append(mainsiteJson())
+            .append("</script>\n");
+
+        String filler = "<!-- alidocs bundle padding: 钉钉文档页面脚本占位 -->\n";
+        while (html.length() + filler.length() < pageBytes) {
+            html.append(filler);
+        }
+        return html.append("</body>\n</html>\n").toString();
+    }
+
+    private static String write(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
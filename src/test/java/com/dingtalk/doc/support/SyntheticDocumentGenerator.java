@@ -0,0 +1,361 @@
+package com.dingtalk.doc.support;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 合成钉钉文档生成器
+ * 按 DocumentShape 生成 main/parts/body 数组标签格式的文档，相同种子得到完全相同的结果
+ *
+ * <pre>
+ * SyntheticDocument doc = new SyntheticDocumentGenerator(42L)
+ *         .generate(DocumentShape.tableHeavy(1024 * 1024));
+ * String page = doc.pageHtml();
+ * String data = doc.documentDataJson();
+ * </pre>
+ *
+ * @author DingTalk Doc Parser Team
+ */
+public class SyntheticDocumentGenerator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String MAIN_PART = "main";
+
+    private static final String[] CHINESE_PHRASES = {
+        "钉钉文档", "知识库", "解析服务", "数据同步", "接口说明", "性能优化", "部署方案", "权限管理",
+        "需要注意的是", "在实际使用中", "根据业务需求", "我们建议", "配置文件", "运行环境", "版本发布",
+        "负载测试", "缓存策略", "错误处理", "日志记录", "用户反馈", "团队协作", "项目进度", "技术方案",
+        "首先", "然后", "最后", "同时", "因此", "例如", "以及", "包括"
+    };
+
+    private static final String[] ENGLISH_WORDS = {
+        "document", "parser", "markdown", "workspace", "node", "export", "latency", "throughput",
+        "request", "response", "cookie", "token", "table", "image", "render", "cache", "index",
+        "service", "config", "deploy", "the", "and", "with", "for", "from", "into", "API", "JSON"
+    };
+
+    private static final String[] CODE_SYNTAX = {
+        "text/x-java", "text/x-python", "text/x-javascript", "text/x-go", "text/x-sql",
+        "text/x-sh", "application/json", "text/plain", "text/x-yaml"
+    };
+
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".gif", ".webp"};
+
+    private final long seed;
+
+    public SyntheticDocumentGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 生成一篇文档
+     *
+     * @param shape 文档形态
+     * @return 合成文档
+     */
+    public SyntheticDocument generate(DocumentShape shape) {
+        if (shape.totalWeight() <= 0) {
+            throw new IllegalArgumentException("至少需要一种元素的权重大于 0");
+        }
+        return new Builder(new Random(seed), shape).build();
+    }
+
+    /**
+     * 单次生成过程的状态
+     */
+    private static final class Builder {
+
+        private final Random random;
+        private final DocumentShape shape;
+        private final ObjectNode content = MAPPER.createObjectNode();
+        private final ObjectNode parts;
+        private final ArrayNode body;
+        private final List<String> imageUrls = new ArrayList<>();
+
+        private long bodyBytes;
+        private int refCounter;
+
+        Builder(Random random, DocumentShape shape) {
+            this.random = random;
+            this.shape = shape;
+            content.put("main", MAIN_PART);
+            this.parts = content.putObject("parts");
+            this.body = parts.putObject(MAIN_PART).putObject("data").putArray("body");
+        }
+
+        SyntheticDocument build() {
+            String nodeId = randomId(32);
+            String dentryKey = randomId(24);
+            String title = phrase(2, 5).replace(' ', '_');
+
+            // body 的前两个元素是根标签和根属性
+            body.add("root");
+            body.addObject().put("type", "doc");
+            bodyBytes = size(body);
+
+            while (bodyBytes < shape.getTargetBytes()) {
+                appendBlock();
+            }
+
+            return new SyntheticDocument(nodeId, dentryKey, title, content, imageUrls, shape.getPageBytes());
+        }
+
+        private void appendBlock() {
+            int pick = random.nextInt(shape.totalWeight());
+            if ((pick -= shape.getParagraphWeight()) < 0) {
+                add(paragraph());
+            } else if ((pick -= shape.getHeadingWeight()) < 0) {
+                add(heading());
+            } else if ((pick -= shape.getTableWeight()) < 0) {
+                add(table());
+            } else if ((pick -= shape.getCodeWeight()) < 0) {
+                add(codeBlock());
+            } else if ((pick -= shape.getListWeight()) < 0) {
+                appendList();
+            } else if ((pick -= shape.getImageWeight()) < 0) {
+                add(image());
+            } else if ((pick -= shape.getDocRefWeight()) < 0) {
+                add(docRefParagraph());
+            } else {
+                add(blockquote());
+            }
+        }
+
+        private void add(ArrayNode element) {
+            body.add(element);
+            // 每个元素多一个逗号
+            bodyBytes += size(element) + 1;
+        }
+
+        private ArrayNode paragraph() {
+            ArrayNode p = element("p");
+            p.addObject().put("uuid", randomId(8));
+            int runs = 1 + random.nextInt(4);
+            for (int i = 0; i < runs; i++) {
+                if (random.nextInt(10) == 0) {
+                    p.add(link());
+                } else {
+                    p.add(span(random.nextInt(5) == 0, sentence()));
+                }
+            }
+            return p;
+        }
+
+        private ArrayNode heading() {
+            ArrayNode h = element("h" + (1 + random.nextInt(6)));
+            h.addObject();
+            h.add(span(random.nextBoolean(), phrase(1, 4)));
+            return h;
+        }
+
+        private ArrayNode table() {
+            int columns = 1 + random.nextInt(Math.max(1, shape.getMaxTableColumns()));
+            int rows = 1 + random.nextInt(Math.max(1, shape.getMaxTableRows()));
+
+            ArrayNode table = element("table");
+            ArrayNode widths = table.addObject().putArray("colsWidth");
+            for (int c = 0; c < columns; c++) {
+                widths.add(80 + random.nextInt(200));
+            }
+
+            for (int r = 0; r < rows; r++) {
+                ArrayNode tr = element("tr");
+                tr.addObject();
+                for (int c = 0; c < columns; c++) {
+                    ArrayNode tc = element("tc");
+                    tc.addObject();
+                    ArrayNode p = element("p");
+                    p.addObject();
+                    p.add(span(r == 0, r == 0 ? phrase(1, 2) : phrase(1, 6)));
+                    tc.add(p);
+                    tr.add(tc);
+                }
+                table.add(tr);
+            }
+            return table;
+        }
+
+        private ArrayNode codeBlock() {
+            int lines = 1 + random.nextInt(Math.max(1, shape.getMaxCodeLines()));
+            StringBuilder code = new StringBuilder();
+            for (int i = 0; i < lines; i++) {
+                if (i > 0) {
+                    code.append('\n');
+                }
+                code.append("  ".repeat(random.nextInt(3)))
+                    .append(ENGLISH_WORDS[random.nextInt(ENGLISH_WORDS.length)])
+                    .append('(')
+                    .append(ENGLISH_WORDS[random.nextInt(ENGLISH_WORDS.length)])
+                    .append(", ")
+                    .append(random.nextInt(1000))
+                    .append(");");
+            }
+
+            ArrayNode element = element("code");
+            ObjectNode attrs = element.addObject();
+            attrs.put("syntax", CODE_SYNTAX[random.nextInt(CODE_SYNTAX.length)]);
+            attrs.put("code", code.toString());
+            return element;
+        }
+
+        /**
+         * 列表：大多数是带 list 属性的段落（钉钉实际格式），少量是 ul/ol + li
+         */
+        private void appendList() {
+            if (random.nextInt(5) == 0) {
+                ArrayNode list = element(random.nextBoolean() ? "ol" : "ul");
+                list.addObject();
+                int items = 1 + random.nextInt(8);
+                for (int i = 0; i < items; i++) {
+                    ArrayNode li = element("li");
+                    li.addObject();
+                    li.add(span(random.nextInt(6) == 0, phrase(1, 6)));
+                    list.add(li);
+                }
+                add(list);
+                return;
+            }
+
+            boolean ordered = random.nextBoolean();
+            String listId = randomId(6);
+            int items = 1 + random.nextInt(10);
+            int level = 0;
+            for (int i = 0; i < items; i++) {
+                ArrayNode p = element("p");
+                ObjectNode list = p.addObject().putObject("list");
+                list.put("level", level);
+                list.put("isOrdered", ordered);
+                list.put("listId", listId);
+                p.add(span(random.nextInt(6) == 0, phrase(1, 8)));
+                if (random.nextInt(12) == 0) {
+                    p.add(link());
+                }
+                add(p);
+
+                // 层级随机游走，模拟嵌套列表
+                int step = random.nextInt(3) - 1;
+                level = Math.max(0, Math.min(shape.getMaxListDepth() - 1, level + step));
+            }
+        }
+
+        private ArrayNode image() {
+            String url = shape.getImageBaseUrl() + "/img_" + randomId(12)
+                    + IMAGE_EXTENSIONS[random.nextInt(IMAGE_EXTENSIONS.length)];
+            imageUrls.add(url);
+
+            ArrayNode img = element("img");
+            ObjectNode attrs = img.addObject();
+            attrs.put("src", url);
+            attrs.put("name", phrase(1, 2));
+
+            // 图片通常包在段落中，偶尔作为顶层元素出现
+            if (random.nextInt(4) == 0) {
+                return img;
+            }
+            ArrayNode p = element("p");
+            p.addObject();
+            p.add(img);
+            return p;
+        }
+
+        private ArrayNode docRefParagraph() {
+            String refId = "ref-" + (++refCounter) + "-" + randomId(6);
+            ObjectNode refData = parts.putObject(refId).putObject("data");
+            refData.put("fileName", phrase(1, 4));
+            refData.put("metaUrl", shape.getDocBaseUrl() + "/i/nodes/" + randomId(32));
+            bodyBytes += size(refData) + refId.length() + 16;
+
+            ArrayNode p = element("p");
+            p.addObject();
+            p.add(span(false, phrase(1, 3)));
+            ArrayNode tag = element("tag");
+            ObjectNode attrs = tag.addObject();
+            attrs.put("tagType", "hetu");
+            attrs.putObject("metadata").put("id", refId);
+            p.add(tag);
+            return p;
+        }
+
+        private ArrayNode blockquote() {
+            ArrayNode quote = element("blockquote");
+            quote.addObject();
+            int paragraphs = 1 + random.nextInt(3);
+            for (int i = 0; i < paragraphs; i++) {
+                ArrayNode p = element("p");
+                p.addObject();
+                p.add(span(false, sentence()));
+                quote.add(p);
+            }
+            return quote;
+        }
+
+        private ArrayNode link() {
+            ArrayNode a = element("a");
+            a.addObject().put("href", "https://example.com/" + randomId(8));
+            a.add(span(false, phrase(1, 3)));
+            return a;
+        }
+
+        private ArrayNode span(boolean bold, String text) {
+            ArrayNode span = element("span");
+            ObjectNode attrs = span.addObject();
+            if (bold) {
+                attrs.put("bold", true);
+            }
+            span.add(text);
+            return span;
+        }
+
+        private ArrayNode element(String tag) {
+            ArrayNode element = MAPPER.createArrayNode();
+            element.add(tag);
+            return element;
+        }
+
+        private String sentence() {
+            return phrase(4, 16) + (random.nextBoolean() ? "。" : ".");
+        }
+
+        private String phrase(int minWords, int maxWords) {
+            int words = minWords + random.nextInt(maxWords - minWords + 1);
+            StringBuilder text = new StringBuilder();
+            boolean chinese = random.nextInt(100) < shape.getChinesePercent();
+            for (int i = 0; i < words; i++) {
+                if (chinese) {
+                    text.append(CHINESE_PHRASES[random.nextInt(CHINESE_PHRASES.length)]);
+                } else {
+                    if (i > 0) {
+                        text.append(' ');
+                    }
+                    text.append(ENGLISH_WORDS[random.nextInt(ENGLISH_WORDS.length)]);
+                }
+            }
+            return text.toString();
+        }
+
+        private String randomId(int length) {
+            String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+            StringBuilder id = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                id.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            return id.toString();
+        }
+
+        private static long size(Object node) {
+            try {
+                return MAPPER.writeValueAsBytes(node).length;
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dingtalk.doc.support;
+
+import com.dingtalk.doc.service.MarkdownGenerator;
+import com.dingtalk.doc.service.metrics.ParseMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import net.jqwik.api.lifecycle.AfterContainer;
+import net.jqwik.api.lifecycle.BeforeContainer;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 合成文档生成器属性测试
+ *
+ * @author DingTalk Doc Parser Team
+ */
+class SyntheticDocumentGeneratorPropertyTest {
+
+    private static Path outputDir;
+
+    @BeforeContainer
+    static void createOutputDir() throws Exception {
+        outputDir = Files.createTempDirectory("synthetic-doc");
+    }
+
+    @AfterContainer
+    static void deleteOutputDir() throws Exception {
+        FileSystemUtils.deleteRecursively(outputDir);
+    }
+
+    @Property(tries = 30)
+    void sameSeedProducesSameDocument(@ForAll long seed, @ForAll("shapes") DocumentShape shape) {
+        SyntheticDocument first = new SyntheticDocumentGenerator(seed).generate(shape);
+        SyntheticDocument second = new SyntheticDocumentGenerator(seed).generate(shape);
+
+        assertThat(second.documentDataJson()).isEqualTo(first.documentDataJson());
+        assertThat(second.pageHtml()).isEqualTo(first.pageHtml());
+    }
+
+    @Property(tries = 30)
+    void generatedDocumentReachesTargetSize(@ForAll long seed, @ForAll("shapes") DocumentShape shape) {
+        SyntheticDocument document = new SyntheticDocumentGenerator(seed).generate(shape);
+
+        assertThat(document.contentJson().getBytes(StandardCharsets.UTF_8).length).isGreaterThanOrEqualTo(shape.getTargetBytes());
+        assertThat(document.pageHtml()).contains("mainsite_server_content", document.getDentryKey());
+    }
+
+    @Property(tries = 30)
+    void generatedDocumentRendersToMarkdown(@ForAll long seed, @ForAll("shapes") DocumentShape shape) {
+        SyntheticDocument document = new SyntheticDocumentGenerator(seed).generate(shape);
+        MarkdownGenerator generator = new MarkdownGenerator(new NoopImageHttpClient(), new ParseMetrics(new SimpleMeterRegistry()));
+
+        String markdown = generator.generateMarkdown(
+            document.getContent(), document.getTitle(), "cookie", outputDir.toString());
+
+        assertThat(markdown).startsWith("# " + document.getTitle());
+        assertThat(markdown.length()).isGreaterThan(document.getTitle().length() + 2);
+    }
+
+    @Provide
+    Arbitrary<DocumentShape> shapes() {
+        Arbitrary<Integer> sizes = Arbitraries.integers().between(1024, 32 * 1024);
+        return Arbitraries.oneOf(
+            sizes.map(DocumentShape::balanced),
+            sizes.map(DocumentShape::tableHeavy),
+            sizes.map(DocumentShape::textOnly)
+        );
+    }
+}